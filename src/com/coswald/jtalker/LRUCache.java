@@ -0,0 +1,80 @@
+/*
+ * LRUCache.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>A map that only holds so many entries, and forgets the least recently
+ * used entry when it grows past that. This is a {@code LinkedHashMap} kept in
+ * access order, so both {@code get} and {@code put} count as using an entry.
+ * Just like a {@code LinkedHashMap}, this class is not synchronized.</p>
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see java.util.LinkedHashMap#removeEldestEntry(Map.Entry)
+ */
+public class LRUCache<K, V> extends LinkedHashMap<K, V>
+{
+  private static final long serialVersionUID = 3419620158046323716L;
+  
+  private int capacity;
+  
+  /**
+   * Constructs an empty cache that holds at most {@code capacity} entries.
+   * @param capacity The most entries the cache may hold.
+   * @throws IllegalArgumentException If the capacity is not positive.
+   */
+  public LRUCache(int capacity)
+  {
+    super(16, 0.75f, true);
+    if(capacity <= 0)
+    {
+      throw new IllegalArgumentException("Capacity must be positive!");
+    }
+    this.capacity = capacity;
+  }
+  
+  /**
+   * Returns the most entries this cache may hold.
+   * @return The capacity.
+   */
+  public int getCapacity()
+  {
+    return this.capacity;
+  }
+  
+  /**
+   * Returns {@code true} when the cache has grown past its capacity, which
+   * tells the map to remove the least recently used entry.
+   * @param eldest The least recently used entry.
+   * @return Whether the eldest entry should be removed.
+   */
+  @Override
+  protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+  {
+    return this.size() > this.capacity;
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Snapshottable.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Describes an object whose state can be written into a snapshot, and that can
+ * start from such a snapshot instead of rebuilding its state from scratch. An
+ * object that is {@code Snapshottable} is usually also
+ * {@link com.coswald.jtalker.Initializable Initializable}: the
+ * {@link #restore(DataInput) restore} method then takes the place of the
+ * {@link com.coswald.jtalker.Initializable#init() init} method. If a snapshot
+ * can not be used (it is damaged, or too much has changed since it was
+ * written), restoring fails, and the object should be initialized as usual.
+ * 
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.ServerSnapshot
+ */
+public interface Snapshottable
+{
+  /**
+   * Writes the state of this object. This may be called at any time, from any
+   * thread, while the object is in use.
+   * @param out Where to write the state to.
+   * @throws IOException If an I/O error occurs.
+   */
+  public abstract void snapshot(DataOutput out) throws IOException;
+  
+  /**
+   * Restores the state of this object from a snapshot written by the
+   * {@link #snapshot(DataOutput) snapshot} method, finishing its
+   * initialization. If this fails, the object must still be able to be
+   * initialized as usual.
+   * @param in Where to read the state from.
+   * @throws IOException If an I/O error occurs, or the snapshot can not be
+   *  used.
+   */
+  public abstract void restore(DataInput in) throws IOException;
+}
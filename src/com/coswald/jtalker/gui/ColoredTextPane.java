@@ -35,6 +35,8 @@ import java.awt.print.Printable;
 import javax.swing.JTextPane;
 import javax.swing.plaf.ComponentUI;
 import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultCaret;
 import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.StyleConstants;
 import javax.swing.text.StyleContext;
@@ -47,6 +49,9 @@ import javax.swing.text.StyleContext;
  * {@link com.coswald.jtalker.gui.ANSIColorConstants constants} class to see
  * what codes have been interpreted by this pane. This also makes the pane
  * ignore word wrap.</p>
+ * <p>Text may also be {@link #prepend(String) prepended} to the pane. This is
+ * used to show older history above what has already been appended, and only
+ * the new text is drawn; the rest of the document is left alone.</p>
  * <p>The method for which ANSI color codes can be derived was mainly received
  * by
  * <a href="https://stackoverflow.com/questions/6899282/ansi-colors-in-java-swing-text-fields">this</a>
@@ -55,7 +60,7 @@ import javax.swing.text.StyleContext;
  * <p align="center">
  * <img src="../../../../img/ColoredTextPane.png" alt="" width="800"></p>
  * @author C. William Oswald
- * @version 0.0.1
+ * @version 0.0.3
  * @since JTalker 0.1.5
  * @see com.coswald.jtalker.gui.ANSIColorConstants
  */
@@ -310,6 +315,87 @@ public class ColoredTextPane extends JTextPane implements Printable
     this.setEditable(false);
   }
   
+  /**
+   * Inserts the given text at the very start of the pane. Just like the
+   * {@link #append(String) append} method, this string may contain ANSI color
+   * codes. The colors used by the prepended text start out reset, and they do
+   * not change the colors of anything appended afterwards. Only the prepended
+   * text is drawn, and the caret and the current scroll position are left
+   * where they were. An escape sequence that is cut off at the end of the
+   * string is dropped. Prepended text is not added to the
+   * {@link #getHistory() history} of what was appended, so it is gone once
+   * the pane is redrawn, and must be prepended again.
+   * @param s The string that may contain ANSI color codes.
+   */
+  public void prepend(String s)
+  {
+    DefaultCaret caret = (this.getCaret() instanceof DefaultCaret) ?
+      (DefaultCaret)this.getCaret() : null;
+    int policy = (caret == null) ? 0 : caret.getUpdatePolicy();
+    if(caret != null)
+    {
+      //Don't let the caret drag the view to where it is after the insertion
+      caret.setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+    }
+    
+    Color foreground = ANSIColorConstants.COLOR_RESET;
+    Color background = ANSIColorConstants.BACKGROUND_RESET;
+    int offset = 0;
+    int position = 0;
+    try
+    {
+      while(position < s.length())
+      {
+        int escape = s.indexOf(ANSIColorConstants.ESCAPE_TEXT, position);
+        int end = (escape < 0) ? s.length() : escape;
+        offset = this.insert(offset, s.substring(position, end), foreground,
+          background);
+        if(escape < 0)
+        {
+          break;
+        }
+        int mIndex = s.indexOf(ANSIColorConstants.ESCAPE_TEXT_END, escape);
+        if(mIndex < 0)
+        {
+          break;
+        }
+        String code = s.substring(escape, mIndex + 1);
+        if(!ANSIColorConstants.isEscape(code))
+        {
+          //skip the escape text, but still process all the gobbldy gook
+          position = escape + 1;
+          continue;
+        }
+        if(ANSIColorConstants.isReset(code) || !this.colorMode)
+        {
+          foreground = ANSIColorConstants.COLOR_RESET;
+          background = ANSIColorConstants.BACKGROUND_RESET;
+        }
+        else if(ANSIColorConstants.isBackgroundEscape(code))
+        {
+          background = ANSIColorConstants.getANSIColor(code);
+        }
+        else
+        {
+          foreground = ANSIColorConstants.getANSIColor(code);
+        }
+        position = mIndex + 1;
+      }
+    }
+    catch(BadLocationException ble)
+    {
+      //the offset is always within the document, so this never happens
+      ble.printStackTrace();
+    }
+    finally
+    {
+      if(caret != null)
+      {
+        caret.setUpdatePolicy(policy);
+      }
+    }
+  }
+  
   /**
    * Returns whether colors have been enabled with the text pane.
    * @return Whether colors have been enabled with the text pane.
@@ -369,4 +455,18 @@ public class ColoredTextPane extends JTextPane implements Printable
     this.setCharacterAttributes(aset, false);
     this.replaceSelection(s); //there is no selection, so inserts at caret
   }
+  
+  /*
+   * Inserts the text at the given offset of the document with the given
+   * colors, and returns the offset just after the inserted text.
+   */
+  private int insert(int offset, String s, Color foreground, Color background)
+    throws BadLocationException
+  {
+    SimpleAttributeSet aset = new SimpleAttributeSet();
+    StyleConstants.setForeground(aset, foreground);
+    StyleConstants.setBackground(aset, background);
+    this.getStyledDocument().insertString(offset, s, aset);
+    return offset + s.length();
+  }
 }
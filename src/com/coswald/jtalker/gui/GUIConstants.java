@@ -163,5 +163,12 @@ public final class GUIConstants
    */
   public static final int JTALKER_WIDTH = 1200;
   
+  /**
+   * The most pages of history the JTalker application keeps in memory at once.
+   * This is currently set to {@value}.
+   * @see com.coswald.jtalker.gui.HistoryPager
+   */
+  public static final int HISTORY_CACHE_PAGES = 16;
+  
   private GUIConstants() {}
 }
@@ -0,0 +1,260 @@
+/*
+ * HistoryPager.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.gui;
+
+import com.coswald.jtalker.LRUCache;
+import com.coswald.jtalker.gui.ColoredTextPane;
+import com.coswald.jtalker.gui.GUIConstants;
+import com.coswald.jtalker.net.HistoryListener;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPClient;
+
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+
+/**
+ * <p>Loads older history into a {@code ColoredTextPane} when the user scrolls
+ * to the top of it. A {@code ColoredTextPane} only holds what arrived while we
+ * were connected; once the vertical scroll bar of its {@code JScrollPane}
+ * reaches the top, this pager asks the server for the page of history that
+ * comes before the oldest line shown, and
+ * {@link com.coswald.jtalker.gui.ColoredTextPane#prepend(String) prepends} it
+ * once it arrives. The view is then moved down by the height of the new text,
+ * so what the user was reading stays where it was.</p>
+ * <p>Asking for a page never happens on the event dispatch thread. The request
+ * is written by a background thread, and the answer arrives on the listening
+ * thread of the {@code TCPClient}, which hands it back to the event dispatch
+ * thread. Only one page is asked for at a time.</p>
+ * <p>Every page that arrives is kept within a least recently used
+ * {@link com.coswald.jtalker.LRUCache cache} of
+ * {@value com.coswald.jtalker.gui.GUIConstants#HISTORY_CACHE_PAGES} pages, so
+ * that clearing the pane and scrolling back up again does not have to ask the
+ * server twice, while a long session can not fill the heap with pages.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.TCPClient#requestHistory(long, int)
+ */
+public class HistoryPager implements AdjustmentListener, HistoryListener
+{
+  private ColoredTextPane coloredText;
+  private JScrollPane scrollPane;
+  private TCPClient client;
+  
+  private Map<Long, Page> cache;
+  private ExecutorService requester;
+  
+  //The index before which history still has to be loaded; -1 if unknown.
+  private long oldest;
+  private boolean loading;
+  
+  /**
+   * Constructs a pager for the given pane. Nothing is loaded until the pager is
+   * given a {@link #setScrollPane(JScrollPane) scroll pane} to watch and a
+   * {@link #setClient(TCPClient) client} to ask.
+   * @param coloredText The pane to prepend history to.
+   */
+  public HistoryPager(ColoredTextPane coloredText)
+  {
+    this.coloredText = coloredText;
+    this.cache = new LRUCache<Long, Page>(GUIConstants.HISTORY_CACHE_PAGES);
+    this.requester = Executors.newSingleThreadExecutor(r ->
+    {
+      Thread t = new Thread(r, "JTalker History Pager");
+      t.setDaemon(true);
+      return t;
+    });
+    this.oldest = -1;
+    this.loading = false;
+  }
+  
+  /**
+   * Sets the scroll pane to watch. The pager will load older history whenever
+   * the vertical scroll bar of this pane reaches the top. The scroll pane
+   * should be the one that holds our {@code ColoredTextPane}.
+   * @param scrollPane The scroll pane to watch.
+   */
+  public void setScrollPane(JScrollPane scrollPane)
+  {
+    if(this.scrollPane != null)
+    {
+      this.scrollPane.getVerticalScrollBar().removeAdjustmentListener(this);
+    }
+    this.scrollPane = scrollPane;
+    if(this.scrollPane != null)
+    {
+      this.scrollPane.getVerticalScrollBar().addAdjustmentListener(this);
+    }
+  }
+  
+  /**
+   * Sets the client to ask for history. Because the cached pages belong to the
+   * server we were connected to, they are forgotten.
+   * @param client The client to ask (may be {@code null} to stop loading).
+   */
+  public void setClient(TCPClient client)
+  {
+    if(this.client != null)
+    {
+      this.client.setHistoryListener(null);
+    }
+    this.client = client;
+    if(this.client != null)
+    {
+      this.client.setHistoryListener(this);
+    }
+    this.cache.clear();
+    this.reset();
+  }
+  
+  /**
+   * Starts paging again from where we joined. This should be called when the
+   * pane is cleared; pages that have been cached are kept.
+   */
+  public void reset()
+  {
+    this.oldest = -1;
+    this.loading = false;
+  }
+  
+  /**
+   * Loads the page of history before the oldest line shown, if there is one
+   * and no other page is being loaded. If the page is cached, it is prepended
+   * right away; otherwise it is asked for in the background. This must be
+   * called from the event dispatch thread.
+   */
+  public void loadOlder()
+  {
+    TCPClient c = this.client;
+    if(this.loading || c == null || !c.isRunning())
+    {
+      return;
+    }
+    if(this.oldest < 0)
+    {
+      this.oldest = c.getJoinIndex();
+    }
+    final long before = this.oldest;
+    if(before <= 0)
+    {
+      //Nothing older, or we don't know where we joined yet
+      return;
+    }
+    Page cached = this.cache.get(before);
+    if(cached != null)
+    {
+      this.prepend(cached);
+      return;
+    }
+    this.loading = true;
+    this.requester.execute(() ->
+    {
+      try
+      {
+        c.requestHistory(before, ServerClientConstants.HISTORY_PAGE_SIZE);
+      }
+      catch(IOException | IllegalStateException e)
+      {
+        SwingUtilities.invokeLater(() -> this.loading = false);
+      }
+    });
+  }
+  
+  /**
+   * Loads older history when the scroll bar has reached the top.
+   * @param e The adjustment of the scroll bar.
+   */
+  @Override
+  public void adjustmentValueChanged(AdjustmentEvent e)
+  {
+    JScrollBar bar = this.scrollPane.getVerticalScrollBar();
+    if(e.getValue() == bar.getMinimum() &&
+      bar.getVisibleAmount() < bar.getMaximum() - bar.getMinimum())
+    {
+      this.loadOlder();
+    }
+  }
+  
+  /**
+   * Receives a page from the client, caches it, and prepends it on the event
+   * dispatch thread. Pages that were not asked for are only cached.
+   * @param start The index of the first line in the page.
+   * @param end The index the page ends before.
+   * @param page The text of the page.
+   */
+  @Override
+  public void pageReceived(long start, long end, String page)
+  {
+    Page p = new Page(start, page);
+    SwingUtilities.invokeLater(() ->
+    {
+      this.cache.put(end, p);
+      if(end == this.oldest)
+      {
+        this.loading = false;
+        this.prepend(p);
+      }
+    });
+  }
+  
+  private void prepend(Page page)
+  {
+    this.oldest = page.start;
+    if(page.text.isEmpty())
+    {
+      return;
+    }
+    final JScrollBar bar = (this.scrollPane == null) ? null :
+      this.scrollPane.getVerticalScrollBar();
+    final int oldMaximum = (bar == null) ? 0 : bar.getMaximum();
+    this.coloredText.prepend(page.text);
+    if(bar != null)
+    {
+      //Once the pane has been laid out again, keep the same lines in view
+      SwingUtilities.invokeLater(() ->
+        bar.setValue(bar.getValue() + (bar.getMaximum() - oldMaximum)));
+    }
+  }
+  
+  /*
+   * A page of history that has arrived from the server.
+   */
+  private static class Page
+  {
+    private final long start;
+    private final String text;
+    
+    private Page(long start, String text)
+    {
+      this.start = start;
+      this.text = text;
+    }
+  }
+}
@@ -26,6 +26,7 @@ import com.coswald.jtalker.gui.CanvasPanel;
 import com.coswald.jtalker.gui.ColorChooserPanel;
 import com.coswald.jtalker.gui.ColoredTextPane;
 import com.coswald.jtalker.gui.GUIConstants;
+import com.coswald.jtalker.gui.HistoryPager;
 import com.coswald.jtalker.gui.JTalkerMenuBar;
 import com.coswald.jtalker.gui.TextEntryPanel;
 
@@ -63,12 +64,15 @@ public class JTalkerFrame extends JFrame implements Initializable
   private TextEntryPanel textEntry;
   private CanvasPanel canvas;
   private ColorChooserPanel colorChooser;
+  private HistoryPager historyPager;
   private JTalkerMenuBar menubar;
   
   /**
    * Constructs a frame with the underlying components given. This will also
    * generate a {@link com.coswald.jtalker.gui.JTalkerMenuBar} associated with
-   * the underlying components. This class is an {@code Initializable}, and as
+   * the underlying components, and a
+   * {@link com.coswald.jtalker.gui.HistoryPager} that loads older history into
+   * the colored text panel. This class is an {@code Initializable}, and as
    * such, the {@code init} method should be called for ensuring the frame is
    * actually ready to do the work that it was intended to do.
    * @param coloredText The colored text panel.
@@ -83,8 +87,9 @@ public class JTalkerFrame extends JFrame implements Initializable
     this.textEntry = textEntry;
     this.canvas = canvas;
     this.colorChooser = colorChooser;
+    this.historyPager = new HistoryPager(this.coloredText);
     this.menubar = new JTalkerMenuBar(this, this.coloredText, this.textEntry,
-      this.canvas);
+      this.canvas, this.historyPager);
     
     this.initializableComponents = new ArrayList<Initializable>();
     this.initializableComponents.add(this.textEntry);
@@ -113,8 +118,9 @@ public class JTalkerFrame extends JFrame implements Initializable
    * found at the
    * {@link com.coswald.jtalker.gui.GUIConstants#JTALKER_WIDTH width} and 
    * {@link com.coswald.jtalker.gui.GUIConstants#JTALKER_HEIGHT height} values
-   * in the {@code GUIConstants} class. However, this will <b>not</b> make the
-   * frame visible.
+   * in the {@code GUIConstants} class. Scrolling to the top of the chat will
+   * load older history from the server we are connected to. However, this will
+   * <b>not</b> make the frame visible.
    */
   @Override
   public void init()
@@ -128,6 +134,7 @@ public class JTalkerFrame extends JFrame implements Initializable
     //TCP Panel
     JPanel right = new JPanel(new BorderLayout());
     JScrollPane jsp = new JScrollPane(this.coloredText);
+    this.historyPager.setScrollPane(jsp);
     right.add(jsp, BorderLayout.CENTER);
     right.add(this.textEntry, BorderLayout.SOUTH);
     
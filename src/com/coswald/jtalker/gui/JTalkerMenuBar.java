@@ -27,6 +27,7 @@ import com.coswald.jtalker.gui.CanvasPanel;
 import com.coswald.jtalker.gui.ColoredTextPane;
 import com.coswald.jtalker.gui.ColoredTextPaneStream;
 import com.coswald.jtalker.gui.GUIConstants;
+import com.coswald.jtalker.gui.HistoryPager;
 import com.coswald.jtalker.gui.TextEntryPanel;
 import com.coswald.jtalker.net.ServerClientConstants;
 import com.coswald.jtalker.net.TCPClient;
@@ -79,7 +80,7 @@ import javax.swing.filechooser.FileNameExtensionFilter;
  * <p align="center">
  * <img src="../../../../img/JTalkerMenuBar.png" alt="" width="1200"></p>
  * @author C. William Oswald
- * @version 0.0.1
+ * @version 0.0.3
  * @since JTalker 0.1.5
  */
 public class JTalkerMenuBar extends JMenuBar implements Initializable
@@ -98,6 +99,7 @@ public class JTalkerMenuBar extends JMenuBar implements Initializable
   private ColoredTextPane coloredTextPane;
   private TextEntryPanel textEntryPanel;
   private CanvasPanel canvasPanel;
+  private HistoryPager historyPager;
   
   private TextInputStream textPipe;
   private ColoredTextPaneStream serverOut;
@@ -109,23 +111,46 @@ public class JTalkerMenuBar extends JMenuBar implements Initializable
    * bar to work effectively are the {@code JFrame}, {@code ColoredTextPane},
    * {@code TextEntryPanel}, and the {@code CanvasPanel}. These things work in
    * tandom to make sure each action described by this class is able to work.
+   * The {@code HistoryPager} is handed every connection that is opened, so it
+   * can load older history from that server.
    * @param frame The frame of the application.
    * @param coloredTextPane The colored text pane of the application.
    * @param textEntryPanel The text entry panel of the application.
    * @param canvasPanel The canvas panel of the application.
+   * @param historyPager The history pager of the colored text pane.
    */
   public JTalkerMenuBar(JFrame frame, ColoredTextPane coloredTextPane,
-    TextEntryPanel textEntryPanel, CanvasPanel canvasPanel)
+    TextEntryPanel textEntryPanel, CanvasPanel canvasPanel,
+    HistoryPager historyPager)
   {
     this.frame = frame;
     this.coloredTextPane = coloredTextPane;
     this.textEntryPanel = textEntryPanel;
     this.canvasPanel = canvasPanel;
+    this.historyPager = historyPager;
     
     this.textPipe = new TextInputStream("");
     this.serverOut = new ColoredTextPaneStream(this.coloredTextPane);
   }
   
+  /**
+   * Initializes the menu bar with a {@code HistoryPager} of its own. This
+   * pager is not watching any scroll pane, so no history will be loaded until
+   * it is given one.
+   * @param frame The frame of the application.
+   * @param coloredTextPane The colored text pane of the application.
+   * @param textEntryPanel The text entry panel of the application.
+   * @param canvasPanel The canvas panel of the application.
+   * @see #JTalkerMenuBar(JFrame, ColoredTextPane, TextEntryPanel, CanvasPanel,
+   *  HistoryPager)
+   */
+  public JTalkerMenuBar(JFrame frame, ColoredTextPane coloredTextPane,
+    TextEntryPanel textEntryPanel, CanvasPanel canvasPanel)
+  {
+    this(frame, coloredTextPane, textEntryPanel, canvasPanel,
+      new HistoryPager(coloredTextPane));
+  }
+  
   /**
    * Creates a {@code JMenuItem} to be added to the {@code JTalkerMenuBar}. This
    * will create a menu item using the given name, the keystroke, mnemonic, and
@@ -462,7 +487,8 @@ public class JTalkerMenuBar extends JMenuBar implements Initializable
   }
   
   /**
-   * Opens a connection to a remote server.
+   * Opens a connection to a remote server. The connection comes back by
+   * itself if it is lost, and picks up where it left off.
    */
   public void openConnection()
   {
@@ -475,7 +501,10 @@ public class JTalkerMenuBar extends JMenuBar implements Initializable
       TCPClient c = new TCPClient(this.textPipe,
         new PrintStream(this.serverOut), identifier, host,
         ServerClientConstants.TCP_PORT);
+      c.setReconnecting(true);
+      c.setResumable(true);
       c.init();
+      this.historyPager.setClient(c);
       (new Thread(c)).start();
       this.connected = true;
     }
@@ -559,7 +588,11 @@ public class JTalkerMenuBar extends JMenuBar implements Initializable
     edit.addSeparator();
     JMenuItem clear = JTalkerMenuBar.createMenuItem("Clear Text",
       KeyEvent.VK_X, ActionEvent.CTRL_MASK | ActionEvent.ALT_MASK,
-      KeyEvent.VK_T, e -> this.coloredTextPane.setText(""));
+      KeyEvent.VK_T, e ->
+    {
+      this.coloredTextPane.setText("");
+      this.historyPager.reset();
+    });
     edit.add(clear);
     this.add(edit);
   }
@@ -571,7 +604,13 @@ public class JTalkerMenuBar extends JMenuBar implements Initializable
     JRadioButtonMenuItem coloredTextPaneText =
       JTalkerMenuBar.createButtonMenuItem("Show Colored Text", true,
       KeyEvent.VK_F6, 0, KeyEvent.VK_C,
-      e -> coloredTextPane.setColorMode(!coloredTextPane.getColorMode()));
+      e ->
+    {
+      this.coloredTextPane.setColorMode(
+        !this.coloredTextPane.getColorMode());
+      //older history is not redrawn, so let it be paged in again
+      this.historyPager.reset();
+    });
     view.add(coloredTextPaneText);
     JRadioButtonMenuItem fullscreen = JTalkerMenuBar.createButtonMenuItem(
       "Fullscreen", false, KeyEvent.VK_F11, 0, KeyEvent.VK_F, e ->
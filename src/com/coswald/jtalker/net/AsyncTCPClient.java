@@ -0,0 +1,705 @@
+/*
+ * AsyncTCPClient.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.Message;
+import com.coswald.jtalker.net.MessageListener;
+import com.coswald.jtalker.net.ServerClientConstants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>A client for the JTalker application that never blocks a thread of its
+ * own. Where a {@link com.coswald.jtalker.net.TCPClient TCPClient} has a
+ * listening thread, and a sending thread reading lines from an input stream,
+ * this client is driven by an
+ * {@link java.nio.channels.AsynchronousSocketChannel
+ * AsynchronousSocketChannel}. A line is sent by calling
+ * {@link #send(String) send}, which returns at once with a future that is
+ * completed once the line has been written to the server, and what the
+ * server sends is taken apart into {@link com.coswald.jtalker.net.Message
+ * messages} and handed to a
+ * {@link com.coswald.jtalker.net.MessageListener MessageListener}. The
+ * channel runs on the threads of an
+ * {@link java.nio.channels.AsynchronousChannelGroup AsynchronousChannelGroup},
+ * which every client made with it shares, so that one JVM may drive hundreds
+ * of connections with a handful of threads.</p>
+ * <p>Lines sent while an earlier one is still being written are written
+ * together, as many as
+ * {@value com.coswald.jtalker.net.ServerClientConstants#ASYNC_WRITE_FRAMES}
+ * at a time, in one gathering write. Frames are written and read just as the
+ * {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec} does
+ * it.</p>
+ * <p>Nothing is read from an input stream or printed, so a program, such as
+ * a bot, may use a client on its own: it {@link #connect() connects},
+ * {@link #send(String) sends} lines (or {@link #join(String) joins} a room,
+ * or {@link #sendDirect(String, String) sends} to one person only), and is
+ * told of every message it receives.</p>
+ * <p>A client connects once; to connect again, make another. A client made
+ * {@link #setResumable(boolean) resumable} has the lines of its room
+ * numbered, and acknowledges them as they arrive, a batch at a time, so a
+ * client made later with the same identifier is sent the lines after the
+ * last one acknowledged.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public class AsyncTCPClient implements Closeable
+{
+  private static final String LINE_END = "\n\r";
+  
+  private String identifier;
+  private String host;
+  private int port;
+  private AsynchronousChannelGroup group;
+  private AsynchronousSocketChannel channel;
+  private volatile boolean connected;
+  private volatile MessageListener listener;
+  private volatile long joinIndex;
+  private CompletableFuture<AsyncTCPClient> joined;
+  private CompletableFuture<Void> closed;
+  private ByteBuffer input;
+  private boolean accepted;
+  private Queue<Write> writes;
+  private AtomicBoolean writing;
+  private volatile boolean resumable;
+  private String sequencedRoom;
+  private long lastSequence;
+  private int unacknowledged;
+  private long acknowledgedAt;
+  
+  /**
+   * Constructs a client with the given identifier, host, port and channel
+   * group. The identifier can not be the
+   * {@value com.coswald.jtalker.net.ServerClientConstants#EXIT_MESSAGE}
+   * message, and the port must be within the port range, just as for a
+   * {@link com.coswald.jtalker.net.TCPClient TCPClient}.
+   * @param identifier The unique identifier to be used by the server.
+   * @param host The host we are connecting to.
+   * @param port The port number the server listens on.
+   * @param group The group the channel runs on (may be {@code null} to use
+   *  the group of the JVM).
+   * @throws IllegalArgumentException If the identifier or the host is
+   *  {@code null}, if the port is outside of the given bounds, or if the
+   *  identifier is equal to the exit message.
+   */
+  public AsyncTCPClient(String identifier, String host, int port,
+    AsynchronousChannelGroup group)
+  {
+    if(identifier == null || host == null)
+    {
+      throw new IllegalArgumentException("No parameter can be null!");
+    }
+    if(port < ServerClientConstants.MIN_PORT_NUMBER ||
+       port > ServerClientConstants.MAX_PORT_NUMBER)
+    {
+      throw new IllegalArgumentException("Port must be between " +
+        ServerClientConstants.MIN_PORT_NUMBER +
+        " and " + ServerClientConstants.MAX_PORT_NUMBER + ", inclusive!");
+    }
+    if(identifier.equalsIgnoreCase(ServerClientConstants.EXIT_MESSAGE))
+    {
+      throw new IllegalArgumentException("Identifier must not be the exit " +
+        "message!");
+    }
+    this.identifier = identifier;
+    this.host = host;
+    this.port = port;
+    this.group = group;
+    this.connected = false;
+    this.joinIndex = -1L;
+    this.joined = new CompletableFuture<AsyncTCPClient>();
+    this.closed = new CompletableFuture<Void>();
+    this.input = ByteBuffer.allocate(ServerClientConstants.ASYNC_READ_BYTES);
+    this.accepted = false;
+    this.writes = new ConcurrentLinkedQueue<Write>();
+    this.writing = new AtomicBoolean(false);
+    this.resumable = false;
+    this.lastSequence = -1L;
+    this.unacknowledged = 0;
+  }
+  
+  /**
+   * Constructs a client with the given identifier, host and port, whose
+   * channel runs on the group of the JVM.
+   * @param identifier The unique identifier to be used by the server.
+   * @param host The host we are connecting to.
+   * @param port The port number the server listens on.
+   * @see #AsyncTCPClient(String, String, int, AsynchronousChannelGroup)
+   */
+  public AsyncTCPClient(String identifier, String host, int port)
+  {
+    this(identifier, host, port, null);
+  }
+  
+  /**
+   * Connects to the server, and sends it our identifier. This returns at
+   * once; lines may be sent straight away, and are written once we are
+   * connected.
+   * @return A future completed with this client once the server has taken us
+   *  into the default room, or exceptionally if it could not be connected to.
+   * @throws IllegalStateException If this client has connected before.
+   */
+  public synchronized CompletableFuture<AsyncTCPClient> connect()
+  {
+    if(this.channel != null || this.closed.isDone())
+    {
+      throw new IllegalStateException("A client connects only once!");
+    }
+    try
+    {
+      this.channel = (this.group == null) ?
+        AsynchronousSocketChannel.open() :
+        AsynchronousSocketChannel.open(this.group);
+    }
+    catch(IOException i)
+    {
+      this.finish(i);
+      return this.joined;
+    }
+    this.send(this.identifier);
+    if(this.resumable)
+    {
+      this.send((new ControlFrame(
+        ServerClientConstants.SEQUENCE_COMMAND)).toString());
+    }
+    this.channel.connect(new InetSocketAddress(this.host, this.port), null,
+      new CompletionHandler<Void, Void>()
+      {
+        @Override
+        public void completed(Void result, Void attachment)
+        {
+          connected = true;
+          flush();
+          read();
+        }
+        
+        @Override
+        public void failed(Throwable t, Void attachment)
+        {
+          finish(t);
+        }
+      });
+    return this.joined;
+  }
+  
+  /**
+   * Sends a line to the server. This never waits for the line to be written.
+   * @param line The line to send.
+   * @return A future completed once the line has been written to the server,
+   *  or exceptionally if it never will be.
+   * @throws IllegalStateException If we have not connected yet.
+   */
+  public CompletableFuture<Void> send(String line)
+  {
+    if(this.channel == null && !this.closed.isDone())
+    {
+      throw new IllegalStateException("Client has not connected yet!");
+    }
+    CompletableFuture<Void> written = new CompletableFuture<Void>();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+      line.length() + 2);
+    try
+    {
+      (new DataOutputStream(bytes)).writeUTF(line);
+    }
+    catch(IOException i)
+    {
+      written.completeExceptionally(i);
+      return written;
+    }
+    this.writes.add(new Write(ByteBuffer.wrap(bytes.toByteArray()), written));
+    if(this.closed.isDone())
+    {
+      this.failWrites(new IOException("Client is closed!"));
+    }
+    else
+    {
+      this.flush();
+    }
+    return written;
+  }
+  
+  /**
+   * Moves us into the given room, by sending the
+   * {@value com.coswald.jtalker.net.ServerClientConstants#JOIN_PREFIX} command.
+   * @param room The name of the room, without the
+   *  {@link com.coswald.jtalker.net.ServerClientConstants#ROOM_CHARACTER room}
+   *  character.
+   * @return A future completed once the command has been written.
+   * @see #send(String)
+   */
+  public CompletableFuture<Void> join(String room)
+  {
+    return this.send(ServerClientConstants.JOIN_PREFIX + room);
+  }
+  
+  /**
+   * Sends a line to one person only, by starting it with the
+   * {@link com.coswald.jtalker.net.ServerClientConstants#DIRECT_MESSAGE_PREFIX
+   * direct message} prefix. If they are offline, the line is kept until they
+   * return.
+   * @param recipient The identifier of whoever the line is for.
+   * @param line The line to send.
+   * @return A future completed once the line has been written.
+   * @see #send(String)
+   */
+  public CompletableFuture<Void> sendDirect(String recipient, String line)
+  {
+    return this.send(ServerClientConstants.DIRECT_MESSAGE_PREFIX + recipient +
+      " " + line);
+  }
+  
+  /**
+   * Leaves the chat, by sending the
+   * {@value com.coswald.jtalker.net.ServerClientConstants#EXIT_MESSAGE}
+   * message, and closes once the server has closed the connection.
+   * @return A future completed once the connection is closed.
+   * @see #getCloseFuture()
+   */
+  public CompletableFuture<Void> leave()
+  {
+    this.acknowledge(true);
+    this.send(ServerClientConstants.EXIT_MESSAGE);
+    return this.closed;
+  }
+  
+  /**
+   * Closes the connection at once, without saying goodbye. Lines that have
+   * not been written yet never will be.
+   */
+  @Override
+  public void close()
+  {
+    this.finish(null);
+  }
+  
+  /**
+   * Returns a future completed once the connection is closed, by us or by the
+   * server. It is completed exceptionally if the connection was lost to an
+   * error.
+   * @return The future.
+   */
+  public CompletableFuture<Void> getCloseFuture()
+  {
+    return this.closed;
+  }
+  
+  /**
+   * Sets the listener the messages sent by the server are handed to. Only one
+   * listener is kept; setting another replaces the last one.
+   * @param listener The listener (may be {@code null} to ignore messages).
+   */
+  public void setMessageListener(MessageListener listener)
+  {
+    this.listener = listener;
+  }
+  
+  /**
+   * Sets whether the server numbers the lines of our room, so that a client
+   * made later with our identifier may resume after the last line we
+   * acknowledged. This only matters before we connect.
+   * @param resumable {@code true} to have our lines numbered, {@code false}
+   *  (the default) to take them as they are.
+   */
+  public void setResumable(boolean resumable)
+  {
+    this.resumable = resumable;
+  }
+  
+  /**
+   * Returns whether the server numbers the lines of our room.
+   * @return {@code true} if our lines are numbered.
+   */
+  public boolean isResumable()
+  {
+    return this.resumable;
+  }
+  
+  /**
+   * Returns the index of the first history line we saw live.
+   * @return The index we joined at, or {@code -1} if it is not yet known.
+   */
+  public long getJoinIndex()
+  {
+    return this.joinIndex;
+  }
+  
+  /**
+   * Returns whether we are connected to the server.
+   * @return {@code true} if we are connected.
+   */
+  public boolean isConnected()
+  {
+    return this.connected;
+  }
+  
+  /**
+   * Returns the unique identifier we use on the host.
+   * @return The unique identifier.
+   */
+  public String getID()
+  {
+    return this.identifier;
+  }
+  
+  /**
+   * Returns the host we connect to.
+   * @return The host.
+   */
+  public String getHost()
+  {
+    return this.host;
+  }
+  
+  /**
+   * Returns the port number the server listens on.
+   * @return The port number.
+   */
+  public int getPort()
+  {
+    return this.port;
+  }
+  
+  /*
+   * Reads whatever the server sends next.
+   */
+  private void read()
+  {
+    this.channel.read(this.input, null, new Reader());
+  }
+  
+  /*
+   * Takes every whole frame out of what has been read, and makes room for a
+   * frame larger than we can hold.
+   */
+  private void receive() throws IOException
+  {
+    this.input.flip();
+    if(!this.accepted && this.input.hasRemaining())
+    {
+      this.accepted = this.input.get() != 0;
+      if(!this.accepted)
+      {
+        throw new IOException("The server did not accept us!");
+      }
+    }
+    while(this.accepted && this.input.remaining() >= 2)
+    {
+      int length = 2 + (this.input.getShort(this.input.position()) & 0xFFFF);
+      if(this.input.remaining() < length)
+      {
+        break;
+      }
+      byte[] frame = new byte[length];
+      this.input.get(frame);
+      this.handle((new DataInputStream(new ByteArrayInputStream(frame)))
+        .readUTF());
+    }
+    this.input.compact();
+    if(!this.input.hasRemaining())
+    {
+      ByteBuffer larger = ByteBuffer.allocate(this.input.capacity() * 2);
+      this.input.flip();
+      larger.put(this.input);
+      this.input = larger;
+    }
+  }
+  
+  /*
+   * Handles one frame from the server. Control frames are kept from the
+   * listener, except for a numbered line, which is handed over with its
+   * number, and acknowledged.
+   */
+  private void handle(String line)
+  {
+    if(!ControlFrame.isControlFrame(line))
+    {
+      this.deliver(line, null, -1L);
+      return;
+    }
+    ControlFrame frame = ControlFrame.parse(line);
+    if(frame.is(ServerClientConstants.JOINED_COMMAND))
+    {
+      try
+      {
+        this.joinIndex = frame.getLongArgument(0);
+      }
+      catch(ArrayIndexOutOfBoundsException | NumberFormatException e)
+      {
+        //Do NOTHING
+      }
+      this.joined.complete(this);
+    }
+    else if(frame.is(ServerClientConstants.LINE_COMMAND) ||
+      frame.is(ServerClientConstants.SEQUENCED_COMMAND))
+    {
+      long sequence;
+      try
+      {
+        sequence = frame.getLongArgument(1);
+      }
+      catch(ArrayIndexOutOfBoundsException | NumberFormatException e)
+      {
+        return;
+      }
+      synchronized(this)
+      {
+        this.sequencedRoom = frame.getArgument(0);
+        this.lastSequence = sequence;
+        if(frame.is(ServerClientConstants.LINE_COMMAND))
+        {
+          this.unacknowledged++;
+        }
+      }
+      if(frame.is(ServerClientConstants.LINE_COMMAND))
+      {
+        this.deliver(frame.getBody(), frame.getArgument(0), sequence);
+        this.acknowledge(false);
+      }
+    }
+  }
+  
+  /*
+   * Hands each line of a frame to the listener. A frame may hold several
+   * lines, such as the messages kept for us while we were away.
+   */
+  private void deliver(String frame, String room, long sequence)
+  {
+    MessageListener current = this.listener;
+    if(current == null)
+    {
+      return;
+    }
+    for(String line : frame.split(LINE_END))
+    {
+      if(line.isEmpty())
+      {
+        continue;
+      }
+      try
+      {
+        current.messageReceived(this, Message.parse(line, room, sequence));
+      }
+      catch(RuntimeException e)
+      {
+        //a broken listener must not stop us from reading
+        e.printStackTrace();
+      }
+    }
+  }
+  
+  /*
+   * Tells the server the last line we have, once enough lines or enough time
+   * have gone by since we last did (or whenever forced).
+   */
+  private synchronized void acknowledge(boolean force)
+  {
+    long now = System.currentTimeMillis();
+    if(this.sequencedRoom == null || this.unacknowledged == 0 || (!force &&
+      this.unacknowledged < ServerClientConstants.ACK_LINES &&
+      now - this.acknowledgedAt < ServerClientConstants.ACK_MILLIS))
+    {
+      return;
+    }
+    this.send((new ControlFrame(ServerClientConstants.ACK_COMMAND,
+      this.sequencedRoom, Long.toString(this.lastSequence))).toString());
+    this.unacknowledged = 0;
+    this.acknowledgedAt = now;
+  }
+  
+  /*
+   * Starts writing the frames waiting to be written, unless a write is
+   * already going on, in which case they are written once it is done.
+   */
+  private void flush()
+  {
+    while(this.connected && !this.writes.isEmpty() &&
+      this.writing.compareAndSet(false, true))
+    {
+      List<Write> batch = new ArrayList<Write>();
+      Write write;
+      while(batch.size() < ServerClientConstants.ASYNC_WRITE_FRAMES &&
+        (write = this.writes.poll()) != null)
+      {
+        batch.add(write);
+      }
+      if(!batch.isEmpty())
+      {
+        this.write(batch.toArray(new Write[batch.size()]));
+        return;
+      }
+      this.writing.set(false);
+    }
+  }
+  
+  private void write(Write[] batch)
+  {
+    ByteBuffer[] frames = new ByteBuffer[batch.length];
+    for(int i = 0; i < batch.length; i++)
+    {
+      frames[i] = batch[i].frame;
+    }
+    this.channel.write(frames, 0, frames.length, 0L, TimeUnit.MILLISECONDS,
+      batch, new Writer());
+  }
+  
+  /*
+   * Closes the channel, and fails everything still waiting on it.
+   */
+  private void finish(Throwable cause)
+  {
+    this.connected = false;
+    if(this.channel != null)
+    {
+      try
+      {
+        this.channel.close();
+      }
+      catch(IOException i)
+      {
+        //Do NOTHING
+      }
+    }
+    Throwable reason = (cause == null) ?
+      new IOException("Client is closed!") : cause;
+    this.joined.completeExceptionally(reason);
+    this.failWrites(reason);
+    if(cause == null)
+    {
+      this.closed.complete(null);
+    }
+    else
+    {
+      this.closed.completeExceptionally(cause);
+    }
+  }
+  
+  private void failWrites(Throwable reason)
+  {
+    Write write;
+    while((write = this.writes.poll()) != null)
+    {
+      write.written.completeExceptionally(reason);
+    }
+  }
+  
+  /*
+   * Reads from the server until it closes the connection.
+   */
+  private final class Reader implements CompletionHandler<Integer, Void>
+  {
+    @Override
+    public void completed(Integer read, Void attachment)
+    {
+      if(read < 0)
+      {
+        finish(null);
+        return;
+      }
+      try
+      {
+        receive();
+      }
+      catch(IOException i)
+      {
+        finish(i);
+        return;
+      }
+      read();
+    }
+    
+    @Override
+    public void failed(Throwable t, Void attachment)
+    {
+      finish(closed.isDone() ? null : t);
+    }
+  }
+  
+  /*
+   * Finishes writing a batch of frames, completing each as it is written,
+   * and then starts on the next.
+   */
+  private final class Writer implements CompletionHandler<Long, Write[]>
+  {
+    @Override
+    public void completed(Long written, Write[] batch)
+    {
+      int first = 0;
+      while(first < batch.length && !batch[first].frame.hasRemaining())
+      {
+        batch[first++].written.complete(null);
+      }
+      if(first < batch.length)
+      {
+        write(Arrays.copyOfRange(batch, first, batch.length));
+        return;
+      }
+      writing.set(false);
+      flush();
+    }
+    
+    @Override
+    public void failed(Throwable t, Write[] batch)
+    {
+      for(Write write : batch)
+      {
+        write.written.completeExceptionally(t);
+      }
+      finish(closed.isDone() ? null : t);
+    }
+  }
+  
+  /*
+   * A frame waiting to be written, and the future completed once it is.
+   */
+  private static final class Write
+  {
+    private final ByteBuffer frame;
+    private final CompletableFuture<Void> written;
+    
+    private Write(ByteBuffer frame, CompletableFuture<Void> written)
+    {
+      this.frame = frame;
+      this.written = written;
+    }
+  }
+}
@@ -0,0 +1,422 @@
+/*
+ * Balancer.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.Initializable;
+import com.coswald.jtalker.net.ServerClientConstants;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>A front door for several {@link com.coswald.jtalker.net.TCPServer
+ * TCPServer}s (its backends). Clients connect to the balancer as if it were a
+ * server, and each one is handed to the least loaded backend; from then on,
+ * the balancer copies bytes between the two without ever reading the frames
+ * within them, so clients and servers behave exactly as if they were
+ * connected directly. This lets more server processes run behind one port
+ * than one server process could handle on its own.</p>
+ * <p>The load of a backend is measured by the balancer itself: it counts the
+ * connections it has open to each backend, and how many of those are still
+ * queued. A connection is queued until the backend sends its first byte,
+ * since a server that is already handling its
+ * {@value com.coswald.jtalker.net.ServerClientConstants#MAX_CLIENTS}
+ * clients accepts more, but does not speak to them until one leaves. The
+ * backend with the fewest queued connections is chosen, and out of those,
+ * the one with the fewest connections. A backend that can not be connected to
+ * within
+ * {@value com.coswald.jtalker.net.ServerClientConstants#BACKEND_CONNECT_MILLIS}
+ * milliseconds is skipped for
+ * {@value com.coswald.jtalker.net.ServerClientConstants#BACKEND_RETRY_MILLIS}
+ * milliseconds.</p>
+ * <p>Every client takes two threads of the balancer, one for each direction.
+ * When either side closes its connection, the balancer closes both.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.test.BalancerTest
+ */
+public class Balancer implements Closeable, Initializable, Runnable
+{
+  private int port;
+  private ServerSocket server;
+  private List<Backend> backends;
+  private volatile boolean running;
+  private PrintStream out;
+  
+  /**
+   * Constructs a balancer that takes clients on the given port, and sends
+   * messages about itself to the given stream.
+   * @param out The output stream to send balancer messages to.
+   * @param port The port to take clients on.
+   * @throws IllegalArgumentException If the stream is {@code null}, or the
+   *  port is outside the bounds of a valid port.
+   */
+  public Balancer(PrintStream out, int port)
+  {
+    if(out == null)
+    {
+      throw new IllegalArgumentException("No argument can be null!");
+    }
+    if(port < ServerClientConstants.MIN_PORT_NUMBER ||
+      port > ServerClientConstants.MAX_PORT_NUMBER)
+    {
+      throw new IllegalArgumentException("Port out of range: " + port);
+    }
+    this.out = out;
+    this.port = port;
+    this.backends = new CopyOnWriteArrayList<Backend>();
+    this.running = false;
+  }
+  
+  /**
+   * Adds a backend clients may be handed to. Backends may be added while the
+   * balancer is running.
+   * @param host The host of the server.
+   * @param port The port the server takes clients on.
+   * @return The backend.
+   */
+  public Backend addBackend(String host, int port)
+  {
+    Backend backend = new Backend(host, port);
+    this.backends.add(backend);
+    return backend;
+  }
+  
+  /**
+   * Starts taking clients.
+   */
+  @Override
+  public void init()
+  {
+    try
+    {
+      this.server = new ServerSocket(this.port);
+      this.running = true;
+      this.out.println("JTalker Balancer started on port " + this.port +
+        " for " + this.backends.size() + " servers");
+    }
+    catch(IOException i)
+    {
+      this.out.println("Could not initialize the balancer!");
+      i.printStackTrace();
+    }
+  }
+  
+  /**
+   * Takes clients until the balancer is closed, handing each one to the
+   * least loaded backend. A client no backend can be found for is
+   * disconnected.
+   */
+  @Override
+  public void run()
+  {
+    while(this.running)
+    {
+      try
+      {
+        Socket client = this.server.accept();
+        client.setTcpNoDelay(true);
+        Socket backend = this.connect(client);
+        if(backend == null)
+        {
+          this.out.println("No server for " + client.getRemoteSocketAddress());
+          client.close();
+        }
+      }
+      catch(SocketException s)
+      {
+        this.out.println("Stopping JTalker Balancer");
+      }
+      catch(IOException i)
+      {
+        i.printStackTrace();
+      }
+    }
+  }
+  
+  /**
+   * Stops taking clients. Clients already handed to a backend stay
+   * connected to it.
+   * @throws IOException If the listening socket could not be closed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.running = false;
+    if(this.server != null)
+    {
+      this.server.close();
+    }
+  }
+  
+  /**
+   * Returns the backends of this balancer.
+   * @return The backends.
+   */
+  public List<Backend> getBackends()
+  {
+    return new ArrayList<Backend>(this.backends);
+  }
+  
+  /**
+   * Returns the port this balancer takes clients on.
+   * @return The port.
+   */
+  public int getPort()
+  {
+    return this.port;
+  }
+  
+  /**
+   * Returns whether the balancer is running.
+   * @return {@code true} if it is taking clients.
+   */
+  public boolean isRunning()
+  {
+    return this.running;
+  }
+  
+  /*
+   * Connects a client to the least loaded backend that will take it, and
+   * starts copying between the two.
+   */
+  private Socket connect(Socket client)
+  {
+    List<Backend> tried = new ArrayList<Backend>();
+    Backend backend;
+    while((backend = this.choose(tried)) != null)
+    {
+      tried.add(backend);
+      Socket socket = new Socket();
+      try
+      {
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(backend.host, backend.port),
+          ServerClientConstants.BACKEND_CONNECT_MILLIS);
+      }
+      catch(IOException i)
+      {
+        backend.downUntil = System.currentTimeMillis() +
+          ServerClientConstants.BACKEND_RETRY_MILLIS;
+        this.out.println("Server " + backend + " is down");
+        continue;
+      }
+      backend.connections.incrementAndGet();
+      backend.queued.incrementAndGet();
+      Pipe pipe = new Pipe(client, socket, backend);
+      this.start(() -> pipe.copy(client, socket, false),
+        "JTalker Balancer " + client.getRemoteSocketAddress() + " to " +
+        backend);
+      this.start(() -> pipe.copy(socket, client, true),
+        "JTalker Balancer " + backend + " to " +
+        client.getRemoteSocketAddress());
+      return socket;
+    }
+    return null;
+  }
+  
+  /*
+   * Picks the backend with the fewest queued connections, and then the fewest
+   * connections, out of those that are up and not tried yet.
+   */
+  private Backend choose(List<Backend> tried)
+  {
+    long now = System.currentTimeMillis();
+    Backend best = null;
+    for(Backend backend : this.backends)
+    {
+      if(tried.contains(backend) || backend.downUntil > now)
+      {
+        continue;
+      }
+      if(best == null || backend.getQueued() < best.getQueued() ||
+        (backend.getQueued() == best.getQueued() &&
+        backend.getConnections() < best.getConnections()))
+      {
+        best = backend;
+      }
+    }
+    return best;
+  }
+  
+  private void start(Runnable runnable, String name)
+  {
+    Thread t = new Thread(runnable, name);
+    t.setDaemon(true);
+    t.start();
+  }
+  
+  /**
+   * One server a {@link com.coswald.jtalker.net.Balancer Balancer} hands
+   * clients to, along with how loaded the balancer has made it.
+   * @author C. William Oswald
+   * @version 0.0.1
+   * @since JTalker 0.3.0
+   */
+  public static class Backend
+  {
+    private String host;
+    private int port;
+    private AtomicInteger connections;
+    private AtomicInteger queued;
+    private volatile long downUntil;
+    
+    private Backend(String host, int port)
+    {
+      this.host = host;
+      this.port = port;
+      this.connections = new AtomicInteger();
+      this.queued = new AtomicInteger();
+      this.downUntil = 0L;
+    }
+    
+    /**
+     * Returns the amount of clients the balancer has connected to this
+     * backend.
+     * @return The amount of connections.
+     */
+    public int getConnections()
+    {
+      return this.connections.get();
+    }
+    
+    /**
+     * Returns the amount of clients connected to this backend that it has
+     * not spoken to yet.
+     * @return The amount of queued connections.
+     */
+    public int getQueued()
+    {
+      return this.queued.get();
+    }
+    
+    /**
+     * Returns the host and port of this backend.
+     * @return The address, as text.
+     */
+    @Override
+    public String toString()
+    {
+      return this.host + ':' + this.port;
+    }
+  }
+  
+  /*
+   * The two connections of one client. Whichever direction ends first closes
+   * both, and the backend's counts are only lowered once.
+   */
+  private static class Pipe
+  {
+    private Socket client;
+    private Socket server;
+    private Backend backend;
+    private boolean queued;
+    private boolean open;
+    
+    Pipe(Socket client, Socket server, Backend backend)
+    {
+      this.client = client;
+      this.server = server;
+      this.backend = backend;
+      this.queued = true;
+      this.open = true;
+    }
+    
+    /*
+     * Copies bytes from one socket to the other until either is closed.
+     */
+    void copy(Socket from, Socket to, boolean fromBackend)
+    {
+      byte[] buffer = new byte[ServerClientConstants.BALANCER_BUFFER_BYTES];
+      try
+      {
+        InputStream in = from.getInputStream();
+        OutputStream out = to.getOutputStream();
+        int read;
+        while((read = in.read(buffer)) >= 0)
+        {
+          if(fromBackend)
+          {
+            this.spoken();
+          }
+          out.write(buffer, 0, read);
+        }
+      }
+      catch(IOException i)
+      {
+        //one side has gone away
+      }
+      finally
+      {
+        this.close();
+      }
+    }
+    
+    private synchronized void spoken()
+    {
+      if(this.queued)
+      {
+        this.queued = false;
+        this.backend.queued.decrementAndGet();
+      }
+    }
+    
+    private synchronized void close()
+    {
+      if(!this.open)
+      {
+        return;
+      }
+      this.open = false;
+      this.spoken();
+      this.backend.connections.decrementAndGet();
+      try
+      {
+        this.client.close();
+      }
+      catch(IOException i)
+      {
+        //Do NOTHING
+      }
+      try
+      {
+        this.server.close();
+      }
+      catch(IOException i)
+      {
+        //Do NOTHING
+      }
+    }
+  }
+}
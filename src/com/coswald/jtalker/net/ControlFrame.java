@@ -0,0 +1,220 @@
+/*
+ * ControlFrame.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+
+/**
+ * <p>A message between a client and a server that is meant for the JTalker
+ * software, and not for the people chatting. Every control frame starts with
+ * the {@link com.coswald.jtalker.net.ServerClientConstants#CONTROL_CHARACTER
+ * control} character, followed by a command, any arguments (each separated by
+ * a single space), and, optionally, a newline and a body. Because of this, an
+ * argument can never contain a space, but a body can contain anything.</p>
+ * <p>A control frame is sent like any other line, using
+ * {@link java.io.DataOutput#writeUTF(String) writeUTF}, and as such the
+ * {@link #toString() encoded} frame should never be longer than
+ * {@value com.coswald.jtalker.net.ServerClientConstants#MAX_FRAME_CHARACTERS}
+ * characters. This class is immutable.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class ControlFrame
+{
+  private static final String[] NO_ARGUMENTS = new String[0];
+  
+  private String command;
+  private String[] arguments;
+  private String body;
+  
+  /**
+   * Constructs a control frame with the given command, arguments and body. No
+   * parameter can be {@code null}, and neither the command nor any argument
+   * can contain a space or a newline.
+   * @param command The command of the frame.
+   * @param arguments The arguments of the command.
+   * @param body The body of the frame (may be empty).
+   * @throws IllegalArgumentException If any parameter is {@code null}, or if
+   *  the command or an argument contains a space or a newline.
+   */
+  public ControlFrame(String command, String[] arguments, String body)
+  {
+    if(command == null || arguments == null || body == null)
+    {
+      throw new IllegalArgumentException("No parameter can be null!");
+    }
+    ControlFrame.checkWord(command);
+    for(String argument : arguments)
+    {
+      ControlFrame.checkWord(argument);
+    }
+    this.command = command;
+    this.arguments = arguments.clone();
+    this.body = body;
+  }
+  
+  /**
+   * Constructs a control frame with the given command and arguments, and an
+   * empty body.
+   * @param command The command of the frame.
+   * @param arguments The arguments of the command.
+   * @see #ControlFrame(String, String[], String)
+   */
+  public ControlFrame(String command, String... arguments)
+  {
+    this(command, arguments, "");
+  }
+  
+  private static void checkWord(String word)
+  {
+    if(word == null || word.indexOf(' ') >= 0 || word.indexOf('\n') >= 0)
+    {
+      throw new IllegalArgumentException("Control words must not be null or " +
+        "contain whitespace!");
+    }
+  }
+  
+  /**
+   * Returns whether the given line is a control frame. That is, whether it
+   * starts with the
+   * {@link com.coswald.jtalker.net.ServerClientConstants#CONTROL_CHARACTER
+   * control} character.
+   * @param line The line to test.
+   * @return {@code true} if the line is a control frame, {@code false}
+   *  otherwise.
+   */
+  public static boolean isControlFrame(String line)
+  {
+    return line != null && line.length() > 0 &&
+      line.charAt(0) == ServerClientConstants.CONTROL_CHARACTER;
+  }
+  
+  /**
+   * Parses a control frame from the given line.
+   * @param line The line to parse.
+   * @return The control frame the line represents.
+   * @throws IllegalArgumentException If the line is not a
+   *  {@link #isControlFrame(String) control} frame.
+   */
+  public static ControlFrame parse(String line)
+  {
+    if(!ControlFrame.isControlFrame(line))
+    {
+      throw new IllegalArgumentException("Line is not a control frame!");
+    }
+    int newline = line.indexOf('\n');
+    String header = (newline < 0) ? line.substring(1) :
+      line.substring(1, newline);
+    String body = (newline < 0) ? "" : line.substring(newline + 1);
+    String[] words = header.split(" ");
+    String[] arguments = NO_ARGUMENTS;
+    if(words.length > 1)
+    {
+      arguments = new String[words.length - 1];
+      System.arraycopy(words, 1, arguments, 0, arguments.length);
+    }
+    return new ControlFrame(words[0], arguments, body);
+  }
+  
+  /**
+   * Returns the command of this frame.
+   * @return The command.
+   */
+  public String getCommand()
+  {
+    return this.command;
+  }
+  
+  /**
+   * Returns whether the command of this frame is the given command.
+   * @param command The command to test against.
+   * @return {@code true} if the commands are equal, {@code false} otherwise.
+   */
+  public boolean is(String command)
+  {
+    return this.command.equals(command);
+  }
+  
+  /**
+   * Returns the amount of arguments within this frame.
+   * @return The amount of arguments.
+   */
+  public int getArgumentCount()
+  {
+    return this.arguments.length;
+  }
+  
+  /**
+   * Returns the argument at the given index.
+   * @param index The index of the argument.
+   * @return The argument.
+   * @throws ArrayIndexOutOfBoundsException If there is no such argument.
+   */
+  public String getArgument(int index)
+  {
+    return this.arguments[index];
+  }
+  
+  /**
+   * Returns the argument at the given index as a {@code long}.
+   * @param index The index of the argument.
+   * @return The argument as a number.
+   * @throws ArrayIndexOutOfBoundsException If there is no such argument.
+   * @throws NumberFormatException If the argument is not a number.
+   */
+  public long getLongArgument(int index)
+  {
+    return Long.parseLong(this.arguments[index]);
+  }
+  
+  /**
+   * Returns the body of this frame. If the frame was not given a body, this
+   * is an empty string.
+   * @return The body.
+   */
+  public String getBody()
+  {
+    return this.body;
+  }
+  
+  /**
+   * Encodes this frame so that it can be sent over the network. The encoded
+   * form can be read back using the {@link #parse(String) parse} method.
+   * @return The encoded frame.
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    sb.append(ServerClientConstants.CONTROL_CHARACTER).append(this.command);
+    for(String argument : this.arguments)
+    {
+      sb.append(' ').append(argument);
+    }
+    if(this.body.length() > 0)
+    {
+      sb.append('\n').append(this.body);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * HistoryListener.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+/**
+ * <p>Receives pages of history from a server. A
+ * {@link com.coswald.jtalker.net.TCPClient TCPClient} calls this listener
+ * from its listening thread whenever a page it
+ * {@link com.coswald.jtalker.net.TCPClient#requestHistory(long, int) asked}
+ * for arrives, so implementations that touch Swing components must hand the
+ * work over to the event dispatch thread.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see #pageReceived(long, long, String)
+ */
+public interface HistoryListener
+{
+  /**
+   * Receives a page of history. The page holds the lines from index
+   * {@code start} up to, but not including, index {@code end}. If
+   * {@code start} is zero, there is no older history to ask for.
+   * @param start The index of the first line in the page.
+   * @param end The index the page ends before (what was asked for).
+   * @param page The text of the page.
+   */
+  public abstract void pageReceived(long start, long end, String page);
+}
@@ -0,0 +1,222 @@
+/*
+ * Message.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+
+/**
+ * <p>A line of chat sent by a server, taken apart. A server sends its lines
+ * as text, the way they are printed; this class reads the room, the sender
+ * and the body back out of that text, so that a program need not. A line
+ * said within a room other than the
+ * {@value com.coswald.jtalker.net.ServerClientConstants#DEFAULT_ROOM} starts
+ * with the name of that room, within brackets, followed by the identifier of
+ * whoever said it, a colon and a space, and what they said. A direct message
+ * has the identifiers of both the sender and the
+ * {@link #getRecipient() recipient} instead, separated by an arrow, and no
+ * room.</p>
+ * <p>Any other line, such as one saying that someone has left, is a
+ * {@link #isNotice() notice} from the server, which has no sender and whose
+ * body is the whole line. Lines of the default room carry no room, so a
+ * notice meant for us alone is taken as being from the default room, and a
+ * notice that happens to contain a colon and a space is taken as being said
+ * by whatever comes before it.</p>
+ * <p>If the lines of our room are numbered, each message also carries its
+ * {@link #getSequence() sequence} number. This class is immutable.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.MessageListener
+ */
+public final class Message
+{
+  private static final String LINE_END = "\n\r";
+  private static final String SAID = ": ";
+  private static final String ARROW = " -> ";
+  private static final String ROOM_START = "[" +
+    ServerClientConstants.ROOM_CHARACTER;
+  private static final String ROOM_END = "] ";
+  
+  private String text;
+  private String sender;
+  private String recipient;
+  private String room;
+  private String body;
+  private long sequence;
+  
+  private Message(String text, String sender, String recipient, String room,
+    String body, long sequence)
+  {
+    this.text = text;
+    this.sender = sender;
+    this.recipient = recipient;
+    this.room = room;
+    this.body = body;
+    this.sequence = sequence;
+  }
+  
+  /**
+   * Parses a message from the given line, which is not numbered.
+   * @param line The line, as the server sent it.
+   * @return The message the line represents.
+   * @throws IllegalArgumentException If the line is {@code null}, or is a
+   *  {@link com.coswald.jtalker.net.ControlFrame control} frame.
+   * @see #parse(String, String, long)
+   */
+  public static Message parse(String line)
+  {
+    return Message.parse(line, null, -1L);
+  }
+  
+  /**
+   * Parses a message from the given line, which the server numbered. The
+   * room the server gave the line is used in place of the room named within
+   * it, if any.
+   * @param line The line, as the server sent it.
+   * @param room The room of the line (may be {@code null} to read it from
+   *  the line).
+   * @param sequence The sequence number of the line, or {@code -1} if it is
+   *  not numbered.
+   * @return The message the line represents.
+   * @throws IllegalArgumentException If the line is {@code null}, or is a
+   *  {@link com.coswald.jtalker.net.ControlFrame control} frame.
+   */
+  public static Message parse(String line, String room, long sequence)
+  {
+    if(line == null || ControlFrame.isControlFrame(line))
+    {
+      throw new IllegalArgumentException("Line is not a chat message!");
+    }
+    String text = line.endsWith(LINE_END) ?
+      line.substring(0, line.length() - LINE_END.length()) : line;
+    String rest = text;
+    String named = ServerClientConstants.DEFAULT_ROOM;
+    int end = rest.indexOf(ROOM_END);
+    if(rest.startsWith(ROOM_START) && end > ROOM_START.length())
+    {
+      named = rest.substring(ROOM_START.length(), end);
+      rest = rest.substring(end + ROOM_END.length());
+    }
+    if(room == null)
+    {
+      room = named;
+    }
+    int said = rest.indexOf(SAID);
+    if(said <= 0)
+    {
+      return new Message(text, null, null, room, rest, sequence);
+    }
+    String sender = rest.substring(0, said);
+    String body = rest.substring(said + SAID.length());
+    int arrow = sender.indexOf(ARROW);
+    if(arrow > 0 && arrow + ARROW.length() < sender.length())
+    {
+      return new Message(text, sender.substring(0, arrow),
+        sender.substring(arrow + ARROW.length()), null, body, sequence);
+    }
+    return new Message(text, sender, null, room, body, sequence);
+  }
+  
+  /**
+   * Returns the whole line, as the server sent it, without the line ending.
+   * @return The text of the line.
+   */
+  public String getText()
+  {
+    return this.text;
+  }
+  
+  /**
+   * Returns the identifier of whoever said this message.
+   * @return The sender, or {@code null} if this is a notice.
+   */
+  public String getSender()
+  {
+    return this.sender;
+  }
+  
+  /**
+   * Returns the identifier of whoever a direct message was sent to.
+   * @return The recipient, or {@code null} if this is not a direct message.
+   */
+  public String getRecipient()
+  {
+    return this.recipient;
+  }
+  
+  /**
+   * Returns the room this message was said within.
+   * @return The room, or {@code null} if this is a direct message.
+   */
+  public String getRoom()
+  {
+    return this.room;
+  }
+  
+  /**
+   * Returns what was said, without the room or the sender.
+   * @return The body, which is the whole line (without its room) if this is
+   *  a notice.
+   */
+  public String getBody()
+  {
+    return this.body;
+  }
+  
+  /**
+   * Returns the sequence number the server gave this line within its room.
+   * @return The sequence number, or {@code -1} if the line is not numbered.
+   */
+  public long getSequence()
+  {
+    return this.sequence;
+  }
+  
+  /**
+   * Returns whether this is a notice from the server, rather than something
+   * someone said.
+   * @return {@code true} if this message has no sender.
+   */
+  public boolean isNotice()
+  {
+    return this.sender == null;
+  }
+  
+  /**
+   * Returns whether this is a direct message, sent to one person only.
+   * @return {@code true} if this message has a recipient.
+   */
+  public boolean isDirect()
+  {
+    return this.recipient != null;
+  }
+  
+  /**
+   * Returns the text of this message.
+   * @return The whole line, as the server sent it, without the line ending.
+   */
+  @Override
+  public String toString()
+  {
+    return this.text;
+  }
+}
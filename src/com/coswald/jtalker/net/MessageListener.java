@@ -0,0 +1,49 @@
+/*
+ * MessageListener.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.net.AsyncTCPClient;
+import com.coswald.jtalker.net.Message;
+
+/**
+ * <p>Receives the messages a server sends an
+ * {@link com.coswald.jtalker.net.AsyncTCPClient AsyncTCPClient}. The client
+ * calls this listener from the threads of its channel group, one message at
+ * a time and in the order they were sent, so an implementation must not block
+ * for long, and one that touches Swing components must hand the work over to
+ * the event dispatch thread.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ * @see #messageReceived(AsyncTCPClient, Message)
+ */
+public interface MessageListener
+{
+  /**
+   * Receives a message. Control frames are handled by the client, and are
+   * never given to this method; a frame holding several lines is given one
+   * line at a time.
+   * @param client The client the message was sent to.
+   * @param message The message, taken apart.
+   */
+  public abstract void messageReceived(AsyncTCPClient client, Message message);
+}
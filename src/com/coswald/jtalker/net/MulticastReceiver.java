@@ -0,0 +1,298 @@
+/*
+ * MulticastReceiver.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>Receives the lines a {@link com.coswald.jtalker.net.MulticastSender
+ * MulticastSender} sends to its group, and prints them in order. Lines are
+ * numbered, so a line that arrives early is held until every line before it
+ * has been printed, and a line that is missed is asked for again over the TCP
+ * connection of the {@link com.coswald.jtalker.net.TCPClient TCPClient} this
+ * receiver belongs to, with a
+ * {@value com.coswald.jtalker.net.ServerClientConstants#REPAIR_COMMAND}
+ * frame. The server answers with the lines themselves, or tells us they are
+ * lost, in which case we go on without them.</p>
+ * <p>A client only takes lines from the group while it is within the default
+ * room. The server tells it the first line it should take (everything before
+ * that reached it over TCP), and, once it leaves the room, the line it should
+ * stop before. The {@link #run() run} method receives datagrams until the
+ * receiver is closed, and should be given a thread of its own.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class MulticastReceiver implements Closeable, Runnable
+{
+  private InetAddress group;
+  private int port;
+  private NetworkInterface networkInterface;
+  private DatagramChannel channel;
+  private PrintStream out;
+  private TCPClient client;
+  private boolean active;
+  private long expected;
+  private long end;
+  private TreeMap<Long, String> pending;
+  private long repairing;
+  private long repairedAt;
+  
+  /**
+   * Constructs a receiver for the given group and port, which joins the group
+   * on the given interface, prints lines to the given stream, and asks the
+   * given client for repairs.
+   * @param group The multicast group.
+   * @param port The port datagrams are sent to.
+   * @param networkInterface The interface to join the group on.
+   * @param out Where to print the lines.
+   * @param client The client to ask for repairs through.
+   * @throws IOException If the group could not be joined.
+   */
+  public MulticastReceiver(InetAddress group, int port,
+    NetworkInterface networkInterface, PrintStream out, TCPClient client)
+    throws IOException
+  {
+    this.group = group;
+    this.port = port;
+    this.networkInterface = networkInterface;
+    this.out = out;
+    this.client = client;
+    this.active = false;
+    this.end = Long.MAX_VALUE;
+    this.pending = new TreeMap<Long, String>();
+    this.repairing = -1L;
+    
+    this.channel = DatagramChannel.open((group instanceof Inet6Address) ?
+      StandardProtocolFamily.INET6 : StandardProtocolFamily.INET);
+    this.channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+    this.channel.bind(new InetSocketAddress(port));
+    this.channel.join(group, networkInterface);
+  }
+  
+  /**
+   * Receives datagrams until the receiver is closed.
+   */
+  @Override
+  public void run()
+  {
+    ByteBuffer buffer = ByteBuffer.allocate(
+      ServerClientConstants.MULTICAST_MAX_BYTES);
+    while(this.channel.isOpen())
+    {
+      try
+      {
+        buffer.clear();
+        this.channel.receive(buffer);
+        buffer.flip();
+        if(buffer.remaining() == Long.BYTES)
+        {
+          this.heartbeat(buffer.getLong());
+        }
+        else if(buffer.remaining() > Long.BYTES)
+        {
+          DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+            buffer.array(), 0, buffer.limit()));
+          this.received(in.readLong(), in.readUTF());
+        }
+      }
+      catch(IOException i)
+      {
+        //a broken datagram is the same as a lost one
+      }
+    }
+  }
+  
+  /**
+   * Leaves the group and closes the channel.
+   * @throws IOException If the channel could not be closed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.channel.close();
+  }
+  
+  /**
+   * Starts taking lines from the group, beginning with the given one.
+   * @param first The sequence number of the first line to take.
+   */
+  public synchronized void start(long first)
+  {
+    this.active = true;
+    this.expected = first;
+    this.end = Long.MAX_VALUE;
+    this.pending.headMap(first).clear();
+    this.drain();
+  }
+  
+  /**
+   * Stops taking lines from the group once every line before the given one
+   * has been printed.
+   * @param last The sequence number of the first line not to take.
+   */
+  public synchronized void stop(long last)
+  {
+    this.end = last;
+    this.drain();
+  }
+  
+  /**
+   * Takes in a line, whether it came from the group or as a repair.
+   * @param sequence The sequence number of the line.
+   * @param line The line.
+   */
+  public synchronized void received(long sequence, String line)
+  {
+    if(sequence >= this.end || (this.active && sequence < this.expected) ||
+      (sequence != this.expected &&
+      this.pending.size() >= ServerClientConstants.MULTICAST_PENDING_LINES))
+    {
+      return;
+    }
+    this.pending.put(sequence, line);
+    this.drain();
+  }
+  
+  /**
+   * Skips lines the server no longer has.
+   * @param from The sequence number of the first lost line.
+   * @param to The sequence number after the last lost line.
+   */
+  public synchronized void lost(long from, long to)
+  {
+    if(this.active && from <= this.expected && to > this.expected)
+    {
+      this.expected = to;
+      this.pending.headMap(to).clear();
+      this.drain();
+    }
+  }
+  
+  /**
+   * Returns the group this receiver has joined.
+   * @return The group.
+   */
+  public InetAddress getGroup()
+  {
+    return this.group;
+  }
+  
+  /**
+   * Returns the port this receiver receives on.
+   * @return The port.
+   */
+  public int getPort()
+  {
+    return this.port;
+  }
+  
+  /**
+   * Returns the interface this receiver joined the group on.
+   * @return The interface.
+   */
+  public NetworkInterface getNetworkInterface()
+  {
+    return this.networkInterface;
+  }
+  
+  /*
+   * A heartbeat tells us which line comes next, so we notice lines lost at
+   * the end.
+   */
+  private synchronized void heartbeat(long next)
+  {
+    if(this.active && next > this.expected)
+    {
+      this.repair(Math.min(next, this.end));
+    }
+  }
+  
+  /*
+   * Prints every line we can in order, and asks for the ones we are missing.
+   */
+  private void drain()
+  {
+    if(!this.active)
+    {
+      return;
+    }
+    Map.Entry<Long, String> first;
+    while(this.expected < this.end && (first = this.pending.firstEntry()) !=
+      null && first.getKey() == this.expected)
+    {
+      this.pending.pollFirstEntry();
+      this.out.print(first.getValue());
+      this.expected++;
+    }
+    if(this.expected >= this.end)
+    {
+      this.active = false;
+      this.pending.headMap(this.end).clear();
+    }
+    else if(!this.pending.isEmpty())
+    {
+      this.repair(this.pending.firstKey());
+    }
+  }
+  
+  /*
+   * Asks for every line from the one we expect up to the given one, unless
+   * we just did.
+   */
+  private void repair(long to)
+  {
+    long now = System.currentTimeMillis();
+    if(this.repairing == this.expected &&
+      now - this.repairedAt < ServerClientConstants.REPAIR_MILLIS)
+    {
+      return;
+    }
+    this.repairing = this.expected;
+    this.repairedAt = now;
+    try
+    {
+      this.client.requestRepair(this.expected, to);
+    }
+    catch(IOException | IllegalStateException e)
+    {
+      //we ask again on the next heartbeat
+    }
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * MulticastSender.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.Initializable;
+import com.coswald.jtalker.LRUCache;
+import com.coswald.jtalker.net.ServerClientConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Sends every line broadcast within the default room of a server once, to
+ * a multicast group, instead of once to every client. Each line is given a
+ * sequence number, and the last
+ * {@value com.coswald.jtalker.net.ServerClientConstants#MULTICAST_LOG_LINES}
+ * lines are kept, so clients that miss a datagram can ask for it again over
+ * their TCP connection (see
+ * {@link com.coswald.jtalker.net.MulticastReceiver MulticastReceiver}).</p>
+ * <p>A datagram holds the sequence number of a line (eight bytes) followed by
+ * the line, written just like
+ * {@link java.io.DataOutput#writeUTF(String) writeUTF} writes it. Lines too
+ * long to fit within
+ * {@value com.coswald.jtalker.net.ServerClientConstants#MULTICAST_MAX_BYTES}
+ * bytes are still given a number, but are never sent; clients get them as a
+ * repair instead. Every
+ * {@value com.coswald.jtalker.net.ServerClientConstants#MULTICAST_HEARTBEAT_MILLIS}
+ * milliseconds, a datagram holding only the next sequence number is sent,
+ * so clients notice a lost line even when nothing comes after it.</p>
+ * <p>For testing repairs, a {@link #setLossRate(double) loss rate} may be set,
+ * in which case that share of the datagrams are dropped on purpose.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class MulticastSender implements Closeable, Initializable
+{
+  private InetSocketAddress group;
+  private NetworkInterface networkInterface;
+  private DatagramChannel channel;
+  private long next;
+  private LRUCache<Long, String> log;
+  private double lossRate;
+  private Random random;
+  private ScheduledExecutorService heartbeat;
+  
+  /**
+   * Constructs a sender for the given group, port and network interface.
+   * @param group The multicast group.
+   * @param port The port clients receive datagrams on.
+   * @param networkInterface The interface to send datagrams out of.
+   * @throws IllegalArgumentException If any parameter is {@code null}, or the
+   *  address is not a multicast address.
+   */
+  public MulticastSender(InetAddress group, int port,
+    NetworkInterface networkInterface)
+  {
+    if(group == null || networkInterface == null)
+    {
+      throw new IllegalArgumentException("No parameter can be null!");
+    }
+    if(!group.isMulticastAddress())
+    {
+      throw new IllegalArgumentException(group + " is not a multicast " +
+        "address!");
+    }
+    this.group = new InetSocketAddress(group, port);
+    this.networkInterface = networkInterface;
+    this.next = 0L;
+    this.log = new LRUCache<Long, String>(
+      ServerClientConstants.MULTICAST_LOG_LINES);
+    this.lossRate = 0.0;
+    this.random = new Random();
+  }
+  
+  /**
+   * Opens the channel datagrams are sent through, and starts sending
+   * heartbeats.
+   */
+  @Override
+  public void init()
+  {
+    try
+    {
+      this.channel = DatagramChannel.open((this.group.getAddress()
+        instanceof Inet6Address) ? StandardProtocolFamily.INET6 :
+        StandardProtocolFamily.INET);
+      this.channel.setOption(StandardSocketOptions.IP_MULTICAST_IF,
+        this.networkInterface);
+      this.channel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+    }
+    catch(IOException i)
+    {
+      System.err.println("Could not open a multicast channel to " +
+        this.group);
+      i.printStackTrace();
+      return;
+    }
+    this.heartbeat = Executors.newSingleThreadScheduledExecutor(r ->
+    {
+      Thread t = new Thread(r, "JTalker Multicast Heartbeat");
+      t.setDaemon(true);
+      return t;
+    });
+    this.heartbeat.scheduleWithFixedDelay(this::beat,
+      ServerClientConstants.MULTICAST_HEARTBEAT_MILLIS,
+      ServerClientConstants.MULTICAST_HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * Gives a line the next sequence number, keeps it for repairs, and sends it
+   * to the group.
+   * @param line The line.
+   * @return The sequence number of the line.
+   */
+  public synchronized long send(String line)
+  {
+    long sequence = this.next++;
+    this.log.put(sequence, line);
+    try
+    {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeLong(sequence);
+      out.writeUTF(line);
+      if(bytes.size() <= ServerClientConstants.MULTICAST_MAX_BYTES)
+      {
+        this.transmit(ByteBuffer.wrap(bytes.toByteArray()));
+      }
+    }
+    catch(IOException i)
+    {
+      //the client asks for it again
+    }
+    return sequence;
+  }
+  
+  /**
+   * Returns a line that was sent to the group, so it can be sent to a client
+   * that missed it.
+   * @param sequence The sequence number of the line.
+   * @return The line, or {@code null} if it is no longer kept.
+   */
+  public synchronized String getLine(long sequence)
+  {
+    return this.log.get(sequence);
+  }
+  
+  /**
+   * Returns the sequence number the next line sent is given.
+   * @return The next sequence number.
+   */
+  public synchronized long getNextSequence()
+  {
+    return this.next;
+  }
+  
+  /**
+   * Returns the multicast group datagrams are sent to.
+   * @return The group.
+   */
+  public InetAddress getGroup()
+  {
+    return this.group.getAddress();
+  }
+  
+  /**
+   * Returns the port datagrams are sent to.
+   * @return The port.
+   */
+  public int getPort()
+  {
+    return this.group.getPort();
+  }
+  
+  /**
+   * Sets the share of datagrams that are dropped on purpose instead of being
+   * sent, to test how clients repair what they miss.
+   * @param lossRate The share of datagrams to drop, from {@code 0} (none, the
+   *  default) to {@code 1} (all).
+   */
+  public synchronized void setLossRate(double lossRate)
+  {
+    this.lossRate = lossRate;
+  }
+  
+  /**
+   * Stops sending heartbeats, and closes the channel.
+   * @throws IOException If the channel could not be closed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    if(this.heartbeat != null)
+    {
+      this.heartbeat.shutdownNow();
+    }
+    if(this.channel != null)
+    {
+      this.channel.close();
+    }
+  }
+  
+  private synchronized void beat()
+  {
+    ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+    buffer.putLong(this.next).flip();
+    try
+    {
+      this.transmit(buffer);
+    }
+    catch(IOException i)
+    {
+      //we try again soon
+    }
+  }
+  
+  private void transmit(ByteBuffer buffer) throws IOException
+  {
+    if(this.channel != null && (this.lossRate <= 0.0 ||
+      this.random.nextDouble() >= this.lossRate))
+    {
+      this.channel.send(buffer, this.group);
+    }
+  }
+}
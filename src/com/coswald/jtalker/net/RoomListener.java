@@ -0,0 +1,46 @@
+/*
+ * RoomListener.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+/**
+ * <p>Hears when a room of a server gains its first client, or loses its last
+ * one. {@link com.coswald.jtalker.net.Rooms Rooms} calls this listener while
+ * holding the lock of the server's {@code ServerOutputStream}, so
+ * implementations must not wait on anything that may need that lock.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public interface RoomListener
+{
+  /**
+   * Called when a client enters a room no other client of this server is in.
+   * @param room The name of the room.
+   */
+  public abstract void roomOccupied(String room);
+  
+  /**
+   * Called when the last client of this server within a room leaves it.
+   * @param room The name of the room.
+   */
+  public abstract void roomEmptied(String room);
+}
@@ -0,0 +1,45 @@
+/*
+ * RoomWatcher.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+/**
+ * <p>Watches the lines delivered to one room of a server, without being a
+ * client within it. {@link com.coswald.jtalker.net.Rooms Rooms} calls this
+ * watcher while holding the lock of the server's {@code ServerOutputStream},
+ * so implementations must not wait on anything, and should hand the line off
+ * to be dealt with elsewhere.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.Rooms#watch(String, RoomWatcher)
+ */
+public interface RoomWatcher
+{
+  /**
+   * Called when a line is delivered to the room being watched.
+   * @param room The name of the room.
+   * @param index The index the line was given within the history, or -1 if
+   *  it was not appended to it.
+   * @param line The line.
+   */
+  public abstract void lineDelivered(String room, long index, String line);
+}
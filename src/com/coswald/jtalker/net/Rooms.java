@@ -0,0 +1,775 @@
+/*
+ * Rooms.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.LRUCache;
+import com.coswald.jtalker.Snapshottable;
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.MulticastSender;
+import com.coswald.jtalker.net.RoomListener;
+import com.coswald.jtalker.net.RoomWatcher;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.ServerOutputStream;
+import com.coswald.jtalker.net.TCPClientInstance;
+import com.coswald.jtalker.net.history.ChatHistory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>The clients of one server, and the rooms they are in. Every client starts
+ * out within the
+ * {@value com.coswald.jtalker.net.ServerClientConstants#DEFAULT_ROOM} room,
+ * and may move to any other. Each room is a
+ * {@link com.coswald.jtalker.net.ServerOutputStream ServerOutputStream} of the
+ * outputs of the clients within it, so a line
+ * {@link #deliver(String, String) delivered} to a room is written once for
+ * each of them. The default room is the {@code ServerOutputStream} of the
+ * server itself; any other room exists only while a client is within it.</p>
+ * <p>The lines of the default room may also be sent to a
+ * {@link #setMulticast(MulticastSender) multicast} group. A client that takes
+ * them from the group is left out of the {@code ServerOutputStream} of the
+ * default room while it is within it, and is told which line to start taking
+ * from the group when it enters the room, and which line to stop at when it
+ * leaves.</p>
+ * <p>A room may also be {@link #watch(String, RoomWatcher) watched} by
+ * something that is not a client, which is then told about every line
+ * delivered to it.</p>
+ * <p>The last
+ * {@value com.coswald.jtalker.net.ServerClientConstants#RESUME_LOG_LINES}
+ * lines of each room are kept, each with a sequence number of its room. A
+ * client may {@link #resume(TCPClientInstance, String, long) ask} for the
+ * lines of its room to be numbered, in which case it is sent each of them as
+ * a {@value com.coswald.jtalker.net.ServerClientConstants#LINE_COMMAND} frame
+ * instead, and acknowledges them as it goes. When it reconnects, it gives the
+ * last line it has, and is sent only the lines after it. The sequence numbers
+ * of a room only ever grow, even if its lines are forgotten and it is used
+ * again. The lines kept, and the last line each client acknowledged, are
+ * written to a {@link #snapshot(DataOutput) snapshot} of the server, so a
+ * client may still resume where it left off once the server has
+ * restarted.</p>
+ * <p>Every method of this class must be called while holding the lock of the
+ * server's {@code ServerOutputStream} (the one given to the constructor),
+ * except for {@link #snapshot(DataOutput) snapshot} and
+ * {@link #restore(DataInput) restore}, which take it themselves. That one
+ * lock keeps the order of every room the same for every client and for the
+ * history.</p>
+ * @author C. William Oswald
+ * @version 0.0.8
+ * @since JTalker 0.3.0
+ */
+public class Rooms implements Snapshottable
+{
+  private ServerOutputStream lobby;
+  private ChatHistory history;
+  private Map<String, ServerOutputStream> rooms;
+  private Map<String, Integer> occupants;
+  private Map<String, TCPClientInstance> clients;
+  private Map<TCPClientInstance, DataOutputStream> outputs;
+  private RoomListener listener;
+  private MulticastSender multicast;
+  private Set<TCPClientInstance> multicastClients;
+  private Map<String, List<RoomWatcher>> watchers;
+  private Map<String, ServerOutputStream> sequencedRooms;
+  private Set<TCPClientInstance> sequencedClients;
+  private Map<String, Log> logs;
+  private Map<String, Acknowledged> acknowledged;
+  private long sequences;
+  
+  /**
+   * Constructs the rooms of a server.
+   * @param lobby The output of the server, which is used as the default room.
+   * @param history The history every delivered line is appended to (may be
+   *  {@code null}).
+   * @throws IllegalArgumentException If the output is {@code null}.
+   */
+  public Rooms(ServerOutputStream lobby, ChatHistory history)
+  {
+    if(lobby == null)
+    {
+      throw new IllegalArgumentException("The output can not be null!");
+    }
+    this.lobby = lobby;
+    this.history = history;
+    this.rooms = new HashMap<String, ServerOutputStream>();
+    this.rooms.put(ServerClientConstants.DEFAULT_ROOM, lobby);
+    this.occupants = new HashMap<String, Integer>();
+    this.clients = new HashMap<String, TCPClientInstance>();
+    this.outputs = new HashMap<TCPClientInstance, DataOutputStream>();
+    this.multicastClients = new HashSet<TCPClientInstance>();
+    this.watchers = new HashMap<String, List<RoomWatcher>>();
+    this.sequencedRooms = new HashMap<String, ServerOutputStream>();
+    this.sequencedClients = new HashSet<TCPClientInstance>();
+    this.logs = new LRUCache<String, Log>(ServerClientConstants.RESUME_ROOMS);
+    this.acknowledged = new LRUCache<String, Acknowledged>(
+      ServerClientConstants.RESUME_CLIENTS);
+    this.sequences = 0L;
+  }
+  
+  /**
+   * Adds a client, and puts it within the default room.
+   * @param client The client.
+   * @param output The output of the client.
+   */
+  public void add(TCPClientInstance client, DataOutputStream output)
+  {
+    this.clients.put(client.getID(), client);
+    this.outputs.put(client, output);
+    this.enter(client, ServerClientConstants.DEFAULT_ROOM);
+  }
+  
+  /**
+   * Takes a client out of its room, and removes it.
+   * @param client The client.
+   */
+  public void remove(TCPClientInstance client)
+  {
+    if(!this.outputs.containsKey(client))
+    {
+      return;
+    }
+    this.leave(client);
+    this.multicastClients.remove(client);
+    this.sequencedClients.remove(client);
+    this.outputs.remove(client);
+    if(this.clients.get(client.getID()) == client)
+    {
+      this.clients.remove(client.getID());
+    }
+  }
+  
+  /**
+   * Moves a client into another room.
+   * @param client The client.
+   * @param room The room to move it to.
+   */
+  public void move(TCPClientInstance client, String room)
+  {
+    if(!this.outputs.containsKey(client) || room.equals(client.getRoom()))
+    {
+      return;
+    }
+    this.leave(client);
+    this.enter(client, room);
+  }
+  
+  /**
+   * Numbers the lines of a client's room from now on, and sends it the lines
+   * it missed. The client is moved into the room it resumes within first. If
+   * the room is not given, the client resumes from the last line it
+   * {@link #acknowledge(TCPClientInstance, String, long) acknowledged}, or
+   * from now if that is not remembered. If the server no longer has every
+   * line the client missed, it is told which is the first one it has.
+   * @param client The client.
+   * @param room The room the client resumes within (may be {@code null}).
+   * @param last The sequence number of the last line of that room the client
+   *  has.
+   */
+  public void resume(TCPClientInstance client, String room, long last)
+  {
+    if(!this.outputs.containsKey(client))
+    {
+      return;
+    }
+    boolean replaying = true;
+    if(room == null)
+    {
+      Acknowledged remembered = this.acknowledged.get(client.getID());
+      replaying = remembered != null;
+      room = replaying ? remembered.room : client.getRoom();
+      last = replaying ? remembered.sequence : last;
+    }
+    boolean moving = !room.equals(client.getRoom());
+    if(moving)
+    {
+      this.leave(client);
+    }
+    else
+    {
+      this.detach(client, room);
+    }
+    this.sequencedClients.add(client);
+    if(replaying)
+    {
+      this.replay(client, room, last);
+    }
+    if(moving)
+    {
+      this.enter(client, room);
+    }
+    else
+    {
+      this.attach(client, room);
+    }
+  }
+  
+  /**
+   * Remembers the last line of a room a client has, so it may resume from it
+   * after reconnecting even if it has forgotten.
+   * @param client The client.
+   * @param room The room.
+   * @param sequence The sequence number of the last line of the room the
+   *  client has.
+   */
+  public void acknowledge(TCPClientInstance client, String room,
+    long sequence)
+  {
+    if(this.sequencedClients.contains(client))
+    {
+      this.acknowledged.put(client.getID(), new Acknowledged(room, sequence));
+    }
+  }
+  
+  /**
+   * Writes a line to every client within a room. The line is also appended to
+   * the history, if it is within the default room or a room one of our
+   * clients is within (so the history holds what our clients could have
+   * seen), and is kept for clients that resume within the room. Clients
+   * whose lines are numbered are sent it with its sequence number. Everything
+   * watching the room is told about the line last, even if writing it to a
+   * client failed.
+   * @param room The room.
+   * @param line The line.
+   * @throws IOException If an I/O error occurs while writing to a client.
+   */
+  public void deliver(String room, String line) throws IOException
+  {
+    long index = -1L;
+    if(this.history != null && (this.occupants.containsKey(room) ||
+      room.equals(ServerClientConstants.DEFAULT_ROOM)))
+    {
+      index = this.history.append(line);
+    }
+    if(this.multicast != null &&
+      room.equals(ServerClientConstants.DEFAULT_ROOM))
+    {
+      this.multicast.send(line);
+    }
+    long sequence = this.getLog(room).append(line);
+    this.sequences++;
+    IOException failed = null;
+    ServerOutputStream output = this.rooms.get(room);
+    if(output != null)
+    {
+      try
+      {
+        output.writeUTF(line);
+      }
+      catch(IOException i)
+      {
+        failed = i;
+      }
+    }
+    ServerOutputStream sequenced = this.sequencedRooms.get(room);
+    if(sequenced != null)
+    {
+      try
+      {
+        sequenced.writeUTF(lineFrame(room, sequence, line));
+      }
+      catch(IOException i)
+      {
+        failed = (failed == null) ? i : failed;
+      }
+    }
+    List<RoomWatcher> watching = this.watchers.get(room);
+    if(watching != null)
+    {
+      for(RoomWatcher watcher : watching)
+      {
+        watcher.lineDelivered(room, index, line);
+      }
+    }
+    if(failed != null)
+    {
+      throw failed;
+    }
+  }
+  
+  /**
+   * Has a watcher be told about every line delivered to a room from now on.
+   * @param room The room.
+   * @param watcher The watcher.
+   */
+  public void watch(String room, RoomWatcher watcher)
+  {
+    List<RoomWatcher> watching = this.watchers.get(room);
+    if(watching == null)
+    {
+      watching = new ArrayList<RoomWatcher>();
+      this.watchers.put(room, watching);
+    }
+    watching.add(watcher);
+  }
+  
+  /**
+   * Stops telling a watcher about the lines delivered to a room.
+   * @param room The room.
+   * @param watcher The watcher.
+   */
+  public void unwatch(String room, RoomWatcher watcher)
+  {
+    List<RoomWatcher> watching = this.watchers.get(room);
+    if(watching != null && watching.remove(watcher) && watching.isEmpty())
+    {
+      this.watchers.remove(room);
+    }
+  }
+  
+  /**
+   * Has a client take the lines of the default room from the multicast group
+   * instead of over TCP, from now on.
+   * @param client The client.
+   * @return {@code true} if there is a multicast group to take lines from.
+   */
+  public boolean useMulticast(TCPClientInstance client)
+  {
+    if(this.multicast == null || !this.outputs.containsKey(client) ||
+      !this.multicastClients.add(client))
+    {
+      return this.multicast != null;
+    }
+    if(client.getRoom().equals(ServerClientConstants.DEFAULT_ROOM))
+    {
+      this.rooms.get(ServerClientConstants.DEFAULT_ROOM).remove(
+        this.outputs.get(client));
+      this.tell(client, ServerClientConstants.MULTICAST_FROM_COMMAND);
+    }
+    return true;
+  }
+  
+  /**
+   * Sets the sender the lines of the default room are also sent to a
+   * multicast group with.
+   * @param multicast The sender (may be {@code null}).
+   */
+  public void setMulticast(MulticastSender multicast)
+  {
+    this.multicast = multicast;
+  }
+  
+  /**
+   * Returns the sender the lines of the default room are also sent to a
+   * multicast group with.
+   * @return The sender, or {@code null} if there is none.
+   */
+  public MulticastSender getMulticast()
+  {
+    return this.multicast;
+  }
+  
+  /**
+   * Returns the client with the given identifier.
+   * @param identifier The identifier.
+   * @return The client, or {@code null} if it is not connected.
+   */
+  public TCPClientInstance getClient(String identifier)
+  {
+    return this.clients.get(identifier);
+  }
+  
+  /**
+   * Returns every client.
+   * @return The clients.
+   */
+  public Collection<TCPClientInstance> getClients()
+  {
+    return Collections.unmodifiableCollection(this.clients.values());
+  }
+  
+  /**
+   * Returns whether any client is within the given room.
+   * @param room The room.
+   * @return {@code true} if the room has a client within it.
+   */
+  public boolean isOccupied(String room)
+  {
+    return this.occupants.containsKey(room);
+  }
+  
+  /**
+   * Returns the names of every room with a client within it.
+   * @return The names of the rooms.
+   */
+  public List<String> getOccupiedRooms()
+  {
+    return new ArrayList<String>(this.occupants.keySet());
+  }
+  
+  /**
+   * Sets the listener told about rooms gaining their first client and losing
+   * their last.
+   * @param listener The listener (may be {@code null}).
+   */
+  public void setRoomListener(RoomListener listener)
+  {
+    this.listener = listener;
+  }
+  
+  /**
+   * Writes the lines kept for resuming, and the last line each client
+   * acknowledged. These are copied while holding the lock of the server's
+   * {@code ServerOutputStream}, and written once it has been let go of.
+   * @param out Where to write the state to.
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void snapshot(DataOutput out) throws IOException
+  {
+    long sequences;
+    Map<String, Log> logs = new LinkedHashMap<String, Log>();
+    Map<String, Acknowledged> acknowledged;
+    synchronized(this.lobby)
+    {
+      sequences = this.sequences;
+      for(Map.Entry<String, Log> entry : this.logs.entrySet())
+      {
+        logs.put(entry.getKey(), new Log(entry.getValue()));
+      }
+      acknowledged = new LinkedHashMap<String, Acknowledged>(
+        this.acknowledged);
+    }
+    out.writeLong(sequences);
+    out.writeInt(logs.size());
+    for(Map.Entry<String, Log> entry : logs.entrySet())
+    {
+      Log log = entry.getValue();
+      out.writeUTF(entry.getKey());
+      out.writeLong(log.first);
+      out.writeInt(log.lines.size());
+      for(String line : log.lines)
+      {
+        out.writeUTF(line);
+      }
+    }
+    out.writeInt(acknowledged.size());
+    for(Map.Entry<String, Acknowledged> entry : acknowledged.entrySet())
+    {
+      out.writeUTF(entry.getKey());
+      out.writeUTF(entry.getValue().room);
+      out.writeLong(entry.getValue().sequence);
+    }
+  }
+  
+  /**
+   * Restores the lines kept for resuming, and the last line each client
+   * acknowledged, from a snapshot. The rooms and clients forgotten first are
+   * still the ones used least recently before the snapshot was written.
+   * @param in Where to read the state from.
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void restore(DataInput in) throws IOException
+  {
+    long sequences = in.readLong();
+    Map<String, Log> logs = new LinkedHashMap<String, Log>();
+    for(int i = in.readInt(); i > 0; i--)
+    {
+      String room = in.readUTF();
+      Log log = new Log(in.readLong());
+      for(int j = in.readInt(); j > 0; j--)
+      {
+        log.append(in.readUTF());
+      }
+      logs.put(room, log);
+    }
+    Map<String, Acknowledged> acknowledged =
+      new LinkedHashMap<String, Acknowledged>();
+    for(int i = in.readInt(); i > 0; i--)
+    {
+      String identifier = in.readUTF();
+      acknowledged.put(identifier, new Acknowledged(in.readUTF(),
+        in.readLong()));
+    }
+    
+    synchronized(this.lobby)
+    {
+      this.sequences = sequences;
+      this.logs.clear();
+      this.logs.putAll(logs);
+      this.acknowledged.clear();
+      this.acknowledged.putAll(acknowledged);
+    }
+  }
+  
+  /**
+   * Returns the room a line of the history was delivered to. Every room but
+   * the default one puts its name before each of its lines, so any other line
+   * is of the default room. Unlike the rest of this class, this may be called
+   * without holding any lock.
+   * @param line The line.
+   * @return The name of its room.
+   */
+  public static String roomOf(String line)
+  {
+    String start = "[" + ServerClientConstants.ROOM_CHARACTER;
+    int end = line.indexOf("] ");
+    return (line.startsWith(start) && end > start.length()) ?
+      line.substring(start.length(), end) : ServerClientConstants.DEFAULT_ROOM;
+  }
+  
+  private void enter(TCPClientInstance client, String room)
+  {
+    if(!this.rooms.containsKey(room))
+    {
+      this.rooms.put(room, new ServerOutputStream(null));
+    }
+    this.attach(client, room);
+    client.setRoom(room);
+    Integer count = this.occupants.get(room);
+    this.occupants.put(room, (count == null) ? 1 : count + 1);
+    if(count == null && this.listener != null)
+    {
+      this.listener.roomOccupied(room);
+    }
+  }
+  
+  private void leave(TCPClientInstance client)
+  {
+    String room = client.getRoom();
+    this.detach(client, room);
+    int count = this.occupants.get(room) - 1;
+    if(count > 0)
+    {
+      this.occupants.put(room, count);
+      return;
+    }
+    this.occupants.remove(room);
+    this.sequencedRooms.remove(room);
+    if(!room.equals(ServerClientConstants.DEFAULT_ROOM))
+    {
+      this.rooms.remove(room);
+    }
+    if(this.listener != null)
+    {
+      this.listener.roomEmptied(room);
+    }
+  }
+  
+  /*
+   * Has a client be sent the lines of a room, over the multicast group, as
+   * numbered lines, or as they are.
+   */
+  private void attach(TCPClientInstance client, String room)
+  {
+    if(this.multicastClients.contains(client) &&
+      room.equals(ServerClientConstants.DEFAULT_ROOM))
+    {
+      this.tell(client, ServerClientConstants.MULTICAST_FROM_COMMAND);
+    }
+    else if(this.sequencedClients.contains(client))
+    {
+      ServerOutputStream sequenced = this.sequencedRooms.get(room);
+      if(sequenced == null)
+      {
+        sequenced = new ServerOutputStream(null);
+        this.sequencedRooms.put(room, sequenced);
+      }
+      sequenced.add(this.outputs.get(client));
+      this.write(client, new ControlFrame(
+        ServerClientConstants.SEQUENCED_COMMAND, room,
+        Long.toString(this.getLog(room).next - 1L)));
+    }
+    else
+    {
+      this.rooms.get(room).add(this.outputs.get(client));
+    }
+  }
+  
+  /*
+   * Stops sending a client the lines of a room, however they were sent.
+   */
+  private void detach(TCPClientInstance client, String room)
+  {
+    DataOutputStream output = this.outputs.get(client);
+    this.rooms.get(room).remove(output);
+    ServerOutputStream sequenced = this.sequencedRooms.get(room);
+    if(sequenced != null)
+    {
+      sequenced.remove(output);
+    }
+    if(this.multicastClients.contains(client) &&
+      room.equals(ServerClientConstants.DEFAULT_ROOM))
+    {
+      this.tell(client, ServerClientConstants.MULTICAST_END_COMMAND);
+    }
+  }
+  
+  /*
+   * Sends a client the lines of a room after the last one it has, and tells
+   * it if some of them are no longer kept. A client whose sequence numbers
+   * are from before the room was forgotten gets every line kept.
+   */
+  private void replay(TCPClientInstance client, String room, long last)
+  {
+    Log log = this.logs.get(room);
+    if(log == null)
+    {
+      return;
+    }
+    long from = last + 1L;
+    if(from < log.first || from > log.next)
+    {
+      this.write(client, new ControlFrame(
+        ServerClientConstants.MISSED_COMMAND, room, Long.toString(log.first)));
+      from = log.first;
+    }
+    long sequence = log.first;
+    Iterator<String> lines = log.lines.iterator();
+    for(; sequence < from; sequence++)
+    {
+      lines.next();
+    }
+    DataOutputStream output = this.outputs.get(client);
+    try
+    {
+      for(; lines.hasNext(); sequence++)
+      {
+        output.writeUTF(lineFrame(room, sequence, lines.next()));
+      }
+    }
+    catch(IOException i)
+    {
+      //they are leaving; their own thread will clean up after them
+    }
+  }
+  
+  /*
+   * Returns the lines kept for a room. A room that has none (yet, or any
+   * more) starts numbering after every line numbered so far, so its numbers
+   * never go back.
+   */
+  private Log getLog(String room)
+  {
+    Log log = this.logs.get(room);
+    if(log == null)
+    {
+      log = new Log(this.sequences);
+      this.logs.put(room, log);
+    }
+    return log;
+  }
+  
+  /*
+   * Writes a control frame to one client only.
+   */
+  private void write(TCPClientInstance client, ControlFrame frame)
+  {
+    try
+    {
+      this.outputs.get(client).writeUTF(frame.toString());
+    }
+    catch(IOException i)
+    {
+      //they are leaving; their own thread will clean up after them
+    }
+  }
+  
+  /*
+   * The frame a line is sent as to clients whose lines are numbered.
+   */
+  private static String lineFrame(String room, long sequence, String line)
+  {
+    return (new ControlFrame(ServerClientConstants.LINE_COMMAND,
+      new String[] {room, Long.toString(sequence)}, line)).toString();
+  }
+  
+  /*
+   * Tells a client where it starts or stops taking lines from the multicast
+   * group.
+   */
+  private void tell(TCPClientInstance client, String command)
+  {
+    try
+    {
+      this.outputs.get(client).writeUTF((new ControlFrame(command,
+        Long.toString(this.multicast.getNextSequence()))).toString());
+    }
+    catch(IOException i)
+    {
+      //they are leaving; their own thread will clean up after them
+    }
+  }
+  
+  /*
+   * The last lines of one room, and the sequence number of the first of them.
+   */
+  private static final class Log
+  {
+    private long first;
+    private long next;
+    private ArrayDeque<String> lines;
+    
+    private Log(long first)
+    {
+      this.first = first;
+      this.next = first;
+      this.lines = new ArrayDeque<String>();
+    }
+    
+    private Log(Log log)
+    {
+      this.first = log.first;
+      this.next = log.next;
+      this.lines = new ArrayDeque<String>(log.lines);
+    }
+    
+    private long append(String line)
+    {
+      this.lines.addLast(line);
+      if(this.lines.size() > ServerClientConstants.RESUME_LOG_LINES)
+      {
+        this.lines.removeFirst();
+        this.first++;
+      }
+      return this.next++;
+    }
+  }
+  
+  /*
+   * The last line of a room a client said it has.
+   */
+  private static final class Acknowledged
+  {
+    private final String room;
+    private final long sequence;
+    
+    private Acknowledged(String room, long sequence)
+    {
+      this.room = room;
+      this.sequence = sequence;
+    }
+  }
+}
@@ -28,7 +28,7 @@ package com.coswald.jtalker.net;
  * and cannot be extended. If you wish to add more constants, create another
  * utility class for your expanded JTalker application.</p>
  * @author C. William Oswald
- * @version 0.0.1
+ * @version 0.0.12
  * @since JTalker 0.0.1
  */
 public final class ServerClientConstants
@@ -45,6 +45,13 @@ public final class ServerClientConstants
    */
   public static final int MAX_CLIENTS = 8;
   
+  /**
+   * How many clients that have connected may wait to be accepted by one
+   * listening socket of a server. The system may cap this lower. This is
+   * currently set to {@value}.
+   */
+  public static final int ACCEPT_BACKLOG = 1024;
+  
   /**
    * Shows the maximum port number for a JTalker application.
    */
@@ -60,5 +67,357 @@ public final class ServerClientConstants
    */
   public static final int TCP_PORT = 5000;
   
+  /**
+   * The port to listen on and talk on via reliable UDP, when a server does.
+   * @see com.coswald.jtalker.net.udp.ReliableEndpoint
+   */
+  public static final int UDP_PORT = 5003;
+  
+  /**
+   * The port to listen on for browsers talking over WebSockets, when a server
+   * does.
+   * @see com.coswald.jtalker.net.websocket.WebSocketListener
+   */
+  public static final int WEBSOCKET_PORT = 5004;
+  
+  /**
+   * The port to stream rooms over HTTP on, when a server does.
+   * @see com.coswald.jtalker.net.sse.EventStreamServer
+   */
+  public static final int EVENT_STREAM_PORT = 5005;
+  
+  /**
+   * The port to listen on for clients talking over TLS, when a server does.
+   * @see com.coswald.jtalker.net.tls.TLSListener
+   */
+  public static final int TLS_PORT = 5006;
+  
+  /**
+   * The character that starts every control frame. A control frame is a
+   * message sent between a client and a server that is meant for the JTalker
+   * software itself, not for the people chatting. It was chosen because it
+   * can't be typed into a chat by accident.
+   * @see com.coswald.jtalker.net.ControlFrame
+   */
+  public static final char CONTROL_CHARACTER = '\u0001';
+  
+  /**
+   * The command a client sends to ask the server for older history. Its
+   * arguments are the index to read before and the amount of lines wanted.
+   * @see com.coswald.jtalker.net.TCPClient#requestHistory(long, int)
+   */
+  public static final String HISTORY_COMMAND = "HISTORY";
+  
+  /**
+   * The command a server sends to answer a
+   * {@link #HISTORY_COMMAND history} request. Its arguments are the index of
+   * the first line in the page and the index the page ends before, and its
+   * body is the text of the page.
+   */
+  public static final String PAGE_COMMAND = "PAGE";
+  
+  /**
+   * The command a server sends to a client once it has been accepted. Its only
+   * argument is the index of the first history line the client saw live.
+   */
+  public static final String JOINED_COMMAND = "JOINED";
+  
+  /**
+   * The amount of history lines asked for by default in one page. This is
+   * currently set to {@value}.
+   */
+  public static final int HISTORY_PAGE_SIZE = 50;
+  
+  /**
+   * The most history lines looked through for one page. A page only holds the
+   * lines of the room of whoever asked for it, so a quiet room may need many
+   * lines of the other rooms passed over to fill one. This is currently set
+   * to {@value}.
+   */
+  public static final int HISTORY_SCAN_LINES = 5000;
+  
+  /**
+   * The most characters a single frame may carry. A frame is sent using
+   * {@link java.io.DataOutput#writeUTF(String) writeUTF}, which can write at
+   * most 65535 bytes, and a character may need up to three of those bytes.
+   * This is currently set to {@value}.
+   */
+  public static final int MAX_FRAME_CHARACTERS = 65535 / 3;
+  
+  /**
+   * What a chat message starts with to be sent to one person only
+   * ({@value}). It is followed by the identifier of that person, a space, and
+   * the message itself. If that person is offline, the message is kept in
+   * their {@link com.coswald.jtalker.net.mailbox.MailboxStore mailbox}.
+   */
+  public static final String DIRECT_MESSAGE_PREFIX = "/msg ";
+  
+  /**
+   * The character that starts a mention of someone within a chat message. A
+   * mention of someone who is offline is kept in their
+   * {@link com.coswald.jtalker.net.mailbox.MailboxStore mailbox}.
+   */
+  public static final char MENTION_CHARACTER = '@';
+  
+  /**
+   * The room every client starts out within ({@value}).
+   * @see com.coswald.jtalker.net.Rooms
+   */
+  public static final String DEFAULT_ROOM = "lobby";
+  
+  /**
+   * What a chat message starts with to move its sender into another room
+   * ({@value}). It is followed by the name of the room, which may not hold a
+   * space. Everything the client sends afterwards goes to that room only.
+   */
+  public static final String JOIN_PREFIX = "/join ";
+  
+  /**
+   * The character put before the name of a room when it is shown.
+   */
+  public static final char ROOM_CHARACTER = '#';
+  
+  /**
+   * How often, in milliseconds, a server with a snapshot file writes a
+   * snapshot of its state. This is currently set to {@value} (one minute).
+   * @see com.coswald.jtalker.net.TCPServer#setSnapshotFile(java.io.File)
+   */
+  public static final long SNAPSHOT_MILLIS = 60L * 1000L;
+  
+  /**
+   * The size, in bytes, of the buffer a
+   * {@link com.coswald.jtalker.net.Balancer Balancer} copies each direction
+   * of a connection through. This is currently set to {@value}.
+   */
+  public static final int BALANCER_BUFFER_BYTES = 8192;
+  
+  /**
+   * How long, in milliseconds, a {@link com.coswald.jtalker.net.Balancer
+   * Balancer} leaves a server alone after failing to connect to it. This is
+   * currently set to {@value}.
+   */
+  public static final long BACKEND_RETRY_MILLIS = 5000L;
+  
+  /**
+   * How long, in milliseconds, a {@link com.coswald.jtalker.net.Balancer
+   * Balancer} waits for a server to take a connection before counting it as
+   * down. This is currently set to {@value}.
+   */
+  public static final int BACKEND_CONNECT_MILLIS = 2000;
+  
+  /**
+   * The command a server sends to a client, once it has been accepted, when
+   * the lines of the default room are also sent to a multicast group. Its
+   * arguments are the group and the port. A client that joins the group sends
+   * the same command back, with no arguments, and the server stops sending it
+   * those lines over TCP.
+   * @see com.coswald.jtalker.net.MulticastSender
+   */
+  public static final String MULTICAST_COMMAND = "MULTICAST";
+  
+  /**
+   * The command a server sends to a client that takes lines from a multicast
+   * group, once it is within the default room. Its only argument is the
+   * sequence number of the first line the client should take from the group.
+   */
+  public static final String MULTICAST_FROM_COMMAND = "MULTICASTFROM";
+  
+  /**
+   * The command a server sends to a client that takes lines from a multicast
+   * group, once it leaves the default room. Its only argument is the sequence
+   * number of the first line the client should no longer take.
+   */
+  public static final String MULTICAST_END_COMMAND = "MULTICASTEND";
+  
+  /**
+   * The command a client sends to ask for lines it missed from a multicast
+   * group. Its arguments are the sequence number of the first line wanted,
+   * and the one after the last.
+   */
+  public static final String REPAIR_COMMAND = "REPAIR";
+  
+  /**
+   * The command a server sends to answer a {@link #REPAIR_COMMAND repair}
+   * with one line. Its only argument is the sequence number of the line, and
+   * its body is the line.
+   */
+  public static final String REPAIRED_COMMAND = "REPAIRED";
+  
+  /**
+   * The command a server sends to answer a {@link #REPAIR_COMMAND repair} for
+   * lines it no longer has. Its arguments are the sequence number of the
+   * first lost line, and the one after the last.
+   */
+  public static final String LOST_COMMAND = "LOST";
+  
+  /**
+   * The multicast group the lines of the default room are sent to by default
+   * ({@value}). This is within the range set aside for use within one
+   * organization.
+   */
+  public static final String MULTICAST_GROUP = "239.255.74.84";
+  
+  /**
+   * The port lines are sent to a multicast group on, by default. This is
+   * currently set to {@value}.
+   */
+  public static final int MULTICAST_PORT = 5002;
+  
+  /**
+   * The most bytes a multicast datagram may hold. A line that does not fit is
+   * only ever sent as a repair. This is currently set to {@value}.
+   */
+  public static final int MULTICAST_MAX_BYTES = 8192;
+  
+  /**
+   * How many of the last lines sent to a multicast group are kept for
+   * repairs. This is currently set to {@value}.
+   */
+  public static final int MULTICAST_LOG_LINES = 4096;
+  
+  /**
+   * How often, in milliseconds, the next sequence number is sent to a
+   * multicast group. This is currently set to {@value}.
+   */
+  public static final long MULTICAST_HEARTBEAT_MILLIS = 1000L;
+  
+  /**
+   * The most lines a client holds while it waits for a line it missed. This
+   * is currently set to {@value}.
+   */
+  public static final int MULTICAST_PENDING_LINES = 4096;
+  
+  /**
+   * The most lines a server sends in answer to one
+   * {@link #REPAIR_COMMAND repair}. This is currently set to {@value}.
+   */
+  public static final int REPAIR_LINES = 256;
+  
+  /**
+   * How long, in milliseconds, a client waits before asking for the same
+   * missing line again. This is currently set to {@value}.
+   */
+  public static final long REPAIR_MILLIS = 250L;
+  
+  /**
+   * The command a client sends to have the lines of its room numbered, so it
+   * may resume where it left off after reconnecting. With no arguments, the
+   * client resumes from the last line it acknowledged, if the server
+   * remembers one; otherwise its arguments are the room and the sequence
+   * number of the last line of that room the client has.
+   * @see com.coswald.jtalker.net.TCPClient#setResumable(boolean)
+   */
+  public static final String SEQUENCE_COMMAND = "SEQUENCE";
+  
+  /**
+   * The command a server sends to a client whose lines are numbered, once the
+   * client is within a room and has every line of it so far. Its arguments
+   * are the room and the sequence number of the last line of that room.
+   */
+  public static final String SEQUENCED_COMMAND = "SEQUENCED";
+  
+  /**
+   * The command a server sends in place of each line of a room to a client
+   * whose lines are numbered. Its arguments are the room and the sequence
+   * number of the line, and its body is the line.
+   */
+  public static final String LINE_COMMAND = "LINE";
+  
+  /**
+   * The command a client sends to tell the server which lines it has. Its
+   * arguments are the room and the sequence number of the last line of that
+   * room the client has; every line before it is acknowledged as well.
+   */
+  public static final String ACK_COMMAND = "ACK";
+  
+  /**
+   * The command a server sends to a resuming client that missed more lines
+   * than the server still has. Its arguments are the room and the sequence
+   * number of the first line the server still has.
+   */
+  public static final String MISSED_COMMAND = "MISSED";
+  
+  /**
+   * How many of the last lines of each room are kept, so a client may resume
+   * without missing any. This is currently set to {@value}.
+   */
+  public static final int RESUME_LOG_LINES = 4096;
+  
+  /**
+   * How many rooms lines are kept for; the room used least recently is
+   * forgotten first. This is currently set to {@value}.
+   */
+  public static final int RESUME_ROOMS = 256;
+  
+  /**
+   * How many clients the last acknowledged line is remembered for. This is
+   * currently set to {@value}.
+   */
+  public static final int RESUME_CLIENTS = 4096;
+  
+  /**
+   * The most lines a client takes before acknowledging them. This is
+   * currently set to {@value}.
+   */
+  public static final int ACK_LINES = 64;
+  
+  /**
+   * The longest, in milliseconds, a client waits between acknowledgements
+   * while lines keep arriving. This is currently set to {@value}.
+   */
+  public static final long ACK_MILLIS = 250L;
+  
+  /**
+   * The size, in bytes, an
+   * {@link com.coswald.jtalker.net.AsyncTCPClient AsyncTCPClient} reads from
+   * the server into at first. It grows to fit a larger frame. This is
+   * currently set to {@value}.
+   */
+  public static final int ASYNC_READ_BYTES = 8192;
+  
+  /**
+   * The most frames an {@link com.coswald.jtalker.net.AsyncTCPClient
+   * AsyncTCPClient} writes to the server at once, when more than one is
+   * waiting to be written. This is currently set to {@value}.
+   */
+  public static final int ASYNC_WRITE_FRAMES = 64;
+  
+  /**
+   * The ceiling, in milliseconds, on how long a client waits before its first
+   * attempt to reconnect. The ceiling doubles after every failed attempt, and
+   * the client waits a random time below it. This is currently set to
+   * {@value}.
+   * @see com.coswald.jtalker.net.TCPClient#setReconnecting(boolean)
+   */
+  public static final long RECONNECT_MIN_MILLIS = 250L;
+  
+  /**
+   * The most the ceiling on how long a client waits before trying to
+   * reconnect may grow to. This is currently set to {@value} (thirty
+   * seconds).
+   */
+  public static final long RECONNECT_MAX_MILLIS = 30L * 1000L;
+  
+  /**
+   * The most lines a client keeps while it is disconnected; the oldest is
+   * dropped to make room for another. This is currently set to {@value}.
+   */
+  public static final int RECONNECT_BUFFER_LINES = 1000;
+  
+  /**
+   * How many bytes of typed lines a client gathers, by default, before
+   * writing them to the server while more are still waiting to be sent. This
+   * is currently set to {@value}.
+   * @see com.coswald.jtalker.net.TCPClient#setBatchSize(int)
+   */
+  public static final int SEND_BATCH_BYTES = 16 * 1024;
+  
+  /**
+   * The longest, in milliseconds, that a typed line written but not yet
+   * flushed by a client may wait in its buffer for those typed after it. This
+   * is currently set to {@value}.
+   */
+  public static final int SEND_TICK_MILLIS = 20;
+  
   private ServerClientConstants() {}
 }
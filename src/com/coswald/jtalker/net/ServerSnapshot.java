@@ -0,0 +1,248 @@
+/*
+ * ServerSnapshot.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.Snapshottable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * <p>A snapshot of the state of a
+ * {@link com.coswald.jtalker.net.TCPServer TCPServer}, kept within a single,
+ * compact binary file. A snapshot is made up of named sections, each written
+ * by (and later given back to) a
+ * {@link com.coswald.jtalker.Snapshottable Snapshottable} part of the server.
+ * A server that starts from a snapshot only has to look at what changed after
+ * it was written, instead of rebuilding its state from scratch.</p>
+ * <p>The file starts with a magic number and a version, followed by the time
+ * the snapshot was taken, every section (its name, length and bytes), and the
+ * CRC-32 of everything before it. A snapshot is written to a temporary file
+ * that is renamed into place once it is complete, so a crash while writing
+ * one never damages the last one; and a snapshot that does not match its
+ * checksum is never read.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.TCPServer#writeSnapshot()
+ */
+public final class ServerSnapshot
+{
+  private static final int MAGIC = 0x4A54534E;
+  private static final int VERSION = 1;
+  
+  private long time;
+  private Map<String, byte[]> sections;
+  
+  /**
+   * Constructs an empty snapshot taken at the given time.
+   * @param time The time the snapshot is taken, in milliseconds since the
+   *  epoch.
+   */
+  public ServerSnapshot(long time)
+  {
+    this.time = time;
+    this.sections = new LinkedHashMap<String, byte[]>();
+  }
+  
+  /**
+   * Constructs an empty snapshot taken now.
+   */
+  public ServerSnapshot()
+  {
+    this(System.currentTimeMillis());
+  }
+  
+  /**
+   * Adds a section holding the given bytes, replacing any section with the
+   * same name.
+   * @param name The name of the section.
+   * @param data The contents of the section.
+   * @throws IllegalArgumentException If any parameter is {@code null}.
+   */
+  public void put(String name, byte[] data)
+  {
+    if(name == null || data == null)
+    {
+      throw new IllegalArgumentException("No parameter can be null!");
+    }
+    this.sections.put(name, data);
+  }
+  
+  /**
+   * Adds a section holding the state of the given object.
+   * @param name The name of the section.
+   * @param state The object to take a snapshot of.
+   * @throws IOException If the object could not write its state.
+   * @see com.coswald.jtalker.Snapshottable#snapshot(java.io.DataOutput)
+   */
+  public void put(String name, Snapshottable state) throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try(DataOutputStream out = new DataOutputStream(bytes))
+    {
+      state.snapshot(out);
+    }
+    this.put(name, bytes.toByteArray());
+  }
+  
+  /**
+   * Returns the contents of a section.
+   * @param name The name of the section.
+   * @return A stream of the contents, or {@code null} if there is no such
+   *  section.
+   */
+  public DataInputStream get(String name)
+  {
+    byte[] data = this.sections.get(name);
+    return (data == null) ? null :
+      new DataInputStream(new ByteArrayInputStream(data));
+  }
+  
+  /**
+   * Restores the given object from a section.
+   * @param name The name of the section.
+   * @param state The object to restore.
+   * @return {@code true} if the object was restored, {@code false} if there is
+   *  no such section.
+   * @throws IOException If the object could not be restored from the section.
+   * @see com.coswald.jtalker.Snapshottable#restore(java.io.DataInput)
+   */
+  public boolean restore(String name, Snapshottable state) throws IOException
+  {
+    DataInputStream in = this.get(name);
+    if(in == null)
+    {
+      return false;
+    }
+    state.restore(in);
+    return true;
+  }
+  
+  /**
+   * Returns the names of every section, in the order they were added.
+   * @return The names of the sections.
+   */
+  public Set<String> getSectionNames()
+  {
+    return Collections.unmodifiableSet(this.sections.keySet());
+  }
+  
+  /**
+   * Returns the time the snapshot was taken.
+   * @return The time, in milliseconds since the epoch.
+   */
+  public long getTime()
+  {
+    return this.time;
+  }
+  
+  /**
+   * Writes this snapshot into the given file, replacing it only once the
+   * snapshot has been written completely.
+   * @param file The file to write to.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void write(File file) throws IOException
+  {
+    File temp = new File(file.getPath() + ".tmp");
+    CRC32 crc = new CRC32();
+    try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+      new FileOutputStream(temp))))
+    {
+      DataOutputStream checked = new DataOutputStream(
+        new CheckedOutputStream(out, crc));
+      checked.writeInt(MAGIC);
+      checked.writeInt(VERSION);
+      checked.writeLong(this.time);
+      checked.writeInt(this.sections.size());
+      for(Map.Entry<String, byte[]> section : this.sections.entrySet())
+      {
+        checked.writeUTF(section.getKey());
+        checked.writeInt(section.getValue().length);
+        checked.write(section.getValue());
+      }
+      checked.flush();
+      out.writeLong(crc.getValue());
+    }
+    if(!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file)))
+    {
+      throw new IOException("Could not rename " + temp + " to " + file);
+    }
+  }
+  
+  /**
+   * Reads a snapshot from the given file.
+   * @param file The file to read from.
+   * @return The snapshot.
+   * @throws IOException If an I/O error occurs, or the file is not a snapshot
+   *  that can be read (it is damaged, or of a different version).
+   */
+  public static ServerSnapshot read(File file) throws IOException
+  {
+    CRC32 crc = new CRC32();
+    try(DataInputStream in = new DataInputStream(new BufferedInputStream(
+      new FileInputStream(file))))
+    {
+      DataInputStream checked = new DataInputStream(
+        new CheckedInputStream(in, crc));
+      if(checked.readInt() != MAGIC || checked.readInt() != VERSION)
+      {
+        throw new IOException(file + " is not a JTalker snapshot!");
+      }
+      ServerSnapshot snapshot = new ServerSnapshot(checked.readLong());
+      for(int i = checked.readInt(); i > 0; i--)
+      {
+        String name = checked.readUTF();
+        int length = checked.readInt();
+        if(length < 0 || length > file.length())
+        {
+          throw new IOException(file + " is damaged!");
+        }
+        byte[] data = new byte[length];
+        checked.readFully(data);
+        snapshot.put(name, data);
+      }
+      long expected = crc.getValue();
+      if(in.readLong() != expected)
+      {
+        throw new IOException(file + " does not match its checksum!");
+      }
+      return snapshot;
+    }
+  }
+}
@@ -22,9 +22,15 @@
 package com.coswald.jtalker.net;
 
 import com.coswald.jtalker.Initializable;
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.HistoryListener;
+import com.coswald.jtalker.net.MulticastReceiver;
 import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.transport.SocketTransport;
+import com.coswald.jtalker.net.transport.Transport;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.DataInputStream;
@@ -33,9 +39,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>A TCP client for the JTalker application. This class defines everything
@@ -47,16 +61,91 @@ import java.net.UnknownHostException;
  * started as soon as the init method is called; the sending portion is only
  * initiated after the {@link #run() run} method is called within a thread. This
  * means that for every client, there are two threads running.</p>
+ * <p>The listening thread also understands
+ * {@link com.coswald.jtalker.net.ControlFrame control} frames. These are never
+ * printed; instead, the server uses them to tell us where in its history we
+ * joined, and to answer our {@link #requestHistory(long, int) requests} for
+ * older history, which are handed to a
+ * {@link com.coswald.jtalker.net.HistoryListener HistoryListener}.</p>
+ * <p>If the server offers to send the lines of the default room to a
+ * multicast group, the client joins it on the network interface its TCP
+ * connection goes through, and takes those lines from a
+ * {@link com.coswald.jtalker.net.MulticastReceiver MulticastReceiver}
+ * instead, unless {@link #setMulticastEnabled(boolean) told} not to. Lines it
+ * misses are asked for again over TCP. If the group can not be joined, the
+ * client simply keeps taking every line over TCP.</p>
+ * <p>The socket used to talk to the server is made by the
+ * {@link #connect(String, int) connect} method, through our
+ * {@link #setTransport(Transport) transport}, and frames are written to and
+ * read from it with the codec of that transport. Either may be changed, so
+ * that a client (or a subclass, such as
+ * {@link com.coswald.jtalker.net.UDPClient UDPClient}) may talk to the server
+ * some other way.</p>
+ * <p>A client may be made {@link #setResumable(boolean) resumable}, in which
+ * case the server numbers the lines of our room, and we acknowledge them as
+ * they arrive, a batch at a time. When such a client is
+ * {@link #init() initialized} again after losing its connection, it gives the
+ * server the last line it has, and is sent only the lines it missed.</p>
+ * <p>A client may also be made to {@link #setReconnecting(boolean)
+ * reconnect} by itself when its connection is lost. It waits a random time
+ * before each attempt, up to a ceiling that doubles after every failure (to
+ * at most
+ * {@value com.coswald.jtalker.net.ServerClientConstants#RECONNECT_MAX_MILLIS}
+ * milliseconds), so that many clients cut off at once do not all come back
+ * at once. Lines typed while it is disconnected are kept, and sent in order
+ * once it is back. A line written just before the connection was lost may
+ * still be lost with it.</p>
+ * <p>What we write to the server is buffered. A typed line is sent at once
+ * when nothing more has been typed yet, but lines typed (or pasted) faster
+ * than they can be sent are gathered, and written together once no more are
+ * waiting or {@link #setBatchSize(int) enough} have been gathered. A line
+ * left in the buffer is never kept there longer than
+ * {@value com.coswald.jtalker.net.ServerClientConstants#SEND_TICK_MILLIS}
+ * milliseconds, even if what was typed after it (such as the end of a paste
+ * with no line break) has not been finished. Since we gather lines
+ * ourselves, Nagle's algorithm is {@link #setTcpNoDelay(boolean) turned off}
+ * by default, so that a lone line is never held back waiting on the
+ * server.</p>
  * @author C. William Oswald
- * @version 0.0.1
+ * @version 0.0.10
  * @since JTalker 0.0.1
  */
 public class TCPClient implements Closeable, Initializable, Runnable
 {
+  /*
+   * One thread, shared by every client, flushes lines left in a buffer.
+   */
+  private static final ScheduledExecutorService FLUSHER =
+    Executors.newSingleThreadScheduledExecutor(r ->
+    {
+      Thread t = new Thread(r, "JTalker Send Flusher");
+      t.setDaemon(true);
+      return t;
+    });
+  
   private String identifier;
   private String host;
   private int port;
   private boolean running;
+  private volatile long joinIndex;
+  private volatile HistoryListener historyListener;
+  private volatile boolean multicastEnabled;
+  private volatile MulticastReceiver multicast;
+  private Transport transport;
+  private volatile boolean resumable;
+  private volatile String sequencedRoom;
+  private volatile long lastSequence;
+  private int unacknowledged;
+  private long acknowledgedAt;
+  private volatile boolean reconnecting;
+  private volatile boolean connected;
+  private volatile boolean closing;
+  private final Queue<String> pending;
+  private final Object backoff;
+  private boolean tcpNoDelay;
+  private int sendBufferSize;
+  private int batchSize;
+  private boolean ticking;
   
   private Socket socket;
   private BufferedReader input;
@@ -115,6 +204,20 @@ public class TCPClient implements Closeable, Initializable, Runnable
     this.host = host;
     this.port = port;
     this.running = false;
+    this.joinIndex = -1;
+    this.multicastEnabled = true;
+    this.transport = new SocketTransport();
+    this.resumable = false;
+    this.lastSequence = -1L;
+    this.unacknowledged = 0;
+    this.reconnecting = false;
+    this.connected = false;
+    this.closing = false;
+    this.pending = new ArrayDeque<String>();
+    this.backoff = new Object();
+    this.tcpNoDelay = true;
+    this.sendBufferSize = 0;
+    this.batchSize = ServerClientConstants.SEND_BATCH_BYTES;
     
     this.in = in;
     this.out = out;
@@ -142,61 +245,28 @@ public class TCPClient implements Closeable, Initializable, Runnable
    * thread. Within the listening thread is the logic used by the client to
    * detect when connection has been lost, and within the socket/stream
    * creation is the logic used to detect when an unknown host or an I/O error
-   * occurs. In both cases, the client will stop by printint out a message. No
-   * exception is thrown, so if a client does not connect within this method, a
-   * new client must be created. Now the {@code init} method may be called again
-   * as long as the information is correct.
+   * occurs. In both cases, the client will stop by printint out a message,
+   * unless it {@link #setReconnecting(boolean) reconnects} by itself once
+   * the listening thread has started. No exception is thrown, so if a client
+   * does not connect within this method, a new client must be created. Now
+   * the {@code init} method may be called again as long as the information is
+   * correct.
    */
   @Override
   public void init()
   {
     try
     {
-      this.socket = new Socket(this.host, this.port);
-      
       this.input = new BufferedReader(new InputStreamReader(this.in));
-      this.serverInput = new DataInputStream(
-        new BufferedInputStream(this.socket.getInputStream()));
-      this.output = new DataOutputStream(socket.getOutputStream());
-      
-      this.out.println("Waiting to be connected...");
-      
-      //wait for the server to accept us
-      this.running = this.serverInput.readBoolean();
-      
-      this.out.println("Connected!");
-      
-      // Send out our identifier
-      this.output.writeUTF(this.identifier);
+      this.closing = false;
+      this.open();
       
       // Start Listening Thread
       (new Thread()
       {
         public void run()
         {
-          String line = "";
-          while(running)
-          {
-            try
-            {
-              line = serverInput.readUTF();
-              out.print(line);
-            }
-            catch(SocketException s)
-            {
-              out.println("Connection has been lost");
-              running = false;
-              //System.exit(0);
-            }
-            catch(IOException i)
-            {
-              //i.printStackTrace();
-              out.println("Server has shutdown or another I/O error " +
-                                 "happened.");
-              running = false;
-              //System.exit(1);
-            }
-          }
+          listen();
         }
       }).start();
     }
@@ -212,6 +282,189 @@ public class TCPClient implements Closeable, Initializable, Runnable
     }
   }
   
+  /*
+   * Connects to the server, waits for it to accept us, and identifies us,
+   * sending whatever was typed while we were disconnected.
+   */
+  private void open() throws IOException
+  {
+    this.joinIndex = -1;
+    this.socket = this.connect(this.host, this.port);
+    this.configure(this.socket);
+    
+    this.serverInput = new DataInputStream(
+      new BufferedInputStream(this.socket.getInputStream()));
+    this.output = new DataOutputStream((this.batchSize > 0) ?
+      new BufferedOutputStream(this.socket.getOutputStream(), this.batchSize) :
+      this.socket.getOutputStream());
+    
+    this.out.println("Waiting to be connected...");
+    
+    //wait for the server to accept us
+    this.running = this.serverInput.readBoolean();
+    
+    this.out.println("Connected!");
+    
+    // Send out our identifier
+    this.send(this.identifier, false);
+    if(this.resumable)
+    {
+      this.resume();
+    }
+    synchronized(this.pending)
+    {
+      String line;
+      while((line = this.pending.peek()) != null)
+      {
+        this.send(line, false);
+        this.pending.poll();
+      }
+      this.flush();
+      this.connected = true;
+    }
+  }
+  
+  /*
+   * Applies our socket options. Sockets that only stand in for a TCP socket
+   * ignore them, and a socket that can not take them is used as it is.
+   */
+  private void configure(Socket socket)
+  {
+    try
+    {
+      socket.setTcpNoDelay(this.tcpNoDelay);
+      if(this.sendBufferSize > 0)
+      {
+        socket.setSendBufferSize(this.sendBufferSize);
+      }
+    }
+    catch(SocketException e)
+    {
+      //the socket works without them
+    }
+  }
+  
+  /*
+   * The listening thread, which prints what the server sends us until the
+   * connection is lost for good.
+   */
+  private void listen()
+  {
+    String line = "";
+    while(this.running)
+    {
+      try
+      {
+        line = this.transport.getCodec().readFrame(this.serverInput);
+        if(ControlFrame.isControlFrame(line))
+        {
+          this.handleControlFrame(ControlFrame.parse(line));
+        }
+        else
+        {
+          this.out.print(line);
+        }
+      }
+      catch(SocketException s)
+      {
+        this.out.println("Connection has been lost");
+        this.lost();
+        //System.exit(0);
+      }
+      catch(IOException i)
+      {
+        //i.printStackTrace();
+        this.out.println("Server has shutdown or another I/O error " +
+                           "happened.");
+        this.lost();
+        //System.exit(1);
+      }
+    }
+  }
+  
+  /*
+   * Stops running once our connection is lost, unless we get it back.
+   */
+  private void lost()
+  {
+    this.connected = false;
+    if(this.multicast != null)
+    {
+      try
+      {
+        this.multicast.close();
+      }
+      catch(IOException i)
+      {
+        //Do NOTHING
+      }
+      this.multicast = null;
+    }
+    this.running = this.reconnecting && !this.closing && this.reconnect();
+  }
+  
+  /*
+   * Connects to the server again, waiting a random time up to a ceiling
+   * before each attempt. The ceiling doubles after each failed attempt, up to
+   * its cap. Returns false if we were closed first.
+   */
+  private boolean reconnect()
+  {
+    long ceiling = ServerClientConstants.RECONNECT_MIN_MILLIS;
+    while(!this.closing)
+    {
+      long delay = (long)(ThreadLocalRandom.current().nextDouble() * ceiling);
+      this.out.println("Reconnecting in " + delay + " ms...");
+      synchronized(this.backoff)
+      {
+        try
+        {
+          this.backoff.wait(Math.max(delay, 1L));
+        }
+        catch(InterruptedException e)
+        {
+          return false;
+        }
+      }
+      if(this.closing)
+      {
+        return false;
+      }
+      try
+      {
+        this.socket.close();
+        this.open();
+        if(this.closing)
+        {
+          this.socket.close();
+          return false;
+        }
+        return true;
+      }
+      catch(IOException i)
+      {
+        ceiling = Math.min(ceiling * 2L,
+          ServerClientConstants.RECONNECT_MAX_MILLIS);
+      }
+    }
+    return false;
+  }
+  
+  /**
+   * Connects to the server. This is called by the {@link #init() init}
+   * method, and connects through our transport, which opens a TCP socket
+   * unless it has been {@link #setTransport(Transport) changed}.
+   * @param host The host we are connecting to.
+   * @param port The port number the server listens on.
+   * @return The connected socket.
+   * @throws UnknownHostException If the host could not be found.
+   * @throws IOException If the socket could not be connected.
+   */
+  protected Socket connect(String host, int port) throws IOException
+  {
+    return this.transport.connect(host, port);
+  }
+  
   /**
    * Runs the sending thread if we have been initialized. Note that the running
    * method will only work if the {@link #init() init} method has been called,
@@ -235,7 +488,16 @@ public class TCPClient implements Closeable, Initializable, Runnable
         line = this.input.readLine();
         if(line != null)
         {
-          this.output.writeUTF(line);
+          boolean leaving =
+            ServerClientConstants.EXIT_MESSAGE.equalsIgnoreCase(line);
+          if(leaving && this.connected)
+          {
+            this.acknowledge(true);
+          }
+          if(!leaving || this.connected)
+          {
+            this.submit(line, leaving || !this.input.ready());
+          }
         }
       }
       this.close();
@@ -264,12 +526,519 @@ public class TCPClient implements Closeable, Initializable, Runnable
   @Override
   public void close() throws IOException
   {
+    this.closing = true;
+    synchronized(this.backoff)
+    {
+      this.backoff.notifyAll();
+    }
     //Any one of these lines may throw an IOException
     //this.input.close();
     this.output.close();
     this.serverInput.close();
     this.socket.close();
     this.running = false;
+    if(this.multicast != null)
+    {
+      this.multicast.close();
+      this.multicast = null;
+    }
+  }
+  
+  /**
+   * Asks the server for the history that comes before the given index. This
+   * does not wait for the answer: when the page arrives, it is given to the
+   * {@link #setHistoryListener(HistoryListener) history listener} from within
+   * the listening thread. To ask for the history that was sent before we
+   * joined, use the {@link #getJoinIndex() join} index.
+   * @param before The index the page should end before.
+   * @param count The most lines the page should hold. The server may send
+   *  fewer.
+   * @throws IOException If an I/O error occurs.
+   * @throws IllegalStateException If the client is not running.
+   */
+  public void requestHistory(long before, int count) throws IOException
+  {
+    if(!this.running)
+    {
+      throw new IllegalStateException("Client is not running!");
+    }
+    this.send((new ControlFrame(ServerClientConstants.HISTORY_COMMAND,
+      Long.toString(before), Integer.toString(count))).toString());
+  }
+  
+  /**
+   * Sets the listener that receives the pages of history we asked for. Only
+   * one listener is kept; setting another replaces the last one.
+   * @param historyListener The listener (may be {@code null} to ignore pages).
+   * @see #requestHistory(long, int)
+   */
+  public void setHistoryListener(HistoryListener historyListener)
+  {
+    this.historyListener = historyListener;
+  }
+  
+  /**
+   * Sets whether we join a multicast group the server offers. This only
+   * matters before the offer arrives.
+   * @param multicastEnabled {@code true} to join (the default), {@code false}
+   *  to take every line over TCP.
+   */
+  public void setMulticastEnabled(boolean multicastEnabled)
+  {
+    this.multicastEnabled = multicastEnabled;
+  }
+  
+  /**
+   * Returns whether we take the lines of the default room from a multicast
+   * group.
+   * @return {@code true} if we have joined a group.
+   */
+  public boolean isUsingMulticast()
+  {
+    return this.multicast != null;
+  }
+  
+  /**
+   * Returns the index of the first history line we saw live. This is sent by
+   * the server once we are accepted, so until then this returns {@code -1}.
+   * @return The index we joined at, or {@code -1} if it is not yet known.
+   */
+  public long getJoinIndex()
+  {
+    return this.joinIndex;
+  }
+  
+  /**
+   * Sets whether we reconnect by ourselves when our connection is lost, and
+   * keep what is typed until we do.
+   * @param reconnecting {@code true} to reconnect, {@code false} (the
+   *  default) to stop running once the connection is lost.
+   */
+  public void setReconnecting(boolean reconnecting)
+  {
+    this.reconnecting = reconnecting;
+  }
+  
+  /**
+   * Returns whether we reconnect by ourselves when our connection is lost.
+   * @return {@code true} if we reconnect.
+   */
+  public boolean isReconnecting()
+  {
+    return this.reconnecting;
+  }
+  
+  /**
+   * Returns whether we are connected to the server right now. A client that
+   * {@link #setReconnecting(boolean) reconnects} keeps running while it is
+   * not.
+   * @return {@code true} if we are connected.
+   */
+  public boolean isConnected()
+  {
+    return this.connected;
+  }
+  
+  /**
+   * Sets whether the server numbers the lines of our room, so we may resume
+   * where we left off after reconnecting. This only matters before we are
+   * initialized.
+   * @param resumable {@code true} to have our lines numbered, {@code false}
+   *  (the default) to take them as they are.
+   */
+  public void setResumable(boolean resumable)
+  {
+    this.resumable = resumable;
+  }
+  
+  /**
+   * Returns whether the server numbers the lines of our room.
+   * @return {@code true} if we resume after reconnecting.
+   */
+  public boolean isResumable()
+  {
+    return this.resumable;
+  }
+  
+  /**
+   * Returns the room the {@link #getLastSequence() last} numbered line we
+   * have is from.
+   * @return The room, or {@code null} if no line has been numbered yet.
+   */
+  public String getSequencedRoom()
+  {
+    return this.sequencedRoom;
+  }
+  
+  /**
+   * Returns the sequence number of the last line of our room we have.
+   * @return The sequence number, or {@code -1} if no line has been numbered
+   *  yet.
+   */
+  public long getLastSequence()
+  {
+    return this.lastSequence;
+  }
+  
+  /**
+   * Handles a control frame sent by the server. Malformed frames are ignored.
+   * @param frame The frame sent by the server.
+   */
+  protected void handleControlFrame(ControlFrame frame)
+  {
+    try
+    {
+      if(frame.is(ServerClientConstants.JOINED_COMMAND))
+      {
+        this.joinIndex = frame.getLongArgument(0);
+      }
+      else if(frame.is(ServerClientConstants.PAGE_COMMAND))
+      {
+        HistoryListener listener = this.historyListener;
+        if(listener != null)
+        {
+          listener.pageReceived(frame.getLongArgument(0),
+            frame.getLongArgument(1), frame.getBody());
+        }
+      }
+      else if(frame.is(ServerClientConstants.LINE_COMMAND))
+      {
+        long sequence = frame.getLongArgument(1);
+        this.out.print(frame.getBody());
+        this.sequencedRoom = frame.getArgument(0);
+        this.lastSequence = sequence;
+        this.unacknowledged++;
+        this.acknowledge(false);
+      }
+      else if(frame.is(ServerClientConstants.SEQUENCED_COMMAND))
+      {
+        long sequence = frame.getLongArgument(1);
+        this.sequencedRoom = frame.getArgument(0);
+        this.lastSequence = sequence;
+      }
+      else if(frame.is(ServerClientConstants.MISSED_COMMAND))
+      {
+        this.out.println("Some of what was said in " +
+          ServerClientConstants.ROOM_CHARACTER + frame.getArgument(0) +
+          " while you were away is no longer kept.");
+      }
+      else if(frame.is(ServerClientConstants.MULTICAST_COMMAND))
+      {
+        this.joinMulticast(frame.getArgument(0),
+          (int)frame.getLongArgument(1));
+      }
+      else if(this.multicast != null)
+      {
+        if(frame.is(ServerClientConstants.MULTICAST_FROM_COMMAND))
+        {
+          this.multicast.start(frame.getLongArgument(0));
+        }
+        else if(frame.is(ServerClientConstants.MULTICAST_END_COMMAND))
+        {
+          this.multicast.stop(frame.getLongArgument(0));
+        }
+        else if(frame.is(ServerClientConstants.REPAIRED_COMMAND))
+        {
+          this.multicast.received(frame.getLongArgument(0), frame.getBody());
+        }
+        else if(frame.is(ServerClientConstants.LOST_COMMAND))
+        {
+          this.multicast.lost(frame.getLongArgument(0),
+            frame.getLongArgument(1));
+        }
+      }
+    }
+    catch(ArrayIndexOutOfBoundsException | NumberFormatException e)
+    {
+      //Do NOTHING
+    }
+    catch(IOException i)
+    {
+      //the listening thread finds out when it next reads
+    }
+  }
+  
+  /*
+   * Asks the server to number the lines of our room, giving the last line we
+   * have if there is one, so we are sent only the lines after it.
+   */
+  private void resume() throws IOException
+  {
+    String room = this.sequencedRoom;
+    this.send(((room == null) ? new ControlFrame(
+      ServerClientConstants.SEQUENCE_COMMAND) : new ControlFrame(
+      ServerClientConstants.SEQUENCE_COMMAND, room,
+      Long.toString(this.lastSequence))).toString(), false);
+  }
+  
+  /*
+   * Tells the server the last line we have, once enough lines or enough time
+   * have gone by since we last did (or whenever forced). Lines are only
+   * acknowledged as they arrive, so the last few lines before a room goes
+   * quiet are acknowledged with the next one, or when we leave.
+   */
+  private synchronized void acknowledge(boolean force) throws IOException
+  {
+    String room = this.sequencedRoom;
+    long now = System.currentTimeMillis();
+    if(room == null || this.unacknowledged == 0 || (!force &&
+      this.unacknowledged < ServerClientConstants.ACK_LINES &&
+      now - this.acknowledgedAt < ServerClientConstants.ACK_MILLIS))
+    {
+      return;
+    }
+    this.send((new ControlFrame(ServerClientConstants.ACK_COMMAND, room,
+      Long.toString(this.lastSequence))).toString());
+    this.unacknowledged = 0;
+    this.acknowledgedAt = now;
+  }
+  
+  /*
+   * Asks the server for the lines of its multicast group we missed.
+   */
+  void requestRepair(long from, long to) throws IOException
+  {
+    if(!this.running)
+    {
+      throw new IllegalStateException("Client is not running!");
+    }
+    this.send((new ControlFrame(ServerClientConstants.REPAIR_COMMAND,
+      Long.toString(from), Long.toString(to))).toString());
+  }
+  
+  /*
+   * Joins the multicast group the server offered, on the interface our
+   * connection to it goes through, and tells the server we did.
+   */
+  private void joinMulticast(String group, int port)
+  {
+    if(!this.multicastEnabled || this.multicast != null)
+    {
+      return;
+    }
+    try
+    {
+      NetworkInterface networkInterface = NetworkInterface.getByInetAddress(
+        this.socket.getLocalAddress());
+      if(networkInterface == null)
+      {
+        return;
+      }
+      MulticastReceiver receiver = new MulticastReceiver(
+        InetAddress.getByName(group), port, networkInterface, this.out, this);
+      Thread t = new Thread(receiver, "JTalker Multicast Receiver");
+      t.setDaemon(true);
+      t.start();
+      this.multicast = receiver;
+      this.send((new ControlFrame(
+        ServerClientConstants.MULTICAST_COMMAND)).toString());
+    }
+    catch(IOException i)
+    {
+      this.out.println("Could not join " + group + "; staying on TCP.");
+    }
+  }
+  
+  /*
+   * Sends a typed line, or keeps it to send once we are connected again, if
+   * we reconnect by ourselves. Lines kept are sent before any typed after
+   * them. Unless told to flush, a line sent may wait in our buffer for those
+   * typed after it.
+   */
+  private void submit(String line, boolean flush) throws IOException
+  {
+    synchronized(this.pending)
+    {
+      if(!this.reconnecting)
+      {
+        this.send(line, flush);
+        return;
+      }
+      if(this.connected && this.pending.isEmpty())
+      {
+        try
+        {
+          this.send(line, flush);
+          return;
+        }
+        catch(IOException i)
+        {
+          //the connection is going; keep the line for the next one
+        }
+      }
+      if(this.pending.size() >= ServerClientConstants.RECONNECT_BUFFER_LINES)
+      {
+        this.out.println("Too much was typed while disconnected; \"" +
+          this.pending.poll() + "\" will not be sent.");
+      }
+      this.pending.add(line);
+    }
+  }
+  
+  /*
+   * Both the sending thread and anyone asking for history write to the
+   * server, so a whole frame is written at a time.
+   */
+  private void send(String line) throws IOException
+  {
+    this.send(line, true);
+  }
+  
+  /*
+   * Writes a frame, leaving it in our buffer unless told to flush. Flushing
+   * also sends anything the sending thread left there.
+   */
+  private void send(String line, boolean flush) throws IOException
+  {
+    synchronized(this.output)
+    {
+      this.transport.getCodec().writeFrame(this.output, line);
+      if(flush)
+      {
+        this.output.flush();
+      }
+      else if(!this.ticking)
+      {
+        this.ticking = true;
+        FLUSHER.schedule(this::tick, ServerClientConstants.SEND_TICK_MILLIS,
+          TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+  
+  /*
+   * Flushes a line the sending thread left in our buffer, should no more
+   * have come to flush it by now. If that fails, the connection is going,
+   * and the listening thread finds that out.
+   */
+  private void tick()
+  {
+    DataOutputStream buffered = this.output;
+    synchronized(buffered)
+    {
+      this.ticking = false;
+      try
+      {
+        buffered.flush();
+      }
+      catch(IOException i)
+      {
+        //the connection is going
+      }
+    }
+  }
+  
+  /*
+   * Sends whatever is left in our buffer.
+   */
+  private void flush() throws IOException
+  {
+    synchronized(this.output)
+    {
+      this.output.flush();
+    }
+  }
+  
+  /**
+   * Sets the transport we connect to the server through. This only matters
+   * before we are initialized.
+   * @param transport The transport.
+   * @throws IllegalArgumentException If the transport is {@code null}.
+   */
+  public void setTransport(Transport transport)
+  {
+    if(transport == null)
+    {
+      throw new IllegalArgumentException("The transport can not be null!");
+    }
+    this.transport = transport;
+  }
+  
+  /**
+   * Sets whether Nagle's algorithm is turned off on our socket, so that small
+   * writes are sent without waiting for the server to acknowledge earlier
+   * ones. This only matters before we are initialized, and only for
+   * transports that make TCP sockets.
+   * @param tcpNoDelay {@code true} (the default) to send at once,
+   *  {@code false} to let the socket gather small writes itself.
+   * @see java.net.Socket#setTcpNoDelay(boolean)
+   */
+  public void setTcpNoDelay(boolean tcpNoDelay)
+  {
+    this.tcpNoDelay = tcpNoDelay;
+  }
+  
+  /**
+   * Returns whether Nagle's algorithm is turned off on our socket.
+   * @return {@code true} if small writes are sent at once.
+   */
+  public boolean getTcpNoDelay()
+  {
+    return this.tcpNoDelay;
+  }
+  
+  /**
+   * Sets the size of the send buffer the system keeps for our socket. This
+   * only matters before we are initialized.
+   * @param sendBufferSize The size in bytes, or {@code 0} (the default) to
+   *  leave the system's own size.
+   * @throws IllegalArgumentException If the size is negative.
+   * @see java.net.Socket#setSendBufferSize(int)
+   */
+  public void setSendBufferSize(int sendBufferSize)
+  {
+    if(sendBufferSize < 0)
+    {
+      throw new IllegalArgumentException("Size must not be negative!");
+    }
+    this.sendBufferSize = sendBufferSize;
+  }
+  
+  /**
+   * Returns the size of the send buffer the system keeps for our socket.
+   * @return The size in bytes, or {@code 0} if it is the system's own.
+   */
+  public int getSendBufferSize()
+  {
+    return this.sendBufferSize;
+  }
+  
+  /**
+   * Sets how many bytes of typed lines we gather before writing them to the
+   * server, even if more are waiting to be sent. This only matters before we
+   * are initialized.
+   * @param batchSize The size in bytes, which is
+   *  {@value com.coswald.jtalker.net.ServerClientConstants#SEND_BATCH_BYTES}
+   *  by default, or {@code 0} to write every frame as soon as it is sent.
+   * @throws IllegalArgumentException If the size is negative.
+   */
+  public void setBatchSize(int batchSize)
+  {
+    if(batchSize < 0)
+    {
+      throw new IllegalArgumentException("Size must not be negative!");
+    }
+    this.batchSize = batchSize;
+  }
+  
+  /**
+   * Returns how many bytes of typed lines we gather before writing them.
+   * @return The size in bytes, or {@code 0} if every frame is written alone.
+   */
+  public int getBatchSize()
+  {
+    return this.batchSize;
+  }
+  
+  /**
+   * Returns the transport we connect to the server through.
+   * @return The transport, which is a
+   *  {@link com.coswald.jtalker.net.transport.SocketTransport SocketTransport}
+   *  unless it has been changed.
+   */
+  public Transport getTransport()
+  {
+    return this.transport;
   }
   
   /**
@@ -22,17 +22,26 @@
 package com.coswald.jtalker.net;
 
 import com.coswald.jtalker.Initializable;
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.MulticastSender;
+import com.coswald.jtalker.net.Rooms;
 import com.coswald.jtalker.net.ServerClientConstants;
 import com.coswald.jtalker.net.ServerOutputStream;
+import com.coswald.jtalker.net.cluster.Federation;
+import com.coswald.jtalker.net.history.ChatHistory;
+import com.coswald.jtalker.net.mailbox.MailboxStore;
 
 import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * <p>A listener that broadcasts all of what it "hears" from one client to the
@@ -50,10 +59,43 @@ import java.net.SocketException;
  * close the {@code ServerOutputStream}. This is good, as there still may be
  * other client instances running besides this one, using the same
  * {@code ServerOutputStream}.</p>
+ * <p>Everything that is broadcast is also appended to the server's
+ * {@link com.coswald.jtalker.net.history.ChatHistory ChatHistory}, if it has
+ * one. A client may then ask for older history by sending a
+ * {@link com.coswald.jtalker.net.ControlFrame control} frame; the answer is
+ * only sent to that client, holds only the lines of the room it is within,
+ * and control frames are never broadcast.</p>
+ * <p>A message starting with
+ * {@value com.coswald.jtalker.net.ServerClientConstants#DIRECT_MESSAGE_PREFIX}
+ * is not broadcast either; it is only sent to the client it names. If that
+ * client is offline, the message is put into their
+ * {@link com.coswald.jtalker.net.mailbox.MailboxStore mailbox} instead, as is
+ * any broadcast that mentions them. Everything within a mailbox is sent to its
+ * owner in one go as soon as they connect again.</p>
+ * <p>Every client is within a {@link com.coswald.jtalker.net.Rooms room}, and
+ * what it broadcasts only goes to the clients within that room. A client
+ * starts out within the
+ * {@value com.coswald.jtalker.net.ServerClientConstants#DEFAULT_ROOM} room,
+ * and moves by sending a message starting with
+ * {@value com.coswald.jtalker.net.ServerClientConstants#JOIN_PREFIX}. If the
+ * server is part of a
+ * {@link com.coswald.jtalker.net.cluster.Federation Federation}, broadcasts
+ * are handed to it instead, so they reach the clients of that room on every
+ * server.</p>
+ * <p>Since the room of a line is told by the name before it, an identifier
+ * that would make a line of the default room look like one of another room
+ * (one starting with {@code [#}, or holding {@code "] "}) is refused, and
+ * the client is cut off.</p>
+ * <p>If the server also sends the lines of the default room to a
+ * {@link com.coswald.jtalker.net.MulticastSender multicast} group, the client
+ * is told about the group once it is accepted. If it joins the group, it is
+ * no longer sent those lines over TCP, and asks for any it misses with
+ * {@value com.coswald.jtalker.net.ServerClientConstants#REPAIR_COMMAND}
+ * frames instead.</p>
  * <p>As an aside, please <b>do not</b> call the {@link #init() init} method.
  * This is called within the {@link #run() run} method.</p>
  * @author C. William Oswald
- * @version 0.0.2
+ * @version 0.0.11
  * @since JTalker 0.0.1
  */
 public class TCPClientInstance implements Closeable, Initializable, Runnable
@@ -73,33 +115,127 @@ public class TCPClientInstance implements Closeable, Initializable, Runnable
    */
   protected ServerOutputStream output;
   
+  /**
+   * The history every broadcast is appended to. This may be {@code null}, in
+   * which case nothing is recorded and history requests are answered with
+   * empty pages.
+   */
+  protected ChatHistory history;
+  
+  /**
+   * Every client that is connected to the server, and the rooms they are in.
+   * This is shared by every client instance of a server, and is only used
+   * while holding the lock of the {@code ServerOutputStream}. This may be
+   * {@code null}, in which case every client is within one room, and direct
+   * messages can not be sent.
+   */
+  protected Rooms rooms;
+  
+  /**
+   * The mailboxes messages for offline clients are kept in. This may be
+   * {@code null}, in which case nothing is kept for them.
+   */
+  protected MailboxStore mailboxes;
+  
+  /**
+   * The federation every broadcast is handed to. This may be {@code null}, in
+   * which case broadcasts stay on this server.
+   */
+  protected Federation federation;
+  
   private DataOutputStream fakeOutput;
   private String identifier;
+  private volatile String room;
+  private long joinIndex;
+  private boolean closed;
   
   /**
-   * Constructs a client instance with the given socket and output stream.
+   * Constructs a client instance with the given socket, output stream,
+   * history, rooms, mailboxes and federation.
    * @param socket The socket to use when listening.
    * @param output The output to resend all of our input to.
+   * @param history The history to record our output in (may be {@code null}).
+   * @param rooms The rooms of the server, which we join (may be
+   *  {@code null}).
+   * @param mailboxes The mailboxes of offline clients (may be {@code null}).
+   * @param federation The federation to relay our output to (may be
+   *  {@code null}).
    */
-  public TCPClientInstance(Socket socket, ServerOutputStream output)
+  public TCPClientInstance(Socket socket, ServerOutputStream output,
+    ChatHistory history, Rooms rooms, MailboxStore mailboxes,
+    Federation federation)
   {
     this.socket = socket;
     this.output = output;
+    this.history = history;
+    this.rooms = rooms;
+    this.room = ServerClientConstants.DEFAULT_ROOM;
+    this.mailboxes = mailboxes;
+    this.federation = federation;
+    this.joinIndex = 0;
+  }
+  
+  /**
+   * Constructs a client instance with the given socket, output stream,
+   * history, rooms and mailboxes. Broadcasts are not relayed to any other
+   * server.
+   * @param socket The socket to use when listening.
+   * @param output The output to resend all of our input to.
+   * @param history The history to record our output in (may be {@code null}).
+   * @param rooms The rooms of the server, which we join (may be
+   *  {@code null}).
+   * @param mailboxes The mailboxes of offline clients (may be {@code null}).
+   * @see #TCPClientInstance(Socket, ServerOutputStream, ChatHistory, Rooms,
+   *  MailboxStore, Federation)
+   */
+  public TCPClientInstance(Socket socket, ServerOutputStream output,
+    ChatHistory history, Rooms rooms, MailboxStore mailboxes)
+  {
+    this(socket, output, history, rooms, mailboxes, null);
+  }
+  
+  /**
+   * Constructs a client instance with the given socket, output stream and
+   * history. Direct messages can not be sent, and nothing is kept for offline
+   * clients.
+   * @param socket The socket to use when listening.
+   * @param output The output to resend all of our input to.
+   * @param history The history to record our output in (may be {@code null}).
+   * @see #TCPClientInstance(Socket, ServerOutputStream, ChatHistory, Rooms,
+   *  MailboxStore)
+   */
+  public TCPClientInstance(Socket socket, ServerOutputStream output,
+    ChatHistory history)
+  {
+    this(socket, output, history, null, null);
+  }
+  
+  /**
+   * Constructs a client instance with the given socket and output stream. No
+   * history is recorded by this instance.
+   * @param socket The socket to use when listening.
+   * @param output The output to resend all of our input to.
+   * @see #TCPClientInstance(Socket, ServerOutputStream, ChatHistory)
+   */
+  public TCPClientInstance(Socket socket, ServerOutputStream output)
+  {
+    this(socket, output, null);
   }
   
   /**
    * Initializes the client instance. Note that this method <b>should not</b> be
    * called by anything other than the {@link #run() run} method. This method
    * will create a {@code DataInputStream} form the socket's input stream, a
-   * {@code DataOutputStream} from the socket's output stream, and add that 
-   * output stream to the {@code ServerOutputStream} associated with the server.
-   * It will then write a boolean ({@code true}) to the output stream and listen
-   * for a unique identifier. Once the identifier is received, it is ready for
-<<<<<<< HEAD
-   * listening within the {@link #run() run} method.
-=======
-   * listening within the {@link run() run} method.
->>>>>>> master
+   * {@code DataOutputStream} from the socket's output stream, write a boolean
+   * ({@code true}) to that output stream and listen for a unique identifier.
+   * Once the identifier is received, the client is told where in the history
+   * it joined (using a
+   * {@value com.coswald.jtalker.net.ServerClientConstants#JOINED_COMMAND}
+   * control frame), everything waiting within its mailbox is sent to it in
+   * one burst, and its output stream is added to the
+   * {@code ServerOutputStream} of the default room. It is then ready
+   * for listening within the {@link #run() run} method. An identifier that
+   * looks like the name of a room is refused instead, and the socket closed.
    */
   @Override
   public final void init()
@@ -109,7 +245,6 @@ public class TCPClientInstance implements Closeable, Initializable, Runnable
       this.input = new DataInputStream(
         new BufferedInputStream(this.socket.getInputStream()));
       this.fakeOutput = new DataOutputStream(this.socket.getOutputStream());
-      this.output.add(this.fakeOutput);
       
       //Tell the client it is connected
       this.fakeOutput.writeBoolean(true);
@@ -117,6 +252,47 @@ public class TCPClientInstance implements Closeable, Initializable, Runnable
       //read the identifier from the client
       this.identifier = this.input.readUTF();
       //System.out.println(this.identifier + " has been accepted!");
+      if(isRoomLike(this.identifier))
+      {
+        this.fakeOutput.writeUTF("\"" + this.identifier + "\" can not be " +
+          "used, as it looks like the name of a room.\n\r");
+        this.closed = true;
+        this.input.close();
+        this.socket.close();
+        return;
+      }
+      
+      /*
+       * Nothing can be broadcast between reading the history size and joining
+       * the output, so the client never sees a line twice.
+       */
+      synchronized(this.output)
+      {
+        this.joinIndex = (this.history == null) ? 0 : this.history.size();
+        this.fakeOutput.writeUTF((new ControlFrame(
+          ServerClientConstants.JOINED_COMMAND,
+          Long.toString(this.joinIndex))).toString());
+        if(this.mailboxes != null && this.mailboxes.register(this.identifier))
+        {
+          this.deliver(this.mailboxes.drain(this.identifier));
+        }
+        if(this.rooms != null)
+        {
+          this.rooms.add(this, this.fakeOutput);
+          MulticastSender multicast = this.rooms.getMulticast();
+          if(multicast != null)
+          {
+            this.fakeOutput.writeUTF((new ControlFrame(
+              ServerClientConstants.MULTICAST_COMMAND,
+              multicast.getGroup().getHostAddress(),
+              Integer.toString(multicast.getPort()))).toString());
+          }
+        }
+        else
+        {
+          this.output.add(this.fakeOutput);
+        }
+      }
     }
     catch(IOException i)
     {
@@ -138,7 +314,11 @@ public class TCPClientInstance implements Closeable, Initializable, Runnable
    * When it receives a message, the client instance will output the same
    * message; however, it adds the {@link #getID() identifier}, a colon, a
    * space, and then the message. It will then also append a carriage return and
-   * a newline.
+   * a newline. If the message is a
+   * {@link com.coswald.jtalker.net.ControlFrame control} frame instead, it is
+   * handled by this instance and not sent to anyone else, and if it is a
+   * {@link #sendDirect(String) direct} message, it is only sent to the client
+   * it names.
    * @see #init()
    * @see #close()
    * @see com.coswald.jtalker.net.ServerOutputStream
@@ -147,26 +327,55 @@ public class TCPClientInstance implements Closeable, Initializable, Runnable
   public void run()
   {
     this.init();
+    if(this.closed)
+    {
+      return;
+    }
     try
     {
       String line = "";
       while(!line.equalsIgnoreCase(ServerClientConstants.EXIT_MESSAGE))
       {
         line = this.input.readUTF();
-        if(!line.equalsIgnoreCase(ServerClientConstants.EXIT_MESSAGE))
+        if(ControlFrame.isControlFrame(line))
+        {
+          this.handleControlFrame(ControlFrame.parse(line));
+        }
+        else if(line.startsWith(ServerClientConstants.DIRECT_MESSAGE_PREFIX))
+        {
+          this.sendDirect(line.substring(
+            ServerClientConstants.DIRECT_MESSAGE_PREFIX.length()));
+        }
+        else if(line.startsWith(ServerClientConstants.JOIN_PREFIX))
+        {
+          this.join(line.substring(
+            ServerClientConstants.JOIN_PREFIX.length()).trim());
+        }
+        else if(!line.equalsIgnoreCase(ServerClientConstants.EXIT_MESSAGE))
         {
-          this.output.writeUTF(this.identifier + ": " + line + "\n\r");
+          String text = this.getRoomPrefix() + this.identifier + ": " + line +
+            "\n\r";
+          synchronized(this.output)
+          {
+            this.broadcast(text);
+            for(String mention : getMentions(line))
+            {
+              this.depositOffline(mention, text);
+            }
+          }
         }
       }
       this.close();
     }
-    catch(SocketException s)
+    catch(EOFException | SocketException e)
     {
-      //Do NOTHING
+      //our client went away without saying goodbye
+      this.closeQuietly();
     }
     catch(IOException i)
     {
       i.printStackTrace();
+      this.closeQuietly();
     }
   }
   
@@ -179,15 +388,47 @@ public class TCPClientInstance implements Closeable, Initializable, Runnable
   @Override
   public void close() throws IOException
   {
-    if(this.socket != null && this.socket != null)
+    if(this.socket != null && !this.closed)
     {
-      this.output.remove(this.fakeOutput);
-      this.output.writeUTF(this.identifier + " has left the chat.\n\r");
+      this.closed = true;
+      String text = this.getRoomPrefix() + this.identifier +
+        " has left the chat.\n\r";
+      synchronized(this.output)
+      {
+        if(this.rooms != null)
+        {
+          this.rooms.remove(this);
+        }
+        else
+        {
+          this.output.remove(this.fakeOutput);
+        }
+        if(this.mailboxes != null && this.identifier != null)
+        {
+          this.mailboxes.register(this.identifier);
+        }
+      }
+      this.broadcast(text);
       this.input.close();
       this.socket.close();
     }
   }
   
+  /*
+   * Takes a client that went away out of its room, so it may resume.
+   */
+  private void closeQuietly()
+  {
+    try
+    {
+      this.close();
+    }
+    catch(IOException i)
+    {
+      //Do NOTHING
+    }
+  }
+  
   /**
    * Returns the unique identifier of the client instance.
    * @return The unique identifier.
@@ -196,4 +437,452 @@ public class TCPClientInstance implements Closeable, Initializable, Runnable
   {
     return this.identifier;
   }
+  
+  /**
+   * Returns the room this client is within.
+   * @return The name of the room.
+   */
+  public String getRoom()
+  {
+    return this.room;
+  }
+  
+  /*
+   * Only our rooms may move us.
+   */
+  void setRoom(String room)
+  {
+    this.room = room;
+  }
+  
+  /**
+   * Returns the index of the first history line this client saw live. Every
+   * line before this index can only be seen by asking for history.
+   * @return The index the client joined at.
+   */
+  public long getJoinIndex()
+  {
+    return this.joinIndex;
+  }
+  
+  /**
+   * Sends a line to every client within our room and appends it to the
+   * history. Both happen while holding the lock of the
+   * {@code ServerOutputStream}, so the order of the history is the order every
+   * client saw. If we are part of a federation, the line is handed to it
+   * instead, which sends it to the clients of our room on every server.
+   * @param line The line to broadcast.
+   * @throws IOException If an I/O error occurs.
+   */
+  protected void broadcast(String line) throws IOException
+  {
+    synchronized(this.output)
+    {
+      if(this.rooms == null)
+      {
+        this.output.writeUTF(line);
+        if(this.history != null)
+        {
+          this.history.append(line);
+        }
+      }
+      else if(this.federation != null)
+      {
+        this.federation.publish(this.room, line);
+      }
+      else
+      {
+        this.rooms.deliver(this.room, line);
+      }
+    }
+  }
+  
+  /**
+   * Moves our client into another room. Our client is told which room it is
+   * now within.
+   * @param name The name of the room.
+   * @throws IOException If an I/O error occurs.
+   */
+  protected void join(String name) throws IOException
+  {
+    if(this.rooms == null)
+    {
+      this.sendToClient("There are no other rooms here.\n\r");
+      return;
+    }
+    if(name.isEmpty() || name.indexOf(' ') >= 0)
+    {
+      this.sendToClient("Usage: " + ServerClientConstants.JOIN_PREFIX +
+        "<room>\n\r");
+      return;
+    }
+    synchronized(this.output)
+    {
+      this.rooms.move(this, name);
+      this.sendToClient("You are now in " +
+        ServerClientConstants.ROOM_CHARACTER + name + ".\n\r");
+    }
+  }
+  
+  /**
+   * Sends a direct message to one client only, and echoes it back to ours. The
+   * message starts with the identifier of the client it is for, followed by a
+   * space. If that client is offline, the message is deposited within their
+   * mailbox, and our client is told so.
+   * @param message The message, without the
+   *  {@value com.coswald.jtalker.net.ServerClientConstants#DIRECT_MESSAGE_PREFIX}
+   *  it started with.
+   * @throws IOException If an I/O error occurs.
+   */
+  protected void sendDirect(String message) throws IOException
+  {
+    int space = message.indexOf(' ');
+    if(space <= 0)
+    {
+      this.sendToClient("Usage: " +
+        ServerClientConstants.DIRECT_MESSAGE_PREFIX + "<name> <message>\n\r");
+      return;
+    }
+    String target = message.substring(0, space);
+    String text = this.identifier + " -> " + target + ": " +
+      message.substring(space + 1) + "\n\r";
+    synchronized(this.output)
+    {
+      TCPClientInstance recipient = (this.rooms == null) ? null :
+        this.rooms.getClient(target);
+      if(recipient != null && recipient != this)
+      {
+        try
+        {
+          recipient.sendToClient(text);
+        }
+        catch(IOException i)
+        {
+          //they are leaving; their own thread will clean up after them
+          recipient = null;
+        }
+      }
+      if(recipient != null)
+      {
+        this.sendToClient(text);
+      }
+      else if(this.depositOffline(target, text))
+      {
+        this.sendToClient(text + target +
+          " is offline, and will get this message when they return.\n\r");
+      }
+      else
+      {
+        this.sendToClient("No one named " + target + " is here.\n\r");
+      }
+    }
+  }
+  
+  /**
+   * Handles a control frame sent by our client. A
+   * {@value com.coswald.jtalker.net.ServerClientConstants#HISTORY_COMMAND}
+   * is answered by sending a page of history to this client only, a
+   * {@value com.coswald.jtalker.net.ServerClientConstants#MULTICAST_COMMAND}
+   * means our client has joined the multicast group, and a
+   * {@value com.coswald.jtalker.net.ServerClientConstants#REPAIR_COMMAND} is
+   * answered with the lines of the group our client missed. A
+   * {@value com.coswald.jtalker.net.ServerClientConstants#SEQUENCE_COMMAND}
+   * has the lines of our room numbered and resumes our client where it left
+   * off, and an
+   * {@value com.coswald.jtalker.net.ServerClientConstants#ACK_COMMAND} is
+   * remembered for when it next resumes. Any other command is ignored.
+   * @param frame The frame sent by the client.
+   * @throws IOException If an I/O error occurs.
+   */
+  protected void handleControlFrame(ControlFrame frame) throws IOException
+  {
+    if(frame.is(ServerClientConstants.HISTORY_COMMAND) &&
+      frame.getArgumentCount() == 2)
+    {
+      long end;
+      int count;
+      try
+      {
+        end = frame.getLongArgument(0);
+        count = (int)Math.min(frame.getLongArgument(1),
+          ServerClientConstants.HISTORY_PAGE_SIZE);
+      }
+      catch(NumberFormatException nfe)
+      {
+        return;
+      }
+      this.sendToClient(this.createPage(end, count).toString());
+    }
+    else if(frame.is(ServerClientConstants.MULTICAST_COMMAND) &&
+      this.rooms != null)
+    {
+      synchronized(this.output)
+      {
+        this.rooms.useMulticast(this);
+      }
+    }
+    else if(frame.is(ServerClientConstants.REPAIR_COMMAND) &&
+      frame.getArgumentCount() == 2 && this.rooms != null)
+    {
+      try
+      {
+        this.repair(frame.getLongArgument(0), frame.getLongArgument(1));
+      }
+      catch(NumberFormatException nfe)
+      {
+        //Do NOTHING
+      }
+    }
+    else if(frame.is(ServerClientConstants.SEQUENCE_COMMAND) &&
+      this.rooms != null)
+    {
+      try
+      {
+        String room = (frame.getArgumentCount() == 2) ? frame.getArgument(0) :
+          null;
+        long last = (room == null) ? -1L : frame.getLongArgument(1);
+        synchronized(this.output)
+        {
+          this.rooms.resume(this, room, last);
+        }
+      }
+      catch(NumberFormatException nfe)
+      {
+        //Do NOTHING
+      }
+    }
+    else if(frame.is(ServerClientConstants.ACK_COMMAND) &&
+      frame.getArgumentCount() == 2 && this.rooms != null)
+    {
+      try
+      {
+        long sequence = frame.getLongArgument(1);
+        synchronized(this.output)
+        {
+          this.rooms.acknowledge(this, frame.getArgument(0), sequence);
+        }
+      }
+      catch(NumberFormatException nfe)
+      {
+        //Do NOTHING
+      }
+    }
+  }
+  
+  /*
+   * Sends our client the lines of the multicast group it missed, as many as
+   * one repair may hold. Lines no longer kept are reported lost.
+   */
+  private void repair(long from, long to) throws IOException
+  {
+    synchronized(this.output)
+    {
+      MulticastSender multicast = this.rooms.getMulticast();
+      if(multicast == null)
+      {
+        return;
+      }
+      long last = Math.min(Math.min(to, multicast.getNextSequence()),
+        from + ServerClientConstants.REPAIR_LINES);
+      long lost = -1L;
+      for(long sequence = Math.max(0L, from); sequence < last; sequence++)
+      {
+        String line = multicast.getLine(sequence);
+        if(line == null)
+        {
+          lost = (lost < 0) ? sequence : lost;
+          continue;
+        }
+        if(lost >= 0)
+        {
+          this.fakeOutput.writeUTF((new ControlFrame(
+            ServerClientConstants.LOST_COMMAND, Long.toString(lost),
+            Long.toString(sequence))).toString());
+          lost = -1L;
+        }
+        this.fakeOutput.writeUTF((new ControlFrame(
+          ServerClientConstants.REPAIRED_COMMAND,
+          new String[] {Long.toString(sequence)}, line)).toString());
+      }
+      if(lost >= 0)
+      {
+        this.fakeOutput.writeUTF((new ControlFrame(
+          ServerClientConstants.LOST_COMMAND, Long.toString(lost),
+          Long.toString(last))).toString());
+      }
+    }
+  }
+  
+  /**
+   * Writes a line to our client only. This holds the lock of the
+   * {@code ServerOutputStream}, so it is never mixed with a broadcast.
+   * @param line The line to send.
+   * @throws IOException If an I/O error occurs.
+   */
+  protected void sendToClient(String line) throws IOException
+  {
+    synchronized(this.output)
+    {
+      this.fakeOutput.writeUTF(line);
+    }
+  }
+  
+  /*
+   * Deposits a line into the mailbox of a client if it is not connected. Must
+   * hold the lock of the ServerOutputStream, so the client can't connect (and
+   * drain its mailbox) halfway through.
+   */
+  private boolean depositOffline(String target, String line)
+  {
+    if(this.mailboxes == null ||
+      (this.rooms != null && this.rooms.getClient(target) != null))
+    {
+      return false;
+    }
+    return this.mailboxes.deposit(target, line);
+  }
+  
+  /*
+   * Whether a line of the default room starting with the identifier would be
+   * taken for a line of another room.
+   */
+  private static boolean isRoomLike(String identifier)
+  {
+    return identifier.startsWith("[" + ServerClientConstants.ROOM_CHARACTER) ||
+      identifier.contains("] ");
+  }
+  
+  /*
+   * What the lines of our room start with. Lines of the default room are left
+   * as they always were.
+   */
+  private String getRoomPrefix()
+  {
+    String current = this.room;
+    return current.equals(ServerClientConstants.DEFAULT_ROOM) ? "" :
+      "[" + ServerClientConstants.ROOM_CHARACTER + current + "] ";
+  }
+  
+  /*
+   * Sends the contents of a mailbox to our client, packing as many lines as
+   * fit into each frame, so it arrives in as few writes as possible.
+   */
+  private void deliver(List<String> lines) throws IOException
+  {
+    if(lines.isEmpty())
+    {
+      return;
+    }
+    int room = ServerClientConstants.MAX_FRAME_CHARACTERS;
+    StringBuilder burst = new StringBuilder("While you were away (" +
+      lines.size() + " messages):\n\r");
+    for(String line : lines)
+    {
+      if(burst.length() > 0 && burst.length() + line.length() > room)
+      {
+        this.fakeOutput.writeUTF(burst.toString());
+        burst.setLength(0);
+      }
+      burst.append(line, 0, Math.min(line.length(), room));
+    }
+    if(burst.length() > 0)
+    {
+      this.fakeOutput.writeUTF(burst.toString());
+    }
+  }
+  
+  /*
+   * Returns every identifier mentioned within a message, once each.
+   */
+  private static List<String> getMentions(String message)
+  {
+    List<String> mentions = new ArrayList<String>();
+    int at = message.indexOf(ServerClientConstants.MENTION_CHARACTER);
+    while(at >= 0)
+    {
+      int end = at + 1;
+      while(end < message.length() &&
+        !Character.isWhitespace(message.charAt(end)) &&
+        message.charAt(end) != ServerClientConstants.MENTION_CHARACTER)
+      {
+        end++;
+      }
+      //a mention at the end of a sentence does not include its punctuation
+      int last = end;
+      while(last > at + 1 &&
+        !Character.isLetterOrDigit(message.charAt(last - 1)))
+      {
+        last--;
+      }
+      String mention = message.substring(at + 1, last);
+      if(!mention.isEmpty() && !mentions.contains(mention))
+      {
+        mentions.add(mention);
+      }
+      at = message.indexOf(ServerClientConstants.MENTION_CHARACTER, end);
+    }
+    return mentions;
+  }
+  
+  /**
+   * Creates a page of history that ends before the given index. The page holds
+   * at most {@code count} lines of our room, passing over the lines of every
+   * other room, and fewer if they would not fit within
+   * {@value com.coswald.jtalker.net.ServerClientConstants#MAX_FRAME_CHARACTERS}
+   * characters; the newest lines are the ones that are kept. A single line
+   * that is too long on its own is cut short, so a page is never empty while
+   * there is still older history of our room. At most
+   * {@value com.coswald.jtalker.net.ServerClientConstants#HISTORY_SCAN_LINES}
+   * lines are looked through for one page. If the history no longer has the
+   * lines before the page, the page starts at zero, so the client stops
+   * asking.
+   */
+  private ControlFrame createPage(long end, int count)
+  {
+    end = Math.max(0, Math.min(end, (this.history == null) ? 0 :
+      this.history.size()));
+    String current = this.room;
+    
+    //reserve some room for the command and the arguments
+    int room = ServerClientConstants.MAX_FRAME_CHARACTERS - 64;
+    StringBuilder page = new StringBuilder();
+    int taken = 0;
+    long start = end;
+    boolean done = count <= 0;
+    while(!done && start > 0 &&
+      end - start < ServerClientConstants.HISTORY_SCAN_LINES)
+    {
+      long from = Math.max(0, start - ServerClientConstants.HISTORY_PAGE_SIZE);
+      List<String> lines = this.history.read(from, (int)(start - from));
+      //a history may have let go of its oldest lines; if so, there is no more
+      boolean expired = lines.size() < start - from;
+      long first = start - lines.size();
+      for(int i = lines.size() - 1; !done && i >= 0; i--)
+      {
+        String line = lines.get(i);
+        if(!current.equals(Rooms.roomOf(line)))
+        {
+          continue;
+        }
+        if(taken > 0 && page.length() + line.length() > room)
+        {
+          done = true;
+          start = first + i + 1;
+        }
+        else
+        {
+          page.insert(0, line, 0, Math.min(line.length(), room));
+          done = ++taken == count;
+          start = first + i;
+        }
+      }
+      if(!done)
+      {
+        start = expired ? 0 : first;
+      }
+    }
+    return new ControlFrame(ServerClientConstants.PAGE_COMMAND,
+      new String[] {Long.toString(start), Long.toString(end)},
+      page.toString());
+  }
 }
@@ -22,17 +22,51 @@
 package com.coswald.jtalker.net;
 
 import com.coswald.jtalker.Initializable;
+import com.coswald.jtalker.Snapshottable;
+import com.coswald.jtalker.net.MulticastSender;
+import com.coswald.jtalker.net.Rooms;
 import com.coswald.jtalker.net.ServerOutputStream;
+import com.coswald.jtalker.net.ServerSnapshot;
 import com.coswald.jtalker.net.TCPClientInstance;
+import com.coswald.jtalker.net.cluster.Federation;
+import com.coswald.jtalker.net.history.ChatHistory;
+import com.coswald.jtalker.net.history.MemoryChatHistory;
+import com.coswald.jtalker.net.mailbox.MailboxStore;
+import com.coswald.jtalker.net.sse.EventStreamServer;
+import com.coswald.jtalker.net.tls.TLSListener;
+import com.coswald.jtalker.net.tls.TLSTransport;
+import com.coswald.jtalker.net.transport.SocketListener;
+import com.coswald.jtalker.net.transport.SocketTransport;
+import com.coswald.jtalker.net.transport.Transport;
+import com.coswald.jtalker.net.transport.TransportListener;
+import com.coswald.jtalker.net.udp.ReliableEndpoint;
+import com.coswald.jtalker.net.udp.UDPTransport;
+import com.coswald.jtalker.net.websocket.WebSocketListener;
+import com.coswald.jtalker.net.websocket.WebSocketTransport;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.net.ServerSocket;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors; 
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLContext;
 
 /**
  * <p>A TCP server for the JTalker application. This class defines everything
@@ -43,25 +77,89 @@ import java.util.concurrent.ThreadPoolExecutor;
  * that is used to send messages to multiple clients is handled within
  * {@code ServerOutputStream}, and this is passed to each
  * {@code TCPClientInstance} to make sure that they can send messages to each
- * other.</p>
+ * other. Clients are kept within {@link com.coswald.jtalker.net.Rooms rooms},
+ * and only see what is sent within their own. Everything that is sent is
+ * also recorded within a
+ * {@link com.coswald.jtalker.net.history.ChatHistory ChatHistory}, which
+ * clients can page through, and messages for clients that are offline are
+ * kept within a {@link com.coswald.jtalker.net.mailbox.MailboxStore
+ * MailboxStore} until they return.</p>
+ * <p>If the server is given a {@link #setSnapshotFile(File) snapshot} file, a
+ * {@link com.coswald.jtalker.net.ServerSnapshot snapshot} of its state (who
+ * is connected, the history and the mailboxes) is written into it every
+ * {@value com.coswald.jtalker.net.ServerClientConstants#SNAPSHOT_MILLIS}
+ * milliseconds and when the server closes. When the server is initialized
+ * again, it starts from that snapshot, and only looks at what was written
+ * after it, instead of reading all of its state back from scratch. Anything
+ * the snapshot can not be used for is initialized as usual.</p>
+ * <p>A server may also be one node of a
+ * {@link #createFederation(String, int) federation}, in which case each room
+ * is owned by one of the nodes, and its broadcasts reach the clients within
+ * it on every node. The lines of the default room may also be sent to a
+ * {@link #createMulticast(InetAddress, int, NetworkInterface) multicast}
+ * group, so that clients on the same network each get them without the
+ * server sending them a copy of their own.</p>
+ * <p>Besides TCP, a server may {@link #setUDPPort(int) listen} for clients on
+ * a UDP port, through a
+ * {@link com.coswald.jtalker.net.udp.ReliableEndpoint ReliableEndpoint}. Such
+ * clients are handled just like the others. The same goes for browsers, which
+ * a server may {@link #setWebSocketPort(int) listen} for on a port of its
+ * own, through a
+ * {@link com.coswald.jtalker.net.websocket.WebSocketListener
+ * WebSocketListener}. Those who only watch a room may follow it over HTTP,
+ * through an {@link #createEventStream(int) event stream}. Clients whose
+ * lines should not cross the network in the clear may talk to a server over
+ * TLS, on a port it {@link #setTLS(int, SSLContext) listens} on through a
+ * {@link com.coswald.jtalker.net.tls.TLSListener TLSListener}.</p>
+ * <p>A server may {@link #setListeners(int) accept} TCP clients on more than
+ * one socket bound to the same port, each with a thread of its own, so that
+ * the kernel spreads a storm of clients connecting at once (such as every
+ * client reconnecting after a restart) over them.</p>
+ * <p>Every way of connecting is a
+ * {@link com.coswald.jtalker.net.transport.Transport Transport}, and any
+ * other one may be {@link #addTransport(Transport, int) added} to a server.
+ * However a client connects, it is handed to the same
+ * {@link com.coswald.jtalker.net.TCPClientInstance TCPClientInstance}.</p>
  * @author C. William Oswald
- * @version 0.0.1
+ * @version 0.0.20
  * @since JTalker 0.0.1
  * @see com.coswald.jtalker.net.TCPClientInstance
  * @see com.coswald.jtalker.net.ServerOutputStream
  */
 public class TCPServer implements Closeable, Initializable, Runnable
 {
-  private boolean running;
+  private static final String PRESENCE_SECTION = "presence";
+  private static final String HISTORY_SECTION = "history";
+  private static final String MAILBOX_SECTION = "mailboxes";
+  private static final String ROOMS_SECTION = "rooms";
+  
+  private volatile boolean running;
   private int port;
-  private ServerSocket server;
+  private SocketListener server;
+  private int listeners;
+  private List<SocketListener> shards;
+  private AtomicLong accepted;
   private ServerOutputStream sos;
   private ThreadPoolExecutor threadPool; 
+  private ChatHistory history;
+  private MailboxStore mailboxes;
+  private Rooms rooms;
+  private Federation federation;
+  private MulticastSender multicast;
+  private UDPTransport udp;
+  private WebSocketTransport webSockets;
+  private TLSTransport tls;
+  private Map<Transport, Integer> transportPorts;
+  private Map<Transport, TransportListener> transportListeners;
+  private EventStreamServer eventStream;
+  private File snapshotFile;
+  private ScheduledExecutorService snapshotter;
   
   private PrintStream out;
   
   /**
-   * Constructs a server with the given output stream and the given port. No
+   * Constructs a server with the given output stream, port, history and
+   * mailboxes. No
    * parameter can be null, and the port must not only be a valid port, but it
    * also must be within the port range specified by the
    * {@link com.coswald.jtalker.net.ServerClientConstants#MIN_PORT_NUMBER min}
@@ -72,12 +170,15 @@ public class TCPServer implements Closeable, Initializable, Runnable
    * {@value com.coswald.jtalker.net.ServerClientConstants#MAX_PORT_NUMBER}).
    * @param out The output stream to send server messages to.
    * @param port The port to bind to.
+   * @param history The history to record every broadcast in.
+   * @param mailboxes The mailboxes to keep messages for offline clients in.
    * @throws IllegalARgumentException If any parameter is {@code null}, or the
    * port is outside the given bounds.
    */
-  public TCPServer(PrintStream out, int port)
+  public TCPServer(PrintStream out, int port, ChatHistory history,
+    MailboxStore mailboxes)
   {
-    if(out == null)
+    if(out == null || history == null || mailboxes == null)
     {
       throw new IllegalArgumentException("No argument can be null!");
     }
@@ -90,8 +191,16 @@ public class TCPServer implements Closeable, Initializable, Runnable
     }
     this.out = out;
     this.port = port;
+    this.history = history;
+    this.mailboxes = mailboxes;
     this.running = false;
+    this.listeners = 1;
+    this.shards = new ArrayList<SocketListener>();
+    this.accepted = new AtomicLong();
+    this.transportPorts = new LinkedHashMap<Transport, Integer>();
+    this.transportListeners = new LinkedHashMap<Transport, TransportListener>();
     this.sos = new ServerOutputStream(this.out);
+    this.rooms = new Rooms(this.sos, this.history);
     this.threadPool = (ThreadPoolExecutor)Executors.newFixedThreadPool(
       ServerClientConstants.MAX_CLIENTS);
     
@@ -114,6 +223,32 @@ public class TCPServer implements Closeable, Initializable, Runnable
   }
   
   
+  /**
+   * Constructs a server with the given output stream, port and history. The
+   * mailboxes of offline clients are only kept in memory.
+   * @param out The output stream to send server messages to.
+   * @param port The port to bind to.
+   * @param history The history to record every broadcast in.
+   * @see #TCPServer(PrintStream, int, ChatHistory, MailboxStore)
+   */
+  public TCPServer(PrintStream out, int port, ChatHistory history)
+  {
+    this(out, port, history, new MailboxStore());
+  }
+  
+  /**
+   * Constructs a server with the given output stream and the given port. The
+   * history is kept in memory.
+   * @param out The output stream to send server messages to.
+   * @param port The port to bind to.
+   * @see #TCPServer(PrintStream, int, ChatHistory)
+   * @see com.coswald.jtalker.net.history.MemoryChatHistory
+   */
+  public TCPServer(PrintStream out, int port)
+  {
+    this(out, port, new MemoryChatHistory());
+  }
+  
   /**
    * Constructs a server with {@link java.lang.System#out System.out} as the
    * default output and the given port number.
@@ -125,20 +260,139 @@ public class TCPServer implements Closeable, Initializable, Runnable
   }
   
   /**
-   * Initializes the server by binding a {@code ServerSocket} to a port. This
+   * Initializes the server by binding a {@code ServerSocket} to a port, and
+   * listening on the ports of any other transports we were given. This
    * will also send messages to the output stream provided to us. These messages
-   * will let the user know that the JTalker server has started.
+   * will let the user know that the JTalker server has started. If our history
+   * is {@code Initializable} (like one stored on disk), it is initialized
+   * first, followed by our mailboxes. If we have a snapshot file, both are
+   * restored from it instead, if they can be, as are the lines our rooms keep
+   * for clients that resume. Once we are running, a snapshot
+   * is written every
+   * {@value com.coswald.jtalker.net.ServerClientConstants#SNAPSHOT_MILLIS}
+   * milliseconds.
    * @see java.net.ServerSocket
    */
   @Override
   public void init()
   {
+    long started = System.currentTimeMillis();
+    ServerSnapshot snapshot = null;
+    if(this.snapshotFile != null && this.snapshotFile.isFile())
+    {
+      try
+      {
+        snapshot = ServerSnapshot.read(this.snapshotFile);
+      }
+      catch(IOException i)
+      {
+        this.out.println("Could not read the snapshot: " + i.getMessage());
+      }
+    }
+    if(!this.restore(snapshot, HISTORY_SECTION, this.history) &&
+      this.history instanceof Initializable)
+    {
+      ((Initializable)this.history).init();
+    }
+    if(!this.restore(snapshot, MAILBOX_SECTION, this.mailboxes))
+    {
+      this.mailboxes.init();
+    }
+    this.restore(snapshot, ROOMS_SECTION, this.rooms);
+    if(snapshot != null)
+    {
+      this.restorePresence(snapshot);
+      this.out.println("Restored from the snapshot of " +
+        new Date(snapshot.getTime()) + " in " +
+        (System.currentTimeMillis() - started) + " ms");
+    }
     try
     {
-      this.server = new ServerSocket(port);
+      SocketTransport tcp = new SocketTransport(this.listeners > 1);
+      this.server = tcp.listen(this.port);
+      if(this.listeners > 1 && !this.server.isPortShared())
+      {
+        this.out.println("Sockets can not share a port here; accepting on " +
+          "one socket");
+      }
       this.out.println("JTalker TCP Server started!\nWaiting for a clients...");
       this.out.println("Use standard exiting procedures to quit the server.");
       this.running = true;
+      if(this.server.isPortShared())
+      {
+        for(int i = 1; i < this.listeners; i++)
+        {
+          SocketListener shard = tcp.listen(this.server.getLocalPort());
+          this.shards.add(shard);
+          this.acceptFrom(tcp.getName(), shard);
+        }
+        this.out.println("Accepting on " + this.listeners + " sockets");
+      }
+      if(this.federation != null)
+      {
+        this.federation.init();
+        this.out.println("Node " + this.federation.getNodeId() +
+          " is listening for other nodes on port " +
+          this.federation.getPort());
+      }
+      if(this.multicast != null)
+      {
+        this.multicast.init();
+        synchronized(this.sos)
+        {
+          this.rooms.setMulticast(this.multicast);
+        }
+        this.out.println("Sending the default room to " +
+          this.multicast.getGroup().getHostAddress() + ":" +
+          this.multicast.getPort());
+      }
+      for(Map.Entry<Transport, Integer> e : this.transportPorts.entrySet())
+      {
+        String name = e.getKey().getName();
+        TransportListener listener;
+        try
+        {
+          listener = e.getKey().listen(e.getValue());
+        }
+        catch(IOException i)
+        {
+          this.out.println("Could not listen for " + name + " clients: " +
+            i.getMessage());
+          continue;
+        }
+        this.transportListeners.put(e.getKey(), listener);
+        this.acceptFrom(name, listener);
+        this.out.println("Waiting for " + name + " clients on port " +
+          listener.getLocalPort());
+      }
+      if(this.eventStream != null)
+      {
+        this.eventStream.init();
+        this.out.println("Streaming rooms over HTTP on port " +
+          this.eventStream.getPort());
+      }
+      if(this.snapshotFile != null && this.snapshotter == null)
+      {
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(r ->
+        {
+          Thread t = new Thread(r, "JTalker Snapshot Writer");
+          t.setDaemon(true);
+          t.setPriority(Thread.MIN_PRIORITY);
+          return t;
+        });
+        this.snapshotter.scheduleWithFixedDelay(() ->
+        {
+          try
+          {
+            this.writeSnapshot();
+          }
+          catch(IOException i)
+          {
+            this.out.println("Could not write a snapshot: " + i.getMessage());
+          }
+        }, ServerClientConstants.SNAPSHOT_MILLIS,
+          ServerClientConstants.SNAPSHOT_MILLIS, TimeUnit.MILLISECONDS);
+      }
     }
     catch(IOException i)
     {
@@ -151,8 +405,9 @@ public class TCPServer implements Closeable, Initializable, Runnable
    * Waits for clients to connect and handles them when they do. This logic
    * will accept client up until the maximum amount of clients has been reached,
    * which is
-   * {@value com.coswald.jtalker.net.ServerClientConstants#MAX_CLIENTS}.
-   * With each new {@code Socket} that is created, it will add a
+   * {@value com.coswald.jtalker.net.ServerClientConstants#MAX_CLIENTS} unless
+   * it has been {@link #setMaxClients(int) changed}. With each new
+   * {@code Socket} that is created, it will add a
    * {@link com.coswald.jtalker.net.TCPClientInstance TCPClientInstance}
    * and add it to a fixed thread pool. This thread pool takes care of the logic
    * of switching between multiple clients and also helps with thread
@@ -185,17 +440,52 @@ public class TCPServer implements Closeable, Initializable, Runnable
       
       if(socket != null)
       {
-        TCPClientInstance ci = new TCPClientInstance(socket, this.sos);
-      
+        this.accepted.incrementAndGet();
+        TCPClientInstance ci = new TCPClientInstance(socket, this.sos,
+          this.history, this.rooms, this.mailboxes, this.federation);
+        
         this.threadPool.execute(ci); 
       }
       //this.out.println(this.threadPool.getActiveCount());
     }
   }
   
+  /*
+   * Starts a thread that hands every client accepted by another listener to
+   * the thread pool, just like the run method does for our server socket.
+   */
+  private void acceptFrom(String transport, TransportListener listener)
+  {
+    Thread t = new Thread(() ->
+    {
+      while(this.running)
+      {
+        Socket socket;
+        try
+        {
+          socket = listener.accept();
+        }
+        catch(IOException i)
+        {
+          this.out.println("Stopping " + transport + " Server");
+          return;
+        }
+        this.accepted.incrementAndGet();
+        this.threadPool.execute(new TCPClientInstance(socket, this.sos,
+          this.history, this.rooms, this.mailboxes, this.federation));
+      }
+    }, "JTalker " + transport + " Acceptor");
+    t.setDaemon(true);
+    t.start();
+  }
+  
   /**
    * Shuts down the threadpool associated with the clients, the server output
-   * stream, as well as the server socket.
+   * stream, as well as the server sockets, the listeners of our other
+   * transports (UDP, WebSocket and TLS among them), our event
+   * stream and our federation. If we have a
+   * snapshot file, a last snapshot is written. Our mailboxes are closed next,
+   * and if our history is {@code Closeable}, it is closed last.
    * @see java.util.concurrent.ThreadPoolExecutor#shutdown()
    * @see java.net.ServerSocket#close()
    * @see com.coswald.jtalker.net.ServerOutputStream#close()
@@ -204,12 +494,101 @@ public class TCPServer implements Closeable, Initializable, Runnable
   public void close() throws IOException
   {
     this.out.println("\rClosing connection");
+    boolean open = this.server != null && !this.server.isClosed();
+    //so that the accepting threads stop once their sockets are closed
+    this.running = false;
     if(this.server != null)
     {
       this.threadPool.shutdown();
       this.server.close();
+      for(SocketListener shard : this.shards)
+      {
+        shard.close();
+      }
+      this.shards.clear();
+    }
+    if(this.federation != null)
+    {
+      this.federation.close();
+    }
+    if(this.multicast != null)
+    {
+      this.multicast.close();
+    }
+    for(TransportListener listener : this.transportListeners.values())
+    {
+      listener.close();
+    }
+    this.transportListeners.clear();
+    if(this.eventStream != null)
+    {
+      this.eventStream.close();
+    }
+    //clients cut off take themselves out of the lobby while it is closing
+    synchronized(this.sos)
+    {
+      this.sos.close();
+    }
+    if(this.snapshotter != null)
+    {
+      this.snapshotter.shutdown();
+      try
+      {
+        this.snapshotter.awaitTermination(10, TimeUnit.SECONDS);
+      }
+      catch(InterruptedException ie)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if(this.snapshotFile != null && open)
+    {
+      this.writeSnapshot();
+    }
+    this.mailboxes.close();
+    if(this.history instanceof Closeable)
+    {
+      ((Closeable)this.history).close();
+    }
+  }
+  
+  /**
+   * Writes a snapshot of our state into our snapshot file. This is done on its
+   * own every
+   * {@value com.coswald.jtalker.net.ServerClientConstants#SNAPSHOT_MILLIS}
+   * milliseconds, but can be done at any time (right before a restart, for
+   * instance).
+   * @throws IOException If an I/O error occurs.
+   * @throws IllegalStateException If we have no snapshot file.
+   */
+  public synchronized void writeSnapshot() throws IOException
+  {
+    if(this.snapshotFile == null)
+    {
+      throw new IllegalStateException("There is no snapshot file!");
+    }
+    ServerSnapshot snapshot = new ServerSnapshot();
+    
+    ByteArrayOutputStream presence = new ByteArrayOutputStream();
+    try(DataOutputStream dos = new DataOutputStream(presence))
+    {
+      synchronized(this.sos)
+      {
+        dos.writeInt(this.rooms.getClients().size());
+        for(TCPClientInstance client : this.rooms.getClients())
+        {
+          dos.writeUTF(client.getID());
+        }
+      }
+    }
+    snapshot.put(PRESENCE_SECTION, presence.toByteArray());
+    if(this.history instanceof Snapshottable)
+    {
+      snapshot.put(HISTORY_SECTION, (Snapshottable)this.history);
     }
-    this.sos.close();
+    snapshot.put(MAILBOX_SECTION, this.mailboxes);
+    snapshot.put(ROOMS_SECTION, this.rooms);
+    snapshot.write(this.snapshotFile);
   }
   
   /**
@@ -221,6 +600,365 @@ public class TCPServer implements Closeable, Initializable, Runnable
     return this.threadPool.getActiveCount();
   }
   
+  /**
+   * Sets the most clients that may be connected at once. Every connected
+   * client takes a thread of this server; a client that connects while there
+   * are this many waits until another leaves. This may be changed at any
+   * time.
+   * @param maxClients The most clients at once. This is
+   *  {@value com.coswald.jtalker.net.ServerClientConstants#MAX_CLIENTS} unless
+   *  it has been changed.
+   * @throws IllegalArgumentException If the amount is less than one.
+   */
+  public void setMaxClients(int maxClients)
+  {
+    if(maxClients < 1)
+    {
+      throw new IllegalArgumentException("There must be room for at least " +
+        "one client!");
+    }
+    if(maxClients > this.threadPool.getMaximumPoolSize())
+    {
+      this.threadPool.setMaximumPoolSize(maxClients);
+      this.threadPool.setCorePoolSize(maxClients);
+    }
+    else
+    {
+      this.threadPool.setCorePoolSize(maxClients);
+      this.threadPool.setMaximumPoolSize(maxClients);
+    }
+  }
+  
+  /**
+   * Returns the most clients that may be connected at once.
+   * @return The most clients at once.
+   */
+  public int getMaxClients()
+  {
+    return this.threadPool.getMaximumPoolSize();
+  }
+  
+  /**
+   * Returns the history every broadcast of this server is recorded in.
+   * @return The history.
+   */
+  public ChatHistory getHistory()
+  {
+    return this.history;
+  }
+  
+  /**
+   * Makes this server a node of a federation, with the given identifier,
+   * listening for other nodes on the given port. The rooms of this server are
+   * then shared with every other node. The other nodes to link to
+   * are given to the returned federation, using its
+   * {@link com.coswald.jtalker.net.cluster.Federation#addPeer(String, int)
+   * addPeer} method. The federation starts once we are initialized.
+   * @param nodeId The identifier of this node, unique within the federation.
+   * @param port The port to listen for other nodes on.
+   * @return The federation.
+   * @throws IllegalStateException If we are running, or are already a node.
+   */
+  public Federation createFederation(String nodeId, int port)
+  {
+    if(this.running || this.federation != null)
+    {
+      throw new IllegalStateException("The federation can not be changed!");
+    }
+    this.federation = new Federation(nodeId, port, this.sos, this.rooms);
+    return this.federation;
+  }
+  
+  /**
+   * Has this server also send the lines of the default room to a multicast
+   * group, once it is initialized. Clients that join the group take those
+   * lines from it instead of over TCP, so each line is only sent once for all
+   * of them.
+   * @param group The multicast group.
+   * @param port The port to send to.
+   * @param networkInterface The interface to send datagrams out of.
+   * @return The sender.
+   * @throws IllegalStateException If we are running, or already send to a
+   *  group.
+   * @see com.coswald.jtalker.net.MulticastSender
+   */
+  public MulticastSender createMulticast(InetAddress group, int port,
+    NetworkInterface networkInterface)
+  {
+    if(this.running || this.multicast != null)
+    {
+      throw new IllegalStateException("The multicast group can not be " +
+        "changed!");
+    }
+    this.multicast = new MulticastSender(group, port, networkInterface);
+    return this.multicast;
+  }
+  
+  /**
+   * Returns the sender the lines of the default room are sent to a multicast
+   * group with.
+   * @return The sender, or {@code null} if we do not send to a group.
+   */
+  public MulticastSender getMulticast()
+  {
+    return this.multicast;
+  }
+  
+  /**
+   * Sets how many sockets TCP clients are accepted on, once this server is
+   * initialized. Every one of them is bound to our port with SO_REUSEPORT,
+   * and has its own thread accepting on it, so that the kernel spreads the
+   * clients connecting over them. Where sockets can not share a port (before
+   * Java 9, or on a system without SO_REUSEPORT), only one is used.
+   * @param listeners The amount of sockets.
+   * @throws IllegalArgumentException If the amount is less than one.
+   * @throws IllegalStateException If we are running.
+   */
+  public void setListeners(int listeners)
+  {
+    if(this.running)
+    {
+      throw new IllegalStateException("The listeners can not be changed!");
+    }
+    if(listeners < 1)
+    {
+      throw new IllegalArgumentException("There must be at least one " +
+        "listener!");
+    }
+    this.listeners = listeners;
+  }
+  
+  /**
+   * Returns how many sockets TCP clients are accepted on.
+   * @return The amount of sockets asked for; fewer may be in use, if
+   *  sockets can not share a port here.
+   */
+  public int getListeners()
+  {
+    return this.listeners;
+  }
+  
+  /**
+   * Returns how many clients have been accepted so far, over any transport.
+   * @return The amount of clients accepted.
+   */
+  public long getAcceptedCount()
+  {
+    return this.accepted.get();
+  }
+  
+  /**
+   * Has this server also listen for clients on the given UDP port, once it is
+   * initialized. Those clients talk to us through a
+   * {@link com.coswald.jtalker.net.udp.ReliableSocket ReliableSocket}, and
+   * are otherwise treated just like those that connect over TCP. This is the
+   * same as {@link #addTransport(Transport, int) adding} a
+   * {@link com.coswald.jtalker.net.udp.UDPTransport UDPTransport}, in place
+   * of the one given before.
+   * @param udpPort The port, or -1 to only listen over TCP.
+   * @throws IllegalArgumentException If the port is outside of the valid
+   *  bounds.
+   * @throws IllegalStateException If we are running.
+   * @see com.coswald.jtalker.net.UDPClient
+   */
+  public void setUDPPort(int udpPort)
+  {
+    this.udp = this.replaceTransport(this.udp,
+      (udpPort == -1) ? null : new UDPTransport(), udpPort);
+  }
+  
+  /**
+   * Returns the endpoint UDP clients connect to.
+   * @return The endpoint, or {@code null} if we are not listening over UDP.
+   */
+  public ReliableEndpoint getUDPEndpoint()
+  {
+    return (ReliableEndpoint)this.getListener(this.udp);
+  }
+  
+  /**
+   * Has this server also listen for browsers on the given port, once it is
+   * initialized. Those talk to us over WebSockets, through a
+   * {@link com.coswald.jtalker.net.websocket.WebSocketConnection
+   * WebSocketConnection}, and are otherwise treated just like any other
+   * client: they share the same rooms, and get each line at the same time.
+   * This is the same as {@link #addTransport(Transport, int) adding} a
+   * {@link com.coswald.jtalker.net.websocket.WebSocketTransport
+   * WebSocketTransport}, in place of the one given before.
+   * @param webSocketPort The port, or -1 to not listen for browsers.
+   * @throws IllegalArgumentException If the port is outside of the valid
+   *  bounds.
+   * @throws IllegalStateException If we are running.
+   */
+  public void setWebSocketPort(int webSocketPort)
+  {
+    this.webSockets = this.replaceTransport(this.webSockets,
+      (webSocketPort == -1) ? null : new WebSocketTransport(), webSocketPort);
+  }
+  
+  /**
+   * Returns the listener browsers connect to.
+   * @return The listener, or {@code null} if we are not listening for
+   *  browsers.
+   */
+  public WebSocketListener getWebSocketListener()
+  {
+    return (WebSocketListener)this.getListener(this.webSockets);
+  }
+  
+  /**
+   * Has this server also listen for clients talking over TLS on the given
+   * port, once it is initialized. Those are handed to us as a
+   * {@link com.coswald.jtalker.net.tls.TLSConnection TLSConnection} once
+   * their handshake is done, and are otherwise treated just like any other
+   * client. This is the same as {@link #addTransport(Transport, int) adding}
+   * a {@link com.coswald.jtalker.net.tls.TLSTransport TLSTransport}, in
+   * place of the one given before.
+   * @param tlsPort The port, or -1 to not listen over TLS.
+   * @param tlsContext The context that holds our key and certificate, and
+   *  keeps the sessions clients may resume.
+   * @throws IllegalArgumentException If the port is outside of the valid
+   *  bounds, or there is a port but no context.
+   * @throws IllegalStateException If we are running.
+   * @see com.coswald.jtalker.net.tls.TLSContexts#server(File, char[])
+   */
+  public void setTLS(int tlsPort, SSLContext tlsContext)
+  {
+    if(tlsPort != -1 && tlsContext == null)
+    {
+      throw new IllegalArgumentException("Listening over TLS needs a " +
+        "context!");
+    }
+    this.tls = this.replaceTransport(this.tls,
+      (tlsPort == -1) ? null : new TLSTransport(tlsContext), tlsPort);
+  }
+  
+  /**
+   * Returns the listener clients connect to over TLS.
+   * @return The listener, or {@code null} if we are not listening over TLS.
+   */
+  public TLSListener getTLSListener()
+  {
+    return (TLSListener)this.getListener(this.tls);
+  }
+  
+  /**
+   * Has this server also accept clients over the given transport, on the
+   * given port, once it is initialized. Each is handed a listener of the
+   * transport of its own, and clients accepted through it are treated just
+   * like those that connect over TCP. If the transport can not listen, the
+   * server says so, and starts without it. The sockets of the transport must
+   * carry the frames of a
+   * {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec},
+   * as those are what every client is read and broadcast to with.
+   * @param transport The transport.
+   * @param port The port, or 0 for any free one.
+   * @throws IllegalArgumentException If the transport is {@code null}, or
+   *  the port is outside of the valid bounds.
+   * @throws IllegalStateException If we are running.
+   * @see #getListener(Transport)
+   */
+  public void addTransport(Transport transport, int port)
+  {
+    if(this.running)
+    {
+      throw new IllegalStateException("The transports can not be changed!");
+    }
+    if(transport == null)
+    {
+      throw new IllegalArgumentException("The transport can not be null!");
+    }
+    if(port < ServerClientConstants.MIN_PORT_NUMBER ||
+      port > ServerClientConstants.MAX_PORT_NUMBER)
+    {
+      throw new IllegalArgumentException("Port must be between " +
+        ServerClientConstants.MIN_PORT_NUMBER +
+        " and " + ServerClientConstants.MAX_PORT_NUMBER + ", inclusive!");
+    }
+    this.transportPorts.put(transport, port);
+  }
+  
+  /**
+   * Returns the listener clients connect to over the given transport.
+   * @param transport A transport that was
+   *  {@link #addTransport(Transport, int) added} to us.
+   * @return The listener, or {@code null} if we are not running, or were
+   *  not given the transport.
+   */
+  public TransportListener getListener(Transport transport)
+  {
+    return this.transportListeners.get(transport);
+  }
+  
+  /*
+   * Adds a transport in place of another one, which is taken out (either may
+   * be null). Returns the transport that was added.
+   */
+  private <T extends Transport> T replaceTransport(T old, T transport,
+    int port)
+  {
+    if(this.running)
+    {
+      throw new IllegalStateException("The transports can not be changed!");
+    }
+    if(transport != null)
+    {
+      this.addTransport(transport, port);
+    }
+    if(old != null)
+    {
+      this.transportPorts.remove(old);
+    }
+    return transport;
+  }
+  
+  /**
+   * Has this server also stream the lines of its rooms over HTTP, as
+   * Server-Sent Events, once it is initialized.
+   * @param port The port to listen on.
+   * @return The event stream server.
+   * @throws IllegalStateException If we are running, or already stream our
+   *  rooms.
+   * @see com.coswald.jtalker.net.sse.EventStreamServer
+   */
+  public EventStreamServer createEventStream(int port)
+  {
+    if(this.running || this.eventStream != null)
+    {
+      throw new IllegalStateException("The event stream can not be changed!");
+    }
+    this.eventStream = new EventStreamServer(port, this.sos, this.rooms,
+      this.history);
+    return this.eventStream;
+  }
+  
+  /**
+   * Returns the federation this server is a node of.
+   * @return The federation, or {@code null} if we are not a node of one.
+   */
+  public Federation getFederation()
+  {
+    return this.federation;
+  }
+  
+  /**
+   * Returns the mailboxes messages for offline clients are kept in.
+   * @return The mailboxes.
+   */
+  public MailboxStore getMailboxes()
+  {
+    return this.mailboxes;
+  }
+  
+  /**
+   * Returns the file snapshots of our state are written to.
+   * @return The snapshot file, or {@code null} if no snapshots are written.
+   */
+  public File getSnapshotFile()
+  {
+    return this.snapshotFile;
+  }
+  
   /**
    * Returns the port number our server will or has binded to.
    * @return The port number.
@@ -252,4 +990,69 @@ public class TCPServer implements Closeable, Initializable, Runnable
       this.port = port;
     }
   }
+  
+  /**
+   * Sets the file snapshots of our state are written to (and started from).
+   * Note that this method will not change the file if we are currently
+   * running.
+   * @param snapshotFile The snapshot file, or {@code null} to write no
+   *  snapshots.
+   * @see #isRunning()
+   */
+  public void setSnapshotFile(File snapshotFile)
+  {
+    if(!this.running)
+    {
+      this.snapshotFile = snapshotFile;
+    }
+  }
+  
+  /*
+   * Restores part of our state from a section of a snapshot, returning whether
+   * it could be.
+   */
+  private boolean restore(ServerSnapshot snapshot, String name, Object state)
+  {
+    if(snapshot == null || !(state instanceof Snapshottable))
+    {
+      return false;
+    }
+    try
+    {
+      return snapshot.restore(name, (Snapshottable)state);
+    }
+    catch(IOException i)
+    {
+      this.out.println("Could not restore the " + name + " from the " +
+        "snapshot: " + i.getMessage());
+      return false;
+    }
+  }
+  
+  /*
+   * Everyone who was connected when the snapshot was written was seen until
+   * then, even if the server went down before they could leave.
+   */
+  private void restorePresence(ServerSnapshot snapshot)
+  {
+    DataInputStream in = snapshot.get(PRESENCE_SECTION);
+    if(in == null)
+    {
+      return;
+    }
+    try
+    {
+      int count = in.readInt();
+      for(int i = 0; i < count; i++)
+      {
+        this.mailboxes.register(in.readUTF());
+      }
+      this.out.println(count + " clients were connected before the restart.");
+    }
+    catch(IOException i)
+    {
+      this.out.println("Could not restore who was connected: " +
+        i.getMessage());
+    }
+  }
 }
@@ -0,0 +1,149 @@
+/*
+ * TLSClient.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.net.TCPClient;
+import com.coswald.jtalker.net.tls.TLSConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * <p>A client for the JTalker application that talks to the server over TLS.
+ * Everything else is done just like a
+ * {@link com.coswald.jtalker.net.TCPClient TCPClient} does it; only the
+ * socket differs, being an {@link javax.net.ssl.SSLSocket SSLSocket} made
+ * through the context given. The server must be
+ * {@link com.coswald.jtalker.net.TCPServer#setTLS(int, SSLContext) listening}
+ * on the port given, and its certificate must name the host we connect
+ * to.</p>
+ * <p>The context keeps the session of every connection made through it, so a
+ * client that connects again (or another client made with the same context)
+ * resumes its session with the server instead of doing a full
+ * handshake.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.tls.TLSContexts#client(java.io.File, char[])
+ */
+public class TLSClient extends TCPClient
+{
+  private SSLContext context;
+  
+  /**
+   * Constructs a TLS client with the given input, output, identifier, host,
+   * port and context.
+   * @param in The input stream to read what we send from.
+   * @param out The output stream to send data to when the client receives it.
+   * @param identifier The unique identifier to be used by the server.
+   * @param host The host we are connecting to.
+   * @param port The TLS port the server listens on.
+   * @param context The context that holds the certificates we trust.
+   * @see com.coswald.jtalker.net.TCPClient#TCPClient(InputStream, PrintStream,
+   *  String, String, int)
+   */
+  public TLSClient(InputStream in, PrintStream out, String identifier,
+    String host, int port, SSLContext context)
+  {
+    super(in, out, identifier, host, port);
+    this.context = context;
+  }
+  
+  /**
+   * Constructs a TLS client with {@link java.lang.System#in} as input,
+   * {@link java.lang.System#out} as output, and the rest of the parameters.
+   * @param identifier The unique identifier to be used by the server.
+   * @param host The host we are connecting to.
+   * @param port The TLS port the server listens on.
+   * @param context The context that holds the certificates we trust.
+   * @see #TLSClient(InputStream, PrintStream, String, String, int,
+   *  SSLContext)
+   */
+  public TLSClient(String identifier, String host, int port,
+    SSLContext context)
+  {
+    this(System.in, System.out, identifier, host, port, context);
+  }
+  
+  /**
+   * Returns the context our connections are made through.
+   * @return The context.
+   */
+  public SSLContext getContext()
+  {
+    return this.context;
+  }
+  
+  /**
+   * Opens a TLS connection to the server, and finishes its handshake.
+   * @param host The host we are connecting to.
+   * @param port The TLS port the server listens on.
+   * @return The connected socket.
+   * @throws IOException If the connection could not be made, or the server
+   *  could not be trusted.
+   */
+  @Override
+  protected Socket connect(String host, int port) throws IOException
+  {
+    return open(this.context, host, port);
+  }
+  
+  /**
+   * Opens a TLS connection through the given context, checking that the
+   * certificate of the server names the host, and finishes its handshake.
+   * @param context The context that holds the certificates we trust.
+   * @param host The host we are connecting to.
+   * @param port The TLS port the server listens on.
+   * @return The connected socket.
+   * @throws IOException If the connection could not be made, or the server
+   *  could not be trusted.
+   */
+  public static SSLSocket open(SSLContext context, String host, int port)
+    throws IOException
+  {
+    SSLSocket socket = (SSLSocket)context.getSocketFactory().createSocket(
+      host, port);
+    try
+    {
+      //the handshake ends with two small writes in a row, the second of
+      //which would otherwise wait for the first to be acknowledged
+      socket.setTcpNoDelay(true);
+      SSLParameters parameters = socket.getSSLParameters();
+      parameters.setEndpointIdentificationAlgorithm(
+        TLSConstants.ENDPOINT_IDENTIFICATION);
+      socket.setSSLParameters(parameters);
+      socket.startHandshake();
+      return socket;
+    }
+    catch(IOException i)
+    {
+      socket.close();
+      throw i;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * UDPClient.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net;
+
+import com.coswald.jtalker.net.TCPClient;
+import com.coswald.jtalker.net.udp.LinkSimulator;
+import com.coswald.jtalker.net.udp.ReliableEndpoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+
+/**
+ * <p>A client for the JTalker application that talks to the server over UDP
+ * instead of TCP. Everything else is done just like a
+ * {@link com.coswald.jtalker.net.TCPClient TCPClient} does it; only the
+ * socket differs, being a
+ * {@link com.coswald.jtalker.net.udp.ReliableSocket ReliableSocket} made
+ * through an endpoint of its own. The server must be
+ * {@link com.coswald.jtalker.net.TCPServer#setUDPPort(int) listening} on the
+ * port given.</p>
+ * <p>For comparing the two on a bad network, a
+ * {@link #setSimulator(LinkSimulator) simulator} may be set, which every
+ * datagram the client sends goes through.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class UDPClient extends TCPClient
+{
+  private volatile LinkSimulator simulator;
+  
+  /**
+   * Constructs a UDP client with the given input, output, identifier, host and
+   * port.
+   * @param in The input stream to read what we send from.
+   * @param out The output stream to send data to when the client receives it.
+   * @param identifier The unique identifier to be used by the server.
+   * @param host The host we are connecting to.
+   * @param port The UDP port the server listens on.
+   * @see com.coswald.jtalker.net.TCPClient#TCPClient(InputStream, PrintStream,
+   *  String, String, int)
+   */
+  public UDPClient(InputStream in, PrintStream out, String identifier,
+    String host, int port)
+  {
+    super(in, out, identifier, host, port);
+  }
+  
+  /**
+   * Constructs a UDP client with {@link java.lang.System#in} as input,
+   * {@link java.lang.System#out} as output, and the rest of the parameters.
+   * @param identifier The unique identifier to be used by the server.
+   * @param host The host we are connecting to.
+   * @param port The UDP port the server listens on.
+   * @see #UDPClient(InputStream, PrintStream, String, String, int)
+   */
+  public UDPClient(String identifier, String host, int port)
+  {
+    this(System.in, System.out, identifier, host, port);
+  }
+  
+  /**
+   * Sets the simulator every datagram we send goes through. This only
+   * matters before we are initialized.
+   * @param simulator The simulator, or {@code null} for none.
+   */
+  public void setSimulator(LinkSimulator simulator)
+  {
+    this.simulator = simulator;
+  }
+  
+  /**
+   * Returns the simulator every datagram we send goes through.
+   * @return The simulator, or {@code null} if there is none.
+   */
+  public LinkSimulator getSimulator()
+  {
+    return this.simulator;
+  }
+  
+  /**
+   * Opens a reliable connection over UDP to the server.
+   * @param host The host we are connecting to.
+   * @param port The UDP port the server listens on.
+   * @return The connected socket.
+   * @throws IOException If the connection could not be made.
+   */
+  @Override
+  protected Socket connect(String host, int port) throws IOException
+  {
+    return ReliableEndpoint.open(host, port, this.simulator);
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * ClusterConstants.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.cluster;
+
+/**
+ * <p>A set of descriptions for specific constants used when linking JTalker
+ * servers together. Just like the other constants classes, this class is a
+ * utility class and cannot be extended.</p>
+ * @author C. William Oswald
+ * @version 0.0.5
+ * @since JTalker 0.3.0
+ */
+public final class ClusterConstants
+{
+  /**
+   * The port nodes listen for links from other nodes on, by default. This is
+   * currently set to {@value}.
+   */
+  public static final int FEDERATION_PORT = 5001;
+  
+  /**
+   * The command each end of a link sends first. Its only argument is the
+   * identifier of the node sending it.
+   */
+  public static final String PEER_COMMAND = "PEER";
+  
+  /**
+   * The command that carries a broadcast from the owner of a room down its
+   * fan-out tree to another node. Its arguments are the identifier of the
+   * owner, the time it started, the sequence number of the frame on the owner,
+   * the name of the room, the index of the broadcast within the log of the
+   * room, the depth of the node it is sent to within the tree, the time (in
+   * milliseconds) it was sent, and the nodes the receiver passes it on to,
+   * separated by commas (or a dash, if there are none); its body is the
+   * broadcast itself.
+   */
+  public static final String RELAY_COMMAND = "RELAY";
+  
+  /**
+   * The command a node sends to the owner of a room to have a broadcast made
+   * within that room. The owner gives the broadcast its place within the room,
+   * and relays it to every node with a client within the room. Its arguments
+   * are the name of the room and the amount of times the broadcast has been
+   * passed on already; its body is the broadcast itself.
+   */
+  public static final String FORWARD_COMMAND = "FORWARD";
+  
+  /**
+   * The command a node sends to the owner of a room once one of its clients
+   * is within that room, so the owner relays the broadcasts of the room to it.
+   * Its only argument is the name of the room.
+   */
+  public static final String SUBSCRIBE_COMMAND = "SUBSCRIBE";
+  
+  /**
+   * The command a node sends to the owner of a room once none of its clients
+   * are within that room anymore. Its only argument is the name of the room.
+   */
+  public static final String UNSUBSCRIBE_COMMAND = "UNSUBSCRIBE";
+  
+  /**
+   * The command a node sends to probe whether another node is still alive.
+   * Its only argument is a sequence number, and its body is news about nodes
+   * (see {@link com.coswald.jtalker.net.cluster.Membership Membership}).
+   */
+  public static final String PING_COMMAND = "PING";
+  
+  /**
+   * The command a node sends to answer a {@link #PING_COMMAND probe}. Its
+   * arguments are the identifier of the node that was probed and the sequence
+   * number of the probe, and its body is news about nodes.
+   */
+  public static final String ACK_COMMAND = "ACK";
+  
+  /**
+   * The command a node sends to ask another node to probe a third one for it.
+   * Its arguments are a sequence number and the identifier of the node to
+   * probe, and its body is news about nodes. The answer is passed back as an
+   * {@link #ACK_COMMAND ACK} with the sequence number given.
+   */
+  public static final String PING_REQUEST_COMMAND = "PINGREQ";
+  
+  /**
+   * The command each end of a new link sends to tell the other end about
+   * every node it knows of. It has no arguments; its body is one line for each
+   * node.
+   */
+  public static final String MEMBERS_COMMAND = "MEMBERS";
+  
+  /**
+   * How often, in milliseconds, each node probes another node. This is
+   * currently set to {@value}.
+   */
+  public static final long PROBE_MILLIS = 1000L;
+  
+  /**
+   * How long, in milliseconds, a node waits for an answer to a probe before
+   * asking other nodes to probe for it. This is currently set to {@value}.
+   */
+  public static final long PING_TIMEOUT_MILLIS = 300L;
+  
+  /**
+   * How many other nodes are asked to probe a node that does not answer. This
+   * is currently set to {@value}.
+   */
+  public static final int INDIRECT_PROBES = 3;
+  
+  /**
+   * How many probe periods a node is suspected for before it is declared
+   * dead, in a federation of at most ten nodes. This is currently set to
+   * {@value}.
+   */
+  public static final int SUSPICION_MULTIPLIER = 4;
+  
+  /**
+   * How many times each piece of news about a node is sent, in a federation
+   * of one other node; this is multiplied by the base two logarithm of the
+   * amount of nodes. This is currently set to {@value}.
+   */
+  public static final int RETRANSMIT_MULTIPLIER = 3;
+  
+  /**
+   * The most pieces of news about nodes added to one probe frame. This is
+   * currently set to {@value}.
+   */
+  public static final int MAX_PIGGYBACK = 8;
+  
+  /**
+   * The most probes a node keeps making for other nodes at once. This is
+   * currently set to {@value}.
+   */
+  public static final int PROXIED_PROBES = 64;
+  
+  /**
+   * The command the leader of a room sends to ship a range of its log to a
+   * follower. Its arguments are the name of the room, the term of the log,
+   * the index of the first line the leader still keeps (the follower lets go
+   * of every line before it), the index of the first line of the range, and
+   * the length of each line, separated by commas; its body is the lines, one
+   * after the other. A range with no lines has no fifth argument. It is also
+   * the answer to a {@link #LOG_PULL_COMMAND pull}.
+   * @see com.coswald.jtalker.net.cluster.RoomReplicator
+   */
+  public static final String LOG_COMMAND = "LOG";
+  
+  /**
+   * The command a follower sends to acknowledge a {@link #LOG_COMMAND range}.
+   * Its arguments are the name of the room, the term of the follower's copy
+   * of the log, and the amount of lines of it the follower now holds.
+   */
+  public static final String LOG_ACK_COMMAND = "LOGACK";
+  
+  /**
+   * The command a follower sends when a {@link #LOG_COMMAND range} does not
+   * start where its copy of the log ends, or is of an older term than its
+   * copy. Its arguments are the name of the room, the term of the follower's
+   * copy, and the amount of lines of it the follower holds, which is where
+   * the leader ships from next.
+   */
+  public static final String LOG_NACK_COMMAND = "LOGNACK";
+  
+  /**
+   * The command a node taking a room over sends to ask another about its log
+   * of the room. Its only argument is the name of the room.
+   */
+  public static final String LOG_FETCH_COMMAND = "LOGFETCH";
+  
+  /**
+   * The command a node answers a {@link #LOG_FETCH_COMMAND fetch} with. Its
+   * arguments are the name of the room, the term of the newest log of the
+   * room the node holds, and the amount of lines of it, both of which are 0
+   * if it holds none.
+   */
+  public static final String LOG_HAVE_COMMAND = "LOGHAVE";
+  
+  /**
+   * The command a node taking a room over sends to pull a range of the newest
+   * log of the room from the node holding it. Its arguments are the name of
+   * the room, and the index the range starts at.
+   */
+  public static final String LOG_PULL_COMMAND = "LOGPULL";
+  
+  /**
+   * How long, in milliseconds, a node taking a room over waits for an answer
+   * while fetching its log, before going on without it. This is currently set
+   * to {@value}.
+   */
+  public static final long LOG_FETCH_MILLIS = 500L;
+  
+  /**
+   * The amount of nodes, other than the owner, that hold a copy of the log of
+   * a replicated room. This is currently set to {@value}.
+   */
+  public static final int REPLICAS = 2;
+  
+  /**
+   * How often, in milliseconds, the leader of a room ships new lines of its
+   * log to its followers. Lines appended in between are shipped together.
+   * This is currently set to {@value}.
+   */
+  public static final long LOG_SHIP_MILLIS = 10L;
+  
+  /**
+   * The most lines shipped in one range. This is currently set to {@value}.
+   */
+  public static final int LOG_BATCH_LINES = 128;
+  
+  /**
+   * The most lines that may be shipped to a follower without being
+   * acknowledged yet. This is currently set to {@value}.
+   */
+  public static final int LOG_WINDOW_LINES = 1024;
+  
+  /**
+   * The most lines of a room a node keeps within its log (or its copy of the
+   * log of another node). This is currently set to {@value}.
+   * @see com.coswald.jtalker.net.cluster.RoomLog
+   */
+  public static final int ROOM_LOG_LINES = 4096;
+  
+  /**
+   * The most times a broadcast is passed on to the owner of its room. A
+   * broadcast may have to be passed on more than once while nodes disagree on
+   * who the owner is; after this many times, the node holding it acts as the
+   * owner. This is currently set to {@value}.
+   */
+  public static final int MAX_FORWARDS = 2;
+  
+  /**
+   * The most nodes a node sends one relayed broadcast to, by default. This is
+   * currently set to {@value}.
+   * @see com.coswald.jtalker.net.cluster.Federation#setFanout(int)
+   */
+  public static final int FANOUT = 8;
+  
+  /**
+   * The amount of times each node is put onto the ring that decides who owns
+   * each room. This is currently set to {@value}.
+   * @see com.coswald.jtalker.net.cluster.ConsistentHashRing
+   */
+  public static final int VIRTUAL_NODES = 128;
+  
+  /**
+   * The amount of relayed broadcasts a node remembers having delivered, so it
+   * never delivers one twice. This is currently set to {@value}.
+   */
+  public static final int SEEN_FRAMES = 4096;
+  
+  /**
+   * The most frames that may wait to be sent over one link. A node that falls
+   * this far behind is cut off (and linked again), so it never holds up the
+   * rest. This is currently set to {@value}.
+   */
+  public static final int LINK_QUEUE_FRAMES = 1024;
+  
+  /**
+   * How long, in milliseconds, a node waits before linking to a peer again
+   * after failing to. This is currently set to {@value}.
+   */
+  public static final long RECONNECT_MILLIS = 1000L;
+  
+  private ClusterConstants() {}
+}
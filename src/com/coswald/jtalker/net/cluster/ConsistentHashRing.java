@@ -0,0 +1,234 @@
+/*
+ * ConsistentHashRing.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.cluster;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * <p>Decides which node owns a key (like the name of a room) by consistent
+ * hashing. Every node is put onto a ring of hashes many times over (each time
+ * as a "virtual" node), and a key is owned by the first virtual node at or
+ * after the hash of the key, going around the ring. Using many virtual nodes
+ * spreads keys evenly across the nodes.</p>
+ * <p>The point of the ring is what happens when a node joins or leaves: only
+ * the keys between the virtual nodes of that node and the ones before them
+ * change owners (about {@code 1/N} of all keys for {@code N} nodes), and
+ * every other key stays where it was. Every node that knows of the same nodes
+ * agrees on the owner of every key, without having to ask anyone.</p>
+ * <p>Hashes are the first eight bytes of the MD5 digest of the name of a
+ * virtual node or key, so they are the same on every machine. This class is
+ * not thread safe.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public class ConsistentHashRing
+{
+  private int virtualNodes;
+  private TreeMap<Long, String> ring;
+  private Set<String> nodes;
+  private MessageDigest digest;
+  
+  /**
+   * Constructs an empty ring, putting every node onto it the given amount of
+   * times.
+   * @param virtualNodes The amount of virtual nodes for each node.
+   * @throws IllegalArgumentException If the amount is not positive.
+   */
+  public ConsistentHashRing(int virtualNodes)
+  {
+    if(virtualNodes <= 0)
+    {
+      throw new IllegalArgumentException("There must be a virtual node!");
+    }
+    this.virtualNodes = virtualNodes;
+    this.ring = new TreeMap<Long, String>();
+    this.nodes = new TreeSet<String>();
+    try
+    {
+      this.digest = MessageDigest.getInstance("MD5");
+    }
+    catch(NoSuchAlgorithmException nsae)
+    {
+      //every Java platform is required to have MD5
+      throw new IllegalStateException(nsae);
+    }
+  }
+  
+  /**
+   * Constructs an empty ring with the
+   * {@value com.coswald.jtalker.net.cluster.ClusterConstants#VIRTUAL_NODES}
+   * virtual nodes for each node.
+   */
+  public ConsistentHashRing()
+  {
+    this(ClusterConstants.VIRTUAL_NODES);
+  }
+  
+  /**
+   * Puts a node onto the ring.
+   * @param node The identifier of the node.
+   * @return {@code true} if the node was not on the ring before.
+   */
+  public boolean add(String node)
+  {
+    if(!this.nodes.add(node))
+    {
+      return false;
+    }
+    for(int i = 0; i < this.virtualNodes; i++)
+    {
+      //on the very rare collision, the smaller identifier wins everywhere
+      long hash = this.hash(node + '#' + i);
+      String other = this.ring.get(hash);
+      if(other == null || node.compareTo(other) < 0)
+      {
+        this.ring.put(hash, node);
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Takes a node off of the ring.
+   * @param node The identifier of the node.
+   * @return {@code true} if the node was on the ring.
+   */
+  public boolean remove(String node)
+  {
+    if(!this.nodes.remove(node))
+    {
+      return false;
+    }
+    this.ring.values().removeIf(node::equals);
+    //give any collisions it won back to the nodes that lost them
+    for(String other : this.nodes)
+    {
+      for(int i = 0; i < this.virtualNodes; i++)
+      {
+        long hash = this.hash(other + '#' + i);
+        String owner = this.ring.get(hash);
+        if(owner == null || other.compareTo(owner) < 0)
+        {
+          this.ring.put(hash, other);
+        }
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Returns the node that owns a key.
+   * @param key The key.
+   * @return The identifier of the owner, or {@code null} if the ring is empty.
+   */
+  public String getOwner(String key)
+  {
+    if(this.ring.isEmpty())
+    {
+      return null;
+    }
+    Map.Entry<Long, String> owner = this.ring.ceilingEntry(this.hash(key));
+    return (owner == null) ? this.ring.firstEntry().getValue() :
+      owner.getValue();
+  }
+  
+  /**
+   * Returns the first nodes met when walking the ring from a key: the owner
+   * of the key, then the node that would own it if the owner were removed,
+   * and so on. These are where copies of whatever the owner keeps for the key
+   * should go, since the second node takes the key over once the owner is
+   * gone.
+   * @param key The key.
+   * @param count The most nodes to return.
+   * @return The identifiers of the nodes, the owner first.
+   */
+  public List<String> getOwners(String key, int count)
+  {
+    List<String> owners = new ArrayList<String>();
+    if(this.ring.isEmpty())
+    {
+      return owners;
+    }
+    long hash = this.hash(key);
+    List<String> walk = new ArrayList<String>(
+      this.ring.tailMap(hash, true).values());
+    walk.addAll(this.ring.headMap(hash, false).values());
+    for(String node : walk)
+    {
+      if(owners.size() >= count)
+      {
+        break;
+      }
+      if(!owners.contains(node))
+      {
+        owners.add(node);
+      }
+    }
+    return owners;
+  }
+  
+  /**
+   * Returns whether a node is on the ring.
+   * @param node The identifier of the node.
+   * @return {@code true} if it is on the ring.
+   */
+  public boolean contains(String node)
+  {
+    return this.nodes.contains(node);
+  }
+  
+  /**
+   * Returns every node on the ring, in order of their identifiers.
+   * @return The identifiers of the nodes.
+   */
+  public Set<String> getNodes()
+  {
+    return Collections.unmodifiableSet(this.nodes);
+  }
+  
+  /**
+   * Returns the amount of virtual nodes each node is put onto the ring as.
+   * @return The amount of virtual nodes.
+   */
+  public int getVirtualNodes()
+  {
+    return this.virtualNodes;
+  }
+  
+  private long hash(String name)
+  {
+    this.digest.reset();
+    return ByteBuffer.wrap(this.digest.digest(
+      name.getBytes(StandardCharsets.UTF_8))).getLong();
+  }
+}
@@ -0,0 +1,894 @@
+/*
+ * Federation.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.cluster;
+
+import com.coswald.jtalker.Initializable;
+import com.coswald.jtalker.LRUCache;
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.RoomListener;
+import com.coswald.jtalker.net.Rooms;
+import com.coswald.jtalker.net.ServerOutputStream;
+import com.coswald.jtalker.net.cluster.ClusterConstants;
+import com.coswald.jtalker.net.cluster.ConsistentHashRing;
+import com.coswald.jtalker.net.cluster.FederationLink;
+import com.coswald.jtalker.net.cluster.Member;
+import com.coswald.jtalker.net.cluster.Membership;
+import com.coswald.jtalker.net.cluster.RelayStats;
+import com.coswald.jtalker.net.cluster.RoomLog;
+import com.coswald.jtalker.net.cluster.RoomReplicator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Links a {@link com.coswald.jtalker.net.TCPServer TCPServer} (a node) to
+ * other nodes, so that the clients of a room see every broadcast made within
+ * it, whichever node they are connected to. Every node listens for links on a
+ * port of its own, and only has to be told about one other node (a seed) to
+ * {@link #addPeer(String, int) link} to. It learns about the other nodes from
+ * its {@link com.coswald.jtalker.net.cluster.Membership Membership}, and
+ * links to each of them as well. Each link is a
+ * {@link com.coswald.jtalker.net.cluster.FederationLink FederationLink}.</p>
+ * <p>Every room has one owner: the node a
+ * {@link com.coswald.jtalker.net.cluster.ConsistentHashRing consistent hash}
+ * of its name falls to, out of every node that has not been found dead. The
+ * owner is the only node that puts the broadcasts of a room in order. A
+ * broadcast made on any other node is
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#FORWARD_COMMAND}ed
+ * to the owner, which appends it to the log it keeps of the room, sends it to
+ * its own clients within the room, and relays it to the nodes that have
+ * clients within the room (and only those). A node learns which nodes those
+ * are because each node
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#SUBSCRIBE_COMMAND}s
+ * to the owner of a room as soon as one of its clients enters it. Nothing is
+ * therefore sent to a node that has no use for a broadcast. Since a node's
+ * own clients only see its broadcasts once they come back from the owner,
+ * every client of a room sees its broadcasts in the same order.</p>
+ * <p>So that the owner of a room spread over many nodes does not have to
+ * write each broadcast out once for every one of them, relayed broadcasts
+ * travel down a tree. The owner splits the nodes to relay to into at most
+ * {@link #setFanout(int) fan-out} groups, and sends the broadcast only to the
+ * first node of each group, along with the rest of its group; that node does
+ * the same with its group, and so on. A room spread over {@code N} nodes is
+ * reached within about log<sub>fan-out</sub>{@code N} hops, and how long each
+ * hop takes is kept within the {@link #getRelayStats() relay statistics}. If
+ * a node is not linked to the first node of a group, the next node of the
+ * group takes its place.</p>
+ * <p>When a node joins or is found dead, only the rooms whose hashes fall
+ * between its virtual nodes change owners; every node then subscribes again
+ * to the owners of its rooms. A broadcast meant for an owner that has no link
+ * to us right now is put in order by this node instead, until the owner is
+ * linked again or found dead. The owner of a room only knows the log of the
+ * broadcasts it has put in order itself, unless the room is
+ * {@link #replicate(String) replicated}, in which case a node taking the room
+ * over carries on with the log of the owner before it. Broadcasts made to
+ * such a room are held back while the node taking it over fetches its
+ * log.</p>
+ * <p>Relayed broadcasts are tagged with the identifier of the owner, the time
+ * it started, and a sequence number. The tags keep a broadcast from ever
+ * being delivered twice, even if two nodes end up with more than one link
+ * between them: the tags of the last
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#SEEN_FRAMES}
+ * broadcasts delivered are remembered, so a second copy is dropped.</p>
+ * <p>Links to the seeds this node was told about are made again whenever they
+ * break, every
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#RECONNECT_MILLIS}
+ * milliseconds, until the federation is closed. Links to nodes learned about
+ * through gossip are made again the same way until those nodes are found
+ * dead; of each pair of such nodes, only the one whose identifier sorts first
+ * makes the link. Nodes can be tested on a
+ * single machine by giving each one its own ports on the loopback address (see
+ * {@link com.coswald.jtalker.net.test.FederationTest FederationTest}).</p>
+ * <p>Everything a federation knows about rooms is only used while holding the
+ * lock of its node's {@code ServerOutputStream}, the same lock its node's
+ * clients broadcast with.</p>
+ * @author C. William Oswald
+ * @version 0.0.8
+ * @since JTalker 0.3.0
+ */
+public class Federation implements Closeable, Initializable, RoomListener
+{
+  private static final String NO_NODES = "-";
+  
+  private String nodeId;
+  private int port;
+  private long epoch;
+  private AtomicLong sequence;
+  private ServerOutputStream local;
+  private Rooms rooms;
+  private ServerSocket server;
+  private List<InetSocketAddress> peers;
+  private List<FederationLink> links;
+  private LRUCache<String, Boolean> seen;
+  private ConsistentHashRing ring;
+  private Membership membership;
+  private RoomReplicator replicator;
+  private Set<String> dialing;
+  private Map<String, Set<String>> subscribers;
+  private Map<String, RoomLog> roomLogs;
+  private Map<String, List<String>> held;
+  private volatile int fanout;
+  private RelayStats relayStats;
+  private volatile boolean running;
+  
+  /**
+   * Constructs a federation for the node with the given identifier, which
+   * listens for links on the given port, and delivers broadcasts to the given
+   * rooms.
+   * @param nodeId The identifier of this node, which must be unique within
+   *  the federation.
+   * @param port The port to listen for links on.
+   * @param local The output of this node, whose lock guards its rooms.
+   * @param rooms The rooms of this node.
+   * @throws IllegalArgumentException If any parameter is {@code null}, or the
+   *  identifier is empty, is a dash, or holds a space or comma.
+   */
+  public Federation(String nodeId, int port, ServerOutputStream local,
+    Rooms rooms)
+  {
+    if(nodeId == null || local == null || rooms == null)
+    {
+      throw new IllegalArgumentException("No parameter can be null!");
+    }
+    if(nodeId.isEmpty() || nodeId.indexOf(' ') >= 0 ||
+      nodeId.indexOf(',') >= 0 || nodeId.equals(NO_NODES))
+    {
+      throw new IllegalArgumentException("A node identifier must not be " +
+        "empty, be a dash, or hold a space or comma!");
+    }
+    this.nodeId = nodeId;
+    this.port = port;
+    this.local = local;
+    this.rooms = rooms;
+    this.epoch = System.currentTimeMillis();
+    this.sequence = new AtomicLong();
+    this.peers = new CopyOnWriteArrayList<InetSocketAddress>();
+    this.links = new CopyOnWriteArrayList<FederationLink>();
+    this.seen = new LRUCache<String, Boolean>(ClusterConstants.SEEN_FRAMES);
+    this.ring = new ConsistentHashRing();
+    this.ring.add(nodeId);
+    this.subscribers = new HashMap<String, Set<String>>();
+    this.roomLogs = new HashMap<String, RoomLog>();
+    this.held = new HashMap<String, List<String>>();
+    this.membership = new Membership(this, port, this.epoch, local);
+    this.replicator = new RoomReplicator(this, this.ring, this.roomLogs,
+      local);
+    this.dialing = ConcurrentHashMap.newKeySet();
+    this.fanout = ClusterConstants.FANOUT;
+    this.relayStats = new RelayStats();
+    this.running = false;
+    synchronized(this.local)
+    {
+      this.rooms.setRoomListener(this);
+    }
+  }
+  
+  /**
+   * Starts listening for links, and starts linking to every peer this node
+   * has been told about.
+   */
+  @Override
+  public void init()
+  {
+    try
+    {
+      this.server = new ServerSocket(this.port);
+    }
+    catch(IOException i)
+    {
+      System.err.println("Could not listen for links on port " + this.port);
+      i.printStackTrace();
+      return;
+    }
+    this.running = true;
+    this.membership.start();
+    this.replicator.start();
+    this.start(this::accept, "JTalker Federation (" + this.nodeId + ")");
+    for(InetSocketAddress peer : this.peers)
+    {
+      this.start(() -> this.dial(peer), "JTalker Link to " + peer);
+    }
+  }
+  
+  /**
+   * Tells this node to link to the node listening on the given host and
+   * port, a seed through which it learns about the rest of the federation.
+   * If the federation is already running, the link is made right away.
+   * @param host The host of the other node.
+   * @param port The port the other node listens for links on.
+   */
+  public void addPeer(String host, int port)
+  {
+    InetSocketAddress peer = InetSocketAddress.createUnresolved(host, port);
+    this.peers.add(peer);
+    if(this.running)
+    {
+      this.start(() -> this.dial(peer), "JTalker Link to " + peer);
+    }
+  }
+  
+  /**
+   * Makes a broadcast within a room. If this node owns the room, the
+   * broadcast is put in order and delivered right away; otherwise, it is
+   * passed on to the owner, and delivered once the owner relays it back. This
+   * must be called while holding the lock of our node's
+   * {@code ServerOutputStream}, and never waits on another node.
+   * @param room The name of the room.
+   * @param line The broadcast.
+   * @throws IOException If the broadcast could not be delivered to our
+   *  clients.
+   */
+  public void publish(String room, String line) throws IOException
+  {
+    this.route(room, line, 0);
+  }
+  
+  /**
+   * Called when a client of our node enters a room none of our other clients
+   * are within; we subscribe to the owner of the room.
+   * @param room The name of the room.
+   */
+  @Override
+  public void roomOccupied(String room)
+  {
+    this.sendToOwner(room, new ControlFrame(
+      ClusterConstants.SUBSCRIBE_COMMAND, room));
+  }
+  
+  /**
+   * Called when the last client of our node within a room leaves it; we
+   * unsubscribe from the owner of the room.
+   * @param room The name of the room.
+   */
+  @Override
+  public void roomEmptied(String room)
+  {
+    this.sendToOwner(room, new ControlFrame(
+      ClusterConstants.UNSUBSCRIBE_COMMAND, room));
+  }
+  
+  /**
+   * Stops listening for links, and closes every link this node has.
+   * @throws IOException If the listening socket could not be closed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.running = false;
+    this.membership.close();
+    this.replicator.close();
+    for(FederationLink link : this.links)
+    {
+      link.close();
+    }
+    if(this.server != null)
+    {
+      this.server.close();
+    }
+  }
+  
+  /**
+   * Returns the node that owns a room, as far as this node knows.
+   * @param room The name of the room.
+   * @return The identifier of the owner.
+   */
+  public String getOwner(String room)
+  {
+    synchronized(this.local)
+    {
+      return this.ring.getOwner(room);
+    }
+  }
+  
+  /**
+   * Returns the log of a room this node has put broadcasts in order for. It
+   * only keeps the last of their lines.
+   * @param room The name of the room.
+   * @return The log, or {@code null} if this node has never owned the room
+   *  (nor taken it over from an owner that copied its log to us).
+   */
+  public RoomLog getRoomLog(String room)
+  {
+    synchronized(this.local)
+    {
+      return this.roomLogs.get(room);
+    }
+  }
+  
+  /**
+   * Returns the membership of this node, which knows which nodes make up the
+   * federation.
+   * @return The membership.
+   */
+  public Membership getMembership()
+  {
+    return this.membership;
+  }
+  
+  /**
+   * Marks a room as one whose log must outlive its owner, so it is copied to
+   * the nodes that would take the room over. Every node should mark the same
+   * rooms.
+   * @param room The name of the room.
+   * @see com.coswald.jtalker.net.cluster.RoomReplicator
+   */
+  public void replicate(String room)
+  {
+    this.replicator.replicate(room);
+  }
+  
+  /**
+   * Sets the most nodes this node sends a relayed broadcast to at once. The
+   * owner of a room sends each broadcast to at most this many nodes, each of
+   * which passes it on to at most this many more, and so on, so no node has
+   * to write a broadcast out more than this many times.
+   * @param fanout The fan-out of the tree.
+   * @throws IllegalArgumentException If the fan-out is less than one.
+   */
+  public void setFanout(int fanout)
+  {
+    if(fanout < 1)
+    {
+      throw new IllegalArgumentException("The fan-out must be at least 1!");
+    }
+    this.fanout = fanout;
+  }
+  
+  /**
+   * Returns the most nodes this node sends a relayed broadcast to at once.
+   * @return The fan-out of the tree.
+   */
+  public int getFanout()
+  {
+    return this.fanout;
+  }
+  
+  /**
+   * Returns how long relayed broadcasts took to reach this node, by how deep
+   * within the fan-out tree it was.
+   * @return The statistics.
+   */
+  public RelayStats getRelayStats()
+  {
+    return this.relayStats;
+  }
+  
+  /**
+   * Returns the replicator of this node, which copies the logs of rooms to
+   * other nodes.
+   * @return The replicator.
+   */
+  public RoomReplicator getReplicator()
+  {
+    return this.replicator;
+  }
+  
+  /**
+   * Returns the identifier of this node.
+   * @return The identifier.
+   */
+  public String getNodeId()
+  {
+    return this.nodeId;
+  }
+  
+  /**
+   * Returns the port this node listens for links on.
+   * @return The port.
+   */
+  public int getPort()
+  {
+    return this.port;
+  }
+  
+  /**
+   * Returns the identifiers of the nodes this node is linked to right now.
+   * @return The identifiers of the linked nodes.
+   */
+  public List<String> getLinkedNodes()
+  {
+    List<String> nodes = new ArrayList<String>();
+    for(FederationLink link : this.links)
+    {
+      nodes.add(link.getPeerId());
+    }
+    return nodes;
+  }
+  
+  /**
+   * Returns whether the federation is running.
+   * @return {@code true} if we are listening for links.
+   */
+  public boolean isRunning()
+  {
+    return this.running;
+  }
+  
+  /*
+   * Called by a link once both nodes have introduced themselves. We tell the
+   * other node about every node we know of, and subscribe to the rooms it
+   * owns, since it forgot about us if the link had broken before.
+   */
+  void linked(FederationLink link)
+  {
+    synchronized(this.local)
+    {
+      this.links.add(link);
+      link.send(this.membership.getMembersFrame().toString());
+      for(String room : this.rooms.getOccupiedRooms())
+      {
+        if(this.ring.getOwner(room).equals(link.getPeerId()))
+        {
+          this.roomOccupied(room);
+        }
+      }
+    }
+  }
+  
+  /*
+   * Called by a link once it has closed. If it was our last link to that
+   * node, the node is suspected of having failed; its rooms only move once
+   * it is found dead.
+   */
+  void unlinked(FederationLink link)
+  {
+    synchronized(this.local)
+    {
+      if(!this.links.remove(link) || this.getLink(link.getPeerId()) != null)
+      {
+        return;
+      }
+      for(Set<String> nodes : this.subscribers.values())
+      {
+        nodes.remove(link.getPeerId());
+      }
+      if(this.running)
+      {
+        this.membership.suspect(link.getPeerId());
+      }
+    }
+  }
+  
+  /*
+   * Called by our membership when a node joins (or comes back). It may now own
+   * some of our rooms, and we link to it if it is up to us. Must hold the lock
+   * of our output.
+   */
+  void memberUp(Member member)
+  {
+    if(this.ring.add(member.getId()))
+    {
+      this.ownersChanged();
+    }
+    if(this.running && this.nodeId.compareTo(member.getId()) < 0 &&
+      member.getHost() != null && this.dialing.add(member.getId()))
+    {
+      this.start(() -> this.dial(member), "JTalker Link to " +
+        member.getId());
+    }
+  }
+  
+  /*
+   * Called by our membership when a node is found dead. The rooms it owned
+   * move to other nodes, and any link we still have to it is closed. Must
+   * hold the lock of our output.
+   */
+  void memberDown(String node)
+  {
+    for(FederationLink link : this.links)
+    {
+      if(node.equals(link.getPeerId()))
+      {
+        link.close();
+      }
+    }
+    for(Set<String> nodes : this.subscribers.values())
+    {
+      nodes.remove(node);
+    }
+    if(this.ring.remove(node))
+    {
+      this.ownersChanged();
+    }
+  }
+  
+  /*
+   * Sends a frame to a node we are linked to. Must hold the lock of our
+   * output.
+   */
+  boolean send(String node, String frame)
+  {
+    FederationLink link = this.getLink(node);
+    return link != null && link.send(frame);
+  }
+  
+  /*
+   * Called by a link for every frame it hears.
+   */
+  void receive(FederationLink link, ControlFrame frame)
+  {
+    synchronized(this.local)
+    {
+      try
+      {
+        if(frame.is(ClusterConstants.PING_COMMAND) ||
+          frame.is(ClusterConstants.ACK_COMMAND) ||
+          frame.is(ClusterConstants.PING_REQUEST_COMMAND) ||
+          frame.is(ClusterConstants.MEMBERS_COMMAND))
+        {
+          this.membership.receive(link, frame);
+        }
+        else if((frame.is(ClusterConstants.LOG_COMMAND) ||
+          frame.is(ClusterConstants.LOG_ACK_COMMAND) ||
+          frame.is(ClusterConstants.LOG_NACK_COMMAND) ||
+          frame.is(ClusterConstants.LOG_FETCH_COMMAND) ||
+          frame.is(ClusterConstants.LOG_HAVE_COMMAND) ||
+          frame.is(ClusterConstants.LOG_PULL_COMMAND)) &&
+          frame.getArgumentCount() > 0)
+        {
+          this.replicator.receive(link, frame);
+        }
+        else if(frame.is(ClusterConstants.RELAY_COMMAND) &&
+          frame.getArgumentCount() == 8)
+        {
+          this.deliver(frame);
+        }
+        else if(frame.is(ClusterConstants.FORWARD_COMMAND) &&
+          frame.getArgumentCount() == 2)
+        {
+          //whoever sends a broadcast to a room has a client within it
+          this.subscribe(frame.getArgument(0), link.getPeerId());
+          this.route(frame.getArgument(0), frame.getBody(),
+            (int)frame.getLongArgument(1) + 1);
+        }
+        else if(frame.is(ClusterConstants.SUBSCRIBE_COMMAND) &&
+          frame.getArgumentCount() == 1)
+        {
+          this.subscribe(frame.getArgument(0), link.getPeerId());
+        }
+        else if(frame.is(ClusterConstants.UNSUBSCRIBE_COMMAND) &&
+          frame.getArgumentCount() == 1)
+        {
+          Set<String> nodes = this.subscribers.get(frame.getArgument(0));
+          if(nodes != null)
+          {
+            nodes.remove(link.getPeerId());
+          }
+        }
+      }
+      catch(NumberFormatException nfe)
+      {
+        //Do NOTHING
+      }
+      catch(IOException i)
+      {
+        //a client of ours is leaving; that is no reason to drop the link
+      }
+    }
+  }
+  
+  /*
+   * Puts a broadcast in order if we own its room (or it has been passed on
+   * too many times), and passes it on to the owner otherwise. A broadcast to
+   * a room whose log we are still fetching is held back until we are done.
+   * Must hold the lock of our output.
+   */
+  private void route(String room, String line, int forwards)
+    throws IOException
+  {
+    String owner = this.ring.getOwner(room);
+    if(!owner.equals(this.nodeId) && forwards < ClusterConstants.MAX_FORWARDS)
+    {
+      FederationLink link = this.getLink(owner);
+      if(link != null && link.send((new ControlFrame(
+        ClusterConstants.FORWARD_COMMAND, new String[] {room,
+        Integer.toString(forwards)}, line)).toString()))
+      {
+        return;
+      }
+    }
+    if(owner.equals(this.nodeId) && this.replicator.isFetching(room))
+    {
+      List<String> lines = this.held.get(room);
+      if(lines == null)
+      {
+        lines = new ArrayList<String>();
+        this.held.put(room, lines);
+      }
+      lines.add(line);
+      return;
+    }
+    
+    RoomLog log = this.roomLogs.get(room);
+    if(log == null)
+    {
+      log = new RoomLog();
+      this.roomLogs.put(room, log);
+    }
+    long index = log.append(line);
+    Set<String> nodes = this.subscribers.get(room);
+    if(nodes != null && !nodes.isEmpty())
+    {
+      this.fanOut(new String[] {this.nodeId, Long.toString(this.epoch),
+        Long.toString(this.sequence.getAndIncrement()), room,
+        Long.toString(index)}, 1, new ArrayList<String>(new TreeSet<String>(
+        nodes)), line);
+    }
+    this.rooms.deliver(room, line);
+  }
+  
+  /*
+   * Sends a relayed broadcast down the fan-out tree: the nodes given are split
+   * into at most fanout even groups, and the first node of each group we are
+   * linked to is sent the broadcast, along with the rest of its group to pass
+   * it on to. Must hold the lock of our output.
+   */
+  private void fanOut(String[] tag, int depth, List<String> nodes,
+    String line)
+  {
+    int groups = Math.min(this.fanout, nodes.size());
+    String sent = Long.toString(System.currentTimeMillis());
+    int start = 0;
+    for(int group = 0; group < groups; group++)
+    {
+      int end = start + (nodes.size() - start) / (groups - group);
+      for(int child = start; child < end; child++)
+      {
+        FederationLink link = this.getLink(nodes.get(child));
+        if(link != null)
+        {
+          List<String> subtree = nodes.subList(child + 1, end);
+          link.send((new ControlFrame(ClusterConstants.RELAY_COMMAND,
+            new String[] {tag[0], tag[1], tag[2], tag[3], tag[4],
+            Integer.toString(depth), sent, subtree.isEmpty() ? NO_NODES :
+            String.join(",", subtree)}, line)).toString());
+          break;
+        }
+      }
+      start = end;
+    }
+  }
+  
+  /*
+   * Delivers a broadcast relayed down the fan-out tree of its room to our
+   * clients, after passing it on to the nodes below us, unless it has
+   * already been delivered. Must hold the lock of our output.
+   */
+  private void deliver(ControlFrame frame) throws IOException
+  {
+    if(frame.getArgument(0).equals(this.nodeId))
+    {
+      return;
+    }
+    String tag = frame.getArgument(0) + ' ' + frame.getArgument(1) + ' ' +
+      frame.getArgument(2);
+    if(this.seen.put(tag, Boolean.TRUE) != null)
+    {
+      return;
+    }
+    int depth = (int)frame.getLongArgument(5);
+    this.relayStats.received(depth, System.currentTimeMillis() -
+      frame.getLongArgument(6));
+    if(!frame.getArgument(7).equals(NO_NODES))
+    {
+      this.fanOut(new String[] {frame.getArgument(0), frame.getArgument(1),
+        frame.getArgument(2), frame.getArgument(3), frame.getArgument(4)},
+        depth + 1, Arrays.asList(frame.getArgument(7).split(",")),
+        frame.getBody());
+    }
+    this.rooms.deliver(frame.getArgument(3), frame.getBody());
+  }
+  
+  /*
+   * Notes that a node has clients within a room. Must hold the lock of our
+   * output.
+   */
+  private void subscribe(String room, String node)
+  {
+    Set<String> nodes = this.subscribers.get(room);
+    if(nodes == null)
+    {
+      nodes = new HashSet<String>();
+      this.subscribers.put(room, nodes);
+    }
+    nodes.add(node);
+  }
+  
+  /*
+   * Sends a frame to the owner of a room, unless that is us. Must hold the
+   * lock of our output.
+   */
+  private void sendToOwner(String room, ControlFrame frame)
+  {
+    String owner = this.ring.getOwner(room);
+    FederationLink link = owner.equals(this.nodeId) ? null :
+      this.getLink(owner);
+    if(link != null)
+    {
+      link.send(frame.toString());
+    }
+  }
+  
+  /*
+   * Called by the replicator once it is done fetching the log of a room (or
+   * has given up on it), so the broadcasts held back in the meantime are put
+   * in order. Must hold the lock of our output.
+   */
+  void fetched(String room)
+  {
+    List<String> lines = this.held.remove(room);
+    if(lines == null)
+    {
+      return;
+    }
+    for(String line : lines)
+    {
+      try
+      {
+        this.route(room, line, 0);
+      }
+      catch(IOException i)
+      {
+        //a client of ours is leaving; the others still get the broadcast
+      }
+    }
+  }
+  
+  /*
+   * Called whenever a node is linked or unlinked. We forget who subscribed to
+   * rooms we no longer own, and subscribe to the owners of our own rooms
+   * again. Must hold the lock of our output.
+   */
+  private void ownersChanged()
+  {
+    Iterator<String> owned = this.subscribers.keySet().iterator();
+    while(owned.hasNext())
+    {
+      if(!this.ring.getOwner(owned.next()).equals(this.nodeId))
+      {
+        owned.remove();
+      }
+    }
+    for(String room : this.rooms.getOccupiedRooms())
+    {
+      this.roomOccupied(room);
+    }
+    this.replicator.ownersChanged();
+  }
+  
+  private FederationLink getLink(String node)
+  {
+    for(FederationLink link : this.links)
+    {
+      if(link.isOpen() && node.equals(link.getPeerId()))
+      {
+        return link;
+      }
+    }
+    return null;
+  }
+  
+  /*
+   * Accepts links from other nodes until we are closed.
+   */
+  private void accept()
+  {
+    while(this.running)
+    {
+      try
+      {
+        Socket socket = this.server.accept();
+        this.start(new FederationLink(socket, this),
+          "JTalker Link from " + socket.getRemoteSocketAddress());
+      }
+      catch(IOException i)
+      {
+        //we have been closed
+      }
+    }
+  }
+  
+  /*
+   * Keeps a link to a seed until we are closed, making it again whenever it
+   * breaks.
+   */
+  private void dial(InetSocketAddress peer)
+  {
+    while(this.running)
+    {
+      try
+      {
+        (new FederationLink(new Socket(peer.getHostString(), peer.getPort()),
+          this)).run();
+      }
+      catch(IOException i)
+      {
+        //they aren't up yet
+      }
+      try
+      {
+        Thread.sleep(ClusterConstants.RECONNECT_MILLIS);
+      }
+      catch(InterruptedException ie)
+      {
+        return;
+      }
+    }
+  }
+  
+  /*
+   * Keeps a link to a node learned about through gossip until we are closed
+   * or it is found dead, making it again whenever it breaks.
+   */
+  private void dial(Member member)
+  {
+    try
+    {
+      while(this.running && this.membership.isLive(member.getId()))
+      {
+        if(this.getLink(member.getId()) == null)
+        {
+          try
+          {
+            (new FederationLink(new Socket(member.getHost(),
+              member.getPort()), this)).run();
+          }
+          catch(IOException i)
+          {
+            //they may not be dead yet, but they aren't answering
+          }
+        }
+        Thread.sleep(ClusterConstants.RECONNECT_MILLIS);
+      }
+    }
+    catch(InterruptedException ie)
+    {
+      //Do NOTHING
+    }
+    finally
+    {
+      this.dialing.remove(member.getId());
+    }
+  }
+  
+  private void start(Runnable runnable, String name)
+  {
+    Thread t = new Thread(runnable, name);
+    t.setDaemon(true);
+    t.start();
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * FederationLink.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.cluster;
+
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.cluster.ClusterConstants;
+import com.coswald.jtalker.net.cluster.Federation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <p>One link between two nodes of a
+ * {@link com.coswald.jtalker.net.cluster.Federation Federation}. Both ends
+ * first tell each other who they are with a
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#PEER_COMMAND}
+ * frame, and from then on, each end sends the other the broadcasts and
+ * membership frames meant for it. Everything the link hears is handed to its
+ * federation.</p>
+ * <p>Frames are not written by whoever sends them; they are put into a
+ * queue, and a thread of the link's own writes them out. A node that is slow
+ * to read therefore never holds up the clients of another node. If the queue
+ * fills up anyway, the link is closed.</p>
+ * <p>The {@link #run() run} method reads from the link until it is closed,
+ * and should be given a thread of its own.</p>
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ */
+public class FederationLink implements Closeable, Runnable
+{
+  private Socket socket;
+  private Federation federation;
+  private BlockingQueue<String> queue;
+  private Thread writer;
+  private volatile String peerId;
+  private volatile boolean open;
+  
+  /**
+   * Constructs a link over the given socket, for the given federation.
+   * @param socket The socket connected to the other node.
+   * @param federation The federation of this node.
+   */
+  public FederationLink(Socket socket, Federation federation)
+  {
+    this.socket = socket;
+    this.federation = federation;
+    this.queue = new ArrayBlockingQueue<String>(
+      ClusterConstants.LINK_QUEUE_FRAMES);
+    this.open = true;
+  }
+  
+  /**
+   * Introduces this node to the other one, and then reads every frame the
+   * other node sends until the link is closed. A link to a node that turns out
+   * to be this one is closed right away.
+   */
+  @Override
+  public void run()
+  {
+    try
+    {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(
+        this.socket.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        this.socket.getOutputStream()));
+      out.writeUTF((new ControlFrame(ClusterConstants.PEER_COMMAND,
+        this.federation.getNodeId())).toString());
+      out.flush();
+      
+      String line = in.readUTF();
+      ControlFrame hello = ControlFrame.isControlFrame(line) ?
+        ControlFrame.parse(line) : null;
+      if(hello == null || !hello.is(ClusterConstants.PEER_COMMAND) ||
+        hello.getArgumentCount() != 1 ||
+        hello.getArgument(0).equals(this.federation.getNodeId()))
+      {
+        return;
+      }
+      this.peerId = hello.getArgument(0);
+      
+      this.writer = new Thread(() -> this.write(out),
+        "JTalker Link Writer (" + this.peerId + ")");
+      this.writer.setDaemon(true);
+      this.writer.start();
+      this.federation.linked(this);
+      while(this.open)
+      {
+        line = in.readUTF();
+        if(ControlFrame.isControlFrame(line))
+        {
+          this.federation.receive(this, ControlFrame.parse(line));
+        }
+      }
+    }
+    catch(IOException i)
+    {
+      //the other node has gone away
+    }
+    finally
+    {
+      this.close();
+      this.federation.unlinked(this);
+    }
+  }
+  
+  /**
+   * Queues a frame to be sent to the other node. If the queue is full, the
+   * other node has fallen too far behind, and the link is closed.
+   * @param frame The frame to send.
+   * @return {@code true} if the frame was queued.
+   */
+  public boolean send(String frame)
+  {
+    if(!this.open || this.peerId == null)
+    {
+      return false;
+    }
+    if(!this.queue.offer(frame))
+    {
+      System.err.println("Link to " + this.peerId + " fell behind; closing.");
+      this.close();
+      return false;
+    }
+    return true;
+  }
+  
+  /**
+   * Closes the link. Frames that have not been sent yet are dropped.
+   */
+  @Override
+  public void close()
+  {
+    this.open = false;
+    if(this.writer != null)
+    {
+      this.writer.interrupt();
+    }
+    try
+    {
+      this.socket.close();
+    }
+    catch(IOException i)
+    {
+      //Do NOTHING
+    }
+  }
+  
+  /**
+   * Returns the identifier of the node at the other end of this link.
+   * @return The identifier, or {@code null} if the nodes have not introduced
+   *  themselves yet.
+   */
+  public String getPeerId()
+  {
+    return this.peerId;
+  }
+  
+  /**
+   * Returns the address of the node at the other end of this link.
+   * @return The address, as text.
+   */
+  public String getPeerHost()
+  {
+    return this.socket.getInetAddress().getHostAddress();
+  }
+  
+  /**
+   * Returns whether the link is open.
+   * @return {@code true} if the link is open.
+   */
+  public boolean isOpen()
+  {
+    return this.open;
+  }
+  
+  /*
+   * Writes queued frames until the link is closed. The stream is only flushed
+   * once the queue is empty, so a burst of frames goes out in as few writes
+   * as possible.
+   */
+  private void write(DataOutputStream out)
+  {
+    try
+    {
+      while(this.open)
+      {
+        String frame = this.queue.take();
+        do
+        {
+          try
+          {
+            out.writeUTF(frame);
+          }
+          catch(UTFDataFormatException u)
+          {
+            System.err.println("Frame too long to relay to " + this.peerId);
+          }
+        } while((frame = this.queue.poll()) != null);
+        out.flush();
+      }
+    }
+    catch(InterruptedException | IOException e)
+    {
+      this.close();
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Member.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.cluster;
+
+/**
+ * <p>What one node of a {@link com.coswald.jtalker.net.cluster.Federation
+ * Federation} knows about another (or about itself): where it listens for
+ * links, what state it is believed to be in, and its incarnation. A node is
+ * either {@link #ALIVE alive}, {@link #SUSPECT suspected} of having failed, or
+ * {@link #DEAD dead}.</p>
+ * <p>The incarnation of a node is a number only that node ever raises. When a
+ * node hears that it is suspected, it raises its incarnation and tells every
+ * other node it is alive; news about a node with a higher incarnation always
+ * wins over news with a lower one, so this is how a suspicion is taken back.
+ * Between two pieces of news with the same incarnation, the worse state wins.
+ * </p>
+ * <p>A member is written out as one line (see {@link #toString()}), which is
+ * how it is gossiped between nodes.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class Member
+{
+  /**
+   * The state of a node that answers when it is probed.
+   */
+  public static final int ALIVE = 0;
+  
+  /**
+   * The state of a node that failed to answer a probe, but has not been
+   * suspected long enough to be declared dead.
+   */
+  public static final int SUSPECT = 1;
+  
+  /**
+   * The state of a node that has been suspected for too long, or that has
+   * left the federation.
+   */
+  public static final int DEAD = 2;
+  
+  private static final String[] STATE_NAMES = {"ALIVE", "SUSPECT", "DEAD"};
+  
+  /**
+   * What is written instead of a host when the host is not known. A node
+   * does not know which address the others reach it by, so this is written
+   * for a node's own host, and the node hearing it uses the address of the
+   * link it heard it over.
+   */
+  public static final String UNKNOWN_HOST = "-";
+  
+  private String id;
+  private String host;
+  private int port;
+  private long incarnation;
+  private int state;
+  private long changed;
+  
+  /**
+   * Constructs a member with the given identifier, address, incarnation and
+   * state.
+   * @param id The identifier of the node.
+   * @param host The host the node listens for links on, or {@code null} if
+   *  it is not known.
+   * @param port The port the node listens for links on.
+   * @param incarnation The incarnation of the node.
+   * @param state The state of the node.
+   * @throws IllegalArgumentException If the identifier is {@code null}, or
+   *  the state is not one of {@link #ALIVE}, {@link #SUSPECT} or
+   *  {@link #DEAD}.
+   */
+  public Member(String id, String host, int port, long incarnation, int state)
+  {
+    if(id == null)
+    {
+      throw new IllegalArgumentException("A member needs an identifier!");
+    }
+    if(state < ALIVE || state > DEAD)
+    {
+      throw new IllegalArgumentException("Unknown state " + state);
+    }
+    this.id = id;
+    this.host = host;
+    this.port = port;
+    this.incarnation = incarnation;
+    this.state = state;
+    this.changed = System.currentTimeMillis();
+  }
+  
+  /**
+   * Reads a member from the line it was written out as.
+   * @param line The line.
+   * @return The member, or {@code null} if the line does not hold one.
+   */
+  public static Member parse(String line)
+  {
+    String[] words = line.split(" ");
+    if(words.length != 5)
+    {
+      return null;
+    }
+    int state = -1;
+    for(int i = 0; i < STATE_NAMES.length; i++)
+    {
+      if(STATE_NAMES[i].equals(words[1]))
+      {
+        state = i;
+      }
+    }
+    try
+    {
+      return (state < 0) ? null : new Member(words[0],
+        UNKNOWN_HOST.equals(words[3]) ? null : words[3],
+        Integer.parseInt(words[4]), Long.parseLong(words[2]), state);
+    }
+    catch(NumberFormatException nfe)
+    {
+      return null;
+    }
+  }
+  
+  /**
+   * Returns whether this news about a node should replace the given news
+   * about the same node. Higher incarnations win; for the same incarnation,
+   * the worse state wins.
+   * @param other What was known before, or {@code null} if nothing was.
+   * @return {@code true} if this news is newer.
+   */
+  public boolean overrides(Member other)
+  {
+    if(other == null || this.incarnation > other.incarnation)
+    {
+      return true;
+    }
+    return this.incarnation == other.incarnation && this.state > other.state;
+  }
+  
+  /**
+   * Returns the identifier of the node.
+   * @return The identifier.
+   */
+  public String getId()
+  {
+    return this.id;
+  }
+  
+  /**
+   * Returns the host the node listens for links on.
+   * @return The host, or {@code null} if it is not known.
+   */
+  public String getHost()
+  {
+    return this.host;
+  }
+  
+  /**
+   * Sets the host the node listens for links on.
+   * @param host The host.
+   */
+  public void setHost(String host)
+  {
+    this.host = host;
+  }
+  
+  /**
+   * Returns the port the node listens for links on.
+   * @return The port.
+   */
+  public int getPort()
+  {
+    return this.port;
+  }
+  
+  /**
+   * Returns the incarnation of the node.
+   * @return The incarnation.
+   */
+  public long getIncarnation()
+  {
+    return this.incarnation;
+  }
+  
+  /**
+   * Returns the state of the node.
+   * @return {@link #ALIVE}, {@link #SUSPECT} or {@link #DEAD}.
+   */
+  public int getState()
+  {
+    return this.state;
+  }
+  
+  /**
+   * Returns whether the node is {@link #ALIVE alive} or only
+   * {@link #SUSPECT suspected}; a suspected node still owns its rooms.
+   * @return {@code true} if the node is not dead.
+   */
+  public boolean isLive()
+  {
+    return this.state != DEAD;
+  }
+  
+  /**
+   * Returns when this news was made, in milliseconds since the epoch.
+   * @return When this news was made.
+   */
+  public long getChanged()
+  {
+    return this.changed;
+  }
+  
+  /**
+   * Returns this member as one line: the identifier, the state, the
+   * incarnation, the host (or {@value #UNKNOWN_HOST}), and the port, each
+   * separated by a space.
+   * @return The line.
+   */
+  @Override
+  public String toString()
+  {
+    return this.id + ' ' + STATE_NAMES[this.state] + ' ' + this.incarnation +
+      ' ' + ((this.host == null) ? UNKNOWN_HOST : this.host) + ' ' + this.port;
+  }
+}
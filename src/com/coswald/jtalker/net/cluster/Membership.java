@@ -0,0 +1,451 @@
+/*
+ * Membership.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.cluster;
+
+import com.coswald.jtalker.LRUCache;
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.cluster.ClusterConstants;
+import com.coswald.jtalker.net.cluster.Federation;
+import com.coswald.jtalker.net.cluster.FederationLink;
+import com.coswald.jtalker.net.cluster.Member;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Keeps track of which nodes make up a
+ * {@link com.coswald.jtalker.net.cluster.Federation Federation}, and notices
+ * when one of them fails. Nodes only have to be told about one other node
+ * (a seed) to join; they learn about the rest through gossip. This is the
+ * SWIM protocol, carried over the links nodes already have to each
+ * other.</p>
+ * <p>Every
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#PROBE_MILLIS}
+ * milliseconds, a node probes the next node on a shuffled list of the others
+ * with a {@value com.coswald.jtalker.net.cluster.ClusterConstants#PING_COMMAND}
+ * frame. If no
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#ACK_COMMAND}
+ * comes back within
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#PING_TIMEOUT_MILLIS}
+ * milliseconds, it asks
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#INDIRECT_PROBES}
+ * other nodes to probe it instead, with a
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#PING_REQUEST_COMMAND}
+ * frame. If none of them hear from it before the next probe is due, the node
+ * is {@link com.coswald.jtalker.net.cluster.Member#SUSPECT suspected}. A node
+ * is also suspected as soon as the last link to it breaks. A suspected node
+ * that does not take the suspicion back (see
+ * {@link com.coswald.jtalker.net.cluster.Member Member}) within the
+ * suspicion timeout is declared
+ * {@link com.coswald.jtalker.net.cluster.Member#DEAD dead}. The timeout is
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#SUSPICION_MULTIPLIER}
+ * probe periods, times the base ten logarithm of the amount of nodes when
+ * there are more than ten; with the defaults, a failed node is declared dead
+ * within about five seconds.</p>
+ * <p>News about nodes (who joined, who is suspected, who is dead) is not sent
+ * on its own. At most
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#MAX_PIGGYBACK}
+ * pieces of news are added to the body of every probe and answer, the least
+ * sent first, and each piece is sent
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#RETRANSMIT_MULTIPLIER}
+ * times the base two logarithm of the amount of nodes before it is dropped.
+ * Each node therefore sends a fixed amount of frames every period, and news
+ * reaches every node after a logarithmic amount of periods. The only time a
+ * node sends everything it knows is when a new link is made, so that a node
+ * that has just joined learns about the others right away.</p>
+ * <p>Every node that is not dead is on the ring that decides who owns each
+ * room, so room ownership follows the failures this notices. Everything a
+ * membership knows is only used while holding the lock of its node's
+ * {@code ServerOutputStream}, just like the rest of the federation.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class Membership implements Closeable
+{
+  private Federation federation;
+  private Object lock;
+  private Member self;
+  private Map<String, Member> members;
+  private Map<String, Integer> news;
+  private List<String> probeOrder;
+  private int probeIndex;
+  private String probeTarget;
+  private long probeSequence;
+  private boolean probeAnswered;
+  private long sequence;
+  private LRUCache<Long, String[]> proxied;
+  private Random random;
+  private ScheduledExecutorService prober;
+  
+  /**
+   * Constructs the membership of the given federation. The node starts out
+   * knowing only about itself.
+   * @param federation The federation of this node.
+   * @param port The port this node listens for links on.
+   * @param incarnation The first incarnation of this node. This should be
+   *  higher every time the node starts, so news of its last run is ignored.
+   * @param lock The lock guarding the federation.
+   */
+  public Membership(Federation federation, int port, long incarnation,
+    Object lock)
+  {
+    this.federation = federation;
+    this.lock = lock;
+    this.self = new Member(federation.getNodeId(), null, port, incarnation,
+      Member.ALIVE);
+    this.members = new HashMap<String, Member>();
+    this.news = new LinkedHashMap<String, Integer>();
+    this.probeOrder = new ArrayList<String>();
+    this.probeIndex = 0;
+    this.probeTarget = null;
+    this.sequence = 0L;
+    this.proxied = new LRUCache<Long, String[]>(
+      ClusterConstants.PROXIED_PROBES);
+    this.random = new Random();
+    this.prober = Executors.newSingleThreadScheduledExecutor(r ->
+    {
+      Thread t = new Thread(r, "JTalker Membership (" + this.self.getId() +
+        ")");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+  
+  /**
+   * Starts probing the other nodes.
+   */
+  public void start()
+  {
+    this.prober.scheduleWithFixedDelay(() ->
+    {
+      synchronized(this.lock)
+      {
+        this.probe();
+      }
+    }, ClusterConstants.PROBE_MILLIS, ClusterConstants.PROBE_MILLIS,
+      TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * Stops probing the other nodes.
+   */
+  @Override
+  public void close()
+  {
+    this.prober.shutdownNow();
+  }
+  
+  /**
+   * Returns what this node knows about every node, including itself.
+   * @return The members, this node first.
+   */
+  public List<Member> getMembers()
+  {
+    synchronized(this.lock)
+    {
+      List<Member> all = new ArrayList<Member>();
+      all.add(this.self);
+      all.addAll(this.members.values());
+      return all;
+    }
+  }
+  
+  /**
+   * Returns whether a node is believed to be alive or only suspected.
+   * @param id The identifier of the node.
+   * @return {@code true} if the node is not dead, and is not this node.
+   */
+  public boolean isLive(String id)
+  {
+    synchronized(this.lock)
+    {
+      Member member = this.members.get(id);
+      return member != null && member.isLive();
+    }
+  }
+  
+  /**
+   * Returns what this node knows about every node as the body of a
+   * {@value com.coswald.jtalker.net.cluster.ClusterConstants#MEMBERS_COMMAND}
+   * frame. Must hold the lock of the federation.
+   * @return The frame.
+   */
+  ControlFrame getMembersFrame()
+  {
+    StringBuilder sb = new StringBuilder(this.self.toString());
+    for(Member member : this.members.values())
+    {
+      sb.append('\n').append(member);
+    }
+    return new ControlFrame(ClusterConstants.MEMBERS_COMMAND, new String[0],
+      sb.toString());
+  }
+  
+  /*
+   * Suspects a node, unless it has already been suspected. Must hold the lock
+   * of the federation.
+   */
+  void suspect(String id)
+  {
+    Member member = this.members.get(id);
+    if(member != null && member.getState() == Member.ALIVE)
+    {
+      this.learn(new Member(id, member.getHost(), member.getPort(),
+        member.getIncarnation(), Member.SUSPECT));
+    }
+  }
+  
+  /*
+   * Handles a membership frame heard over a link. Must hold the lock of the
+   * federation.
+   */
+  void receive(FederationLink link, ControlFrame frame)
+  {
+    for(String line : frame.getBody().split("\n"))
+    {
+      Member member = Member.parse(line);
+      if(member != null)
+      {
+        if(member.getHost() == null && member.getId().equals(link.getPeerId()))
+        {
+          member.setHost(link.getPeerHost());
+        }
+        this.merge(member);
+      }
+    }
+    
+    if(frame.is(ClusterConstants.PING_COMMAND) &&
+      frame.getArgumentCount() == 1)
+    {
+      link.send(this.frame(ClusterConstants.ACK_COMMAND, this.self.getId(),
+        frame.getArgument(0)));
+    }
+    else if(frame.is(ClusterConstants.PING_REQUEST_COMMAND) &&
+      frame.getArgumentCount() == 2)
+    {
+      long seq = this.sequence++;
+      if(this.federation.send(frame.getArgument(1), this.frame(
+        ClusterConstants.PING_COMMAND, Long.toString(seq))))
+      {
+        this.proxied.put(seq, new String[] {link.getPeerId(),
+          frame.getArgument(0)});
+      }
+    }
+    else if(frame.is(ClusterConstants.ACK_COMMAND) &&
+      frame.getArgumentCount() == 2)
+    {
+      long seq = frame.getLongArgument(1);
+      String[] requester = this.proxied.remove(seq);
+      if(requester != null)
+      {
+        this.federation.send(requester[0], this.frame(
+          ClusterConstants.ACK_COMMAND, frame.getArgument(0), requester[1]));
+      }
+      else if(seq == this.probeSequence &&
+        frame.getArgument(0).equals(this.probeTarget))
+      {
+        this.probeAnswered = true;
+      }
+    }
+  }
+  
+  /*
+   * Runs once every probe period: suspects the node probed last if it never
+   * answered, declares nodes suspected for too long dead, and probes the next
+   * node. Must hold the lock of the federation.
+   */
+  private void probe()
+  {
+    if(this.probeTarget != null && !this.probeAnswered)
+    {
+      this.suspect(this.probeTarget);
+    }
+    this.probeTarget = null;
+    
+    long timeout = (long)(ClusterConstants.SUSPICION_MULTIPLIER *
+      Math.max(1.0, Math.log10(this.members.size() + 1)) *
+      ClusterConstants.PROBE_MILLIS);
+    long now = System.currentTimeMillis();
+    for(Member member : new ArrayList<Member>(this.members.values()))
+    {
+      if(member.getState() == Member.SUSPECT &&
+        now - member.getChanged() >= timeout)
+      {
+        this.learn(new Member(member.getId(), member.getHost(),
+          member.getPort(), member.getIncarnation(), Member.DEAD));
+      }
+    }
+    
+    if(this.probeOrder.isEmpty())
+    {
+      return;
+    }
+    if(this.probeIndex >= this.probeOrder.size())
+    {
+      Collections.shuffle(this.probeOrder, this.random);
+      this.probeIndex = 0;
+    }
+    this.probeTarget = this.probeOrder.get(this.probeIndex++);
+    this.probeSequence = this.sequence++;
+    this.probeAnswered = false;
+    this.federation.send(this.probeTarget, this.frame(
+      ClusterConstants.PING_COMMAND, Long.toString(this.probeSequence)));
+    
+    String target = this.probeTarget;
+    long seq = this.probeSequence;
+    this.prober.schedule(() ->
+    {
+      synchronized(this.lock)
+      {
+        if(seq == this.probeSequence && !this.probeAnswered)
+        {
+          this.probeIndirectly(target, seq);
+        }
+      }
+    }, ClusterConstants.PING_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
+  
+  /*
+   * Asks a few other nodes to probe a node that has not answered us. Must hold
+   * the lock of the federation.
+   */
+  private void probeIndirectly(String target, long seq)
+  {
+    List<String> helpers = new ArrayList<String>(this.probeOrder);
+    helpers.remove(target);
+    Collections.shuffle(helpers, this.random);
+    String frame = this.frame(ClusterConstants.PING_REQUEST_COMMAND,
+      Long.toString(seq), target);
+    int asked = 0;
+    for(String helper : helpers)
+    {
+      if(asked >= ClusterConstants.INDIRECT_PROBES)
+      {
+        break;
+      }
+      if(this.federation.send(helper, frame))
+      {
+        asked++;
+      }
+    }
+  }
+  
+  /*
+   * Takes in news about a node heard from another node. News about ourselves
+   * that says we are not alive is taken back by raising our incarnation. Must
+   * hold the lock of the federation.
+   */
+  private void merge(Member member)
+  {
+    if(member.getId().equals(this.self.getId()))
+    {
+      if(member.getState() != Member.ALIVE &&
+        member.getIncarnation() >= this.self.getIncarnation())
+      {
+        this.self = new Member(this.self.getId(), null, this.self.getPort(),
+          member.getIncarnation() + 1, Member.ALIVE);
+        this.news.put(this.self.getId(), 0);
+      }
+      return;
+    }
+    Member known = this.members.get(member.getId());
+    if(known != null && member.getHost() == null)
+    {
+      member.setHost(known.getHost());
+    }
+    if(member.overrides(known))
+    {
+      this.learn(member);
+    }
+  }
+  
+  /*
+   * Records news about a node, queues it to be gossiped, and tells the
+   * federation if the node has joined or died. Must hold the lock of the
+   * federation.
+   */
+  private void learn(Member member)
+  {
+    Member known = this.members.put(member.getId(), member);
+    this.news.put(member.getId(), 0);
+    boolean wasLive = known != null && known.isLive();
+    if(member.isLive() && !wasLive)
+    {
+      this.probeOrder.add(this.random.nextInt(this.probeOrder.size() + 1),
+        member.getId());
+      this.federation.memberUp(member);
+    }
+    else if(!member.isLive() && wasLive)
+    {
+      int index = this.probeOrder.indexOf(member.getId());
+      this.probeOrder.remove(index);
+      if(index < this.probeIndex)
+      {
+        this.probeIndex--;
+      }
+      this.federation.memberDown(member.getId());
+    }
+  }
+  
+  /*
+   * Makes a probe frame, with as much news as fits piggybacked on it. Must
+   * hold the lock of the federation.
+   */
+  private String frame(String command, String... arguments)
+  {
+    int limit = (int)Math.ceil(ClusterConstants.RETRANSMIT_MULTIPLIER *
+      Math.log(this.probeOrder.size() + 2) / Math.log(2));
+    List<Map.Entry<String, Integer>> queued =
+      new ArrayList<Map.Entry<String, Integer>>(this.news.entrySet());
+    queued.sort(Map.Entry.comparingByValue());
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < queued.size() && i < ClusterConstants.MAX_PIGGYBACK;
+      i++)
+    {
+      String id = queued.get(i).getKey();
+      Member member = id.equals(this.self.getId()) ? this.self :
+        this.members.get(id);
+      sb.append((sb.length() == 0) ? "" : "\n").append(member);
+      queued.get(i).setValue(queued.get(i).getValue() + 1);
+    }
+    Iterator<Integer> sends = this.news.values().iterator();
+    while(sends.hasNext())
+    {
+      if(sends.next() >= limit)
+      {
+        sends.remove();
+      }
+    }
+    return (new ControlFrame(command, arguments, sb.toString())).toString();
+  }
+}
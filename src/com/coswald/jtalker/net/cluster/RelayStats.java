@@ -0,0 +1,150 @@
+/*
+ * RelayStats.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.cluster;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Measures how long relayed broadcasts take to cross each hop of the
+ * fan-out tree of a {@link com.coswald.jtalker.net.cluster.Federation
+ * Federation}. A broadcast relayed straight from the owner of its room is at
+ * depth one, one passed on by a node at depth one is at depth two, and so on.
+ * For each depth, the amount of broadcasts received at it and the time they
+ * took to arrive from the node before them (in milliseconds, by the clocks of
+ * both nodes) are added up, so the cost of a deeper tree can be seen.</p>
+ * <p>Every counter only ever goes up, and can be read from any thread at any
+ * time. Only the federation updates them, which is why the method that does
+ * so is package-private. Depths beyond
+ * {@value com.coswald.jtalker.net.cluster.RelayStats#MAX_DEPTH} are counted as
+ * that depth.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class RelayStats
+{
+  /**
+   * The deepest hop counted on its own. This is currently set to {@value}.
+   */
+  public static final int MAX_DEPTH = 16;
+  
+  private final AtomicLongArray received = new AtomicLongArray(MAX_DEPTH + 1);
+  private final AtomicLongArray totalMillis = new AtomicLongArray(
+    MAX_DEPTH + 1);
+  private final AtomicLongArray maxMillis = new AtomicLongArray(MAX_DEPTH + 1);
+  
+  /**
+   * Returns the amount of broadcasts received at a depth.
+   * @param depth The depth (one for broadcasts sent by the owner).
+   * @return The amount of broadcasts.
+   */
+  public long getReceived(int depth)
+  {
+    return this.received.get(this.clamp(depth));
+  }
+  
+  /**
+   * Returns the average time broadcasts received at a depth took to cross
+   * their last hop.
+   * @param depth The depth (one for broadcasts sent by the owner).
+   * @return The average time, in milliseconds, or {@code 0} if none have
+   *  been received at that depth.
+   */
+  public double getAverageMillis(int depth)
+  {
+    long count = this.received.get(this.clamp(depth));
+    return (count == 0) ? 0.0 :
+      (double)this.totalMillis.get(this.clamp(depth)) / count;
+  }
+  
+  /**
+   * Returns the longest time a broadcast received at a depth took to cross
+   * its last hop.
+   * @param depth The depth (one for broadcasts sent by the owner).
+   * @return The longest time, in milliseconds.
+   */
+  public long getMaxMillis(int depth)
+  {
+    return this.maxMillis.get(this.clamp(depth));
+  }
+  
+  /**
+   * Returns the deepest depth any broadcast has been received at.
+   * @return The depth, or {@code 0} if nothing has been received.
+   */
+  public int getMaxDepth()
+  {
+    for(int depth = MAX_DEPTH; depth > 0; depth--)
+    {
+      if(this.received.get(depth) > 0)
+      {
+        return depth;
+      }
+    }
+    return 0;
+  }
+  
+  /**
+   * Returns each depth broadcasts have been received at, with the amount
+   * and the average and longest times of each.
+   * @return The statistics, as text.
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int depth = 1; depth <= this.getMaxDepth(); depth++)
+    {
+      if(this.getReceived(depth) == 0)
+      {
+        continue;
+      }
+      sb.append((sb.length() == 0) ? "" : ", ").append("hop ").append(depth)
+        .append(": ").append(this.getReceived(depth)).append(" at ")
+        .append(String.format("%.2f", this.getAverageMillis(depth)))
+        .append(" ms (max ").append(this.getMaxMillis(depth)).append(')');
+    }
+    return sb.toString();
+  }
+  
+  /*
+   * Adds a broadcast received at a depth, after the given time.
+   */
+  void received(int depth, long millis)
+  {
+    int at = this.clamp(depth);
+    long time = Math.max(0L, millis);
+    this.received.incrementAndGet(at);
+    this.totalMillis.addAndGet(at, time);
+    long max;
+    while(time > (max = this.maxMillis.get(at)) &&
+      !this.maxMillis.compareAndSet(at, max, time))
+    {
+      //try again
+    }
+  }
+  
+  private int clamp(int depth)
+  {
+    return Math.max(0, Math.min(MAX_DEPTH, depth));
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * RoomLog.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.cluster;
+
+import com.coswald.jtalker.net.cluster.ClusterConstants;
+import com.coswald.jtalker.net.history.ChatHistory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>The log a {@link com.coswald.jtalker.net.cluster.Federation Federation}
+ * keeps of a room: the indices it has given the broadcasts it put in order,
+ * and the last of those broadcasts. The broadcasts themselves are kept by the
+ * history of the server, so a log only holds on to the lines it may still
+ * have to {@link com.coswald.jtalker.net.cluster.RoomReplicator ship} to a
+ * follower; the lines before those are {@link #trim(long) trimmed}, and at
+ * most {@value com.coswald.jtalker.net.cluster.ClusterConstants#ROOM_LOG_LINES}
+ * lines are ever kept. The indices go on from where they were either
+ * way.</p>
+ * <p>Just like a history that has let its oldest lines expire, a read from
+ * before the {@link #getFirst() first} line kept starts with that line. Every
+ * method is {@code synchronized}.</p>
+ * <p>A log also has a {@link #getTerm() term}, which its leader raises each
+ * time it takes the room over, so two logs of the same room can be told
+ * apart.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public final class RoomLog implements ChatHistory
+{
+  private long term;
+  private long first;
+  private long next;
+  private ArrayDeque<String> lines;
+  
+  /**
+   * Constructs an empty log.
+   */
+  public RoomLog()
+  {
+    this.lines = new ArrayDeque<String>();
+  }
+  
+  /**
+   * Appends a line to the log, letting go of the oldest line kept if there
+   * are too many.
+   * @param line The line to append.
+   * @return The index the line was given.
+   */
+  @Override
+  public synchronized long append(String line)
+  {
+    this.lines.addLast(line);
+    if(this.lines.size() > ClusterConstants.ROOM_LOG_LINES)
+    {
+      this.lines.removeFirst();
+      this.first++;
+    }
+    return this.next++;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized long size()
+  {
+    return this.next;
+  }
+  
+  /**
+   * Returns the index of the oldest line the log still keeps.
+   * @return The index, which is the {@link #size() size} if no lines are
+   *  kept.
+   */
+  public synchronized long getFirst()
+  {
+    return this.first;
+  }
+  
+  /**
+   * Returns the term of the log.
+   * @return The term, which is {@code 0} until one is set.
+   */
+  public synchronized long getTerm()
+  {
+    return this.term;
+  }
+  
+  /**
+   * Sets the term of the log, keeping its lines.
+   * @param term The term.
+   */
+  public synchronized void setTerm(long term)
+  {
+    this.term = term;
+  }
+  
+  /**
+   * Empties the log, which then goes on from an index, in a term.
+   * @param term The term.
+   * @param first The index the next line is given.
+   */
+  public synchronized void reset(long term, long first)
+  {
+    this.lines.clear();
+    this.term = term;
+    this.first = first;
+    this.next = first;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized List<String> read(long from, int count)
+  {
+    if(from < 0 || count < 0)
+    {
+      throw new IllegalArgumentException("Index and count must be positive!");
+    }
+    List<String> read = new ArrayList<String>();
+    long index = this.first;
+    Iterator<String> kept = this.lines.iterator();
+    for(; index < from && kept.hasNext(); index++)
+    {
+      kept.next();
+    }
+    while(kept.hasNext() && read.size() < count)
+    {
+      read.add(kept.next());
+    }
+    return read;
+  }
+  
+  /**
+   * Lets go of every line before an index. If the log does not reach that
+   * far, it is emptied, and goes on from that index.
+   * @param before The index of the first line to keep.
+   */
+  public synchronized void trim(long before)
+  {
+    while(this.first < before && !this.lines.isEmpty())
+    {
+      this.lines.removeFirst();
+      this.first++;
+    }
+    if(this.first < before)
+    {
+      this.first = before;
+      this.next = before;
+    }
+  }
+}
@@ -0,0 +1,735 @@
+/*
+ * RoomReplicator.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.cluster;
+
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.cluster.ClusterConstants;
+import com.coswald.jtalker.net.cluster.ConsistentHashRing;
+import com.coswald.jtalker.net.cluster.Federation;
+import com.coswald.jtalker.net.cluster.FederationLink;
+import com.coswald.jtalker.net.cluster.RoomLog;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Keeps copies of the logs of some rooms on other nodes, so those logs
+ * outlive the node that owns them. The owner of a room is its leader, and the
+ * next {@value com.coswald.jtalker.net.cluster.ClusterConstants#REPLICAS}
+ * nodes on the {@link com.coswald.jtalker.net.cluster.ConsistentHashRing
+ * ring} after it are its followers. These are exactly the nodes that take the
+ * room over, in order, if the owner fails, so when a follower becomes the
+ * owner of a room, it already holds its log, and carries on with the next
+ * index. Only rooms that have been {@link #replicate(String) marked} are
+ * copied; every node should mark the same rooms.</p>
+ * <p>The leader ships ranges of its log to each follower in
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#LOG_COMMAND}
+ * frames of up to
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#LOG_BATCH_LINES}
+ * lines, every
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#LOG_SHIP_MILLIS}
+ * milliseconds. It does not wait for one range to be acknowledged before
+ * sending the next: up to
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#LOG_WINDOW_LINES}
+ * lines may be on their way to a follower at once. A follower acknowledges
+ * each range with the length of its copy (the offset it has up to), and if a
+ * range does not start where its copy ends, it answers with a
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#LOG_NACK_COMMAND}
+ * instead, and the leader ships again from that offset. A new follower is sent
+ * an empty range at the end of the log, so it says how much it already
+ * has.</p>
+ * <p>Every log has a {@link com.coswald.jtalker.net.cluster.RoomLog#getTerm()
+ * term}, which every range and every acknowledgement carries. A node that
+ * becomes the leader of a room (or gains a follower it has not heard from)
+ * puts nothing in order until it has fetched the log of the room: it asks
+ * its followers, one of which is the leader before it if that one is still
+ * up, for the term and length of their logs with a
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#LOG_FETCH_COMMAND},
+ * and pulls the newest (the one with the highest term, and of those, the
+ * longest) over with
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#LOG_PULL_COMMAND}s
+ * if it is newer than its own. It then gives the log a term above any it
+ * heard of, and carries on from its end, so it never hands out an index
+ * again. Nodes that do not answer within
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#LOG_FETCH_MILLIS}
+ * milliseconds are not waited on. A follower sent a range of a newer term
+ * than its copy throws its copy away and takes the leader's instead, so it
+ * never keeps lines the leader does not have; a range of an older term is
+ * answered with a
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#LOG_NACK_COMMAND}
+ * holding the newer term, and a leader told of a newer term than its own
+ * fetches again.</p>
+ * <p>Logs are kept short: once every follower has acknowledged a line, the
+ * leader lets go of it, and so does every follower, as each range tells
+ * them the first line the leader still keeps. The lines themselves are kept
+ * by the history of each server; a log only has to carry its indices on, and
+ * hold what may still have to be shipped. A follower that falls more than
+ * {@value com.coswald.jtalker.net.cluster.ClusterConstants#ROOM_LOG_LINES}
+ * lines behind skips what the leader no longer keeps.</p>
+ * <p>Copies are made after a line is delivered, not before, so the lines a
+ * leader appended within the last moment before it failed may be lost. The
+ * {@link #getAckedIndex(String) acknowledged index} of a room tells how much
+ * of its log every follower holds.</p>
+ * <p>Everything a replicator knows is only used while holding the lock of its
+ * node's {@code ServerOutputStream}, just like the rest of the
+ * federation.</p>
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ */
+public class RoomReplicator implements Closeable
+{
+  private Federation federation;
+  private Object lock;
+  private ConsistentHashRing ring;
+  private Map<String, RoomLog> roomLogs;
+  private Set<String> replicated;
+  private Set<String> leading;
+  private Map<String, Fetch> fetches;
+  private Map<String, Map<String, long[]>> followers;
+  private Map<String, RoomLog> replicas;
+  private ScheduledExecutorService shipper;
+  
+  /**
+   * Constructs the replicator of a federation.
+   * @param federation The federation of this node.
+   * @param ring The ring deciding who owns each room.
+   * @param roomLogs The logs of the rooms this node has owned, by room. A
+   *  copy is put in here when this node takes over a room.
+   * @param lock The lock guarding the federation.
+   */
+  public RoomReplicator(Federation federation, ConsistentHashRing ring,
+    Map<String, RoomLog> roomLogs, Object lock)
+  {
+    this.federation = federation;
+    this.ring = ring;
+    this.roomLogs = roomLogs;
+    this.lock = lock;
+    this.replicated = new HashSet<String>();
+    this.leading = new HashSet<String>();
+    this.fetches = new HashMap<String, Fetch>();
+    this.followers = new HashMap<String, Map<String, long[]>>();
+    this.replicas = new HashMap<String, RoomLog>();
+    this.shipper = Executors.newSingleThreadScheduledExecutor(r ->
+    {
+      Thread t = new Thread(r, "JTalker Log Shipper (" +
+        federation.getNodeId() + ")");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+  
+  /**
+   * Starts shipping logs to followers.
+   */
+  public void start()
+  {
+    this.shipper.scheduleWithFixedDelay(() ->
+    {
+      synchronized(this.lock)
+      {
+        this.ship();
+      }
+    }, ClusterConstants.LOG_SHIP_MILLIS, ClusterConstants.LOG_SHIP_MILLIS,
+      TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * Stops shipping logs to followers.
+   */
+  @Override
+  public void close()
+  {
+    this.shipper.shutdownNow();
+  }
+  
+  /**
+   * Marks a room as one whose log is copied to followers.
+   * @param room The name of the room.
+   */
+  public void replicate(String room)
+  {
+    synchronized(this.lock)
+    {
+      this.replicated.add(room);
+      this.followersChanged(room);
+    }
+  }
+  
+  /**
+   * Returns whether the log of a room is copied to followers.
+   * @param room The name of the room.
+   * @return {@code true} if the room has been marked.
+   */
+  public boolean isReplicated(String room)
+  {
+    synchronized(this.lock)
+    {
+      return this.replicated.contains(room);
+    }
+  }
+  
+  /**
+   * Returns whether this node has taken a room over, and is still fetching
+   * its log, so it must not put anything in order for it yet.
+   * @param room The name of the room.
+   * @return {@code true} if the log is being fetched.
+   */
+  public boolean isFetching(String room)
+  {
+    synchronized(this.lock)
+    {
+      return this.fetches.containsKey(room);
+    }
+  }
+  
+  /**
+   * Returns the copy this node holds of the log of a room it follows.
+   * @param room The name of the room.
+   * @return The copy, or {@code null} if this node holds none.
+   */
+  public RoomLog getReplica(String room)
+  {
+    synchronized(this.lock)
+    {
+      return this.replicas.get(room);
+    }
+  }
+  
+  /**
+   * Returns the amount of lines of a room's log that every follower has
+   * acknowledged holding. Only the owner of the room knows this.
+   * @param room The name of the room.
+   * @return The amount of lines, or {@code -1} if this node is not shipping
+   *  the log of the room to anyone.
+   */
+  public long getAckedIndex(String room)
+  {
+    synchronized(this.lock)
+    {
+      Map<String, long[]> shipping = this.followers.get(room);
+      if(shipping == null || shipping.isEmpty())
+      {
+        return -1L;
+      }
+      long acked = Long.MAX_VALUE;
+      for(long[] follower : shipping.values())
+      {
+        acked = Math.min(acked, follower[1]);
+      }
+      return acked;
+    }
+  }
+  
+  /*
+   * Called whenever a node joins or is found dead. We take over the rooms we
+   * now own and hold copies of, and work out who follows the rooms we own.
+   * Must hold the lock of the federation.
+   */
+  void ownersChanged()
+  {
+    String self = this.federation.getNodeId();
+    for(String room : this.replicas.keySet())
+    {
+      if(self.equals(this.ring.getOwner(room)))
+      {
+        this.replicated.add(room);
+      }
+    }
+    for(String room : this.replicated)
+    {
+      this.followersChanged(room);
+    }
+  }
+  
+  /*
+   * Handles a replication frame heard over a link. Must hold the lock of the
+   * federation.
+   */
+  void receive(FederationLink link, ControlFrame frame)
+  {
+    String room = frame.getArgument(0);
+    String peer = link.getPeerId();
+    Fetch fetch = this.fetches.get(room);
+    if(frame.is(ClusterConstants.LOG_COMMAND))
+    {
+      if(fetch != null && peer.equals(fetch.source))
+      {
+        this.pulled(room, fetch, frame);
+      }
+      else
+      {
+        this.append(link, room, frame);
+      }
+      return;
+    }
+    if(frame.is(ClusterConstants.LOG_FETCH_COMMAND))
+    {
+      RoomLog log = this.localLog(room);
+      link.send((new ControlFrame(ClusterConstants.LOG_HAVE_COMMAND, room,
+        Long.toString((log == null) ? 0L : log.getTerm()),
+        Long.toString((log == null) ? 0L : log.size()))).toString());
+      return;
+    }
+    if(frame.is(ClusterConstants.LOG_PULL_COMMAND) &&
+      frame.getArgumentCount() == 2)
+    {
+      RoomLog log = this.localLog(room);
+      if(log != null)
+      {
+        long from = Math.max(frame.getLongArgument(1), log.getFirst());
+        List<String> lines = log.read(from, ClusterConstants.LOG_BATCH_LINES);
+        link.send(range(room, log, from, lines.subList(0,
+          fit(lines))).toString());
+      }
+      return;
+    }
+    if(frame.is(ClusterConstants.LOG_HAVE_COMMAND) &&
+      frame.getArgumentCount() == 3)
+    {
+      if(fetch != null && fetch.waiting.remove(peer))
+      {
+        fetch.heard(peer, frame.getLongArgument(1), frame.getLongArgument(2));
+        if(fetch.waiting.isEmpty())
+        {
+          this.pull(room, fetch);
+        }
+      }
+      return;
+    }
+    this.acknowledged(peer, room, frame);
+  }
+  
+  /*
+   * Handles an acknowledgement of a range we shipped. One holding a newer
+   * term than ours means another node has led the room since we last
+   * fetched its log, so we fetch it again. Must hold the lock of the
+   * federation.
+   */
+  private void acknowledged(String peer, String room, ControlFrame frame)
+  {
+    Map<String, long[]> shipping = this.followers.get(room);
+    long[] follower = (shipping == null) ? null : shipping.get(peer);
+    if(follower == null || frame.getArgumentCount() != 3)
+    {
+      return;
+    }
+    long term = frame.getLongArgument(1);
+    long offset = frame.getLongArgument(2);
+    RoomLog log = this.roomLogs.get(room);
+    if(term > log.getTerm())
+    {
+      this.fetch(room, shipping.keySet());
+    }
+    else if(term < log.getTerm())
+    {
+      return;
+    }
+    else if(frame.is(ClusterConstants.LOG_ACK_COMMAND))
+    {
+      follower[1] = Math.max(follower[1], offset);
+      follower[0] = Math.max(follower[0], follower[1]);
+    }
+    else if(frame.is(ClusterConstants.LOG_NACK_COMMAND))
+    {
+      follower[0] = offset;
+      follower[1] = offset;
+    }
+  }
+  
+  /*
+   * Works out who follows a room, if we own it. A room we have just taken
+   * over, or that has gained a follower, has its log fetched before anything
+   * is shipped. New followers are sent an empty range, so they tell us how
+   * much they have. A room we no longer own has its log kept as a copy, in
+   * case it is newer than what the new owner has. Must hold the lock of the
+   * federation.
+   */
+  private void followersChanged(String room)
+  {
+    List<String> owners = this.ring.getOwners(room,
+      ClusterConstants.REPLICAS + 1);
+    if(owners.isEmpty() || !owners.get(0).equals(
+      this.federation.getNodeId()))
+    {
+      this.followers.remove(room);
+      if(this.fetches.remove(room) != null)
+      {
+        this.federation.fetched(room);
+      }
+      RoomLog log = this.leading.remove(room) ? this.roomLogs.remove(room) :
+        null;
+      if(log != null && !isOlder(log, this.replicas.get(room)))
+      {
+        this.replicas.put(room, log);
+      }
+      return;
+    }
+    List<String> nodes = owners.subList(1, owners.size());
+    Map<String, long[]> shipping = this.followers.get(room);
+    if(this.fetches.containsKey(room))
+    {
+      return;
+    }
+    if(!this.leading.contains(room) || !shipping.keySet().containsAll(nodes))
+    {
+      this.fetch(room, nodes);
+      return;
+    }
+    shipping.keySet().retainAll(nodes);
+  }
+  
+  /*
+   * Starts fetching the log of a room we lead, by asking the given nodes
+   * about theirs. Nothing is put in order for the room until we are done.
+   * Must hold the lock of the federation.
+   */
+  private void fetch(String room, Iterable<String> nodes)
+  {
+    RoomLog own = this.localLog(room);
+    Fetch fetch = new Fetch((own == null) ? 0L : own.getTerm(),
+      (own == null) ? 0L : own.size());
+    for(String node : nodes)
+    {
+      if(this.federation.send(node, (new ControlFrame(
+        ClusterConstants.LOG_FETCH_COMMAND, room)).toString()))
+      {
+        fetch.waiting.add(node);
+      }
+    }
+    this.leading.remove(room);
+    this.followers.remove(room);
+    this.fetches.put(room, fetch);
+    if(fetch.waiting.isEmpty())
+    {
+      this.pull(room, fetch);
+    }
+  }
+  
+  /*
+   * Once every node asked has answered (or the time is up), pulls the next
+   * range of the newest log over, or finishes if we have it. Must hold the
+   * lock of the federation.
+   */
+  private void pull(String room, Fetch fetch)
+  {
+    long from = (fetch.pulled == null) ? 0L : fetch.pulled.size();
+    if(fetch.source == null || from >= fetch.size ||
+      !this.federation.send(fetch.source, (new ControlFrame(
+      ClusterConstants.LOG_PULL_COMMAND, room,
+      Long.toString(from))).toString()))
+    {
+      this.fetched(room, fetch);
+      return;
+    }
+    fetch.deadline = System.currentTimeMillis() +
+      ClusterConstants.LOG_FETCH_MILLIS;
+  }
+  
+  /*
+   * Adds a range pulled from the node holding the newest log of a room to
+   * what we have pulled so far. Must hold the lock of the federation.
+   */
+  private void pulled(String room, Fetch fetch, ControlFrame frame)
+  {
+    if(frame.getArgumentCount() < 4 || frame.getArgumentCount() > 5)
+    {
+      return;
+    }
+    long term = frame.getLongArgument(1);
+    if(fetch.pulled == null || fetch.pulled.getTerm() != term)
+    {
+      fetch.pulled = new RoomLog();
+      fetch.pulled.reset(term, frame.getLongArgument(2));
+    }
+    long before = fetch.pulled.size();
+    absorb(fetch.pulled, frame);
+    if(fetch.pulled.size() == before)
+    {
+      //they have nothing more to give us
+      fetch.size = before;
+    }
+    this.pull(room, fetch);
+  }
+  
+  /*
+   * Takes the newest log we found over, gives it a term above every one we
+   * heard of, and starts shipping it. Broadcasts held back while we fetched
+   * are then put in order. Must hold the lock of the federation.
+   */
+  private void fetched(String room, Fetch fetch)
+  {
+    this.fetches.remove(room);
+    RoomLog log = this.localLog(room);
+    if(log == null || isOlder(log, fetch.pulled))
+    {
+      log = (fetch.pulled == null) ? new RoomLog() : fetch.pulled;
+    }
+    log.setTerm(Math.max(fetch.highest, log.getTerm()) + 1L);
+    this.roomLogs.put(room, log);
+    this.replicas.remove(room);
+    this.leading.add(room);
+    Map<String, long[]> shipping = new HashMap<String, long[]>();
+    this.followers.put(room, shipping);
+    List<String> owners = this.ring.getOwners(room,
+      ClusterConstants.REPLICAS + 1);
+    for(String node : owners.subList(1, owners.size()))
+    {
+      shipping.put(node, new long[] {log.size(), log.size()});
+      this.federation.send(node, range(room, log, log.size(),
+        log.read(log.size(), 0)).toString());
+    }
+    this.federation.fetched(room);
+  }
+  
+  /*
+   * Ships whatever each follower is missing, as far as its window allows,
+   * and lets go of what every follower has. A follower missing lines we no
+   * longer keep is shipped what we do keep. Fetches that have waited too
+   * long go on without whoever has not answered. Must hold the lock of the
+   * federation.
+   */
+  private void ship()
+  {
+    long now = System.currentTimeMillis();
+    for(Map.Entry<String, Fetch> fetch :
+      new HashMap<String, Fetch>(this.fetches).entrySet())
+    {
+      if(now > fetch.getValue().deadline)
+      {
+        fetch.getValue().waiting.clear();
+        fetch.getValue().size = 0L;
+        this.pull(fetch.getKey(), fetch.getValue());
+      }
+    }
+    for(Map.Entry<String, Map<String, long[]>> room :
+      this.followers.entrySet())
+    {
+      RoomLog log = this.roomLogs.get(room.getKey());
+      long acked = log.size();
+      for(Map.Entry<String, long[]> follower : room.getValue().entrySet())
+      {
+        long[] offsets = follower.getValue();
+        offsets[0] = Math.max(offsets[0], log.getFirst());
+        while(offsets[0] < log.size() && offsets[0] - offsets[1] <
+          ClusterConstants.LOG_WINDOW_LINES)
+        {
+          List<String> lines = log.read(offsets[0],
+            ClusterConstants.LOG_BATCH_LINES);
+          if(lines.isEmpty())
+          {
+            break;
+          }
+          lines = lines.subList(0, fit(lines));
+          if(!this.federation.send(follower.getKey(), range(room.getKey(),
+            log, offsets[0], lines).toString()))
+          {
+            break;
+          }
+          offsets[0] += lines.size();
+        }
+        acked = Math.min(acked, offsets[1]);
+      }
+      log.trim(acked);
+    }
+  }
+  
+  /*
+   * Adds a range shipped by the leader of a room to our copy of its log, and
+   * acknowledges it. A range of a newer term than our copy replaces it; one
+   * of an older term is refused. Must hold the lock of the federation.
+   */
+  private void append(FederationLink link, String room, ControlFrame frame)
+  {
+    if(frame.getArgumentCount() < 4 || frame.getArgumentCount() > 5 ||
+      !link.getPeerId().equals(this.ring.getOwner(room)))
+    {
+      return;
+    }
+    RoomLog copy = this.replicas.get(room);
+    if(copy == null)
+    {
+      copy = new RoomLog();
+      this.replicas.put(room, copy);
+    }
+    long term = frame.getLongArgument(1);
+    if(term > copy.getTerm())
+    {
+      copy.reset(term, frame.getLongArgument(2));
+    }
+    String command = (term == copy.getTerm() && absorb(copy, frame)) ?
+      ClusterConstants.LOG_ACK_COMMAND : ClusterConstants.LOG_NACK_COMMAND;
+    link.send((new ControlFrame(command, room, Long.toString(copy.getTerm()),
+      Long.toString(copy.size()))).toString());
+  }
+  
+  /*
+   * The newest log of a room we hold: the one we led, or our copy of
+   * another's. Must hold the lock of the federation.
+   */
+  private RoomLog localLog(String room)
+  {
+    RoomLog log = this.roomLogs.get(room);
+    RoomLog copy = this.replicas.get(room);
+    return isOlder(log, copy) ? copy : log;
+  }
+  
+  /*
+   * Whether a log is older than another: of a lower term, or of the same
+   * term and shorter. No log at all is older than any.
+   */
+  private static boolean isOlder(RoomLog log, RoomLog other)
+  {
+    if(other == null)
+    {
+      return false;
+    }
+    return log == null || log.getTerm() < other.getTerm() ||
+      (log.getTerm() == other.getTerm() && log.size() < other.size());
+  }
+  
+  /*
+   * Adds the lines of a range to a log of the same term, letting go of what
+   * the sender no longer keeps. Returns whether the range started within
+   * the log.
+   */
+  private static boolean absorb(RoomLog log, ControlFrame frame)
+  {
+    log.trim(frame.getLongArgument(2));
+    long start = frame.getLongArgument(3);
+    if(start > log.size())
+    {
+      return false;
+    }
+    if(frame.getArgumentCount() == 5)
+    {
+      String body = frame.getBody();
+      int at = 0;
+      long index = start;
+      for(String length : frame.getArgument(4).split(","))
+      {
+        int end = at + Integer.parseInt(length);
+        if(end > body.length())
+        {
+          break;
+        }
+        if(index++ >= log.size())
+        {
+          log.append(body.substring(at, end));
+        }
+        at = end;
+      }
+    }
+    return true;
+  }
+  
+  /*
+   * How many of the given lines fit within one range (always at least one).
+   */
+  private static int fit(List<String> lines)
+  {
+    int characters = 0;
+    int count = 0;
+    for(String line : lines)
+    {
+      if(count > 0 && characters + line.length() >
+        ServerClientConstants.MAX_FRAME_CHARACTERS / 2)
+      {
+        break;
+      }
+      characters += line.length();
+      count++;
+    }
+    return count;
+  }
+  
+  /*
+   * A range of a log, holding the given lines from an index on.
+   */
+  private static ControlFrame range(String room, RoomLog log, long from,
+    List<String> lines)
+  {
+    String[] header = {room, Long.toString(log.getTerm()),
+      Long.toString(log.getFirst()), Long.toString(from)};
+    if(lines.isEmpty())
+    {
+      return new ControlFrame(ClusterConstants.LOG_COMMAND, header);
+    }
+    StringBuilder lengths = new StringBuilder();
+    StringBuilder body = new StringBuilder();
+    for(String line : lines)
+    {
+      lengths.append((body.length() == 0 && lengths.length() == 0) ? "" :
+        ",").append(line.length());
+      body.append(line);
+    }
+    return new ControlFrame(ClusterConstants.LOG_COMMAND, new String[] {
+      header[0], header[1], header[2], header[3], lengths.toString()},
+      body.toString());
+  }
+  
+  /*
+   * What a node taking a room over has learned while fetching its log: who
+   * it is still waiting to hear from, the highest term heard of, and who
+   * holds the newest log (null for us) and how long it is, along with what
+   * has been pulled of it so far.
+   */
+  private static final class Fetch
+  {
+    private Set<String> waiting;
+    private long deadline;
+    private long highest;
+    private String source;
+    private long term;
+    private long size;
+    private RoomLog pulled;
+    
+    private Fetch(long term, long size)
+    {
+      this.waiting = new HashSet<String>();
+      this.deadline = System.currentTimeMillis() +
+        ClusterConstants.LOG_FETCH_MILLIS;
+      this.highest = term;
+      this.term = term;
+      this.size = size;
+    }
+    
+    private void heard(String node, long term, long size)
+    {
+      this.highest = Math.max(this.highest, term);
+      if(term > this.term || (term == this.term && size > this.size))
+      {
+        this.source = node;
+        this.term = term;
+        this.size = size;
+      }
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * ChatHistory.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.history;
+
+import java.util.List;
+
+/**
+ * <p>An append-only record of the lines a server has broadcast. Each line that
+ * is {@link #append(String) appended} is given the next index, starting at
+ * zero, and can later be {@link #read(long, int) read} back using that index.
+ * Implementations must be safe to use from multiple threads, as every
+ * {@link com.coswald.jtalker.net.TCPClientInstance TCPClientInstance} of a
+ * server shares one history.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.history.MemoryChatHistory
+ */
+public interface ChatHistory
+{
+  /**
+   * Appends a line to the history.
+   * @param line The line to append.
+   * @return The index the line was given.
+   */
+  public abstract long append(String line);
+  
+  /**
+   * Returns the amount of lines in the history. This is also the index the next
+   * {@link #append(String) appended} line will be given.
+   * @return The amount of lines.
+   */
+  public abstract long size();
+  
+  /**
+   * Reads lines from the history. This will read at most {@code count} lines,
+   * starting with the line at index {@code from}. Fewer lines are returned if
+   * the history ends before then.
+   * @param from The index of the first line to read.
+   * @param count The most lines to read.
+   * @return The lines that were read, oldest first.
+   * @throws IllegalArgumentException If {@code from} or {@code count} is
+   *  negative.
+   */
+  public abstract List<String> read(long from, int count);
+}
@@ -0,0 +1,88 @@
+/*
+ * HistoryConstants.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.history;
+
+/**
+ * <p>A set of descriptions for specific constants used when storing the
+ * history of a JTalker server. Just like the other constants classes, this
+ * class is a utility class and cannot be extended.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class HistoryConstants
+{
+  /**
+   * The size, in bytes, a segment may grow to before it is sealed and a new
+   * one is started. This is currently set to {@value} (1 MiB).
+   * @see com.coswald.jtalker.net.history.TieredChatHistory
+   */
+  public static final int SEGMENT_BYTES = 1 << 20;
+  
+  /**
+   * The age, in milliseconds, a segment may reach before it is sealed and a new
+   * one is started, even if it has not grown too large. This is currently set
+   * to {@value} (one hour).
+   * @see com.coswald.jtalker.net.history.TieredChatHistory#setSegmentMillis(long)
+   */
+  public static final long SEGMENT_MILLIS = 60L * 60L * 1000L;
+  
+  /**
+   * How often, in milliseconds, the background thread of a history checks
+   * whether the segment being written to is too old and whether any segments
+   * have expired. This is currently set to {@value}.
+   */
+  public static final long MAINTENANCE_MILLIS = 5000L;
+  
+  /**
+   * The amount of sealed segments that are kept uncompressed (and are
+   * memory-mapped when read). Anything older is compressed. This is currently
+   * set to {@value}.
+   */
+  public static final int WARM_SEGMENTS = 8;
+  
+  /**
+   * The amount of segments whose contents are kept ready for reading. This
+   * bounds the heap used by reading compressed segments. This is currently set
+   * to {@value}.
+   */
+  public static final int CACHED_SEGMENTS = 4;
+  
+  /**
+   * The file extension of an uncompressed segment ({@value}).
+   */
+  public static final String SEGMENT_EXTENSION = ".log";
+  
+  /**
+   * The file extension of a compressed segment ({@value}).
+   */
+  public static final String ARCHIVE_EXTENSION = ".log.gz";
+  
+  /**
+   * The extension added to the name of a compressed segment to get the name of
+   * the file holding its checksum ({@value}). The checksum is the CRC-32 of
+   * the uncompressed segment, written in hexadecimal.
+   */
+  public static final String CHECKSUM_EXTENSION = ".crc";
+  
+  private HistoryConstants() {}
+}
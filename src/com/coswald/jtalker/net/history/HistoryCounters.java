@@ -0,0 +1,177 @@
+/*
+ * HistoryCounters.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.history;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Counts what a {@link com.coswald.jtalker.net.history.TieredChatHistory
+ * TieredChatHistory} does with its segments. Every counter only ever goes up,
+ * and can be read from any thread at any time, so a server can print or
+ * export them without getting in the way of the history. Only the history
+ * itself updates the counters, which is why the methods that do so are
+ * package-private.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class HistoryCounters
+{
+  private final AtomicLong rolledBySize = new AtomicLong();
+  private final AtomicLong rolledByTime = new AtomicLong();
+  private final AtomicLong compressed = new AtomicLong();
+  private final AtomicLong compressionFailures = new AtomicLong();
+  private final AtomicLong bytesBeforeCompression = new AtomicLong();
+  private final AtomicLong bytesAfterCompression = new AtomicLong();
+  private final AtomicLong deleted = new AtomicLong();
+  private final AtomicLong archived = new AtomicLong();
+  private final AtomicLong readFailures = new AtomicLong();
+  
+  /**
+   * Returns the amount of segments sealed because they grew too large.
+   * @return The amount of segments rolled by size.
+   */
+  public long getRolledBySize()
+  {
+    return this.rolledBySize.get();
+  }
+  
+  /**
+   * Returns the amount of segments sealed because they grew too old.
+   * @return The amount of segments rolled by time.
+   */
+  public long getRolledByTime()
+  {
+    return this.rolledByTime.get();
+  }
+  
+  /**
+   * Returns the amount of segments that have been compressed and checksummed.
+   * @return The amount of compressed segments.
+   */
+  public long getCompressed()
+  {
+    return this.compressed.get();
+  }
+  
+  /**
+   * Returns the amount of times compressing a segment failed. A segment that
+   * failed to compress stays warm, and is tried again later.
+   * @return The amount of failed compressions.
+   */
+  public long getCompressionFailures()
+  {
+    return this.compressionFailures.get();
+  }
+  
+  /**
+   * Returns the total size, in bytes, of every segment before it was
+   * compressed.
+   * @return The bytes read by compression.
+   */
+  public long getBytesBeforeCompression()
+  {
+    return this.bytesBeforeCompression.get();
+  }
+  
+  /**
+   * Returns the total size, in bytes, of every segment after it was
+   * compressed.
+   * @return The bytes written by compression.
+   */
+  public long getBytesAfterCompression()
+  {
+    return this.bytesAfterCompression.get();
+  }
+  
+  /**
+   * Returns the amount of segments deleted by the retention policy.
+   * @return The amount of deleted segments.
+   */
+  public long getDeleted()
+  {
+    return this.deleted.get();
+  }
+  
+  /**
+   * Returns the amount of segments moved out of the history and into the
+   * archive directory by the retention policy.
+   * @return The amount of archived segments.
+   */
+  public long getArchived()
+  {
+    return this.archived.get();
+  }
+  
+  /**
+   * Returns the amount of times a segment could not be read, including when its
+   * checksum did not match.
+   * @return The amount of failed reads.
+   */
+  public long getReadFailures()
+  {
+    return this.readFailures.get();
+  }
+  
+  /**
+   * Returns every counter on one line, which is handy for a server's log.
+   * @return The counters.
+   */
+  @Override
+  public String toString()
+  {
+    return "rolled(size=" + this.getRolledBySize() + ", time=" +
+      this.getRolledByTime() + ") compressed=" + this.getCompressed() +
+      " (" + this.getBytesBeforeCompression() + " -> " +
+      this.getBytesAfterCompression() + " bytes, failures=" +
+      this.getCompressionFailures() + ") deleted=" + this.getDeleted() +
+      " archived=" + this.getArchived() + " readFailures=" +
+      this.getReadFailures();
+  }
+  
+  void rolled(boolean byTime)
+  {
+    (byTime ? this.rolledByTime : this.rolledBySize).incrementAndGet();
+  }
+  
+  void compressed(long before, long after)
+  {
+    this.compressed.incrementAndGet();
+    this.bytesBeforeCompression.addAndGet(before);
+    this.bytesAfterCompression.addAndGet(after);
+  }
+  
+  void compressionFailed()
+  {
+    this.compressionFailures.incrementAndGet();
+  }
+  
+  void expired(boolean moved)
+  {
+    (moved ? this.archived : this.deleted).incrementAndGet();
+  }
+  
+  void readFailed()
+  {
+    this.readFailures.incrementAndGet();
+  }
+}
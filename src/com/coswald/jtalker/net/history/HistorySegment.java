@@ -0,0 +1,389 @@
+/*
+ * HistorySegment.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.history;
+
+import com.coswald.jtalker.net.history.HistoryConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>A sealed piece of chat history stored within a file. A segment holds the
+ * lines from its {@link #getBase() base} index up to, but not including,
+ * {@code base + count}. Every line is stored as a frame: four bytes of length,
+ * followed by the UTF-8 bytes of the line. The name of the file is the base
+ * index, padded with zeros, so that segments sort in order.</p>
+ * <p>A segment is either warm or cold. A warm segment is stored as is, and is
+ * read by memory-mapping its file, so reading it does not copy the file onto
+ * the heap. A cold segment has been {@link #archive(File) archived} into a
+ * GZIP file, and is inflated onto the heap when it is read. Either way, a
+ * segment is {@link #open() opened} into a {@code Contents}, which indexes
+ * where each frame starts.</p>
+ * <p>A cold segment also has a checksum file next to it, holding the CRC-32 of
+ * the uncompressed frames. When a cold segment is opened, the checksum is
+ * checked, so a damaged archive is noticed instead of served.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.history.TieredChatHistory
+ */
+public class HistorySegment
+{
+  private long base;
+  private long count;
+  private File file;
+  private boolean archived;
+  
+  /**
+   * Constructs a segment stored within the given file.
+   * @param base The index of the first line in the segment.
+   * @param count The amount of lines in the segment.
+   * @param file The file the segment is stored in.
+   * @param archived Whether the file is compressed.
+   */
+  public HistorySegment(long base, long count, File file, boolean archived)
+  {
+    this.base = base;
+    this.count = count;
+    this.file = file;
+    this.archived = archived;
+  }
+  
+  /**
+   * Returns the name of the file a segment with the given base would be stored
+   * in, without any extension.
+   * @param base The index of the first line in the segment.
+   * @return The name of the file.
+   */
+  public static String getName(long base)
+  {
+    return String.format("%020d", base);
+  }
+  
+  /**
+   * Returns the base index of the segment stored within the given file, or
+   * {@code -1} if the file is not a segment.
+   * @param file The file to test.
+   * @return The base index, or {@code -1}.
+   */
+  public static long getBase(File file)
+  {
+    String name = file.getName();
+    int dot = name.indexOf('.');
+    if(dot != 20 || !(name.endsWith(HistoryConstants.SEGMENT_EXTENSION) ||
+      name.endsWith(HistoryConstants.ARCHIVE_EXTENSION)))
+    {
+      return -1;
+    }
+    try
+    {
+      return Long.parseLong(name.substring(0, dot));
+    }
+    catch(NumberFormatException nfe)
+    {
+      return -1;
+    }
+  }
+  
+  /**
+   * Encodes a line into a frame.
+   * @param line The line to encode.
+   * @return The frame, length first.
+   */
+  public static byte[] encode(String line)
+  {
+    byte[] utf = line.getBytes(StandardCharsets.UTF_8);
+    byte[] frame = new byte[utf.length + 4];
+    ByteBuffer.wrap(frame).putInt(utf.length).put(utf);
+    return frame;
+  }
+  
+  /**
+   * Decodes the frame that starts at the given position of the buffer.
+   * @param buffer The buffer holding frames.
+   * @param position The position the frame starts at.
+   * @return The line the frame holds.
+   */
+  public static String decode(ByteBuffer buffer, int position)
+  {
+    int length = buffer.getInt(position);
+    byte[] utf = new byte[length];
+    ByteBuffer b = buffer.duplicate();
+    b.position(position + 4);
+    b.get(utf);
+    return new String(utf, StandardCharsets.UTF_8);
+  }
+  
+  /**
+   * Finds where each whole frame within the buffer starts. The scan stops at
+   * the first frame that does not fit within the buffer, so a file that was
+   * cut short by a crash is still readable up to that point.
+   * @param buffer The buffer holding frames, from position zero to its limit.
+   * @return The position of each frame, in order.
+   */
+  public static int[] index(ByteBuffer buffer)
+  {
+    return index(buffer, 0);
+  }
+  
+  /**
+   * Finds where each whole frame within the buffer starts, beginning with the
+   * frame at the given position. This is used when the frames before that
+   * position are already known.
+   * @param buffer The buffer holding frames, from position zero to its limit.
+   * @param position The position of the first frame to look at.
+   * @return The position of each frame found, in order.
+   * @see #index(ByteBuffer)
+   */
+  public static int[] index(ByteBuffer buffer, int position)
+  {
+    int[] offsets = new int[64];
+    int found = 0;
+    while(position + 4 <= buffer.limit())
+    {
+      int length = buffer.getInt(position);
+      if(length < 0 || position + 4 + length > buffer.limit())
+      {
+        break;
+      }
+      if(found == offsets.length)
+      {
+        offsets = Arrays.copyOf(offsets, found * 2);
+      }
+      offsets[found++] = position;
+      position += 4 + length;
+    }
+    return Arrays.copyOf(offsets, found);
+  }
+  
+  /**
+   * Returns the file holding the checksum of the given compressed segment.
+   * @param archive The file of the compressed segment.
+   * @return The checksum file.
+   */
+  public static File getChecksumFile(File archive)
+  {
+    return new File(archive.getPath() + HistoryConstants.CHECKSUM_EXTENSION);
+  }
+  
+  /**
+   * Writes a checksum into the given file.
+   * @param file The checksum file.
+   * @param checksum The checksum.
+   * @throws IOException If the file could not be written.
+   */
+  public static void writeChecksum(File file, long checksum) throws IOException
+  {
+    Files.write(file.toPath(),
+      Long.toHexString(checksum).getBytes(StandardCharsets.US_ASCII));
+  }
+  
+  /**
+   * Reads a checksum from the given file.
+   * @param file The checksum file.
+   * @return The checksum.
+   * @throws IOException If the file could not be read, or does not hold a
+   *  checksum.
+   */
+  public static long readChecksum(File file) throws IOException
+  {
+    String text = new String(Files.readAllBytes(file.toPath()),
+      StandardCharsets.US_ASCII).trim();
+    try
+    {
+      return Long.parseLong(text, 16);
+    }
+    catch(NumberFormatException nfe)
+    {
+      throw new IOException("Malformed checksum within " + file);
+    }
+  }
+  
+  /**
+   * Opens the segment for reading. A warm segment is memory-mapped; a cold
+   * segment is inflated onto the heap, and its checksum is checked (if its
+   * checksum file exists).
+   * @return The contents of the segment.
+   * @throws IOException If the file could not be read, or its checksum does
+   *  not match.
+   */
+  public synchronized Contents open() throws IOException
+  {
+    ByteBuffer data;
+    if(this.archived)
+    {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try(InputStream in = new GZIPInputStream(new FileInputStream(this.file)))
+      {
+        byte[] buffer = new byte[8192];
+        int read;
+        while((read = in.read(buffer)) > 0)
+        {
+          bytes.write(buffer, 0, read);
+        }
+      }
+      byte[] frames = bytes.toByteArray();
+      File checksumFile = HistorySegment.getChecksumFile(this.file);
+      if(checksumFile.isFile())
+      {
+        CRC32 crc = new CRC32();
+        crc.update(frames, 0, frames.length);
+        if(crc.getValue() != HistorySegment.readChecksum(checksumFile))
+        {
+          throw new IOException("Checksum mismatch within " + this.file);
+        }
+      }
+      data = ByteBuffer.wrap(frames);
+    }
+    else
+    {
+      try(RandomAccessFile raf = new RandomAccessFile(this.file, "r"))
+      {
+        data = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+          raf.length());
+      }
+    }
+    return new Contents(this.base, data, HistorySegment.index(data));
+  }
+  
+  /**
+   * Marks this segment as archived into the given file. The old, uncompressed
+   * file is <b>not</b> deleted by this method.
+   * @param archive The compressed file now holding this segment.
+   */
+  public synchronized void archive(File archive)
+  {
+    this.file = archive;
+    this.archived = true;
+  }
+  
+  /**
+   * Returns the index of the first line in this segment.
+   * @return The base index.
+   */
+  public long getBase()
+  {
+    return this.base;
+  }
+  
+  /**
+   * Returns the amount of lines in this segment.
+   * @return The amount of lines.
+   */
+  public long getCount()
+  {
+    return this.count;
+  }
+  
+  /**
+   * Returns the index just after the last line in this segment.
+   * @return The end index.
+   */
+  public long getEnd()
+  {
+    return this.base + this.count;
+  }
+  
+  /**
+   * Returns the file this segment is currently stored in.
+   * @return The file.
+   */
+  public synchronized File getFile()
+  {
+    return this.file;
+  }
+  
+  /**
+   * Returns whether this segment has been compressed.
+   * @return {@code true} if the segment is cold, {@code false} if it is warm.
+   */
+  public synchronized boolean isArchived()
+  {
+    return this.archived;
+  }
+  
+  /**
+   * The readable contents of a segment. This is a buffer of frames and the
+   * position of each frame, and it is safe to read from multiple threads.
+   * @author C. William Oswald
+   * @version 0.0.1
+   * @since JTalker 0.3.0
+   */
+  public static class Contents
+  {
+    private long base;
+    private ByteBuffer data;
+    private int[] offsets;
+    
+    /**
+     * Constructs the contents of a segment.
+     * @param base The index of the first line.
+     * @param data The frames.
+     * @param offsets Where each frame starts.
+     */
+    public Contents(long base, ByteBuffer data, int[] offsets)
+    {
+      this.base = base;
+      this.data = data;
+      this.offsets = offsets;
+    }
+    
+    /**
+     * Reads the lines from index {@code from} (a history index, not an index
+     * within this segment) for at most {@code count} lines, and adds them to
+     * the given list.
+     * @param from The history index of the first line to read.
+     * @param count The most lines to read.
+     * @param lines The list to add the lines to.
+     */
+    public void read(long from, int count, List<String> lines)
+    {
+      int first = (int)Math.max(0, from - this.base);
+      int last = (int)Math.min(this.offsets.length, from - this.base + count);
+      for(int i = first; i < last; i++)
+      {
+        lines.add(HistorySegment.decode(this.data, this.offsets[i]));
+      }
+    }
+    
+    /**
+     * Returns the amount of lines within these contents.
+     * @return The amount of lines.
+     */
+    public int size()
+    {
+      return this.offsets.length;
+    }
+  }
+}
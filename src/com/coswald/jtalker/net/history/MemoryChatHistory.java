@@ -0,0 +1,83 @@
+/*
+ * MemoryChatHistory.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.history;
+
+import com.coswald.jtalker.net.history.ChatHistory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A {@code ChatHistory} that keeps every line on the heap. This is the
+ * simplest history there is: it is a wrapper for an {@code ArrayList}, and
+ * every method is {@code synchronized}. Nothing is ever removed, so it should
+ * only be used for servers that don't run for long.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class MemoryChatHistory implements ChatHistory
+{
+  private List<String> lines;
+  
+  /**
+   * Constructs an empty history.
+   */
+  public MemoryChatHistory()
+  {
+    this.lines = new ArrayList<String>();
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized long append(String line)
+  {
+    this.lines.add(line);
+    return this.lines.size() - 1;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized long size()
+  {
+    return this.lines.size();
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized List<String> read(long from, int count)
+  {
+    if(from < 0 || count < 0)
+    {
+      throw new IllegalArgumentException("Index and count must be positive!");
+    }
+    int start = (int)Math.min(from, this.lines.size());
+    int end = (int)Math.min(from + count, this.lines.size());
+    return new ArrayList<String>(this.lines.subList(start, end));
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * RetentionPolicy.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.history;
+
+import java.io.File;
+
+/**
+ * <p>Decides how much sealed history a
+ * {@link com.coswald.jtalker.net.history.TieredChatHistory TieredChatHistory}
+ * keeps. A segment expires once it is older than the maximum age, or once the
+ * segments newer than it already take up the maximum amount of bytes; a limit
+ * that is zero (or less) is not checked. Expired segments are either deleted,
+ * or, if this policy has an archive directory, moved into it, where they are
+ * no longer part of the history but can still be read by hand. The segment
+ * being written to never expires. This class is immutable.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class RetentionPolicy
+{
+  /**
+   * A policy that keeps every segment forever.
+   */
+  public static final RetentionPolicy KEEP_FOREVER =
+    new RetentionPolicy(0, 0, null);
+  
+  private long maxAgeMillis;
+  private long maxBytes;
+  private File archiveDirectory;
+  
+  /**
+   * Constructs a retention policy.
+   * @param maxAgeMillis The age, in milliseconds, at which a segment expires.
+   * @param maxBytes The amount of bytes of segments to keep.
+   * @param archiveDirectory The directory expired segments are moved to, or
+   *  {@code null} to delete them.
+   */
+  public RetentionPolicy(long maxAgeMillis, long maxBytes,
+    File archiveDirectory)
+  {
+    this.maxAgeMillis = maxAgeMillis;
+    this.maxBytes = maxBytes;
+    this.archiveDirectory = archiveDirectory;
+  }
+  
+  /**
+   * Returns whether a segment has expired.
+   * @param ageMillis How long ago the segment was sealed, in milliseconds.
+   * @param newerBytes The bytes taken up by this segment and every segment
+   *  newer than it.
+   * @return {@code true} if the segment should no longer be kept.
+   */
+  public boolean isExpired(long ageMillis, long newerBytes)
+  {
+    return (this.maxAgeMillis > 0 && ageMillis > this.maxAgeMillis) ||
+      (this.maxBytes > 0 && newerBytes > this.maxBytes);
+  }
+  
+  /**
+   * Returns the age, in milliseconds, at which a segment expires.
+   * @return The maximum age.
+   */
+  public long getMaxAgeMillis()
+  {
+    return this.maxAgeMillis;
+  }
+  
+  /**
+   * Returns the amount of bytes of segments to keep.
+   * @return The maximum size.
+   */
+  public long getMaxBytes()
+  {
+    return this.maxBytes;
+  }
+  
+  /**
+   * Returns the directory expired segments are moved to.
+   * @return The archive directory, or {@code null} if they are deleted.
+   */
+  public File getArchiveDirectory()
+  {
+    return this.archiveDirectory;
+  }
+}
@@ -0,0 +1,968 @@
+/*
+ * TieredChatHistory.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.history;
+
+import com.coswald.jtalker.Initializable;
+import com.coswald.jtalker.LRUCache;
+import com.coswald.jtalker.Snapshottable;
+import com.coswald.jtalker.net.history.ChatHistory;
+import com.coswald.jtalker.net.history.HistoryConstants;
+import com.coswald.jtalker.net.history.HistoryCounters;
+import com.coswald.jtalker.net.history.HistorySegment;
+import com.coswald.jtalker.net.history.RetentionPolicy;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>A {@code ChatHistory} that keeps its lines in three tiers, so that a
+ * server can hold months of chat without its heap growing. Every line lives in
+ * exactly one tier, and {@link #read(long, int) reading} goes to whichever
+ * tier holds it:</p>
+ * <ul>
+ * <li><b>Hot</b>: the newest lines, those of the segment being written to.
+ * These are kept on the heap as encoded frames (not as {@code String}s), and
+ * are also written through to the segment's file as they are appended.</li>
+ * <li><b>Warm</b>: the newest
+ * {@value com.coswald.jtalker.net.history.HistoryConstants#WARM_SEGMENTS}
+ * sealed segments. These are plain files that are memory-mapped when they are
+ * read.</li>
+ * <li><b>Cold</b>: every older segment. These are compressed into GZIP files
+ * by a background thread, and are inflated when they are read.</li>
+ * </ul>
+ * <p>The segment being written to is sealed (rolled) once it would grow past
+ * {@value com.coswald.jtalker.net.history.HistoryConstants#SEGMENT_BYTES}
+ * bytes, or once it is older than the
+ * {@link #setSegmentMillis(long) segment} age, whichever comes first. Sealing
+ * only closes one file and opens another. Everything else that is done with
+ * sealed segments happens on a single, low priority background thread:
+ * compressing and checksumming them, and applying the
+ * {@link #setRetentionPolicy(RetentionPolicy) retention} policy, which deletes
+ * old segments or moves them into an archive directory. Neither the thread
+ * accepting clients nor the threads relaying their messages ever wait on that
+ * work, and what it has done can be watched through our
+ * {@link #getCounters() counters}.</p>
+ * <p>Only the hot tier and a small
+ * {@link com.coswald.jtalker.LRUCache cache} of recently read segments take
+ * up the heap. Reading a warm or cold segment is done outside of the lock
+ * that {@link #append(String) appending} uses, so a client reading old history
+ * never holds up a broadcast. A segment being read is pinned instead: the
+ * background thread does not delete, move or replace the files of any
+ * segment while a read is going on, so a read never finds a segment missing
+ * from the middle of what it asked for.</p>
+ * <p>This class is an {@code Initializable}: the {@link #init() init} method
+ * reads back any segments already within the directory, so a restarted server
+ * continues its history where it left off. It is also {@code Snapshottable}:
+ * a snapshot holds the table of sealed segments and where each frame of the
+ * hot segment starts, so a restarted server only has to look at the frames
+ * written after the snapshot, and never has to decompress a segment just to
+ * count its lines.</p>
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.history.HistorySegment
+ */
+public class TieredChatHistory implements ChatHistory, Closeable, Initializable,
+  Snapshottable
+{
+  private File directory;
+  private int segmentBytes;
+  private int warmSegments;
+  
+  private List<HistorySegment> segments;
+  private Set<Long> archiving;
+  private LRUCache<Long, HistorySegment.Contents> cache;
+  private ScheduledExecutorService background;
+  private ScheduledFuture<?> maintenance;
+  private long segmentMillis;
+  private RetentionPolicy retention;
+  private HistoryCounters counters;
+  private ReadWriteLock files;
+  
+  private long hotBase;
+  private long hotStartedMillis;
+  private byte[] hot;
+  private int hotLength;
+  private int[] hotOffsets;
+  private int hotCount;
+  private FileChannel active;
+  
+  /**
+   * Constructs a history stored within the given directory, sealing segments
+   * at the given size and keeping the given amount of segments warm.
+   * @param directory The directory to store segments in.
+   * @param segmentBytes The size, in bytes, at which a segment is sealed.
+   * @param warmSegments The amount of sealed segments kept uncompressed.
+   * @throws IllegalArgumentException If the directory is {@code null}, the
+   *  segment size is not positive, or the amount of warm segments is negative.
+   */
+  public TieredChatHistory(File directory, int segmentBytes, int warmSegments)
+  {
+    if(directory == null)
+    {
+      throw new IllegalArgumentException("No parameter can be null!");
+    }
+    if(segmentBytes <= 0 || warmSegments < 0)
+    {
+      throw new IllegalArgumentException("Segment size must be positive and " +
+        "the amount of warm segments must not be negative!");
+    }
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.warmSegments = warmSegments;
+    
+    this.segments = new ArrayList<HistorySegment>();
+    this.archiving = new HashSet<Long>();
+    this.cache = new LRUCache<Long, HistorySegment.Contents>(
+      HistoryConstants.CACHED_SEGMENTS);
+    this.background = Executors.newSingleThreadScheduledExecutor(r ->
+    {
+      Thread t = new Thread(r, "JTalker History Maintenance");
+      t.setDaemon(true);
+      t.setPriority(Thread.MIN_PRIORITY);
+      return t;
+    });
+    this.segmentMillis = HistoryConstants.SEGMENT_MILLIS;
+    this.retention = RetentionPolicy.KEEP_FOREVER;
+    this.counters = new HistoryCounters();
+    this.files = new ReentrantReadWriteLock();
+    
+    this.hot = new byte[4096];
+    this.hotOffsets = new int[64];
+  }
+  
+  /**
+   * Constructs a history stored within the given directory, using the
+   * {@link com.coswald.jtalker.net.history.HistoryConstants#SEGMENT_BYTES
+   * default} segment size and
+   * {@link com.coswald.jtalker.net.history.HistoryConstants#WARM_SEGMENTS
+   * default} amount of warm segments.
+   * @param directory The directory to store segments in.
+   * @see #TieredChatHistory(File, int, int)
+   */
+  public TieredChatHistory(File directory)
+  {
+    this(directory, HistoryConstants.SEGMENT_BYTES,
+      HistoryConstants.WARM_SEGMENTS);
+  }
+  
+  /**
+   * Reads back the segments within our directory. Every segment but the newest
+   * becomes warm or cold (depending on whether it has been compressed), and
+   * the newest uncompressed segment becomes hot again, so that new lines are
+   * appended to it. A frame cut short by a crash is cut from the end of that
+   * segment. If the directory can not be read, the history starts out empty,
+   * and an error is printed. Once this is done, the background thread starts
+   * checking every
+   * {@value com.coswald.jtalker.net.history.HistoryConstants#MAINTENANCE_MILLIS}
+   * milliseconds whether the hot segment should roll and whether any segment
+   * has expired.
+   */
+  @Override
+  public synchronized void init()
+  {
+    try
+    {
+      if(!this.directory.isDirectory() && !this.directory.mkdirs())
+      {
+        throw new IOException("Could not create " + this.directory);
+      }
+      TreeMap<Long, File> files = this.listSegments();
+      this.segments.clear();
+      this.hotBase = 0;
+      
+      Map.Entry<Long, File> last = files.lastEntry();
+      File hotFile = null;
+      if(last != null && last.getValue().getName().endsWith(
+        HistoryConstants.SEGMENT_EXTENSION))
+      {
+        hotFile = files.remove(last.getKey());
+      }
+      for(Map.Entry<Long, File> entry : files.entrySet())
+      {
+        Long next = files.higherKey(entry.getKey());
+        boolean archived = entry.getValue().getName().endsWith(
+          HistoryConstants.ARCHIVE_EXTENSION);
+        long count;
+        if(next != null)
+        {
+          count = next - entry.getKey();
+        }
+        else if(hotFile != null)
+        {
+          count = last.getKey() - entry.getKey();
+        }
+        else
+        {
+          //Only the lines themselves can tell us how long the newest one is
+          count = (new HistorySegment(entry.getKey(), 0, entry.getValue(),
+            archived)).open().size();
+        }
+        HistorySegment segment = new HistorySegment(entry.getKey(), count,
+          entry.getValue(), archived);
+        this.segments.add(segment);
+        this.hotBase = segment.getEnd();
+      }
+      
+      this.hotLength = 0;
+      this.hotCount = 0;
+      if(hotFile != null)
+      {
+        this.recover(hotFile, last.getKey(), new int[0]);
+      }
+      this.openActive();
+      this.archiveOldSegments();
+    }
+    catch(IOException i)
+    {
+      System.err.println("Could not read the chat history!");
+      i.printStackTrace();
+    }
+    this.startMaintenance();
+  }
+  
+  /**
+   * Writes the table of sealed segments (the base index and the amount of lines
+   * of each) and where each frame of the hot segment starts. This holds our
+   * lock, but only for as long as it takes to copy those numbers.
+   * @param out Where to write the snapshot to.
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public synchronized void snapshot(DataOutput out) throws IOException
+  {
+    out.writeInt(this.segments.size());
+    for(HistorySegment segment : this.segments)
+    {
+      out.writeLong(segment.getBase());
+      out.writeLong(segment.getCount());
+    }
+    out.writeLong(this.hotBase);
+    out.writeInt(this.hotLength);
+    out.writeInt(this.hotCount);
+    for(int i = 0; i < this.hotCount; i++)
+    {
+      out.writeInt(this.hotOffsets[i]);
+    }
+  }
+  
+  /**
+   * Initializes this history from a snapshot. The segments within our
+   * directory must be the ones the snapshot knows about (a segment may have
+   * been compressed since); if a segment was sealed or removed after the
+   * snapshot was written, it is out of date, and can not be used. Only the
+   * frames appended to the hot segment after the snapshot are looked at.
+   * @param in Where to read the snapshot from.
+   * @throws IOException If an I/O error occurs, or the snapshot is out of date.
+   */
+  @Override
+  public synchronized void restore(DataInput in) throws IOException
+  {
+    if(!this.directory.isDirectory())
+    {
+      throw new IOException("No history within " + this.directory);
+    }
+    TreeMap<Long, File> files = this.listSegments();
+    List<HistorySegment> restored = new ArrayList<HistorySegment>();
+    long end = -1;
+    for(int i = in.readInt(); i > 0; i--)
+    {
+      long base = in.readLong();
+      long count = in.readLong();
+      File file = files.remove(base);
+      if(file == null || (end >= 0 && base != end))
+      {
+        throw new IOException("The history snapshot is out of date!");
+      }
+      restored.add(new HistorySegment(base, count, file, file.getName()
+        .endsWith(HistoryConstants.ARCHIVE_EXTENSION)));
+      end = base + count;
+    }
+    long base = in.readLong();
+    int length = in.readInt();
+    int[] offsets = new int[in.readInt()];
+    for(int i = 0; i < offsets.length; i++)
+    {
+      offsets[i] = in.readInt();
+    }
+    File hotFile = files.remove(base);
+    if(!files.isEmpty() || (end >= 0 && base != end) || (hotFile == null ?
+      length > 0 : !hotFile.getName().endsWith(
+      HistoryConstants.SEGMENT_EXTENSION) || hotFile.length() < length))
+    {
+      throw new IOException("The history snapshot is out of date!");
+    }
+    
+    this.hotLength = 0;
+    this.hotCount = 0;
+    this.hotBase = base;
+    if(hotFile != null)
+    {
+      this.recover(hotFile, base, offsets);
+    }
+    this.segments.clear();
+    this.segments.addAll(restored);
+    this.openActive();
+    this.archiveOldSegments();
+    this.startMaintenance();
+  }
+  
+  /**
+   * Appends a line to the hot tier, and writes it through to the file of the
+   * segment being written to. If that segment would grow too large, or has
+   * grown too old, it is sealed first.
+   * @param line The line to append.
+   * @return The index the line was given.
+   */
+  @Override
+  public synchronized long append(String line)
+  {
+    byte[] frame = HistorySegment.encode(line);
+    if(this.hotCount > 0 && this.hotLength + frame.length > this.segmentBytes)
+    {
+      this.seal(false);
+    }
+    else if(this.isHotExpired())
+    {
+      this.seal(true);
+    }
+    if(this.hotCount == 0)
+    {
+      this.hotStartedMillis = System.currentTimeMillis();
+    }
+    
+    if(this.hotLength + frame.length > this.hot.length)
+    {
+      this.hot = Arrays.copyOf(this.hot,
+        Math.max(this.hot.length * 2, this.hotLength + frame.length));
+    }
+    if(this.hotCount == this.hotOffsets.length)
+    {
+      this.hotOffsets = Arrays.copyOf(this.hotOffsets, this.hotCount * 2);
+    }
+    System.arraycopy(frame, 0, this.hot, this.hotLength, frame.length);
+    this.hotOffsets[this.hotCount] = this.hotLength;
+    this.hotLength += frame.length;
+    
+    if(this.active != null)
+    {
+      try
+      {
+        ByteBuffer b = ByteBuffer.wrap(frame);
+        while(b.hasRemaining())
+        {
+          this.active.write(b);
+        }
+      }
+      catch(IOException i)
+      {
+        //Keep the line in memory; it just won't survive a restart
+        i.printStackTrace();
+      }
+    }
+    return this.hotBase + this.hotCount++;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized long size()
+  {
+    return this.hotBase + this.hotCount;
+  }
+  
+  /**
+   * Reads lines from whichever tiers hold them. Hot lines are read while
+   * holding our lock; warm and cold segments are read after it has been let
+   * go, while they are pinned. If a segment can not be read, an error is
+   * printed, and its lines are left out along with every line before them,
+   * so that what is returned never has a hole within it.
+   * @param from The index of the first line to read.
+   * @param count The most lines to read.
+   * @return The lines that were read, oldest first.
+   * @throws IllegalArgumentException If {@code from} or {@code count} is
+   *  negative.
+   */
+  @Override
+  public List<String> read(long from, int count)
+  {
+    if(from < 0 || count < 0)
+    {
+      throw new IllegalArgumentException("Index and count must be positive!");
+    }
+    List<HistorySegment> needed = new ArrayList<HistorySegment>();
+    List<String> hotLines = new ArrayList<String>();
+    List<String> lines = new ArrayList<String>();
+    long end;
+    //pin the segments we find, so their files stay until we have read them
+    this.files.readLock().lock();
+    try
+    {
+      synchronized(this)
+      {
+        end = Math.min(from + count, this.size());
+        for(HistorySegment segment : this.segments)
+        {
+          if(segment.getEnd() > from && segment.getBase() < end)
+          {
+            needed.add(segment);
+          }
+        }
+        ByteBuffer hotBuffer = ByteBuffer.wrap(this.hot, 0, this.hotLength);
+        for(long i = Math.max(from, this.hotBase); i < end; i++)
+        {
+          hotLines.add(HistorySegment.decode(hotBuffer,
+            this.hotOffsets[(int)(i - this.hotBase)]));
+        }
+      }
+      
+      for(HistorySegment segment : needed)
+      {
+        try
+        {
+          this.getContents(segment).read(from, (int)(end - from), lines);
+        }
+        catch(IOException i)
+        {
+          this.counters.readFailed();
+          System.err.println("Could not read history segment " +
+            segment.getFile());
+          i.printStackTrace();
+          //never leave a hole; what came before it is left out, as if expired
+          lines.clear();
+        }
+      }
+    }
+    finally
+    {
+      this.files.readLock().unlock();
+    }
+    lines.addAll(hotLines);
+    return lines;
+  }
+  
+  /**
+   * Stops the background thread (letting it finish what it has started) and
+   * closes the file of the segment being written to. The lines within it stay
+   * there, and will be hot again once the history is initialized again.
+   * @throws IOException If the file could not be closed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.background.shutdown();
+    try
+    {
+      this.background.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    catch(InterruptedException ie)
+    {
+      Thread.currentThread().interrupt();
+    }
+    synchronized(this)
+    {
+      if(this.active != null)
+      {
+        this.active.close();
+        this.active = null;
+      }
+    }
+  }
+  
+  /**
+   * Sets the age, in milliseconds, at which the segment being written to is
+   * sealed. A value of zero (or less) only seals segments by size.
+   * @param segmentMillis The age at which a segment is sealed.
+   */
+  public synchronized void setSegmentMillis(long segmentMillis)
+  {
+    this.segmentMillis = segmentMillis;
+  }
+  
+  /**
+   * Returns the age, in milliseconds, at which the segment being written to is
+   * sealed.
+   * @return The age at which a segment is sealed.
+   */
+  public synchronized long getSegmentMillis()
+  {
+    return this.segmentMillis;
+  }
+  
+  /**
+   * Sets the policy that decides how much sealed history is kept. This is
+   * applied by the background thread, so it may take up to
+   * {@value com.coswald.jtalker.net.history.HistoryConstants#MAINTENANCE_MILLIS}
+   * milliseconds to take effect.
+   * @param retention The retention policy.
+   * @throws IllegalArgumentException If the policy is {@code null}.
+   */
+  public synchronized void setRetentionPolicy(RetentionPolicy retention)
+  {
+    if(retention == null)
+    {
+      throw new IllegalArgumentException("No parameter can be null!");
+    }
+    this.retention = retention;
+  }
+  
+  /**
+   * Returns the policy that decides how much sealed history is kept.
+   * @return The retention policy.
+   */
+  public synchronized RetentionPolicy getRetentionPolicy()
+  {
+    return this.retention;
+  }
+  
+  /**
+   * Returns the counters of what this history has done with its segments.
+   * @return The counters.
+   */
+  public HistoryCounters getCounters()
+  {
+    return this.counters;
+  }
+  
+  /**
+   * Returns the directory segments are stored in.
+   * @return The directory.
+   */
+  public File getDirectory()
+  {
+    return this.directory;
+  }
+  
+  /**
+   * Returns the amount of lines within the hot tier.
+   * @return The amount of hot lines.
+   */
+  public synchronized int getHotCount()
+  {
+    return this.hotCount;
+  }
+  
+  /**
+   * Returns the amount of sealed segments that have not been compressed.
+   * @return The amount of warm segments.
+   */
+  public synchronized int getWarmCount()
+  {
+    int warm = 0;
+    for(HistorySegment segment : this.segments)
+    {
+      warm += segment.isArchived() ? 0 : 1;
+    }
+    return warm;
+  }
+  
+  /**
+   * Returns the amount of sealed segments that have been compressed.
+   * @return The amount of cold segments.
+   */
+  public synchronized int getColdCount()
+  {
+    return this.segments.size() - this.getWarmCount();
+  }
+  
+  /*
+   * Seals the hot segment: its file becomes a warm segment and a new, empty
+   * hot segment is started. Must hold our lock.
+   */
+  private void seal(boolean byTime)
+  {
+    this.counters.rolled(byTime);
+    try
+    {
+      if(this.active != null)
+      {
+        this.active.close();
+        this.active = null;
+      }
+    }
+    catch(IOException i)
+    {
+      i.printStackTrace();
+    }
+    this.segments.add(new HistorySegment(this.hotBase, this.hotCount,
+      this.getFile(this.hotBase, HistoryConstants.SEGMENT_EXTENSION), false));
+    this.hotBase += this.hotCount;
+    this.hotCount = 0;
+    this.hotLength = 0;
+    try
+    {
+      this.openActive();
+    }
+    catch(IOException i)
+    {
+      i.printStackTrace();
+    }
+    this.archiveOldSegments();
+  }
+  
+  /*
+   * Whether the hot segment has lines and is older than it may be. Must hold
+   * our lock.
+   */
+  private boolean isHotExpired()
+  {
+    return this.hotCount > 0 && this.segmentMillis > 0 &&
+      System.currentTimeMillis() - this.hotStartedMillis >= this.segmentMillis;
+  }
+  
+  /*
+   * Runs on the background thread: rolls the hot segment if it is too old,
+   * then takes every expired segment out of the history and deletes or moves
+   * its files. Our lock is only held while deciding what to do.
+   */
+  private void maintain()
+  {
+    List<HistorySegment> expired = new ArrayList<HistorySegment>();
+    RetentionPolicy policy;
+    synchronized(this)
+    {
+      if(this.isHotExpired())
+      {
+        this.seal(true);
+      }
+      policy = this.retention;
+      long now = System.currentTimeMillis();
+      long newerBytes = 0;
+      for(int i = this.segments.size() - 1; i >= 0; i--)
+      {
+        HistorySegment segment = this.segments.get(i);
+        newerBytes += segment.getFile().length();
+        if(expired.isEmpty() && !policy.isExpired(
+          now - segment.getFile().lastModified(), newerBytes))
+        {
+          continue;
+        }
+        //everything older than an expired segment expires with it
+        if(this.archiving.contains(segment.getBase()))
+        {
+          //wait for it to be compressed before moving it
+          expired.clear();
+          break;
+        }
+        expired.add(0, segment);
+      }
+      this.segments.removeAll(expired);
+    }
+    
+    for(HistorySegment segment : expired)
+    {
+      this.expire(segment, policy.getArchiveDirectory());
+    }
+  }
+  
+  /*
+   * Deletes the files of a segment that has been taken out of the history, or
+   * moves them into the archive directory, once no read has it pinned.
+   */
+  private void expire(HistorySegment segment, File archiveDirectory)
+  {
+    synchronized(this.cache)
+    {
+      this.cache.remove(segment.getBase());
+    }
+    File file = segment.getFile();
+    File checksum = HistorySegment.getChecksumFile(file);
+    this.files.writeLock().lock();
+    try
+    {
+      if(archiveDirectory != null)
+      {
+        if(!archiveDirectory.isDirectory() && !archiveDirectory.mkdirs())
+        {
+          throw new IOException("Could not create " + archiveDirectory);
+        }
+        Files.move(file.toPath(), archiveDirectory.toPath().resolve(
+          file.getName()), StandardCopyOption.REPLACE_EXISTING);
+        if(checksum.isFile())
+        {
+          Files.move(checksum.toPath(), archiveDirectory.toPath().resolve(
+            checksum.getName()), StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      else
+      {
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(checksum.toPath());
+      }
+      this.counters.expired(archiveDirectory != null);
+    }
+    catch(IOException i)
+    {
+      System.err.println("Could not expire history segment " + file);
+      i.printStackTrace();
+    }
+    finally
+    {
+      this.files.writeLock().unlock();
+    }
+  }
+  
+  /*
+   * Hands every warm segment past the amount we keep warm to the background
+   * thread. Must hold our lock.
+   */
+  private void archiveOldSegments()
+  {
+    int warm = this.getWarmCount();
+    for(HistorySegment segment : this.segments)
+    {
+      if(warm <= this.warmSegments)
+      {
+        break;
+      }
+      if(!segment.isArchived())
+      {
+        warm--;
+        if(this.archiving.add(segment.getBase()))
+        {
+          this.background.execute(() -> this.archive(segment));
+        }
+      }
+    }
+  }
+  
+  /*
+   * Compresses and checksums a warm segment into a cold one. This runs on the
+   * background thread, and only takes our lock to note that it is done. The
+   * checksum is written before the archive is renamed into place, so a cold
+   * segment always has one. The warm file is only swapped for the cold one
+   * once no read has the segment pinned.
+   */
+  private void archive(HistorySegment segment)
+  {
+    File source = segment.getFile();
+    File target = this.getFile(segment.getBase(),
+      HistoryConstants.ARCHIVE_EXTENSION);
+    File temp = new File(target.getPath() + ".tmp");
+    try
+    {
+      CRC32 crc = new CRC32();
+      try(InputStream in = new CheckedInputStream(new FileInputStream(source),
+        crc); OutputStream out = new GZIPOutputStream(
+        new FileOutputStream(temp)))
+      {
+        byte[] buffer = new byte[8192];
+        int read;
+        while((read = in.read(buffer)) > 0)
+        {
+          out.write(buffer, 0, read);
+        }
+      }
+      HistorySegment.writeChecksum(HistorySegment.getChecksumFile(target),
+        crc.getValue());
+      //keep the age of the segment, so retention is not fooled
+      temp.setLastModified(source.lastModified());
+      this.files.writeLock().lock();
+      try
+      {
+        if(!temp.renameTo(target))
+        {
+          throw new IOException("Could not rename " + temp + " to " + target);
+        }
+        this.counters.compressed(source.length(), target.length());
+        segment.archive(target);
+        synchronized(this.cache)
+        {
+          this.cache.remove(segment.getBase());
+        }
+        if(!source.delete())
+        {
+          source.deleteOnExit();
+        }
+      }
+      finally
+      {
+        this.files.writeLock().unlock();
+      }
+    }
+    catch(IOException i)
+    {
+      this.counters.compressionFailed();
+      System.err.println("Could not archive history segment " + source);
+      i.printStackTrace();
+      temp.delete();
+    }
+    finally
+    {
+      synchronized(this)
+      {
+        this.archiving.remove(segment.getBase());
+      }
+    }
+  }
+  
+  /*
+   * Returns the contents of a segment, opening it if it is not cached.
+   */
+  private HistorySegment.Contents getContents(HistorySegment segment)
+    throws IOException
+  {
+    HistorySegment.Contents contents;
+    synchronized(this.cache)
+    {
+      contents = this.cache.get(segment.getBase());
+    }
+    if(contents == null)
+    {
+      contents = segment.open();
+      synchronized(this.cache)
+      {
+        this.cache.put(segment.getBase(), contents);
+      }
+    }
+    return contents;
+  }
+  
+  /*
+   * Starts checking whether the hot segment should roll and whether any
+   * segment has expired, if that isn't already being done.
+   */
+  private void startMaintenance()
+  {
+    if(this.maintenance == null)
+    {
+      this.maintenance = this.background.scheduleWithFixedDelay(
+        this::maintain, HistoryConstants.MAINTENANCE_MILLIS,
+        HistoryConstants.MAINTENANCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+  
+  /*
+   * Reads the frames of the newest segment back into the hot tier, cutting off
+   * anything after the last whole frame. Where the given frames start is
+   * already known, so only the frames after them are looked for. Must hold
+   * our lock.
+   */
+  private void recover(File file, long base, int[] known) throws IOException
+  {
+    byte[] bytes;
+    try(RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+    {
+      bytes = new byte[(int)raf.length()];
+      raf.readFully(bytes);
+      int[] tail = HistorySegment.index(ByteBuffer.wrap(bytes),
+        (known.length == 0) ? 0 : known[known.length - 1] + 4 +
+        ByteBuffer.wrap(bytes).getInt(known[known.length - 1]));
+      int[] offsets = Arrays.copyOf(known, known.length + tail.length);
+      System.arraycopy(tail, 0, offsets, known.length, tail.length);
+      int length = (offsets.length == 0) ? 0 :
+        offsets[offsets.length - 1] + 4 +
+        ByteBuffer.wrap(bytes).getInt(offsets[offsets.length - 1]);
+      raf.setLength(length);
+      
+      this.hot = Arrays.copyOf(bytes, Math.max(length, this.hot.length));
+      this.hotLength = length;
+      this.hotOffsets = Arrays.copyOf(offsets, Math.max(offsets.length, 64));
+      this.hotCount = offsets.length;
+      this.hotBase = base;
+      this.hotStartedMillis = System.currentTimeMillis();
+    }
+  }
+  
+  /*
+   * Opens the file of the hot segment for appending. Must hold our lock.
+   */
+  private void openActive() throws IOException
+  {
+    File file = this.getFile(this.hotBase, HistoryConstants.SEGMENT_EXTENSION);
+    this.active = (new RandomAccessFile(file, "rw")).getChannel();
+    this.active.position(this.active.size());
+  }
+  
+  /*
+   * Lists every segment within our directory by base. Where both a compressed
+   * and an uncompressed file exist for one segment (because we stopped while
+   * archiving it), the compressed file wins, and leftovers are deleted.
+   */
+  private TreeMap<Long, File> listSegments()
+  {
+    TreeMap<Long, File> files = new TreeMap<Long, File>();
+    File[] children = this.directory.listFiles();
+    for(File child : (children == null) ? new File[0] : children)
+    {
+      if(child.getName().endsWith(".tmp"))
+      {
+        child.delete();
+        continue;
+      }
+      long base = HistorySegment.getBase(child);
+      if(base < 0)
+      {
+        continue;
+      }
+      File other = files.get(base);
+      if(other == null)
+      {
+        files.put(base, child);
+      }
+      else if(child.getName().endsWith(HistoryConstants.ARCHIVE_EXTENSION))
+      {
+        other.delete();
+        files.put(base, child);
+      }
+      else
+      {
+        child.delete();
+      }
+    }
+    return files;
+  }
+  
+  private File getFile(long base, String extension)
+  {
+    return new File(this.directory, HistorySegment.getName(base) + extension);
+  }
+}
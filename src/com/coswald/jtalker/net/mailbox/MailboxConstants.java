@@ -0,0 +1,74 @@
+/*
+ * MailboxConstants.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.mailbox;
+
+/**
+ * <p>A set of descriptions for specific constants used when holding messages
+ * for people who are offline. Just like the other constants classes, this
+ * class is a utility class and cannot be extended.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class MailboxConstants
+{
+  /**
+   * The most messages a single mailbox holds. Once it is full, the oldest
+   * message is dropped to make room. This is currently set to {@value}.
+   */
+  public static final int MAILBOX_MESSAGES = 200;
+  
+  /**
+   * The most bytes the messages of a single mailbox take up. Once it is full,
+   * the oldest messages are dropped to make room. This is currently set to
+   * {@value} (64 KiB).
+   */
+  public static final int MAILBOX_BYTES = 64 << 10;
+  
+  /**
+   * The age, in milliseconds, at which a message is dropped from a mailbox.
+   * A mailbox whose owner has not been seen for this long is removed
+   * entirely, so a name that is no longer used is eventually forgotten. This
+   * is currently set to {@value} (one week).
+   */
+  public static final long MAILBOX_MILLIS = 7L * 24L * 60L * 60L * 1000L;
+  
+  /**
+   * The most mailboxes a store holds. Someone connecting for the first time
+   * while there are this many is not given a mailbox. This is currently set
+   * to {@value}.
+   */
+  public static final int MAX_MAILBOXES = 1024;
+  
+  /**
+   * How often, in milliseconds, a store drops expired messages and mailboxes.
+   * This is currently set to {@value} (one hour).
+   */
+  public static final long PURGE_MILLIS = 60L * 60L * 1000L;
+  
+  /**
+   * The file extension of a stored mailbox ({@value}).
+   */
+  public static final String MAILBOX_EXTENSION = ".box";
+  
+  private MailboxConstants() {}
+}
@@ -0,0 +1,780 @@
+/*
+ * MailboxStore.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.mailbox;
+
+import com.coswald.jtalker.Initializable;
+import com.coswald.jtalker.Snapshottable;
+import com.coswald.jtalker.net.mailbox.MailboxConstants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>The mailboxes of everyone who has connected to a JTalker server. A mailbox
+ * is created for an identifier the first time it is
+ * {@link #register(String) registered} (when its client connects), and from
+ * then on, messages can be {@link #deposit(String, String) deposited} into it
+ * while its owner is away. The next time the owner connects, the mailbox is
+ * {@link #drain(String) drained}, and everything within it is handed over at
+ * once.</p>
+ * <p>Mailboxes are bounded in every direction. Each holds at most
+ * {@value com.coswald.jtalker.net.mailbox.MailboxConstants#MAILBOX_MESSAGES}
+ * messages taking up at most
+ * {@value com.coswald.jtalker.net.mailbox.MailboxConstants#MAILBOX_BYTES}
+ * bytes (the oldest are dropped first), messages expire after a while, and a
+ * mailbox whose owner has not been seen for just as long is removed
+ * completely. Only
+ * {@value com.coswald.jtalker.net.mailbox.MailboxConstants#MAX_MAILBOXES}
+ * mailboxes are kept at a time. Expired messages and mailboxes are dropped by
+ * a low priority background thread.</p>
+ * <p>If the store is given a directory, every mailbox is also kept within a
+ * file of its own, so nothing is lost when the server restarts. The file
+ * starts with the time its owner was last seen, followed by every message and
+ * the time it was deposited. Deposits are appended to the end of the file; the
+ * file is only written again as a whole when messages are dropped from it.
+ * Every mailbox is also kept in memory, so handing a mailbox over never waits
+ * on reading the disk. Nor does anything wait on writing it: each change is
+ * made in memory at once, and the file is written afterwards by a writer
+ * thread of its own, in the order the changes were made. A server may
+ * therefore register, deposit and drain while holding the lock its
+ * broadcasts go through, without a slow disk holding them up.</p>
+ * <p>A store is also {@code Snapshottable}. A snapshot holds every mailbox,
+ * along with the size and time of its file when the snapshot was written;
+ * when restoring, only the files that have changed since are read again. A
+ * store that only keeps its mailboxes in memory can therefore still keep them
+ * across a restart, as long as a snapshot is written.</p>
+ * <p>Every method of this class is thread safe.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public class MailboxStore implements Closeable, Initializable, Snapshottable
+{
+  private File directory;
+  private int maxMessages;
+  private int maxBytes;
+  private long maxAgeMillis;
+  private Map<String, Mailbox> mailboxes;
+  private ScheduledExecutorService purger;
+  private ScheduledFuture<?> purging;
+  private ExecutorService writer;
+  
+  /**
+   * Constructs a store with the given limits. If a directory is given, every
+   * mailbox is stored within it.
+   * @param directory The directory to store mailboxes in, or {@code null} to
+   *  only keep them in memory.
+   * @param maxMessages The most messages a mailbox holds.
+   * @param maxBytes The most bytes the messages of a mailbox take up.
+   * @param maxAgeMillis The age, in milliseconds, at which messages and unused
+   *  mailboxes expire.
+   * @throws IllegalArgumentException If any limit is not positive.
+   */
+  public MailboxStore(File directory, int maxMessages, int maxBytes,
+    long maxAgeMillis)
+  {
+    if(maxMessages <= 0 || maxBytes <= 0 || maxAgeMillis <= 0)
+    {
+      throw new IllegalArgumentException("Every limit must be positive!");
+    }
+    this.directory = directory;
+    this.maxMessages = maxMessages;
+    this.maxBytes = maxBytes;
+    this.maxAgeMillis = maxAgeMillis;
+    this.mailboxes = new HashMap<String, Mailbox>();
+    this.purger = Executors.newSingleThreadScheduledExecutor(r ->
+    {
+      Thread t = new Thread(r, "JTalker Mailbox Purger");
+      t.setDaemon(true);
+      t.setPriority(Thread.MIN_PRIORITY);
+      return t;
+    });
+    this.writer = Executors.newSingleThreadExecutor(r ->
+    {
+      Thread t = new Thread(r, "JTalker Mailbox Writer");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+  
+  /**
+   * Constructs a store within the given directory, with the
+   * {@link com.coswald.jtalker.net.mailbox.MailboxConstants default} limits.
+   * @param directory The directory to store mailboxes in.
+   * @throws IllegalArgumentException If the directory is {@code null}.
+   */
+  public MailboxStore(File directory)
+  {
+    this(directory, MailboxConstants.MAILBOX_MESSAGES,
+      MailboxConstants.MAILBOX_BYTES, MailboxConstants.MAILBOX_MILLIS);
+    if(directory == null)
+    {
+      throw new IllegalArgumentException("No parameter can be null!");
+    }
+  }
+  
+  /**
+   * Constructs a store that only keeps its mailboxes in memory, with the
+   * {@link com.coswald.jtalker.net.mailbox.MailboxConstants default} limits.
+   */
+  public MailboxStore()
+  {
+    this(null, MailboxConstants.MAILBOX_MESSAGES,
+      MailboxConstants.MAILBOX_BYTES, MailboxConstants.MAILBOX_MILLIS);
+  }
+  
+  /**
+   * Reads back every mailbox within our directory (if we have one), drops
+   * whatever has expired, and starts the background thread that keeps doing
+   * so every
+   * {@value com.coswald.jtalker.net.mailbox.MailboxConstants#PURGE_MILLIS}
+   * milliseconds. If the directory can not be read, the store starts out
+   * empty, and an error is printed.
+   */
+  @Override
+  public void init()
+  {
+    synchronized(this)
+    {
+      this.mailboxes.clear();
+      if(this.directory != null)
+      {
+        if(!this.directory.isDirectory() && !this.directory.mkdirs())
+        {
+          System.err.println("Could not create " + this.directory);
+        }
+        File[] files = this.directory.listFiles();
+        for(File file : (files == null) ? new File[0] : files)
+        {
+          String owner = getOwner(file);
+          if(owner != null)
+          {
+            this.load(owner, file);
+          }
+        }
+      }
+    }
+    this.purge();
+    this.startPurging();
+  }
+  
+  /**
+   * Writes every mailbox, and the size and time of its file. What has been
+   * handed to the writer thread is written first, so the files match the
+   * mailboxes as far as possible.
+   * @param out Where to write the snapshot to.
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void snapshot(DataOutput out) throws IOException
+  {
+    this.awaitWrites();
+    synchronized(this)
+    {
+      out.writeInt(this.mailboxes.size());
+      for(Map.Entry<String, Mailbox> entry : this.mailboxes.entrySet())
+      {
+        Mailbox mailbox = entry.getValue();
+        File file = (this.directory == null) ? null :
+          this.getFile(entry.getKey());
+        out.writeUTF(entry.getKey());
+        out.writeLong((file == null) ? -1 : file.length());
+        out.writeLong((file == null) ? -1 : file.lastModified());
+        out.writeLong(mailbox.lastSeen);
+        out.writeInt(mailbox.messages.size());
+        for(Message message : mailbox.messages)
+        {
+          out.writeLong(message.time);
+          out.writeUTF(message.line);
+        }
+      }
+    }
+  }
+  
+  /**
+   * Initializes this store from a snapshot. If we have a directory, it is
+   * still what decides which mailboxes exist: a mailbox whose file has not
+   * changed since the snapshot is taken from the snapshot, and any other file
+   * is read as usual.
+   * @param in Where to read the snapshot from.
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void restore(DataInput in) throws IOException
+  {
+    Map<String, Mailbox> restored = new HashMap<String, Mailbox>();
+    Map<String, long[]> stamps = new HashMap<String, long[]>();
+    for(int i = in.readInt(); i > 0; i--)
+    {
+      String identifier = in.readUTF();
+      stamps.put(identifier, new long[] {in.readLong(), in.readLong()});
+      Mailbox mailbox = new Mailbox(in.readLong());
+      for(int j = in.readInt(); j > 0; j--)
+      {
+        mailbox.add(new Message(in.readLong(), in.readUTF()));
+      }
+      restored.put(identifier, mailbox);
+    }
+    
+    synchronized(this)
+    {
+      this.mailboxes.clear();
+      if(this.directory == null)
+      {
+        this.mailboxes.putAll(restored);
+      }
+      else
+      {
+        File[] files = this.directory.listFiles();
+        for(File file : (files == null) ? new File[0] : files)
+        {
+          String owner = getOwner(file);
+          long[] stamp = stamps.get(owner);
+          if(stamp != null && stamp[0] == file.length() &&
+            stamp[1] == file.lastModified())
+          {
+            this.mailboxes.put(owner, restored.get(owner));
+          }
+          else if(owner != null)
+          {
+            this.load(owner, file);
+          }
+        }
+      }
+    }
+    this.purge();
+    this.startPurging();
+  }
+  
+  /**
+   * Stops the background thread, and waits for the writer thread to finish
+   * writing what has been changed. Once that is done, every mailbox is
+   * stored, so nothing else needs to be written.
+   */
+  @Override
+  public void close()
+  {
+    this.purger.shutdownNow();
+    this.writer.shutdown();
+    try
+    {
+      this.writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    catch(InterruptedException ie)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+  
+  /**
+   * Notes that the owner of the given identifier has been seen, creating their
+   * mailbox if they do not have one yet. A mailbox is not created if the store
+   * already holds as many mailboxes as it may.
+   * @param identifier The identifier of the owner.
+   * @return {@code true} if the identifier has a mailbox.
+   */
+  public synchronized boolean register(String identifier)
+  {
+    Mailbox mailbox = this.mailboxes.get(identifier);
+    if(mailbox == null)
+    {
+      if(this.mailboxes.size() >= MailboxConstants.MAX_MAILBOXES)
+      {
+        return false;
+      }
+      mailbox = new Mailbox(System.currentTimeMillis());
+      this.mailboxes.put(identifier, mailbox);
+      this.write(identifier, mailbox);
+    }
+    else
+    {
+      mailbox.lastSeen = System.currentTimeMillis();
+      this.touch(identifier, mailbox);
+    }
+    return true;
+  }
+  
+  /**
+   * Returns whether the given identifier has a mailbox.
+   * @param identifier The identifier of the owner.
+   * @return {@code true} if messages can be deposited for the identifier.
+   */
+  public synchronized boolean isKnown(String identifier)
+  {
+    return this.mailboxes.containsKey(identifier);
+  }
+  
+  /**
+   * Puts a message into the mailbox of the given identifier. If the mailbox is
+   * full, its oldest messages are dropped to make room.
+   * @param identifier The identifier of the owner.
+   * @param line The message.
+   * @return {@code true} if the message was deposited, {@code false} if the
+   *  identifier has no mailbox or the message is larger than a whole mailbox.
+   */
+  public synchronized boolean deposit(String identifier, String line)
+  {
+    Mailbox mailbox = this.mailboxes.get(identifier);
+    Message message = new Message(System.currentTimeMillis(), line);
+    if(mailbox == null || message.bytes > this.maxBytes)
+    {
+      return false;
+    }
+    mailbox.add(message);
+    boolean dropped = false;
+    while(mailbox.messages.size() > this.maxMessages ||
+      mailbox.bytes > this.maxBytes)
+    {
+      mailbox.removeOldest();
+      dropped = true;
+    }
+    if(dropped)
+    {
+      this.write(identifier, mailbox);
+    }
+    else
+    {
+      this.append(identifier, message);
+    }
+    return true;
+  }
+  
+  /**
+   * Takes every message out of the mailbox of the given identifier, oldest
+   * first, and notes that its owner has been seen.
+   * @param identifier The identifier of the owner.
+   * @return The messages (empty if there are none, or there is no mailbox).
+   */
+  public synchronized List<String> drain(String identifier)
+  {
+    Mailbox mailbox = this.mailboxes.get(identifier);
+    if(mailbox == null)
+    {
+      return Collections.<String>emptyList();
+    }
+    List<String> lines = new ArrayList<String>(mailbox.messages.size());
+    for(Message message : mailbox.messages)
+    {
+      lines.add(message.line);
+    }
+    mailbox.messages.clear();
+    mailbox.bytes = 0;
+    mailbox.lastSeen = System.currentTimeMillis();
+    this.write(identifier, mailbox);
+    return lines;
+  }
+  
+  /**
+   * Drops every message that has expired, and every mailbox whose owner has
+   * not been seen for as long. This is done by the background thread, but may
+   * be called at any time.
+   */
+  public synchronized void purge()
+  {
+    long now = System.currentTimeMillis();
+    Iterator<Map.Entry<String, Mailbox>> entries =
+      this.mailboxes.entrySet().iterator();
+    while(entries.hasNext())
+    {
+      Map.Entry<String, Mailbox> entry = entries.next();
+      Mailbox mailbox = entry.getValue();
+      if(now - mailbox.lastSeen > this.maxAgeMillis)
+      {
+        entries.remove();
+        this.delete(entry.getKey());
+        continue;
+      }
+      boolean dropped = false;
+      while(!mailbox.messages.isEmpty() &&
+        now - mailbox.messages.peekFirst().time > this.maxAgeMillis)
+      {
+        mailbox.removeOldest();
+        dropped = true;
+      }
+      if(dropped)
+      {
+        this.write(entry.getKey(), mailbox);
+      }
+    }
+  }
+  
+  /**
+   * Returns the amount of messages waiting within the mailbox of the given
+   * identifier.
+   * @param identifier The identifier of the owner.
+   * @return The amount of messages.
+   */
+  public synchronized int getMessageCount(String identifier)
+  {
+    Mailbox mailbox = this.mailboxes.get(identifier);
+    return (mailbox == null) ? 0 : mailbox.messages.size();
+  }
+  
+  /**
+   * Returns the amount of mailboxes within the store.
+   * @return The amount of mailboxes.
+   */
+  public synchronized int getMailboxCount()
+  {
+    return this.mailboxes.size();
+  }
+  
+  /**
+   * Returns the directory mailboxes are stored in.
+   * @return The directory, or {@code null} if they are only kept in memory.
+   */
+  public File getDirectory()
+  {
+    return this.directory;
+  }
+  
+  /*
+   * Starts dropping expired messages and mailboxes in the background, if that
+   * isn't already being done.
+   */
+  private void startPurging()
+  {
+    if(this.purging == null)
+    {
+      this.purging = this.purger.scheduleWithFixedDelay(this::purge,
+        MailboxConstants.PURGE_MILLIS, MailboxConstants.PURGE_MILLIS,
+        TimeUnit.MILLISECONDS);
+    }
+  }
+  
+  /*
+   * The name of a file is the UTF-8 bytes of the identifier in hexadecimal, so
+   * any identifier can be stored on any file system.
+   */
+  private File getFile(String identifier)
+  {
+    StringBuilder name = new StringBuilder();
+    for(byte b : identifier.getBytes(StandardCharsets.UTF_8))
+    {
+      name.append(String.format("%02x", b & 0xFF));
+    }
+    name.append(MailboxConstants.MAILBOX_EXTENSION);
+    return new File(this.directory, name.toString());
+  }
+  
+  /*
+   * Returns the identifier a file belongs to, or null if it isn't a mailbox.
+   */
+  private static String getOwner(File file)
+  {
+    String name = file.getName();
+    if(!file.isFile() || !name.endsWith(MailboxConstants.MAILBOX_EXTENSION))
+    {
+      return null;
+    }
+    name = name.substring(0, name.length() -
+      MailboxConstants.MAILBOX_EXTENSION.length());
+    if(name.length() % 2 != 0)
+    {
+      return null;
+    }
+    byte[] bytes = new byte[name.length() / 2];
+    try
+    {
+      for(int i = 0; i < bytes.length; i++)
+      {
+        bytes[i] = (byte)Integer.parseInt(name.substring(2 * i, 2 * i + 2),
+          16);
+      }
+    }
+    catch(NumberFormatException nfe)
+    {
+      return null;
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+  
+  /*
+   * Reads a mailbox from its file. A message that was only partly written is
+   * dropped, and the file is written again without it. Must hold our lock.
+   */
+  private void load(String identifier, File file)
+  {
+    Mailbox mailbox = null;
+    boolean partial = false;
+    try(DataInputStream in = new DataInputStream(new BufferedInputStream(
+      new FileInputStream(file))))
+    {
+      mailbox = new Mailbox(in.readLong());
+      while(true)
+      {
+        long time;
+        try
+        {
+          time = in.readLong();
+        }
+        catch(EOFException eof)
+        {
+          break;
+        }
+        mailbox.add(new Message(time, in.readUTF()));
+      }
+    }
+    catch(EOFException eof)
+    {
+      partial = true;
+    }
+    catch(IOException i)
+    {
+      System.err.println("Could not read mailbox " + file);
+      i.printStackTrace();
+      return;
+    }
+    if(mailbox == null)
+    {
+      mailbox = new Mailbox(file.lastModified());
+    }
+    this.mailboxes.put(identifier, mailbox);
+    if(partial)
+    {
+      this.write(identifier, mailbox);
+    }
+  }
+  
+  /*
+   * Waits until the writer thread has written everything handed to it so
+   * far, unless it is closed.
+   */
+  private void awaitWrites()
+  {
+    try
+    {
+      this.writer.submit(() -> {}).get();
+    }
+    catch(RejectedExecutionException | ExecutionException e)
+    {
+      //closed, so every write has been done already
+    }
+    catch(InterruptedException ie)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+  
+  /*
+   * Hands a write to the writer thread, if we keep files at all. Once we are
+   * closed, it is done right away instead.
+   */
+  private void store(Runnable write)
+  {
+    if(this.directory == null)
+    {
+      return;
+    }
+    try
+    {
+      this.writer.execute(write);
+    }
+    catch(RejectedExecutionException e)
+    {
+      write.run();
+    }
+  }
+  
+  /*
+   * Writes a whole mailbox to its file, as it is now. Must hold our lock.
+   */
+  private void write(String identifier, Mailbox mailbox)
+  {
+    long lastSeen = mailbox.lastSeen;
+    List<Message> messages = new ArrayList<Message>(mailbox.messages);
+    this.store(() -> this.write(identifier, lastSeen, messages));
+  }
+  
+  /*
+   * Writes a whole mailbox to its file. It is written to a temporary file
+   * first, so a crash never leaves half a mailbox behind. Runs on the writer
+   * thread.
+   */
+  private void write(String identifier, long lastSeen, List<Message> messages)
+  {
+    File file = this.getFile(identifier);
+    File temp = new File(file.getPath() + ".tmp");
+    try
+    {
+      try(DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(temp))))
+      {
+        out.writeLong(lastSeen);
+        for(Message message : messages)
+        {
+          out.writeLong(message.time);
+          out.writeUTF(message.line);
+        }
+      }
+      if(!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file)))
+      {
+        throw new IOException("Could not rename " + temp + " to " + file);
+      }
+    }
+    catch(IOException i)
+    {
+      System.err.println("Could not write the mailbox of " + identifier);
+      i.printStackTrace();
+    }
+  }
+  
+  /*
+   * Appends one message to the file of a mailbox. Must hold our lock.
+   */
+  private void append(String identifier, Message message)
+  {
+    this.store(() -> this.appendFile(identifier, message));
+  }
+  
+  /*
+   * Appends one message to the file of a mailbox. Runs on the writer thread.
+   */
+  private void appendFile(String identifier, Message message)
+  {
+    try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+      new FileOutputStream(this.getFile(identifier), true))))
+    {
+      out.writeLong(message.time);
+      out.writeUTF(message.line);
+    }
+    catch(IOException i)
+    {
+      System.err.println("Could not write the mailbox of " + identifier);
+      i.printStackTrace();
+    }
+  }
+  
+  /*
+   * Writes only the time the owner of a mailbox was last seen. Must hold our
+   * lock.
+   */
+  private void touch(String identifier, Mailbox mailbox)
+  {
+    long lastSeen = mailbox.lastSeen;
+    this.store(() -> this.touch(identifier, lastSeen));
+  }
+  
+  /*
+   * Writes only the time the owner of a mailbox was last seen. Runs on the
+   * writer thread.
+   */
+  private void touch(String identifier, long lastSeen)
+  {
+    try(RandomAccessFile file = new RandomAccessFile(
+      this.getFile(identifier), "rw"))
+    {
+      file.writeLong(lastSeen);
+    }
+    catch(IOException i)
+    {
+      System.err.println("Could not write the mailbox of " + identifier);
+      i.printStackTrace();
+    }
+  }
+  
+  /*
+   * Deletes the file of a mailbox that has been removed. Must hold our lock.
+   */
+  private void delete(String identifier)
+  {
+    this.store(() ->
+    {
+      if(!this.getFile(identifier).delete())
+      {
+        System.err.println("Could not delete the mailbox of " + identifier);
+      }
+    });
+  }
+  
+  /*
+   * A message, and when it was deposited.
+   */
+  private static final class Message
+  {
+    private final long time;
+    private final String line;
+    private final int bytes;
+    
+    private Message(long time, String line)
+    {
+      this.time = time;
+      this.line = line;
+      //the time, the length of the line, and (about) the line itself
+      this.bytes = 10 + line.getBytes(StandardCharsets.UTF_8).length;
+    }
+  }
+  
+  /*
+   * The messages of one owner, oldest first.
+   */
+  private static final class Mailbox
+  {
+    private long lastSeen;
+    private ArrayDeque<Message> messages;
+    private int bytes;
+    
+    private Mailbox(long lastSeen)
+    {
+      this.lastSeen = lastSeen;
+      this.messages = new ArrayDeque<Message>();
+      this.bytes = 0;
+    }
+    
+    private void add(Message message)
+    {
+      this.messages.addLast(message);
+      this.bytes += message.bytes;
+    }
+    
+    private void removeOldest()
+    {
+      this.bytes -= this.messages.removeFirst().bytes;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * MemoryConstants.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.memory;
+
+/**
+ * <p>A set of descriptions for specific constants used when talking to
+ * clients in memory. Just like the other constants classes, this class is a
+ * utility class and cannot be extended.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class MemoryConstants
+{
+  /**
+   * The most bytes that may wait within one direction of a connection before
+   * a write waits for them to be read, much like the buffers of a socket.
+   * This is currently set to {@value}.
+   */
+  public static final int PIPE_BYTES = 256 * 1024;
+  
+  /**
+   * The first port handed out when a listener is asked for any free one, and
+   * the first local port of the connections made. This is currently set to
+   * {@value}.
+   */
+  public static final int FIRST_FREE_PORT = 49152;
+  
+  /**
+   * The host every address of a connection names ({@value}).
+   */
+  public static final String HOST = "memory";
+  
+  /**
+   * How long, in milliseconds, an accept waits before checking whether the
+   * listener was closed. This is currently set to {@value}.
+   */
+  public static final long ACCEPT_MILLIS = 1000L;
+  
+  private MemoryConstants() {}
+}
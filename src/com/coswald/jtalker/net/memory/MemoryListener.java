@@ -0,0 +1,130 @@
+/*
+ * MemoryListener.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.memory;
+
+import com.coswald.jtalker.net.memory.MemoryConstants;
+import com.coswald.jtalker.net.memory.MemorySocket;
+import com.coswald.jtalker.net.memory.MemoryTransport;
+import com.coswald.jtalker.net.transport.TransportListener;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A port of a
+ * {@link com.coswald.jtalker.net.memory.MemoryTransport MemoryTransport}
+ * clients connect to. Much like a {@link java.net.ServerSocket ServerSocket},
+ * a listener {@link #accept() accepts} connections, each of which is handed
+ * out as a {@link com.coswald.jtalker.net.memory.MemorySocket MemorySocket}.
+ * A connection is made at once, even before it is accepted.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.memory.MemoryTransport#listen(int)
+ */
+public class MemoryListener implements TransportListener
+{
+  private MemoryTransport transport;
+  private int port;
+  private BlockingQueue<MemorySocket> accepted;
+  private volatile boolean closed;
+  
+  /*
+   * The transport knows us by our port until we are closed.
+   */
+  MemoryListener(MemoryTransport transport, int port)
+  {
+    this.transport = transport;
+    this.port = port;
+    this.accepted = new LinkedBlockingQueue<MemorySocket>();
+  }
+  
+  /**
+   * Waits for a client to connect.
+   * @return The connection.
+   * @throws SocketException If we have been closed.
+   * @throws IOException If we were interrupted.
+   */
+  @Override
+  public MemorySocket accept() throws IOException
+  {
+    while(!this.closed)
+    {
+      try
+      {
+        MemorySocket socket = this.accepted.poll(
+          MemoryConstants.ACCEPT_MILLIS, TimeUnit.MILLISECONDS);
+        if(socket != null)
+        {
+          return socket;
+        }
+      }
+      catch(InterruptedException ie)
+      {
+        throw new SocketException("Accept interrupted");
+      }
+    }
+    throw new SocketException("Listener closed");
+  }
+  
+  /**
+   * Returns the port we listen on.
+   * @return The local port, or -1 if we are closed.
+   */
+  @Override
+  public int getLocalPort()
+  {
+    return this.closed ? -1 : this.port;
+  }
+  
+  /**
+   * Stops accepting clients, and closes every connection that was made but
+   * not yet accepted.
+   */
+  @Override
+  public void close()
+  {
+    this.closed = true;
+    this.transport.remove(this.port, this);
+    MemorySocket socket;
+    while((socket = this.accepted.poll()) != null)
+    {
+      socket.close();
+    }
+  }
+  
+  /*
+   * Hands the server end of a new connection to whoever accepts next.
+   */
+  boolean offer(MemorySocket socket)
+  {
+    if(this.closed)
+    {
+      return false;
+    }
+    this.accepted.add(socket);
+    return true;
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * MemorySocket.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.memory;
+
+import com.coswald.jtalker.net.memory.Pipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+
+/**
+ * <p>One end of a connection in memory. What is written to one end is read
+ * from the other, through a queue of its own in each direction; nothing
+ * leaves the process. A write waits once
+ * {@value com.coswald.jtalker.net.memory.MemoryConstants#PIPE_BYTES} bytes
+ * are waiting to be read, just as a write to a socket whose buffers are full
+ * does, so a client that does not keep up is treated exactly like any other
+ * client that does not.</p>
+ * <p>Closing one end lets the other read what was already written, followed
+ * by the end of the stream; what the other end writes from then on is
+ * thrown away, as TCP does with what it is sent for a peer that has
+ * gone.
+ * The addresses of both ends name the host
+ * {@value com.coswald.jtalker.net.memory.MemoryConstants#HOST}.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public class MemorySocket extends Socket
+{
+  private Pipe in;
+  private Pipe out;
+  private SocketAddress local;
+  private SocketAddress remote;
+  private InputStream input;
+  private OutputStream output;
+  private volatile boolean closed;
+  
+  /*
+   * Both ends are made together, each reading from what the other writes to.
+   */
+  MemorySocket(Pipe in, Pipe out, int localPort, int remotePort)
+  {
+    this.in = in;
+    this.out = out;
+    this.local = InetSocketAddress.createUnresolved(MemoryConstants.HOST,
+      localPort);
+    this.remote = InetSocketAddress.createUnresolved(MemoryConstants.HOST,
+      remotePort);
+    this.input = new MemoryInputStream();
+    this.output = new MemoryOutputStream();
+  }
+  
+  /**
+   * Returns the stream of what the other end writes.
+   * @return The input stream.
+   * @throws IOException If we are closed.
+   */
+  @Override
+  public InputStream getInputStream() throws IOException
+  {
+    if(this.closed)
+    {
+      throw new SocketException("Socket is closed");
+    }
+    return this.input;
+  }
+  
+  /**
+   * Returns the stream of what the other end reads.
+   * @return The output stream.
+   * @throws IOException If we are closed.
+   */
+  @Override
+  public OutputStream getOutputStream() throws IOException
+  {
+    if(this.closed)
+    {
+      throw new SocketException("Socket is closed");
+    }
+    return this.output;
+  }
+  
+  /**
+   * Closes this end of the connection. Any thread waiting to read from or
+   * write to it is woken with a
+   * {@link java.net.SocketException SocketException}, and any thread of the
+   * other end waiting to write to it is let through.
+   */
+  @Override
+  public void close()
+  {
+    this.closed = true;
+    this.out.closeSource();
+    this.in.closeSink();
+  }
+  
+  /**
+   * Returns whether this end has been closed.
+   * @return {@code true} if it has.
+   */
+  @Override
+  public boolean isClosed()
+  {
+    return this.closed;
+  }
+  
+  /**
+   * Returns whether we are connected, which we always are once we have been
+   * made.
+   * @return {@code true}.
+   */
+  @Override
+  public boolean isConnected()
+  {
+    return true;
+  }
+  
+  /**
+   * Returns whether we are bound to a local address, which we always are.
+   * @return {@code true}.
+   */
+  @Override
+  public boolean isBound()
+  {
+    return true;
+  }
+  
+  /**
+   * Returns the port of the other end.
+   * @return The remote port.
+   */
+  @Override
+  public int getPort()
+  {
+    return ((InetSocketAddress)this.remote).getPort();
+  }
+  
+  /**
+   * Returns the port of this end.
+   * @return The local port.
+   */
+  @Override
+  public int getLocalPort()
+  {
+    return ((InetSocketAddress)this.local).getPort();
+  }
+  
+  /**
+   * Returns the address of the other end.
+   * @return The remote socket address, which is unresolved.
+   */
+  @Override
+  public SocketAddress getRemoteSocketAddress()
+  {
+    return this.remote;
+  }
+  
+  /**
+   * Returns the address of this end.
+   * @return The local socket address, which is unresolved.
+   */
+  @Override
+  public SocketAddress getLocalSocketAddress()
+  {
+    return this.local;
+  }
+  
+  /**
+   * Does nothing, since bytes written to a pipe are never held back.
+   * @param on Ignored.
+   */
+  @Override
+  public void setTcpNoDelay(boolean on)
+  {
+  }
+  
+  /**
+   * Does nothing, since the size of a pipe is fixed when it is made.
+   * @param size Ignored.
+   */
+  @Override
+  public void setSendBufferSize(int size)
+  {
+  }
+  
+  /**
+   * Returns a description of this end.
+   * @return The ports of both ends.
+   */
+  @Override
+  public String toString()
+  {
+    return "MemorySocket[port=" + this.getPort() + ",localport=" +
+      this.getLocalPort() + "]";
+  }
+  
+  private class MemoryInputStream extends InputStream
+  {
+    @Override
+    public int read() throws IOException
+    {
+      byte[] b = new byte[1];
+      return (this.read(b, 0, 1) < 0) ? -1 : (b[0] & 0xFF);
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      return MemorySocket.this.in.read(b, off, len);
+    }
+    
+    @Override
+    public int available()
+    {
+      return MemorySocket.this.in.available();
+    }
+    
+    @Override
+    public void close()
+    {
+      MemorySocket.this.close();
+    }
+  }
+  
+  private class MemoryOutputStream extends OutputStream
+  {
+    @Override
+    public void write(int b) throws IOException
+    {
+      this.write(new byte[] {(byte)b}, 0, 1);
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      MemorySocket.this.out.write(b, off, len);
+    }
+    
+    @Override
+    public void close()
+    {
+      MemorySocket.this.close();
+    }
+  }
+}
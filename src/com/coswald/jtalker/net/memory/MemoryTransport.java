@@ -0,0 +1,194 @@
+/*
+ * MemoryTransport.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.memory;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.memory.MemoryConstants;
+import com.coswald.jtalker.net.memory.MemoryListener;
+import com.coswald.jtalker.net.memory.MemorySocket;
+import com.coswald.jtalker.net.memory.Pipe;
+import com.coswald.jtalker.net.transport.FrameCodec;
+import com.coswald.jtalker.net.transport.Transport;
+import com.coswald.jtalker.net.transport.UTFFrameCodec;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>A transport within one process, as a
+ * {@link com.coswald.jtalker.net.transport.Transport Transport}. A
+ * {@link com.coswald.jtalker.net.TCPServer TCPServer} and its
+ * {@link com.coswald.jtalker.net.TCPClient TCPClient}s are given the same
+ * transport; the server listens on a port of it, and clients connect to that
+ * port. Every connection is a pair of
+ * {@link com.coswald.jtalker.net.memory.MemorySocket MemorySocket}s whose
+ * bytes go through queues in memory, so what a server does with a line can
+ * be tested and timed on its own, and the same way every time, with no
+ * network (or kernel) in the way.</p>
+ * <p>Ports belong to the transport: two transports never see each other's
+ * listeners, and the host a client is asked to connect to is not used.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class MemoryTransport implements Transport
+{
+  private ConcurrentMap<Integer, MemoryListener> listeners;
+  private AtomicInteger nextPort;
+  private int pipeBytes;
+  private FrameCodec codec;
+  
+  /**
+   * Constructs a transport whose connections hold up to the given amount of
+   * bytes in each direction before a write waits.
+   * @param pipeBytes The amount of bytes.
+   * @throws IllegalArgumentException If the amount is less than one.
+   */
+  public MemoryTransport(int pipeBytes)
+  {
+    if(pipeBytes < 1)
+    {
+      throw new IllegalArgumentException("A connection must hold at least " +
+        "one byte!");
+    }
+    this.listeners = new ConcurrentHashMap<Integer, MemoryListener>();
+    this.nextPort = new AtomicInteger();
+    this.pipeBytes = pipeBytes;
+    this.codec = new UTFFrameCodec();
+  }
+  
+  /**
+   * Constructs a transport whose connections hold up to
+   * {@value com.coswald.jtalker.net.memory.MemoryConstants#PIPE_BYTES} bytes
+   * in each direction before a write waits.
+   */
+  public MemoryTransport()
+  {
+    this(MemoryConstants.PIPE_BYTES);
+  }
+  
+  /**
+   * Returns the name of this transport, which is {@code Memory}.
+   * @return The name.
+   */
+  @Override
+  public String getName()
+  {
+    return "Memory";
+  }
+  
+  /**
+   * Makes a listener on the given port.
+   * @param port The port to listen on, or 0 for any free one.
+   * @return The listener.
+   * @throws BindException If another listener of this transport is on the
+   *  port.
+   */
+  @Override
+  public MemoryListener listen(int port) throws IOException
+  {
+    if(port != 0)
+    {
+      MemoryListener listener = new MemoryListener(this, port);
+      if(this.listeners.putIfAbsent(port, listener) != null)
+      {
+        throw new BindException("Address already in use: " + port);
+      }
+      return listener;
+    }
+    while(true)
+    {
+      port = this.freePort();
+      MemoryListener listener = new MemoryListener(this, port);
+      if(this.listeners.putIfAbsent(port, listener) == null)
+      {
+        return listener;
+      }
+    }
+  }
+  
+  /**
+   * Connects to the listener of this transport on the given port.
+   * @param host Not used.
+   * @param port The port the listener listens on.
+   * @return The client end of the connection.
+   * @throws ConnectException If no listener is on the port.
+   */
+  @Override
+  public MemorySocket connect(String host, int port) throws IOException
+  {
+    MemoryListener listener = this.listeners.get(port);
+    Pipe up = new Pipe(this.pipeBytes);
+    Pipe down = new Pipe(this.pipeBytes);
+    int localPort = this.freePort();
+    MemorySocket client = new MemorySocket(down, up, localPort, port);
+    if(listener == null ||
+      !listener.offer(new MemorySocket(up, down, port, localPort)))
+    {
+      throw new ConnectException("Connection refused: " + port);
+    }
+    return client;
+  }
+  
+  /**
+   * Returns the codec of this transport, which is a
+   * {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec}.
+   * @return The codec.
+   */
+  @Override
+  public FrameCodec getCodec()
+  {
+    return this.codec;
+  }
+  
+  /**
+   * Returns how many bytes a connection holds in each direction before a
+   * write waits.
+   * @return The amount of bytes.
+   */
+  public int getPipeBytes()
+  {
+    return this.pipeBytes;
+  }
+  
+  /*
+   * A closed listener gives up its port.
+   */
+  void remove(int port, MemoryListener listener)
+  {
+    this.listeners.remove(port, listener);
+  }
+  
+  /*
+   * Ports are handed out in turn, going back to the first once they run out.
+   */
+  private int freePort()
+  {
+    return MemoryConstants.FIRST_FREE_PORT + Math.floorMod(
+      this.nextPort.getAndIncrement(), ServerClientConstants.MAX_PORT_NUMBER -
+      MemoryConstants.FIRST_FREE_PORT + 1);
+  }
+}
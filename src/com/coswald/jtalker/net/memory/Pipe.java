@@ -0,0 +1,210 @@
+/*
+ * Pipe.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.memory;
+
+import java.io.InterruptedIOException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * One direction of a connection in memory. Every write is copied into a
+ * chunk of its own and put on a lock-free queue, so a write is never split
+ * up or mixed with another, just as a write to a socket is not; several
+ * threads may write at once, but only one reads at a time. The reader takes
+ * chunks off the queue without a lock, and only parks when the queue is
+ * empty. Writers park when more than the capacity of the pipe is waiting,
+ * and are woken as the reader frees room.
+ * 
+ * Either end may be closed. Once the writing end is, the reader reads what
+ * is left and then the end of the stream, and a write fails. Once the
+ * reading end is, what is written is thrown away, just as TCP takes in bytes
+ * for a peer that has gone; the writer learns that the peer is gone by
+ * reading the end of the stream from it.
+ */
+final class Pipe
+{
+  private final Queue<byte[]> chunks;
+  private final AtomicInteger waiting;
+  private final Queue<Thread> writers;
+  private final int capacity;
+  private volatile Thread reader;
+  private volatile boolean sourceClosed;
+  private volatile boolean sinkClosed;
+  
+  private byte[] chunk;
+  private int position;
+  
+  Pipe(int capacity)
+  {
+    this.chunks = new ConcurrentLinkedQueue<byte[]>();
+    this.waiting = new AtomicInteger();
+    this.writers = new ConcurrentLinkedQueue<Thread>();
+    this.capacity = capacity;
+  }
+  
+  void write(byte[] b, int off, int len) throws IOException
+  {
+    this.check();
+    Thread current = Thread.currentThread();
+    while(this.waiting.get() >= this.capacity && !this.sinkClosed)
+    {
+      this.writers.add(current);
+      if(this.waiting.get() >= this.capacity && !this.sourceClosed &&
+        !this.sinkClosed)
+      {
+        LockSupport.park(this);
+      }
+      this.writers.remove(current);
+      if(Thread.interrupted())
+      {
+        throw new InterruptedIOException("Write interrupted");
+      }
+      this.check();
+    }
+    if(len == 0 || this.sinkClosed)
+    {
+      return;
+    }
+    this.chunks.add(Arrays.copyOfRange(b, off, off + len));
+    this.waiting.addAndGet(len);
+    Thread r = this.reader;
+    if(r != null)
+    {
+      LockSupport.unpark(r);
+    }
+  }
+  
+  int read(byte[] b, int off, int len) throws IOException
+  {
+    if(len == 0)
+    {
+      return 0;
+    }
+    while(this.chunk == null)
+    {
+      if(this.sinkClosed)
+      {
+        throw new SocketException("Socket closed");
+      }
+      this.chunk = this.chunks.poll();
+      if(this.chunk != null)
+      {
+        this.position = 0;
+      }
+      else if(this.sourceClosed)
+      {
+        this.chunk = this.chunks.poll();
+        if(this.chunk == null)
+        {
+          return -1;
+        }
+        this.position = 0;
+      }
+      else
+      {
+        this.reader = Thread.currentThread();
+        if(this.chunks.isEmpty() && !this.sourceClosed && !this.sinkClosed)
+        {
+          LockSupport.park(this);
+        }
+        this.reader = null;
+        if(Thread.interrupted())
+        {
+          throw new InterruptedIOException("Read interrupted");
+        }
+      }
+    }
+    int read = 0;
+    while(this.chunk != null && read < len)
+    {
+      int count = Math.min(len - read, this.chunk.length - this.position);
+      System.arraycopy(this.chunk, this.position, b, off + read, count);
+      this.position += count;
+      read += count;
+      if(this.position == this.chunk.length)
+      {
+        this.chunk = this.chunks.poll();
+        this.position = 0;
+      }
+    }
+    if(this.waiting.addAndGet(-read) < this.capacity)
+    {
+      for(Thread writer : this.writers)
+      {
+        LockSupport.unpark(writer);
+      }
+    }
+    return read;
+  }
+  
+  int available()
+  {
+    return this.waiting.get();
+  }
+  
+  /*
+   * The writing end is done; the reader sees the end of the stream once it
+   * has read everything before it.
+   */
+  void closeSource()
+  {
+    this.sourceClosed = true;
+    this.wake();
+  }
+  
+  /*
+   * The reading end is done; whatever is waiting is thrown away.
+   */
+  void closeSink()
+  {
+    this.sinkClosed = true;
+    this.chunks.clear();
+    this.waiting.set(0);
+    this.wake();
+  }
+  
+  private void check() throws IOException
+  {
+    if(this.sourceClosed)
+    {
+      throw new SocketException("Socket closed");
+    }
+  }
+  
+  private void wake()
+  {
+    Thread r = this.reader;
+    if(r != null)
+    {
+      LockSupport.unpark(r);
+    }
+    for(Thread writer : this.writers)
+    {
+      LockSupport.unpark(writer);
+    }
+  }
+}
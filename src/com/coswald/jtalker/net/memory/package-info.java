@@ -0,0 +1,34 @@
+/*
+ * package-info.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/**
+ * <p>Connects JTalker clients to a server within the same process, without
+ * sockets. A {@link com.coswald.jtalker.net.memory.MemoryTransport
+ * MemoryTransport} hands out connections whose bytes go through queues in
+ * memory, and which carry the same protocol as a TCP socket does, so
+ * everything a server does with a line (framing, relaying, and sending it to
+ * every client within a room) can be run and timed without the kernel
+ * taking any part.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+package com.coswald.jtalker.net.memory;
@@ -0,0 +1,92 @@
+/*
+ * EventStreamConstants.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.sse;
+
+/**
+ * <p>A set of descriptions for specific constants used when streaming rooms
+ * as Server-Sent Events. Just like the other constants classes, this class is
+ * a utility class and cannot be extended.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public final class EventStreamConstants
+{
+  /**
+   * What the path of a stream starts with ({@value}). It is followed by the
+   * name of the room, and then by {@link #PATH_SUFFIX the suffix}.
+   */
+  public static final String PATH_PREFIX = "/rooms/";
+  
+  /**
+   * What the path of a stream ends with ({@value}).
+   */
+  public static final String PATH_SUFFIX = "/events";
+  
+  /**
+   * The header a reconnecting stream tells us the last line it saw with
+   * ({@value}).
+   */
+  public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+  
+  /**
+   * The query parameter that may be used instead of
+   * {@link #LAST_EVENT_ID_HEADER the header} ({@value}), as a browser can not
+   * set the header when it first connects.
+   */
+  public static final String LAST_EVENT_ID_PARAMETER = "lastEventId";
+  
+  /**
+   * How long, in milliseconds, a browser waits before reconnecting a stream
+   * that dropped. This is currently set to {@value}.
+   */
+  public static final long RETRY_MILLIS = 2000L;
+  
+  /**
+   * How long, in milliseconds, a stream may go without anything being sent
+   * on it, before a comment is sent to keep it open. This is currently set to
+   * {@value}.
+   */
+  public static final long KEEP_ALIVE_MILLIS = 15000L;
+  
+  /**
+   * The most lines that wait to be sent on one stream. A stream that falls
+   * this far behind is closed, and catches up from the history once it
+   * reconnects. This is currently set to {@value}.
+   */
+  public static final int STREAM_LINES = 1024;
+  
+  /**
+   * The most streams open at once. A request for another is answered with
+   * {@code 503 Service Unavailable}, and retried by a browser a while later.
+   * This is currently set to {@value}.
+   */
+  public static final int MAX_STREAMS = 256;
+  
+  /**
+   * The most lines read from the history at once while a stream catches up.
+   * This is currently set to {@value}.
+   */
+  public static final int CATCH_UP_LINES = 256;
+  
+  private EventStreamConstants() {}
+}
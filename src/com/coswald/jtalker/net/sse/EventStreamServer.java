@@ -0,0 +1,403 @@
+/*
+ * EventStreamServer.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.sse;
+
+import com.coswald.jtalker.Initializable;
+import com.coswald.jtalker.net.RoomWatcher;
+import com.coswald.jtalker.net.Rooms;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.ServerOutputStream;
+import com.coswald.jtalker.net.history.ChatHistory;
+import com.coswald.jtalker.net.sse.EventStreamConstants;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Streams the lines of rooms over HTTP, as Server-Sent Events. A
+ * {@code GET} of
+ * {@code /rooms/}<i>room</i>{@code /events} is answered with a stream of
+ * {@code text/event-stream}, which holds one event for each line delivered to
+ * that room, its id being the index of the line within the history. Nothing
+ * is read from the other end, so watching a room costs neither a
+ * {@link com.coswald.jtalker.net.TCPClientInstance TCPClientInstance} nor a
+ * place within the room; the stream is simply a
+ * {@link com.coswald.jtalker.net.RoomWatcher RoomWatcher} of it.</p>
+ * <p>A stream that gives the id of the last line it saw (with the
+ * {@value com.coswald.jtalker.net.sse.EventStreamConstants#LAST_EVENT_ID_HEADER}
+ * header a browser sends when it reconnects, or the
+ * {@value com.coswald.jtalker.net.sse.EventStreamConstants#LAST_EVENT_ID_PARAMETER}
+ * parameter) is first sent every line of the room after it that the history
+ * still holds. A line of the history is known to be of a room by the prefix
+ * a line of any room but the default one starts with.</p>
+ * <p>Each stream is written by a thread of its own, from a queue of at most
+ * {@value com.coswald.jtalker.net.sse.EventStreamConstants#STREAM_LINES}
+ * lines, so a slow one never holds up a room. A stream that falls further
+ * behind than that is closed; it is not lost, as it catches up from the
+ * history once it reconnects.</p>
+ * <p>At most
+ * {@value com.coswald.jtalker.net.sse.EventStreamConstants#MAX_STREAMS}
+ * streams are open at once, so that watchers can not use up our threads. A
+ * stream asked for beyond that is refused, and comes back once the browser
+ * retries it.</p>
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ */
+public class EventStreamServer implements Closeable, Initializable
+{
+  private int port;
+  private ServerOutputStream local;
+  private Rooms rooms;
+  private ChatHistory history;
+  private HttpServer server;
+  private ExecutorService streams;
+  private Semaphore open;
+  
+  /**
+   * Constructs a server for the rooms of a JTalker server.
+   * @param port The port to listen on, or 0 for any free one.
+   * @param local The output of the server, whose lock guards the rooms.
+   * @param rooms The rooms of the server.
+   * @param history The history of the server.
+   * @throws IllegalArgumentException If any parameter is {@code null}, or
+   *  the port is outside of the valid bounds.
+   */
+  public EventStreamServer(int port, ServerOutputStream local, Rooms rooms,
+    ChatHistory history)
+  {
+    if(local == null || rooms == null || history == null)
+    {
+      throw new IllegalArgumentException("No parameter can be null!");
+    }
+    if(port < ServerClientConstants.MIN_PORT_NUMBER ||
+      port > ServerClientConstants.MAX_PORT_NUMBER)
+    {
+      throw new IllegalArgumentException("Port must be between " +
+        ServerClientConstants.MIN_PORT_NUMBER +
+        " and " + ServerClientConstants.MAX_PORT_NUMBER + ", inclusive!");
+    }
+    this.port = port;
+    this.local = local;
+    this.rooms = rooms;
+    this.history = history;
+    this.open = new Semaphore(EventStreamConstants.MAX_STREAMS);
+  }
+  
+  /**
+   * Starts listening for streams.
+   * @throws IllegalStateException If the port could not be bound.
+   */
+  @Override
+  public void init()
+  {
+    try
+    {
+      this.server = HttpServer.create(new InetSocketAddress(this.port), 0);
+    }
+    catch(IOException i)
+    {
+      throw new IllegalStateException("Could not listen for event streams",
+        i);
+    }
+    this.streams = Executors.newCachedThreadPool(r ->
+    {
+      Thread t = new Thread(r, "JTalker Event Stream");
+      t.setDaemon(true);
+      return t;
+    });
+    this.server.setExecutor(this.streams);
+    this.server.createContext(EventStreamConstants.PATH_PREFIX, this::stream);
+    this.server.start();
+  }
+  
+  /**
+   * Returns the port we listen on.
+   * @return The port, or -1 if we have not been initialized.
+   */
+  public int getPort()
+  {
+    return (this.server == null) ? -1 : this.server.getAddress().getPort();
+  }
+  
+  /**
+   * Stops listening, and closes every stream.
+   */
+  @Override
+  public void close()
+  {
+    if(this.server != null)
+    {
+      this.server.stop(0);
+      this.streams.shutdownNow();
+    }
+  }
+  
+  /*
+   * Answers one request, streaming the room until the other end goes away,
+   * falls too far behind, or we are closed.
+   */
+  private void stream(HttpExchange exchange) throws IOException
+  {
+    try
+    {
+      String path = exchange.getRequestURI().getPath();
+      if(!"GET".equals(exchange.getRequestMethod()))
+      {
+        exchange.getResponseHeaders().set("Allow", "GET");
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      if(!path.endsWith(EventStreamConstants.PATH_SUFFIX) || path.length() <=
+        EventStreamConstants.PATH_PREFIX.length() +
+        EventStreamConstants.PATH_SUFFIX.length())
+      {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+      if(!this.open.tryAcquire())
+      {
+        exchange.getResponseHeaders().set("Retry-After", Long.toString(
+          TimeUnit.MILLISECONDS.toSeconds(EventStreamConstants.RETRY_MILLIS)));
+        exchange.sendResponseHeaders(503, -1);
+        return;
+      }
+      try
+      {
+        this.stream(exchange, path);
+      }
+      finally
+      {
+        this.open.release();
+      }
+    }
+    catch(IOException | InterruptedException e)
+    {
+      //they went away, or we are closing
+    }
+    finally
+    {
+      exchange.close();
+    }
+  }
+  
+  /*
+   * Streams the room a request asked for, once it has been let in.
+   */
+  private void stream(HttpExchange exchange, String path)
+    throws IOException, InterruptedException
+  {
+    String room = path.substring(EventStreamConstants.PATH_PREFIX.length(),
+      path.length() - EventStreamConstants.PATH_SUFFIX.length());
+    Long last = lastEventId(exchange);
+    exchange.getResponseHeaders().set("Content-Type",
+      "text/event-stream; charset=utf-8");
+    exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+    exchange.sendResponseHeaders(200, 0);
+    
+    Stream stream = new Stream();
+    long live;
+    synchronized(this.local)
+    {
+      this.rooms.watch(room, stream);
+      live = this.history.size();
+    }
+    try
+    {
+      OutputStream body = exchange.getResponseBody();
+      write(body, "retry: " + EventStreamConstants.RETRY_MILLIS + "\n\n");
+      if(last != null)
+      {
+        this.catchUp(body, room, last + 1L, live);
+      }
+      body.flush();
+      stream.run(body, (last == null) ? -1L : last);
+    }
+    finally
+    {
+      synchronized(this.local)
+      {
+        this.rooms.unwatch(room, stream);
+      }
+    }
+  }
+  
+  /*
+   * Sends the lines of a room the history holds from one index until another.
+   */
+  private void catchUp(OutputStream body, String room, long from, long until)
+    throws IOException
+  {
+    long index = Math.max(from, 0L);
+    while(index < until)
+    {
+      List<String> lines = this.history.read(index, (int)Math.min(
+        EventStreamConstants.CATCH_UP_LINES, until - index));
+      if(lines.isEmpty())
+      {
+        return;
+      }
+      for(String line : lines)
+      {
+        if(room.equals(Rooms.roomOf(line)))
+        {
+          write(body, event(index, line));
+        }
+        index++;
+      }
+    }
+  }
+  
+  /*
+   * The id of the last event the other end saw (-1 for none at all), or null
+   * if it did not say, in which case it is only sent new lines.
+   */
+  private static Long lastEventId(HttpExchange exchange)
+    throws UnsupportedEncodingException
+  {
+    String value = exchange.getRequestHeaders().getFirst(
+      EventStreamConstants.LAST_EVENT_ID_HEADER);
+    String query = exchange.getRequestURI().getRawQuery();
+    if(value == null && query != null)
+    {
+      for(String parameter : query.split("&"))
+      {
+        if(parameter.startsWith(
+          EventStreamConstants.LAST_EVENT_ID_PARAMETER + "="))
+        {
+          value = URLDecoder.decode(parameter.substring(
+            EventStreamConstants.LAST_EVENT_ID_PARAMETER.length() + 1),
+            "UTF-8");
+        }
+      }
+    }
+    try
+    {
+      return (value == null) ? null : Math.max(Long.parseLong(value.trim()),
+        -1L);
+    }
+    catch(NumberFormatException n)
+    {
+      return null;
+    }
+  }
+  
+  /*
+   * An event holds one data field for each line of text within the line.
+   */
+  private static String event(long index, String line)
+  {
+    StringBuilder event = new StringBuilder();
+    if(index >= 0L)
+    {
+      event.append("id: ").append(index).append('\n');
+    }
+    String text = line.replaceAll("[\r\n]+$", "");
+    for(String part : text.split("\r\n|\r|\n", -1))
+    {
+      event.append("data: ").append(part).append('\n');
+    }
+    return event.append('\n').toString();
+  }
+  
+  private static void write(OutputStream body, String text) throws IOException
+  {
+    body.write(text.getBytes(StandardCharsets.UTF_8));
+  }
+  
+  /*
+   * One stream being sent to, and the lines waiting to be.
+   */
+  private static final class Stream implements RoomWatcher
+  {
+    private BlockingQueue<Delivered> lines;
+    private volatile boolean behind;
+    
+    private Stream()
+    {
+      this.lines = new ArrayBlockingQueue<Delivered>(
+        EventStreamConstants.STREAM_LINES);
+    }
+    
+    @Override
+    public void lineDelivered(String room, long index, String line)
+    {
+      if(!this.lines.offer(new Delivered(index, line)))
+      {
+        this.behind = true;
+      }
+    }
+    
+    /*
+     * Sends lines as they are delivered, skipping any the other end already
+     * saw, until it falls too far behind.
+     */
+    private void run(OutputStream body, long last)
+      throws IOException, InterruptedException
+    {
+      while(!this.behind)
+      {
+        Delivered next = this.lines.poll(
+          EventStreamConstants.KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS);
+        if(next == null)
+        {
+          write(body, ": keep-alive\n\n");
+        }
+        for(; next != null; next = this.lines.poll())
+        {
+          if(next.index < 0L || next.index > last)
+          {
+            write(body, event(next.index, next.line));
+          }
+        }
+        body.flush();
+      }
+    }
+  }
+  
+  private static final class Delivered
+  {
+    private final long index;
+    private final String line;
+    
+    private Delivered(long index, String line)
+    {
+      this.index = index;
+      this.line = line;
+    }
+  }
+}
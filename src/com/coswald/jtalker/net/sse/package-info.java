@@ -0,0 +1,33 @@
+/*
+ * package-info.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/**
+ * <p>Lets those who only watch a room (dashboards, archivers, bots) follow it
+ * over plain HTTP. An
+ * {@link com.coswald.jtalker.net.sse.EventStreamServer EventStreamServer}
+ * streams the lines of a room as Server-Sent Events, which a browser reads
+ * with an {@code EventSource}, and which pick up where they left off after a
+ * reconnect.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+package com.coswald.jtalker.net.sse;
@@ -0,0 +1,165 @@
+/*
+ * AcceptTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests how quickly a {@link com.coswald.jtalker.net.TCPServer TCPServer}
+ * accepts a herd of clients that all connect at once, as they would when
+ * reconnecting after the server restarts. The herd is sent at a server
+ * accepting on one socket, and then at one
+ * {@link com.coswald.jtalker.net.TCPServer#setListeners(int) accepting} on
+ * several sockets sharing its port, and for each the rate clients were
+ * accepted at and the time each took to connect are printed. Once timed,
+ * every client of the herd identifies and leaves, as any client would (the
+ * server is first given room to serve them all at once).
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public final class AcceptTest
+{
+  private static final long WAIT_MILLIS = 1L;
+  
+  private AcceptTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of clients in the herd (default 5000), the amount
+   *  of sockets to accept on (default 4), and the amount of threads the herd
+   *  connects from (default 16), all optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+    int listeners = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+    int threads = (args.length > 2) ? Integer.parseInt(args[2]) : 16;
+    System.out.println(clients + " clients from " + threads + " threads");
+    run(1, clients, threads, ServerClientConstants.TCP_PORT + 20);
+    run(listeners, clients, threads, ServerClientConstants.TCP_PORT + 21);
+    System.exit(0);
+  }
+  
+  /*
+   * Starts a server accepting on the given amount of sockets, and sends the
+   * herd at it.
+   */
+  private static void run(int listeners, int clients, int threads, int port)
+    throws IOException, InterruptedException
+  {
+    TCPServer server = new TCPServer(TestSupport.quiet(), port);
+    server.setListeners(listeners);
+    server.init();
+    (new Thread(server)).start();
+    
+    Socket[] sockets = new Socket[clients];
+    long[] latencies = new long[clients];
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] herd = new Thread[threads];
+    for(int t = 0; t < threads; t++)
+    {
+      final int first = t;
+      herd[t] = new Thread(() ->
+      {
+        try
+        {
+          start.await();
+          for(int i = first; i < clients; i += threads)
+          {
+            long began = System.nanoTime();
+            sockets[i] = new Socket(TestSupport.LOOPBACK, port);
+            latencies[i] = System.nanoTime() - began;
+          }
+        }
+        catch(IOException | InterruptedException e)
+        {
+          e.printStackTrace();
+        }
+      });
+      herd[t].start();
+    }
+    long started = System.nanoTime();
+    start.countDown();
+    while(server.getAcceptedCount() < clients)
+    {
+      Thread.sleep(WAIT_MILLIS);
+    }
+    double seconds = (System.nanoTime() - started) / 1e9;
+    for(Thread t : herd)
+    {
+      t.join();
+    }
+    
+    Arrays.sort(latencies);
+    System.out.println(String.format("%d listener(s): %d accepted in %.3f s " +
+      "(%.0f/s), connect p50 %.2f ms, p99 %.2f ms, max %.2f ms", listeners,
+      clients, seconds, clients / seconds, latencies[clients / 2] / 1e6,
+      latencies[clients * 99 / 100] / 1e6, latencies[clients - 1] / 1e6));
+    server.setMaxClients(clients);
+    leave(sockets, threads);
+    server.close();
+  }
+  
+  /*
+   * Has every client of the herd identify and leave, from the same amount of
+   * threads it connected from, so that few are ever in the room at once.
+   */
+  private static void leave(Socket[] sockets, int threads)
+    throws InterruptedException
+  {
+    Thread[] herd = new Thread[threads];
+    for(int t = 0; t < threads; t++)
+    {
+      final int first = t;
+      herd[t] = new Thread(() ->
+      {
+        try
+        {
+          for(int i = first; i < sockets.length; i += threads)
+          {
+            TestSupport.join(sockets[i], "herd" + i);
+            TestSupport.leave(sockets[i]);
+          }
+        }
+        catch(IOException i)
+        {
+          i.printStackTrace();
+        }
+      });
+      herd[t].start();
+    }
+    for(Thread t : herd)
+    {
+      t.join();
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * AsyncTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.AsyncTCPClient;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the {@link com.coswald.jtalker.net.AsyncTCPClient AsyncTCPClient}. A
+ * server is started with room for every client, and a crowd of clients,
+ * all running on one small channel group, connect to it. Each says a few
+ * lines, without waiting on any of them, and hears everyone else's; then
+ * they all leave. How long each step took, and how many threads the clients
+ * needed (where {@link com.coswald.jtalker.net.TCPClient TCPClient}s would
+ * have needed two each), are printed.
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public final class AsyncTest
+{
+  private static final String LOOPBACK = "127.0.0.1";
+  private static final String PREFIX = "bench ";
+  private static final int PORT = ServerClientConstants.TCP_PORT + 60;
+  private static final int THREADS = 2;
+  private static final long WAIT_SECONDS = 120L;
+  
+  private AsyncTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of clients (default 200), and the amount of lines
+   *  each says (default 10), both optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+    int lines = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+    TCPServer server = new TCPServer(new PrintStream(
+      new ByteArrayOutputStream()), PORT);
+    server.setMaxClients(clients + 1);
+    server.init();
+    (new Thread(server)).start();
+    
+    AtomicInteger threads = new AtomicInteger();
+    AsynchronousChannelGroup group = AsynchronousChannelGroup
+      .withFixedThreadPool(THREADS, r ->
+      {
+        threads.incrementAndGet();
+        Thread t = new Thread(r, "AsyncTest Client");
+        t.setDaemon(true);
+        return t;
+      });
+    CountDownLatch heard = new CountDownLatch(clients);
+    List<AsyncTCPClient> crowd = new ArrayList<AsyncTCPClient>();
+    List<CompletableFuture<AsyncTCPClient>> joins =
+      new ArrayList<CompletableFuture<AsyncTCPClient>>();
+    long started = System.nanoTime();
+    for(int c = 0; c < clients; c++)
+    {
+      AsyncTCPClient client = new AsyncTCPClient("client" + c, LOOPBACK, PORT,
+        group);
+      AtomicInteger seen = new AtomicInteger();
+      client.setMessageListener((from, message) ->
+      {
+        if(message.getBody().startsWith(PREFIX) &&
+          seen.incrementAndGet() == clients * lines)
+        {
+          heard.countDown();
+        }
+      });
+      crowd.add(client);
+      joins.add(client.connect());
+    }
+    CompletableFuture.allOf(joins.toArray(new CompletableFuture<?>[0]))
+      .get(WAIT_SECONDS, TimeUnit.SECONDS);
+    print("connected", clients, started);
+    
+    started = System.nanoTime();
+    List<CompletableFuture<Void>> sends =
+      new ArrayList<CompletableFuture<Void>>();
+    for(int i = 0; i < lines; i++)
+    {
+      for(AsyncTCPClient client : crowd)
+      {
+        sends.add(client.send(PREFIX + i));
+      }
+    }
+    CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0]))
+      .get(WAIT_SECONDS, TimeUnit.SECONDS);
+    print("lines written", sends.size(), started);
+    boolean all = heard.await(WAIT_SECONDS, TimeUnit.SECONDS);
+    print("deliveries " + (all ? "heard" : "NOT all heard"),
+      (long)sends.size() * clients, started);
+    
+    started = System.nanoTime();
+    List<CompletableFuture<Void>> leaves =
+      new ArrayList<CompletableFuture<Void>>();
+    for(AsyncTCPClient client : crowd)
+    {
+      leaves.add(client.leave());
+    }
+    CompletableFuture.allOf(leaves.toArray(new CompletableFuture<?>[0]))
+      .get(WAIT_SECONDS, TimeUnit.SECONDS);
+    print("left", clients, started);
+    System.out.println(clients + " clients used " + threads.get() +
+      " threads (" + (clients * 2) + " as TCPClients)");
+    System.exit(0);
+  }
+  
+  private static void print(String what, long count, long started)
+  {
+    double seconds = (System.nanoTime() - started) / 1e9;
+    System.out.println(String.format("%d %s in %.2f s (%.0f/s)", count, what,
+      seconds, count / seconds));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * BalancerTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.Balancer;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+
+/**
+ * Tests {@link com.coswald.jtalker.net.Balancer Balancer}. This starts a
+ * balancer in front of several servers, and runs it until the user enters the
+ * escape character. Connect a few
+ * {@link com.coswald.jtalker.net.test.ClientTest ClientTest}s to it to see
+ * them spread across the servers; every few seconds, the load of each server
+ * is printed.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class BalancerTest
+{
+  private static final String LOOPBACK = "127.0.0.1";
+  private static final int SERVERS = 2;
+  private static final long LOAD_MILLIS = 5000L;
+  
+  private BalancerTest()
+  {
+  }
+  
+  /**
+   * Starts the balancer on port
+   * {@value com.coswald.jtalker.net.ServerClientConstants#TCP_PORT}. If
+   * servers are given (each as {@code host:port}), the balancer hands clients
+   * to those; otherwise, {@value #SERVERS} servers are started within this
+   * process on the ports after it.
+   * @param args The servers to balance (optional).
+   */
+  public static void main(String... args)
+  {
+    Balancer balancer = new Balancer(System.out,
+      ServerClientConstants.TCP_PORT);
+    if(args.length > 0)
+    {
+      for(String arg : args)
+      {
+        int colon = arg.lastIndexOf(':');
+        balancer.addBackend(arg.substring(0, colon),
+          Integer.parseInt(arg.substring(colon + 1)));
+      }
+    }
+    else
+    {
+      for(int i = 1; i <= SERVERS; i++)
+      {
+        TCPServer server = new TCPServer(System.out,
+          ServerClientConstants.TCP_PORT + i);
+        server.init();
+        (new Thread(server)).start();
+        balancer.addBackend(LOOPBACK, ServerClientConstants.TCP_PORT + i);
+      }
+    }
+    balancer.init();
+    (new Thread(balancer)).start();
+    
+    while(true)
+    {
+      try
+      {
+        Thread.sleep(LOAD_MILLIS);
+      }
+      catch(InterruptedException ie)
+      {
+        return;
+      }
+      for(Balancer.Backend backend : balancer.getBackends())
+      {
+        System.out.println(backend + " has " + backend.getConnections() +
+          " clients, " + backend.getQueued() + " queued");
+      }
+    }
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * BatchTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPClient;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.transport.SocketTransport;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests how a {@link com.coswald.jtalker.net.TCPClient TCPClient} gathers
+ * what it sends. A block of lines is pasted into a client all at once, first
+ * with {@link com.coswald.jtalker.net.TCPClient#setBatchSize(int) batching}
+ * turned off and then with the default batch size, and how many writes it
+ * took to reach the socket, and how long until the server had every line,
+ * are printed. Then a few lines are typed one at a time, to show that each
+ * is still written by itself, and how soon after it was typed. Last, a few
+ * lines are pasted followed by one with no line break, to show that those
+ * before it are not held back until it is finished.
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ */
+public final class BatchTest
+{
+  private static final String PASTED = "pasted line ";
+  private static final String UNFINISHED = "unfinished line ";
+  private static final int PORT = ServerClientConstants.TCP_PORT + 80;
+  private static final int PIPE_BYTES = 1 << 22;
+  private static final long TYPING_MILLIS = 50L;
+  
+  private BatchTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines pasted (default 10000), and the amount
+   *  typed (default 20), both optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+    int typed = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+    TCPServer server = new TCPServer(TestSupport.quiet(), PORT);
+    server.init();
+    (new Thread(server)).start();
+    
+    StringBuilder block = new StringBuilder();
+    for(int i = 0; i < lines; i++)
+    {
+      block.append(PASTED).append(i).append('\n');
+    }
+    byte[] paste = block.toString().getBytes("UTF-8");
+    
+    int[] sizes = {0, ServerClientConstants.SEND_BATCH_BYTES};
+    for(int s = 0; s < sizes.length; s++)
+    {
+      String id = "paster" + s;
+      PipedOutputStream typing = new PipedOutputStream();
+      CountingTransport transport = new CountingTransport();
+      TCPClient client = new TCPClient(new PipedInputStream(typing,
+        PIPE_BYTES), TestSupport.quiet(), id, TestSupport.LOOPBACK, PORT);
+      client.setTransport(transport);
+      client.setBatchSize(sizes[s]);
+      client.init();
+      Thread sending = new Thread(client);
+      sending.setDaemon(true);
+      sending.start();
+      
+      long before = transport.writes.get();
+      long started = System.nanoTime();
+      typing.write(paste);
+      typing.flush();
+      int arrived = waitFor(server, id + ": " + PASTED, lines);
+      System.out.println(String.format("Batch size %6d: %d of %d lines " +
+        "arrived in %.0f ms, in %d writes", sizes[s], arrived, lines,
+        (System.nanoTime() - started) / 1e6, transport.writes.get() - before));
+      
+      if(s == sizes.length - 1)
+      {
+        type(typing, transport, typed);
+        unfinished(server, typing, id, typed);
+      }
+    }
+    System.exit(0);
+  }
+  
+  private static void type(PipedOutputStream typing,
+    CountingTransport transport, int typed) throws Exception
+  {
+    long worst = 0L;
+    long total = 0L;
+    int alone = 0;
+    for(int i = 0; i < typed; i++)
+    {
+      Thread.sleep(TYPING_MILLIS);
+      long before = transport.writes.get();
+      long started = System.nanoTime();
+      typing.write(("typed line " + i + "\n").getBytes("UTF-8"));
+      typing.flush();
+      long until = System.currentTimeMillis() + TestSupport.WAIT_MILLIS;
+      while(transport.writes.get() == before &&
+        System.currentTimeMillis() < until)
+      {
+        Thread.yield();
+      }
+      long took = transport.written.get() - started;
+      worst = Math.max(worst, took);
+      total += took;
+      Thread.sleep(TYPING_MILLIS);
+      if(transport.writes.get() - before == 1L)
+      {
+        alone++;
+      }
+    }
+    System.out.println(String.format("%d of %d typed lines written by " +
+      "themselves: mean %.2f ms, worst %.2f ms after typing", alone, typed,
+      total / 1e6 / typed, worst / 1e6));
+  }
+  
+  private static void unfinished(TCPServer server,
+    PipedOutputStream typing, String id, int lines) throws Exception
+  {
+    StringBuilder block = new StringBuilder();
+    for(int i = 0; i < lines; i++)
+    {
+      block.append(UNFINISHED).append(i).append('\n');
+    }
+    block.append(UNFINISHED).append("with no line break");
+    long started = System.nanoTime();
+    typing.write(block.toString().getBytes("UTF-8"));
+    typing.flush();
+    int arrived = waitFor(server, id + ": " + UNFINISHED, lines);
+    System.out.println(String.format("%d of %d lines pasted before an " +
+      "unfinished one arrived in %.0f ms", arrived, lines,
+      (System.nanoTime() - started) / 1e6));
+  }
+  
+  private static int waitFor(TCPServer server, String prefix, int lines)
+    throws InterruptedException
+  {
+    TestSupport.waitFor(() -> arrived(server, prefix) >= lines);
+    return arrived(server, prefix);
+  }
+  
+  private static int arrived(TCPServer server, String prefix)
+  {
+    int arrived = 0;
+    for(String line : server.getHistory().read(0L, Integer.MAX_VALUE))
+    {
+      if(line.contains(prefix))
+      {
+        arrived++;
+      }
+    }
+    return arrived;
+  }
+  
+  /*
+   * Makes TCP sockets that count the writes made to them, and remember when
+   * the last was made.
+   */
+  private static final class CountingTransport extends SocketTransport
+  {
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    
+    @Override
+    public Socket connect(String host, int port) throws IOException
+    {
+      return new Socket(host, port)
+      {
+        @Override
+        public OutputStream getOutputStream() throws IOException
+        {
+          return new FilterOutputStream(super.getOutputStream())
+          {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException
+            {
+              this.out.write(b, off, len);
+              written.set(System.nanoTime());
+              writes.incrementAndGet();
+            }
+            
+            @Override
+            public void write(int b) throws IOException
+            {
+              this.write(new byte[] {(byte)b}, 0, 1);
+            }
+          };
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * BotTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.AsyncTCPClient;
+import com.coswald.jtalker.net.Message;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link com.coswald.jtalker.net.AsyncTCPClient AsyncTCPClient}s used
+ * as bots, with no input or output streams at all. A server is started, and
+ * an echo bot and a crowd of resumable bots, all on one small channel group,
+ * join a room. Each bot says a few lines, and the echo bot answers every one
+ * with a direct message to whoever said it. Whether every
+ * {@link com.coswald.jtalker.net.Message Message} heard was taken apart
+ * rightly, and whether the lines of the room were numbered without gaps,
+ * are printed. Then one bot leaves, a few more lines are said, and a new bot
+ * with the same identifier is made, to show that it is sent just the lines
+ * it missed.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class BotTest
+{
+  private static final String LOOPBACK = "127.0.0.1";
+  private static final String ROOM = "bots";
+  private static final String ECHO = "echo";
+  private static final String HELLO = "hello ";
+  private static final String AFTER = "after ";
+  private static final String JOINED = "You are now in";
+  private static final int PORT = ServerClientConstants.TCP_PORT + 90;
+  private static final int THREADS = 2;
+  private static final int MISSED = 25;
+  private static final long WAIT_SECONDS = 120L;
+  
+  private BotTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of bots (default 100), and the amount of lines
+   *  each says (default 10), both optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int bots = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+    int lines = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+    TCPServer server = new TCPServer(new PrintStream(
+      new ByteArrayOutputStream()), PORT);
+    server.setMaxClients(bots + 2);
+    server.init();
+    (new Thread(server)).start();
+    
+    AtomicInteger threads = new AtomicInteger();
+    AsynchronousChannelGroup group = AsynchronousChannelGroup
+      .withFixedThreadPool(THREADS, r ->
+      {
+        threads.incrementAndGet();
+        Thread t = new Thread(r, "BotTest Bot");
+        t.setDaemon(true);
+        return t;
+      });
+    
+    AsyncTCPClient echo = new AsyncTCPClient(ECHO, LOOPBACK, PORT, group);
+    CountDownLatch echoJoined = new CountDownLatch(1);
+    CountDownLatch heardAfter = new CountDownLatch(MISSED);
+    echo.setMessageListener((client, message) ->
+    {
+      if(message.isNotice())
+      {
+        if(message.getBody().startsWith(JOINED))
+        {
+          echoJoined.countDown();
+        }
+      }
+      else if(ROOM.equals(message.getRoom()) &&
+        !ECHO.equals(message.getSender()))
+      {
+        if(message.getBody().startsWith(HELLO))
+        {
+          client.sendDirect(message.getSender(), message.getBody());
+        }
+        else if(message.getBody().startsWith(AFTER))
+        {
+          heardAfter.countDown();
+        }
+      }
+    });
+    echo.connect().get(WAIT_SECONDS, TimeUnit.SECONDS);
+    echo.join(ROOM);
+    echoJoined.await(WAIT_SECONDS, TimeUnit.SECONDS);
+    
+    CountDownLatch done = new CountDownLatch(bots);
+    List<Bot> crowd = new ArrayList<Bot>();
+    long started = System.nanoTime();
+    for(int b = 0; b < bots; b++)
+    {
+      Bot bot = new Bot("bot" + b, group, (bots - 1) * lines, lines, done);
+      bot.client.connect().get(WAIT_SECONDS, TimeUnit.SECONDS);
+      bot.client.join(ROOM);
+      crowd.add(bot);
+    }
+    for(Bot bot : crowd)
+    {
+      bot.joined.await(WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+    for(int i = 0; i < lines; i++)
+    {
+      for(Bot bot : crowd)
+      {
+        bot.client.send(HELLO + i);
+      }
+    }
+    boolean all = done.await(WAIT_SECONDS, TimeUnit.SECONDS);
+    double seconds = (System.nanoTime() - started) / 1e9;
+    
+    int heard = 0;
+    int wrong = 0;
+    int gaps = 0;
+    int echoes = 0;
+    for(Bot bot : crowd)
+    {
+      heard += bot.heard.get();
+      wrong += bot.wrong.get();
+      gaps += bot.gaps.get();
+      echoes += bot.echoes.get();
+    }
+    System.out.println(String.format("%d bots %s in %.2f s on %d threads: " +
+      "%d lines heard (%d expected), %d taken apart wrongly, %d gaps in " +
+      "their numbers, %d direct answers (%d expected)", bots,
+      all ? "finished" : "did NOT all finish", seconds, threads.get(), heard,
+      bots * (bots - 1) * lines, wrong, gaps, echoes, bots * lines));
+    
+    Bot leaving = crowd.get(0);
+    long last = leaving.last;
+    leaving.client.leave().get(WAIT_SECONDS, TimeUnit.SECONDS);
+    AsyncTCPClient talker = crowd.get(1).client;
+    for(int i = 0; i < MISSED; i++)
+    {
+      talker.send(AFTER + i);
+    }
+    heardAfter.await(WAIT_SECONDS, TimeUnit.SECONDS);
+    
+    Bot back = new Bot(leaving.client.getID(), group, MISSED, 0,
+      new CountDownLatch(1));
+    back.last = last;
+    back.client.connect().get(WAIT_SECONDS, TimeUnit.SECONDS);
+    back.done.await(WAIT_SECONDS, TimeUnit.SECONDS);
+    System.out.println(String.format("A bot made again with the same " +
+      "identifier was sent %d of the %d lines it missed, in room %s, with " +
+      "%d gaps after the last line it had (%d)", back.after.get(), MISSED,
+      back.room, back.gaps.get(), last));
+    System.exit(0);
+  }
+  
+  /*
+   * A resumable bot that checks every message it hears.
+   */
+  private static final class Bot
+  {
+    private final AsyncTCPClient client;
+    private final CountDownLatch joined;
+    private final CountDownLatch done;
+    private final AtomicInteger heard;
+    private final AtomicInteger wrong;
+    private final AtomicInteger gaps;
+    private final AtomicInteger echoes;
+    private final AtomicInteger after;
+    private volatile long last;
+    private volatile String room;
+    
+    private Bot(String id, AsynchronousChannelGroup group, int expected,
+      int answers, CountDownLatch done)
+    {
+      this.client = new AsyncTCPClient(id, LOOPBACK, PORT, group);
+      this.client.setResumable(true);
+      this.joined = new CountDownLatch(1);
+      this.done = done;
+      this.heard = new AtomicInteger();
+      this.wrong = new AtomicInteger();
+      this.gaps = new AtomicInteger();
+      this.echoes = new AtomicInteger();
+      this.after = new AtomicInteger();
+      this.last = -1L;
+      this.client.setMessageListener((client, message) ->
+      {
+        this.hear(message, expected, answers);
+      });
+    }
+    
+    private void hear(Message message, int expected, int answers)
+    {
+      String id = this.client.getID();
+      if(message.isDirect())
+      {
+        if(ECHO.equals(message.getSender()) &&
+          id.equals(message.getRecipient()))
+        {
+          this.echoes.incrementAndGet();
+        }
+        else
+        {
+          this.wrong.incrementAndGet();
+        }
+      }
+      else if(message.getSequence() < 0)
+      {
+        if(message.isNotice() && message.getBody().startsWith(JOINED))
+        {
+          this.joined.countDown();
+        }
+        return;
+      }
+      else
+      {
+        if(this.last >= 0L && message.getSequence() != this.last + 1L)
+        {
+          this.gaps.incrementAndGet();
+        }
+        this.last = message.getSequence();
+        this.room = message.getRoom();
+        if(message.isNotice() || id.equals(message.getSender()) ||
+          ECHO.equals(message.getSender()))
+        {
+          return;
+        }
+        if(!ROOM.equals(message.getRoom()) ||
+          !message.getSender().startsWith("bot"))
+        {
+          this.wrong.incrementAndGet();
+        }
+        else if(message.getBody().startsWith(HELLO))
+        {
+          this.heard.incrementAndGet();
+        }
+        else if(message.getBody().startsWith(AFTER))
+        {
+          this.after.incrementAndGet();
+        }
+        else
+        {
+          this.wrong.incrementAndGet();
+        }
+      }
+      if(this.heard.get() + this.after.get() == expected &&
+        this.echoes.get() == answers)
+      {
+        this.done.countDown();
+      }
+    }
+  }
+}
@@ -30,7 +30,7 @@ import java.util.Scanner;
  * Tests {@link com.coswald.jtalker.net.TCPClient TCPClient}. This will test the
  * client until the user doesn't want to connect to any more servers.
  * @author C. William Oswald
- * @version 0.0.1
+ * @version 0.0.2
  * @since JTalker 0.1.0
  */
 public final class ClientTest
@@ -51,8 +51,9 @@ public final class ClientTest
    * will ask if they want to join another server. If they do, the process
    * repeats. If not, the client shuts down and the application is exited. The
    * port the socket binds to is
-   * {@value com.coswald.jtalker.net.ServerClientConstants#TCP_PORT}.
-   * @param args Not used.
+   * {@value com.coswald.jtalker.net.ServerClientConstants#TCP_PORT}, unless
+   * another one is given.
+   * @param args The port to connect to (optional).
    */
   public static void main(String... args)
   {
@@ -61,8 +62,8 @@ public final class ClientTest
     String identifier = z.nextLine();
     System.out.print(IP_PROMPT);
     String host = z.nextLine();
-    TCPClient c = new TCPClient(identifier, host,
-      ServerClientConstants.TCP_PORT);
+    TCPClient c = new TCPClient(identifier, host, (args.length > 0) ?
+      Integer.parseInt(args[0]) : ServerClientConstants.TCP_PORT);
     c.init();
     
     String yesno = YES;
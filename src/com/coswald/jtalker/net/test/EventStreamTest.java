@@ -0,0 +1,250 @@
+/*
+ * EventStreamTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.sse.EventStreamConstants;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the {@link com.coswald.jtalker.net.sse.EventStreamServer
+ * EventStreamServer} of a {@link com.coswald.jtalker.net.TCPServer TCPServer}.
+ * A TCP client says a few lines within the default room and within another,
+ * and a stream of the other room is opened from the start of the history: it
+ * should be sent only that room's lines. The stream is then closed, more
+ * lines are said, and it is opened again from the last id it saw: it should
+ * be sent only the new ones. Last, a run of lines is said while the stream is
+ * open, and the time each took to arrive on it is printed. Before any of
+ * that, a client tries to identify with a name that would pass its lines off
+ * as lines of the watched room, which should be refused.
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public final class EventStreamTest
+{
+  private static final String LOOPBACK = "127.0.0.1";
+  private static final String ROOM = "watched";
+  private static final String PREFIX = "bench ";
+  private static final long SETTLE_MILLIS = 200L;
+  private static final long SEND_MILLIS = 1L;
+  
+  private EventStreamTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines timed (default 2000), optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+    TCPServer server = new TCPServer(new PrintStream(
+      new ByteArrayOutputStream()), ServerClientConstants.TCP_PORT);
+    server.createEventStream(ServerClientConstants.EVENT_STREAM_PORT);
+    server.init();
+    (new Thread(server)).start();
+    System.out.println("Room-like identifier refused: " + refused());
+    
+    Socket socket = new Socket(LOOPBACK, ServerClientConstants.TCP_PORT);
+    DataInputStream in = new DataInputStream(socket.getInputStream());
+    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+    in.readBoolean();
+    out.writeUTF("talker");
+    (new Thread(() ->
+    {
+      try
+      {
+        while(true)
+        {
+          in.readUTF();
+        }
+      }
+      catch(IOException i)
+      {
+        //the server closed
+      }
+    })).start();
+    out.writeUTF("in the lobby 1");
+    out.writeUTF(ServerClientConstants.JOIN_PREFIX + ROOM);
+    out.writeUTF("watched 1");
+    out.writeUTF("watched 2");
+    out.writeUTF(ServerClientConstants.JOIN_PREFIX +
+      ServerClientConstants.DEFAULT_ROOM);
+    out.writeUTF("in the lobby 2");
+    out.writeUTF(ServerClientConstants.JOIN_PREFIX + ROOM);
+    Thread.sleep(SETTLE_MILLIS);
+    
+    EventReader catchingUp = new EventReader("?" +
+      EventStreamConstants.LAST_EVENT_ID_PARAMETER + "=-1", null);
+    List<String> first = catchingUp.read(2);
+    System.out.println("Caught up on: " + first);
+    System.out.println("Only the watched room: " +
+      (first.get(0).contains("watched 1") &&
+      first.get(1).contains("watched 2")));
+    String lastId = catchingUp.lastId;
+    catchingUp.close();
+    
+    out.writeUTF("watched 3");
+    Thread.sleep(SETTLE_MILLIS);
+    EventReader reader = new EventReader("", lastId);
+    List<String> resumed = reader.read(1);
+    System.out.println("Resumed from id " + lastId + " with: " + resumed);
+    
+    long[] latencies = new long[lines];
+    Thread timer = new Thread(() ->
+    {
+      try
+      {
+        int seen = 0;
+        while(seen < lines)
+        {
+          String data = reader.read(1).get(0);
+          int at = data.indexOf(PREFIX);
+          if(at >= 0)
+          {
+            String[] parts = data.substring(at + PREFIX.length()).trim()
+              .split(" ");
+            latencies[Integer.parseInt(parts[0])] = System.nanoTime() -
+              Long.parseLong(parts[1]);
+            seen++;
+          }
+        }
+      }
+      catch(IOException i)
+      {
+        i.printStackTrace();
+      }
+    });
+    timer.start();
+    for(int i = 0; i < lines; i++)
+    {
+      out.writeUTF(PREFIX + i + " " + System.nanoTime());
+      Thread.sleep(SEND_MILLIS);
+    }
+    timer.join();
+    Arrays.sort(latencies);
+    System.out.println(String.format("Event stream: %d lines, latency p50 " +
+      "%.2f ms, p99 %.2f ms, max %.2f ms", lines, latencies[lines / 2] / 1e6,
+      latencies[lines * 99 / 100] / 1e6, latencies[lines - 1] / 1e6));
+    reader.close();
+    server.close();
+    System.exit(0);
+  }
+  
+  /*
+   * Whether the server cuts off a client naming itself like a line of the
+   * watched room, once it has said why.
+   */
+  private static boolean refused() throws IOException
+  {
+    try(Socket socket = new Socket(LOOPBACK, ServerClientConstants.TCP_PORT))
+    {
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      in.readBoolean();
+      (new DataOutputStream(socket.getOutputStream())).writeUTF("[" +
+        ServerClientConstants.ROOM_CHARACTER + ROOM + "] mallory");
+      in.readUTF();
+      return in.read() < 0;
+    }
+  }
+  
+  /*
+   * Reads the events of the watched room.
+   */
+  private static final class EventReader
+  {
+    private HttpURLConnection connection;
+    private BufferedReader in;
+    private String lastId;
+    
+    private EventReader(String query, String lastId) throws IOException
+    {
+      URL url = new URL("http://" + LOOPBACK + ":" +
+        ServerClientConstants.EVENT_STREAM_PORT +
+        EventStreamConstants.PATH_PREFIX + ROOM +
+        EventStreamConstants.PATH_SUFFIX + query);
+      this.connection = (HttpURLConnection)url.openConnection();
+      if(lastId != null)
+      {
+        this.connection.setRequestProperty(
+          EventStreamConstants.LAST_EVENT_ID_HEADER, lastId);
+      }
+      this.in = new BufferedReader(new InputStreamReader(
+        this.connection.getInputStream(), StandardCharsets.UTF_8));
+    }
+    
+    /*
+     * Returns the data of the next events.
+     */
+    private List<String> read(int count) throws IOException
+    {
+      List<String> events = new ArrayList<String>();
+      StringBuilder data = new StringBuilder();
+      while(events.size() < count)
+      {
+        String line = this.in.readLine();
+        if(line == null)
+        {
+          throw new IOException("The stream ended");
+        }
+        if(line.startsWith("id: "))
+        {
+          this.lastId = line.substring(4);
+        }
+        else if(line.startsWith("data: "))
+        {
+          data.append((data.length() > 0) ? "\n" : "").append(
+            line.substring(6));
+        }
+        else if(line.isEmpty() && data.length() > 0)
+        {
+          events.add(data.toString());
+          data.setLength(0);
+        }
+      }
+      return events;
+    }
+    
+    private void close()
+    {
+      this.connection.disconnect();
+    }
+  }
+}
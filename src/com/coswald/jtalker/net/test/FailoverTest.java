@@ -0,0 +1,253 @@
+/*
+ * FailoverTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.cluster.Federation;
+import com.coswald.jtalker.net.cluster.RoomLog;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that the log of a replicated room outlives its owner. Three federated
+ * servers are started within this process, and a client of one that does not
+ * own the default room says a run of lines within it. The owner is then
+ * closed, and once the others have found it dead, the client says another
+ * run; the owner is then started again with the same identifier, takes the
+ * room back, and the client says a last run. The client should hear every
+ * line once, in order, and each owner should carry the log on from exactly
+ * where the one before it stopped, in a higher term, so no index is given
+ * twice and none is lost.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class FailoverTest
+{
+  private static final int NODES = 3;
+  private static final int BASE_PORT = ServerClientConstants.TCP_PORT + 160;
+  private static final String ROOM = ServerClientConstants.DEFAULT_ROOM;
+  
+  private FailoverTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines of each run (default 500), optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+    TCPServer[] servers = new TCPServer[NODES];
+    for(int i = 0; i < NODES; i++)
+    {
+      servers[i] = start(i);
+    }
+    System.out.println("Every node agrees on the owner: " +
+      TestSupport.waitFor(() -> agreed(servers) != null));
+    String owner = agreed(servers);
+    int first = Integer.parseInt(owner.substring("node".length()));
+    int stable = (first + 1) % NODES;
+    System.out.println("The default room is owned by " + owner);
+    
+    Socket socket = new Socket(TestSupport.LOOPBACK, port(stable));
+    DataInputStream in = TestSupport.join(socket, "talker");
+    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+    List<Integer> heard = new ArrayList<Integer>();
+    Thread reader = new Thread(() -> read(in, heard));
+    reader.setDaemon(true);
+    reader.start();
+    
+    long before = say(out, heard, 0, lines, servers[first]);
+    System.out.println("Owner's log before failing over: " + before);
+    Federation leader = servers[first].getFederation();
+    System.out.println("Every line copied before the owner closes: " +
+      TestSupport.waitFor(() -> leader.getReplicator().getAckedIndex(ROOM) ==
+      before));
+    long term = term(servers[first]);
+    servers[first].close();
+    String[] next = new String[1];
+    System.out.println("The others found the owner dead: " +
+      TestSupport.waitFor(() -> (next[0] = agreed(servers)) != null &&
+      !owner.equals(next[0])));
+    TCPServer successor = servers[indexOf(next[0])];
+    long during = say(out, heard, lines, lines, successor);
+    System.out.println("Log of " + successor.getFederation().getNodeId() +
+      " after failing over: " + during + " (" + (before + lines) +
+      " expected)");
+    long taken = term(successor);
+    System.out.println("Term raised: " + (taken > term));
+    
+    servers[first] = start(first);
+    System.out.println("The owner took the room back: " +
+      TestSupport.waitFor(() -> owner.equals(agreed(servers))));
+    long after = say(out, heard, 2 * lines, lines, servers[first]);
+    System.out.println("Log of " + owner + " after failing back: " + after +
+      " (" + (during + lines) + " expected)");
+    System.out.println("Term raised: " + (term(servers[first]) > taken));
+    
+    boolean ordered = heard.size() == 3 * lines;
+    for(int i = 0; ordered && i < heard.size(); i++)
+    {
+      ordered = heard.get(i) == i;
+    }
+    System.out.println("Heard " + heard.size() + " lines (" + 3 * lines +
+      " expected), each once and in order: " + ordered);
+    TestSupport.leave(socket);
+    for(TCPServer server : servers)
+    {
+      server.close();
+    }
+    System.exit(0);
+  }
+  
+  /*
+   * Starts node i, which knows every other node as a seed, and copies the log
+   * of the default room.
+   */
+  private static TCPServer start(int i)
+  {
+    TCPServer server = new TCPServer(TestSupport.quiet(), port(i));
+    Federation federation = server.createFederation("node" + i, port(i) + 1);
+    federation.replicate(ROOM);
+    for(int j = 0; j < NODES; j++)
+    {
+      if(j != i)
+      {
+        federation.addPeer(TestSupport.LOOPBACK, port(j) + 1);
+      }
+    }
+    server.init();
+    (new Thread(server)).start();
+    return server;
+  }
+  
+  private static int port(int i)
+  {
+    return BASE_PORT + 2 * i;
+  }
+  
+  private static int indexOf(String node)
+  {
+    return Integer.parseInt(node.substring("node".length()));
+  }
+  
+  /*
+   * The owner of the default room every running node agrees on, once it has
+   * fetched the log, or null.
+   */
+  private static String agreed(TCPServer[] servers)
+  {
+    String owner = null;
+    for(TCPServer server : servers)
+    {
+      Federation federation = server.getFederation();
+      if(!federation.isRunning())
+      {
+        continue;
+      }
+      if(federation.getMembership().getMembers().size() < NODES &&
+        owner == null && federation.getOwner(ROOM).equals(
+        federation.getNodeId()))
+      {
+        //it has not heard of every node yet
+        return null;
+      }
+      if(owner != null && !owner.equals(federation.getOwner(ROOM)))
+      {
+        return null;
+      }
+      owner = federation.getOwner(ROOM);
+    }
+    if(owner == null)
+    {
+      return null;
+    }
+    Federation leader = servers[indexOf(owner)].getFederation();
+    return (!leader.isRunning() || leader.getReplicator().isFetching(ROOM) ||
+      leader.getRoomLog(ROOM) == null) ? null : owner;
+  }
+  
+  private static long term(TCPServer server)
+  {
+    return server.getFederation().getRoomLog(ROOM).getTerm();
+  }
+  
+  /*
+   * Says a run of lines, waits until they have all come back, and returns
+   * how long the log of the owner then is.
+   */
+  private static long say(DataOutputStream out, List<Integer> heard,
+    int from, int count, TCPServer owner) throws Exception
+  {
+    for(int i = from; i < from + count; i++)
+    {
+      out.writeUTF(TestSupport.PREFIX + i);
+    }
+    if(!TestSupport.waitFor(() -> size(heard) >= from + count))
+    {
+      System.out.println("Only heard " + size(heard) + " lines");
+    }
+    RoomLog log = owner.getFederation().getRoomLog(ROOM);
+    return log.size();
+  }
+  
+  private static int size(List<Integer> heard)
+  {
+    synchronized(heard)
+    {
+      return heard.size();
+    }
+  }
+  
+  private static void read(DataInputStream in, List<Integer> heard)
+  {
+    try
+    {
+      while(true)
+      {
+        String line = in.readUTF();
+        int at = line.indexOf(TestSupport.PREFIX);
+        if(at >= 0)
+        {
+          synchronized(heard)
+          {
+            heard.add(Integer.valueOf(line.substring(at +
+              TestSupport.PREFIX.length()).trim()));
+          }
+        }
+      }
+    }
+    catch(IOException i)
+    {
+      //we left
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * FanoutTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.cluster.Federation;
+
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Tests the fan-out tree broadcasts are relayed down within a
+ * {@link com.coswald.jtalker.net.cluster.Federation Federation}. Six servers
+ * are started within this process with a fan-out of two, and a client of
+ * each enters the default room. One client then says a run of lines: every
+ * client should hear every line once, in order, and since the owner of the
+ * room sends each line to only two of the other five nodes, which pass it on
+ * to the other three, the nodes should receive each line that many times at
+ * each depth of the tree.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class FanoutTest
+{
+  private static final int NODES = 6;
+  private static final int FANOUT = 2;
+  private static final int BASE_PORT = ServerClientConstants.TCP_PORT + 120;
+  private static final String ROOM = ServerClientConstants.DEFAULT_ROOM;
+  private static final long SETTLE_MILLIS = 500L;
+  
+  private FanoutTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines said (default 500), optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+    TCPServer[] servers = new TCPServer[NODES];
+    servers[0] = TestSupport.federate("node0", BASE_PORT);
+    for(int i = 1; i < NODES; i++)
+    {
+      servers[i] = TestSupport.federate("node" + i, BASE_PORT + 2 * i,
+        BASE_PORT);
+    }
+    for(TCPServer server : servers)
+    {
+      server.getFederation().setFanout(FANOUT);
+    }
+    System.out.println("Every node agrees on the owner: " +
+      TestSupport.waitFor(() -> agreed(servers)));
+    
+    Socket[] sockets = new Socket[NODES];
+    List<List<String>> heard = new ArrayList<List<String>>();
+    for(int i = 0; i < NODES; i++)
+    {
+      sockets[i] = new Socket(TestSupport.LOOPBACK, BASE_PORT + 2 * i);
+      heard.add(TestSupport.listen(TestSupport.join(sockets[i],
+        "talker" + i)));
+    }
+    Thread.sleep(SETTLE_MILLIS);
+    long[] before = received(servers);
+    DataOutputStream out = new DataOutputStream(
+      sockets[0].getOutputStream());
+    for(int i = 0; i < lines; i++)
+    {
+      out.writeUTF(TestSupport.PREFIX + i);
+    }
+    System.out.println("Every client heard " + lines + " lines: " +
+      TestSupport.waitFor(() -> heardAll(heard, lines)));
+    boolean ordered = true;
+    for(List<String> client : heard)
+    {
+      synchronized(client)
+      {
+        for(int i = 0; ordered && i < client.size(); i++)
+        {
+          ordered = client.size() == lines &&
+            client.get(i).equals(Integer.toString(i));
+        }
+      }
+    }
+    System.out.println("Each line heard once, in order: " + ordered);
+    
+    long[] after = received(servers);
+    System.out.println("Received at depth 1: " + (after[1] - before[1]) +
+      " (" + FANOUT * lines + " expected)");
+    System.out.println("Received at depth 2: " + (after[2] - before[2]) +
+      " (" + (NODES - 1 - FANOUT) * lines + " expected)");
+    for(TCPServer server : servers)
+    {
+      System.out.println(server.getFederation().getNodeId() + " relayed " +
+        server.getFederation().getRelayStats());
+    }
+    
+    for(Socket socket : sockets)
+    {
+      TestSupport.leave(socket);
+    }
+    for(TCPServer server : servers)
+    {
+      server.close();
+    }
+    System.exit(0);
+  }
+  
+  private static boolean agreed(TCPServer[] servers)
+  {
+    String owner = servers[0].getFederation().getOwner(ROOM);
+    for(TCPServer server : servers)
+    {
+      Federation federation = server.getFederation();
+      if(federation.getMembership().getMembers().size() < NODES ||
+        (new HashSet<String>(federation.getLinkedNodes())).size() <
+        NODES - 1 || !owner.equals(federation.getOwner(ROOM)))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /*
+   * How many broadcasts every node has received at each depth, summed up.
+   */
+  private static long[] received(TCPServer[] servers)
+  {
+    long[] received = new long[3];
+    for(TCPServer server : servers)
+    {
+      for(int depth = 1; depth < received.length; depth++)
+      {
+        received[depth] += server.getFederation().getRelayStats().
+          getReceived(depth);
+      }
+    }
+    return received;
+  }
+  
+  private static boolean heardAll(List<List<String>> heard, int lines)
+  {
+    for(List<String> client : heard)
+    {
+      if(client.size() < lines)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+}
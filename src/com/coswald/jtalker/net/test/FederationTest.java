@@ -0,0 +1,102 @@
+/*
+ * FederationTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.cluster.Federation;
+
+/**
+ * Tests {@link com.coswald.jtalker.net.cluster.Federation Federation}. This
+ * starts several federated servers within one process, each on its own
+ * loopback ports, and runs them until the user enters the escape character.
+ * Connect a {@link com.coswald.jtalker.net.test.ClientTest ClientTest} to
+ * each of them to see broadcasts cross from one server to the others. The log
+ * of the default room is copied to the other servers, so closing the server
+ * that owns it loses none of its history. Every few seconds, what each server
+ * knows about the others is printed, along with how long broadcasts took to
+ * be relayed to it.
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ */
+public final class FederationTest
+{
+  private static final int NODES = 3;
+  private static final String LOOPBACK = "127.0.0.1";
+  private static final long MEMBERS_MILLIS = 5000L;
+  
+  private FederationTest()
+  {
+  }
+  
+  /**
+   * Starts the servers. Server {@code i} (counting from zero) takes clients on
+   * port {@value com.coswald.jtalker.net.ServerClientConstants#TCP_PORT}
+   * {@code + 2i}, and links to the other servers on the port after that. Only
+   * the first server is given to the others as a seed; they find each other
+   * through gossip.
+   * @param args The amount of servers to start (optional, {@value #NODES} by
+   *  default).
+   */
+  public static void main(String... args)
+  {
+    int nodes = (args.length > 0) ? Integer.parseInt(args[0]) : NODES;
+    TCPServer[] servers = new TCPServer[nodes];
+    for(int i = 0; i < nodes; i++)
+    {
+      servers[i] = new TCPServer(System.out,
+        ServerClientConstants.TCP_PORT + 2 * i);
+      Federation federation = servers[i].createFederation("node" + i,
+        ServerClientConstants.TCP_PORT + 2 * i + 1);
+      federation.replicate(ServerClientConstants.DEFAULT_ROOM);
+      if(i > 0)
+      {
+        federation.addPeer(LOOPBACK, ServerClientConstants.TCP_PORT + 1);
+      }
+    }
+    for(TCPServer server : servers)
+    {
+      server.init();
+      (new Thread(server)).start();
+    }
+    
+    while(true)
+    {
+      try
+      {
+        Thread.sleep(MEMBERS_MILLIS);
+      }
+      catch(InterruptedException ie)
+      {
+        return;
+      }
+      for(TCPServer server : servers)
+      {
+        Federation federation = server.getFederation();
+        System.out.println(federation.getNodeId() + " knows " +
+          federation.getMembership().getMembers() + "; relayed " +
+          federation.getRelayStats());
+      }
+    }
+  }
+}
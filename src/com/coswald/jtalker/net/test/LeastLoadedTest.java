@@ -0,0 +1,169 @@
+/*
+ * LeastLoadedTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.Balancer;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests how a {@link com.coswald.jtalker.net.Balancer Balancer} picks the
+ * backend each client is handed to. Three servers are started within this
+ * process behind one balancer, and clients join through it one at a time:
+ * they should be spread evenly. Two clients of the first server then leave,
+ * and the server is made to take no more; the next client should still go to
+ * it, having the fewest clients, and be queued there, but the one after that
+ * should not, since a queued client counts against a server first. Last, the
+ * third server is closed, and the next client should be handed to another
+ * server.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class LeastLoadedTest
+{
+  private static final int SERVERS = 3;
+  private static final int BASE_PORT = ServerClientConstants.TCP_PORT + 200;
+  
+  private LeastLoadedTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of clients each server is given at first
+   *  (default 4, and at least 2), optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+    TCPServer[] servers = new TCPServer[SERVERS];
+    Balancer balancer = new Balancer(TestSupport.quiet(),
+      BASE_PORT + SERVERS);
+    for(int i = 0; i < SERVERS; i++)
+    {
+      servers[i] = new TCPServer(TestSupport.quiet(), BASE_PORT + i);
+      servers[i].init();
+      (new Thread(servers[i])).start();
+      balancer.addBackend(TestSupport.LOOPBACK, BASE_PORT + i);
+    }
+    balancer.init();
+    (new Thread(balancer)).start();
+    List<Balancer.Backend> backends = balancer.getBackends();
+    
+    List<List<Socket>> sockets = new ArrayList<List<Socket>>();
+    for(int i = 0; i < SERVERS; i++)
+    {
+      sockets.add(new ArrayList<Socket>());
+    }
+    for(int i = 0; i < SERVERS * clients; i++)
+    {
+      join(balancer, "talker" + i, sockets);
+    }
+    boolean even = true;
+    for(int i = 0; i < SERVERS; i++)
+    {
+      even &= backends.get(i).getConnections() == clients &&
+        servers[i].getActiveClients() == clients;
+    }
+    System.out.println("Clients spread evenly: " + even);
+    
+    for(int i = 0; i < 2; i++)
+    {
+      TestSupport.leave(sockets.get(0).remove(0));
+    }
+    Balancer.Backend first = backends.get(0);
+    TestSupport.waitFor(() -> first.getConnections() == clients - 2 &&
+      servers[0].getActiveClients() == clients - 2);
+    servers[0].setMaxClients(clients - 2);
+    Socket queued = new Socket(TestSupport.LOOPBACK, balancer.getPort());
+    //read by the server once it takes the client
+    (new DataOutputStream(queued.getOutputStream())).writeUTF("queued");
+    System.out.println("The least loaded server queued the next client: " +
+      TestSupport.waitFor(() -> first.getQueued() == 1));
+    int to = join(balancer, "talker", sockets);
+    System.out.println("The client after went to server " + to +
+      " (1 or 2 expected)");
+    
+    servers[SERVERS - 1].close();
+    Balancer.Backend down = backends.get(SERVERS - 1);
+    TestSupport.waitFor(() -> down.getConnections() == 0);
+    to = join(balancer, "talker", sockets);
+    System.out.println("With server " + (SERVERS - 1) + " closed, the next " +
+      "client went to server " + to + " (0 or 1 expected)");
+    
+    TestSupport.leave(queued);
+    for(int i = 0; i < SERVERS; i++)
+    {
+      for(Socket socket : sockets.get(i))
+      {
+        if(i == SERVERS - 1)
+        {
+          socket.close();
+        }
+        else
+        {
+          TestSupport.leave(socket);
+        }
+      }
+    }
+    balancer.close();
+    for(TCPServer server : servers)
+    {
+      server.close();
+    }
+    System.exit(0);
+  }
+  
+  /*
+   * Joins through the balancer, and returns which backend the client was
+   * handed to: the one whose connections went up. The socket is added to the
+   * sockets of that backend.
+   */
+  private static int join(Balancer balancer, String identifier,
+    List<List<Socket>> sockets) throws Exception
+  {
+    List<Balancer.Backend> backends = balancer.getBackends();
+    int[] before = new int[backends.size()];
+    for(int i = 0; i < before.length; i++)
+    {
+      before[i] = backends.get(i).getConnections();
+    }
+    Socket socket = new Socket(TestSupport.LOOPBACK, balancer.getPort());
+    TestSupport.join(socket, identifier);
+    for(int i = 0; i < before.length; i++)
+    {
+      if(backends.get(i).getConnections() > before[i])
+      {
+        sockets.get(i).add(socket);
+        return i;
+      }
+    }
+    return -1;
+  }
+}
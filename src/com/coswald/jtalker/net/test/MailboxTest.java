@@ -0,0 +1,136 @@
+/*
+ * MailboxTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.mailbox.MailboxConstants;
+import com.coswald.jtalker.net.mailbox.MailboxStore;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Tests {@link com.coswald.jtalker.net.mailbox.MailboxStore MailboxStore}.
+ * Messages are deposited for a few identifiers into a store kept within a new
+ * directory, with small limits: a mailbox should only keep its newest
+ * messages once it holds too many, or too many bytes, and a message larger
+ * than a whole mailbox, or meant for an identifier with no mailbox, should be
+ * refused. The store is then closed and opened again, as a restarted server
+ * would, and should hold the same messages, in the same order. Last, time is
+ * let pass: messages older than the limit should be dropped, and so should a
+ * mailbox whose owner has not been seen for as long, along with its file.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class MailboxTest
+{
+  private static final int MAX_MESSAGES = 10;
+  private static final int MAX_BYTES = 512;
+  private static final long MAX_AGE_MILLIS = 2000L;
+  
+  private MailboxTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args Ignored.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    File directory = Files.createTempDirectory("jtalker-mailbox").toFile();
+    MailboxStore store = open(directory);
+    store.register("alice");
+    store.register("bob");
+    store.register("carol");
+    for(int i = 0; i < 2 * MAX_MESSAGES + 5; i++)
+    {
+      store.deposit("alice", line(i, ""));
+    }
+    System.out.println("Alice holds " + store.getMessageCount("alice") +
+      " messages (" + MAX_MESSAGES + " expected)");
+    String padding = new String(new char[100]).replace('\0', '.');
+    for(int i = 0; i < MAX_MESSAGES; i++)
+    {
+      store.deposit("bob", line(i, padding));
+    }
+    int fit = MAX_BYTES / (10 + line(0, padding).length());
+    System.out.println("Bob holds " + store.getMessageCount("bob") +
+      " long messages (" + fit + " expected)");
+    System.out.println("A message larger than a mailbox refused: " +
+      !store.deposit("carol", new String(new char[MAX_BYTES])));
+    System.out.println("A message for no mailbox refused: " +
+      !store.deposit("dave", line(0, "")));
+    store.close();
+    
+    store = open(directory);
+    System.out.println("Restarted with " + store.getMailboxCount() +
+      " mailboxes (3 expected)");
+    System.out.println("Bob still holds " + store.getMessageCount("bob") +
+      " messages (" + fit + " expected)");
+    List<String> drained = store.drain("alice");
+    boolean newest = drained.size() == MAX_MESSAGES;
+    for(int i = 0; newest && i < drained.size(); i++)
+    {
+      newest = drained.get(i).equals(line(MAX_MESSAGES + 5 + i, ""));
+    }
+    System.out.println("Alice drained her newest messages, in order: " +
+      newest);
+    
+    store.deposit("alice", line(0, "old"));
+    Thread.sleep(MAX_AGE_MILLIS * 3 / 5);
+    store.register("alice");
+    store.deposit("alice", line(1, "new"));
+    Thread.sleep(MAX_AGE_MILLIS * 3 / 5);
+    store.purge();
+    drained = store.drain("alice");
+    System.out.println("Only the message that has not expired kept: " +
+      (drained.size() == 1 && drained.get(0).equals(line(1, "new"))));
+    System.out.println("Mailboxes not seen for too long removed: " +
+      !store.isKnown("bob") + ", " + !store.isKnown("carol"));
+    store.close();
+    
+    store = open(directory);
+    System.out.println("Restarted with " + store.getMailboxCount() +
+      " mailbox (1 expected), and " + directory.listFiles((dir, name) ->
+      name.endsWith(MailboxConstants.MAILBOX_EXTENSION)).length +
+      " file (1 expected)");
+    store.close();
+    TestSupport.delete(directory);
+    System.exit(0);
+  }
+  
+  private static MailboxStore open(File directory)
+  {
+    MailboxStore store = new MailboxStore(directory, MAX_MESSAGES, MAX_BYTES,
+      MAX_AGE_MILLIS);
+    store.init();
+    return store;
+  }
+  
+  private static String line(int i, String padding)
+  {
+    return TestSupport.PREFIX + i + padding;
+  }
+}
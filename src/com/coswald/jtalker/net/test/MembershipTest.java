@@ -0,0 +1,180 @@
+/*
+ * MembershipTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.cluster.ClusterConstants;
+import com.coswald.jtalker.net.cluster.Member;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+
+/**
+ * Tests {@link com.coswald.jtalker.net.cluster.Membership Membership}. Four
+ * federated servers are started within this process, each told only about
+ * the first: every node should learn about every other through gossip.
+ * Another process then poses as a node, tells one node about itself, and
+ * never answers a probe, while keeping its link open: every node should
+ * declare it dead, without ever suspecting a node that is up. Last, one of
+ * the servers is closed, and every other node should declare it dead; once
+ * it is started again, every node should take it back. How long each step
+ * took is printed.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class MembershipTest
+{
+  private static final int NODES = 4;
+  private static final int BASE_PORT = ServerClientConstants.TCP_PORT + 190;
+  private static final String SILENT = "silent";
+  
+  private MembershipTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args Ignored.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    TCPServer[] servers = new TCPServer[NODES];
+    long started = System.currentTimeMillis();
+    for(int i = 0; i < NODES; i++)
+    {
+      servers[i] = start(i);
+    }
+    boolean known = TestSupport.waitFor(() ->
+    {
+      for(int i = 0; i < NODES; i++)
+      {
+        if(!all(servers, "node" + i, Member.ALIVE))
+        {
+          return false;
+        }
+      }
+      return true;
+    });
+    System.out.println("Every node learned about every other: " + known +
+      " (" + (System.currentTimeMillis() - started) + " ms)");
+    
+    Socket silent = new Socket(TestSupport.LOOPBACK, BASE_PORT + 3);
+    DataOutputStream link = new DataOutputStream(silent.getOutputStream());
+    (new DataInputStream(silent.getInputStream())).readUTF();
+    link.writeUTF((new ControlFrame(ClusterConstants.PEER_COMMAND,
+      SILENT)).toString());
+    link.writeUTF((new ControlFrame(ClusterConstants.MEMBERS_COMMAND,
+      new String[0], new Member(SILENT, null, 0, 1L, Member.ALIVE).toString()
+      )).toString());
+    System.out.println("Every node heard of the silent node: " +
+      TestSupport.waitFor(() -> heardOf(servers, SILENT)));
+    started = System.currentTimeMillis();
+    boolean[] falsely = new boolean[1];
+    boolean dead = TestSupport.waitFor(() ->
+    {
+      for(int i = 0; i < NODES; i++)
+      {
+        falsely[0] |= !all(servers, "node" + i, Member.ALIVE);
+      }
+      return all(servers, SILENT, Member.DEAD);
+    });
+    System.out.println("Every node declared the silent node dead: " + dead +
+      " (" + (System.currentTimeMillis() - started) + " ms)");
+    System.out.println("A node that is up was suspected: " + falsely[0] +
+      " (false expected)");
+    silent.close();
+    
+    started = System.currentTimeMillis();
+    servers[NODES - 1].close();
+    String closed = "node" + (NODES - 1);
+    System.out.println("Every node declared " + closed + " dead: " +
+      TestSupport.waitFor(() -> all(servers, closed, Member.DEAD)) + " (" +
+      (System.currentTimeMillis() - started) + " ms)");
+    started = System.currentTimeMillis();
+    servers[NODES - 1] = start(NODES - 1);
+    System.out.println("Every node took " + closed + " back: " +
+      TestSupport.waitFor(() -> all(servers, closed, Member.ALIVE)) + " (" +
+      (System.currentTimeMillis() - started) + " ms)");
+    
+    for(TCPServer server : servers)
+    {
+      server.close();
+    }
+    System.exit(0);
+  }
+  
+  private static TCPServer start(int i)
+  {
+    return (i == 0) ? TestSupport.federate("node0", BASE_PORT) :
+      TestSupport.federate("node" + i, BASE_PORT + 2 * i, BASE_PORT);
+  }
+  
+  /*
+   * Whether every running node believes a node to be in the given state. A
+   * node always believes itself to be alive.
+   */
+  private static boolean all(TCPServer[] servers, String id, int state)
+  {
+    for(TCPServer server : servers)
+    {
+      if(!server.getFederation().isRunning())
+      {
+        continue;
+      }
+      Member member = find(server, id);
+      if(member == null || member.getState() != state)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  private static boolean heardOf(TCPServer[] servers, String id)
+  {
+    for(TCPServer server : servers)
+    {
+      if(find(server, id) == null)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  private static Member find(TCPServer server, String id)
+  {
+    for(Member member : server.getFederation().getMembership().getMembers())
+    {
+      if(member.getId().equals(id))
+      {
+        return member;
+      }
+    }
+    return null;
+  }
+}
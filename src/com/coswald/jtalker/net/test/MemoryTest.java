@@ -0,0 +1,215 @@
+/*
+ * MemoryTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPClient;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.memory.MemoryTransport;
+import com.coswald.jtalker.net.transport.FrameCodec;
+import com.coswald.jtalker.net.transport.SocketTransport;
+import com.coswald.jtalker.net.transport.Transport;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests the {@link com.coswald.jtalker.net.memory.MemoryTransport
+ * MemoryTransport}. A server is started that listens over both TCP and
+ * memory. First, two {@link com.coswald.jtalker.net.TCPClient TCPClient}s
+ * talk to each other in memory, and whether the line one sends reaches the
+ * other is printed. Then one client sends a run of lines, as fast as it can,
+ * to a room of other clients, first of one and then of more, and the rate
+ * lines are sent at and the rate they are delivered to the room at are
+ * printed, over memory and then over TCP; the difference is what the kernel
+ * costs.
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public final class MemoryTest
+{
+  private static final int PORT = ServerClientConstants.TCP_PORT + 40;
+  
+  private MemoryTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines sent to each room (default 50000),
+   *  optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 50000;
+    MemoryTransport memory = new MemoryTransport();
+    SocketTransport tcp = new SocketTransport();
+    TCPServer server = new TCPServer(TestSupport.quiet(), PORT);
+    server.addTransport(memory, 0);
+    server.addTransport(tcp, 0);
+    server.init();
+    (new Thread(server)).start();
+    
+    System.out.println("TCPClient to TCPClient in memory: " + (talk(memory,
+      server.getListener(memory).getLocalPort()) ? "relayed" : "LOST"));
+    
+    //every client takes a thread of the server for as long as it stays
+    int most = ServerClientConstants.MAX_CLIENTS - 1;
+    for(int receivers = 1; receivers <= most;
+      receivers = Math.min(receivers * 2 + 1, most + 1))
+    {
+      fanOut(memory, server.getListener(memory).getLocalPort(), receivers,
+        lines);
+      fanOut(tcp, server.getListener(tcp).getLocalPort(), receivers, lines);
+    }
+    System.exit(0);
+  }
+  
+  /*
+   * One client says hello to another, and leaves; whether the other heard
+   * it is returned.
+   */
+  private static boolean talk(Transport transport, int port)
+    throws InterruptedException
+  {
+    ByteArrayOutputStream heard = new ByteArrayOutputStream();
+    TCPClient listener = new TCPClient(new ByteArrayInputStream((
+      ServerClientConstants.EXIT_MESSAGE + "\n").getBytes(
+      StandardCharsets.UTF_8)), new PrintStream(heard, true), "listener",
+      TestSupport.LOOPBACK, port);
+    listener.setTransport(transport);
+    listener.init();
+    TestSupport.waitFor(() -> listener.getJoinIndex() >= 0);
+    
+    TCPClient speaker = new TCPClient(new ByteArrayInputStream(("hello\n" +
+      ServerClientConstants.EXIT_MESSAGE + "\n").getBytes(
+      StandardCharsets.UTF_8)), TestSupport.quiet(), "speaker",
+      TestSupport.LOOPBACK, port);
+    speaker.setTransport(transport);
+    speaker.init();
+    TestSupport.waitFor(() -> speaker.getJoinIndex() >= 0);
+    speaker.run();
+    boolean relayed = TestSupport.waitFor(() -> new String(heard.toByteArray(),
+      StandardCharsets.UTF_8).contains("speaker: hello"));
+    listener.run();
+    return relayed;
+  }
+  
+  /*
+   * Sends the lines from one client to a room of receivers, and times how
+   * long it takes for every receiver to have them all.
+   */
+  private static void fanOut(Transport transport, int port, int receivers,
+    int lines) throws IOException, InterruptedException
+  {
+    FrameCodec codec = transport.getCodec();
+    Socket[] sockets = new Socket[receivers];
+    DataOutputStream[] outs = new DataOutputStream[receivers];
+    CountDownLatch done = new CountDownLatch(receivers);
+    for(int r = 0; r < receivers; r++)
+    {
+      sockets[r] = transport.connect(TestSupport.LOOPBACK, port);
+      outs[r] = TestSupport.join(codec, sockets[r], "receiver" + r);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(
+        sockets[r].getInputStream()));
+      Thread reader = new Thread(() ->
+      {
+        try
+        {
+          int seen = 0;
+          while(seen < lines)
+          {
+            if(codec.readFrame(in).contains(TestSupport.PREFIX))
+            {
+              seen++;
+            }
+          }
+          done.countDown();
+          while(true)
+          {
+            codec.readFrame(in);
+          }
+        }
+        catch(IOException i)
+        {
+          //the server closed the receiver
+        }
+      });
+      reader.setDaemon(true);
+      reader.start();
+    }
+    Socket sender = transport.connect(TestSupport.LOOPBACK, port);
+    DataOutputStream out = TestSupport.join(codec, sender, "sender");
+    InputStream echo = sender.getInputStream();
+    Thread drain = new Thread(() ->
+    {
+      byte[] buffer = new byte[8192];
+      try
+      {
+        while(echo.read(buffer) >= 0);
+      }
+      catch(IOException i)
+      {
+        //the server closed the sender
+      }
+    });
+    drain.setDaemon(true);
+    drain.start();
+    
+    long started = System.nanoTime();
+    for(int i = 0; i < lines; i++)
+    {
+      codec.writeFrame(out, TestSupport.PREFIX + i);
+    }
+    out.flush();
+    done.await();
+    double seconds = (System.nanoTime() - started) / 1e9;
+    System.out.println(String.format("%s, %d receivers: %d lines in %.2f s " +
+      "(%.0f lines/s, %.0f deliveries/s)", transport.getName(), receivers,
+      lines, seconds, lines / seconds, (double)lines * receivers / seconds));
+    
+    for(int r = 0; r < receivers; r++)
+    {
+      codec.writeFrame(outs[r], ServerClientConstants.EXIT_MESSAGE);
+      outs[r].flush();
+    }
+    codec.writeFrame(out, ServerClientConstants.EXIT_MESSAGE);
+    out.flush();
+    drain.join();
+    sender.close();
+    for(Socket socket : sockets)
+    {
+      socket.close();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * MulticastTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.MulticastSender;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+
+/**
+ * Tests {@link com.coswald.jtalker.net.MulticastSender MulticastSender}. This
+ * starts a server that also sends the lines of the default room to a multicast
+ * group on the loopback interface, so that
+ * {@link com.coswald.jtalker.net.test.ClientTest ClientTest}s connected to
+ * {@code 127.0.0.1} take them from the group. A loss rate may be given to see
+ * the clients repair the lines they miss.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class MulticastTest
+{
+  private static final String LOOPBACK = "127.0.0.1";
+  
+  private MulticastTest()
+  {
+  }
+  
+  /**
+   * Starts the server on port
+   * {@value com.coswald.jtalker.net.ServerClientConstants#TCP_PORT}, sending
+   * to group
+   * {@value com.coswald.jtalker.net.ServerClientConstants#MULTICAST_GROUP} on
+   * port {@value com.coswald.jtalker.net.ServerClientConstants#MULTICAST_PORT}.
+   * @param args The share of datagrams to drop, between 0 and 1 (optional).
+   * @throws IOException If the loopback interface can not be found.
+   */
+  public static void main(String... args) throws IOException
+  {
+    NetworkInterface loopback = NetworkInterface.getByInetAddress(
+      InetAddress.getByName(LOOPBACK));
+    TCPServer server = new TCPServer(System.out,
+      ServerClientConstants.TCP_PORT);
+    MulticastSender sender = server.createMulticast(
+      InetAddress.getByName(ServerClientConstants.MULTICAST_GROUP),
+      ServerClientConstants.MULTICAST_PORT, loopback);
+    if(args.length > 0)
+    {
+      sender.setLossRate(Double.parseDouble(args[0]));
+    }
+    server.init();
+    server.run();
+  }
+}
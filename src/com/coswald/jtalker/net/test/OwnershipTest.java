@@ -0,0 +1,204 @@
+/*
+ * OwnershipTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.cluster.ConsistentHashRing;
+
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Tests how rooms move between the nodes of a
+ * {@link com.coswald.jtalker.net.cluster.Federation Federation} when a node
+ * joins. Two servers are started within this process, and a client of each
+ * enters a room that will fall to a third node, and says a run of lines
+ * within it. The third server is then started: every node should agree that
+ * it owns that room, while another room stays where it was, and once the
+ * clients say another run, the new owner should put exactly those lines in
+ * order. Both clients should hear every line of both runs once, in the same
+ * order.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class OwnershipTest
+{
+  private static final int NODES = 3;
+  private static final int BASE_PORT = ServerClientConstants.TCP_PORT + 180;
+  private static final long SETTLE_MILLIS = 500L;
+  
+  private OwnershipTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines each client says in each run (default
+   *  200), optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+    ConsistentHashRing before = new ConsistentHashRing();
+    ConsistentHashRing after = new ConsistentHashRing();
+    for(int i = 0; i < NODES; i++)
+    {
+      after.add("node" + i);
+      if(i < NODES - 1)
+      {
+        before.add("node" + i);
+      }
+    }
+    String moved = null;
+    String stayed = null;
+    for(int i = 0; moved == null || stayed == null; i++)
+    {
+      String room = "room" + i;
+      if(after.getOwner(room).equals("node" + (NODES - 1)))
+      {
+        moved = (moved == null) ? room : moved;
+      }
+      else
+      {
+        stayed = (stayed == null) ? room : stayed;
+      }
+    }
+    System.out.println(moved + " moves from " + before.getOwner(moved) +
+      ", " + stayed + " stays with " + before.getOwner(stayed));
+    
+    TCPServer[] servers = new TCPServer[NODES];
+    servers[0] = TestSupport.federate("node0", BASE_PORT);
+    for(int i = 1; i < NODES - 1; i++)
+    {
+      servers[i] = TestSupport.federate("node" + i, BASE_PORT + 2 * i,
+        BASE_PORT);
+    }
+    String room = moved;
+    System.out.println("The first nodes agree on the owner: " +
+      TestSupport.waitFor(() -> agree(servers, room, before.getOwner(
+      room))));
+    
+    Socket[] sockets = new Socket[NODES - 1];
+    DataOutputStream[] outs = new DataOutputStream[NODES - 1];
+    List<List<String>> heard = new ArrayList<List<String>>();
+    for(int i = 0; i < NODES - 1; i++)
+    {
+      sockets[i] = new Socket(TestSupport.LOOPBACK, BASE_PORT + 2 * i);
+      heard.add(TestSupport.listen(TestSupport.join(sockets[i],
+        "talker" + i)));
+      outs[i] = new DataOutputStream(sockets[i].getOutputStream());
+      outs[i].writeUTF(ServerClientConstants.JOIN_PREFIX + room);
+    }
+    Thread.sleep(SETTLE_MILLIS);
+    say(outs, 0, lines);
+    System.out.println("Both clients heard the first run: " +
+      TestSupport.waitFor(() -> heardAll(heard, outs.length * lines)));
+    
+    servers[NODES - 1] = TestSupport.federate("node" + (NODES - 1),
+      BASE_PORT + 2 * (NODES - 1), BASE_PORT);
+    String kept = stayed;
+    System.out.println("Every node agrees the room moved: " +
+      TestSupport.waitFor(() -> agree(servers, room, after.getOwner(room))));
+    System.out.println("Every node agrees the other room stayed: " +
+      agree(servers, kept, before.getOwner(kept)));
+    Thread.sleep(SETTLE_MILLIS);
+    say(outs, lines, lines);
+    System.out.println("Both clients heard the second run: " +
+      TestSupport.waitFor(() -> heardAll(heard, 2 * outs.length * lines)));
+    System.out.println("The new owner put " + servers[NODES - 1].
+      getFederation().getRoomLog(room).size() + " lines in order (" +
+      outs.length * lines + " expected)");
+    
+    boolean once = true;
+    boolean ordered = true;
+    for(List<String> client : heard)
+    {
+      synchronized(client)
+      {
+        once &= (new HashSet<String>(client)).size() == client.size();
+        synchronized(heard.get(0))
+        {
+          ordered &= client.equals(heard.get(0));
+        }
+      }
+    }
+    System.out.println("Each line heard once: " + once);
+    System.out.println("All in the same order: " + ordered);
+    
+    for(Socket socket : sockets)
+    {
+      TestSupport.leave(socket);
+    }
+    for(TCPServer server : servers)
+    {
+      server.close();
+    }
+    System.exit(0);
+  }
+  
+  private static void say(DataOutputStream[] outs, int from, int count)
+    throws Exception
+  {
+    for(int line = from; line < from + count; line++)
+    {
+      for(int i = 0; i < outs.length; i++)
+      {
+        outs[i].writeUTF(TestSupport.PREFIX + i + "." + line);
+      }
+    }
+  }
+  
+  /*
+   * Whether every node started so far says the given node owns a room.
+   */
+  private static boolean agree(TCPServer[] servers, String room,
+    String owner)
+  {
+    for(TCPServer server : servers)
+    {
+      if(server != null && !owner.equals(server.getFederation().getOwner(
+        room)))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  private static boolean heardAll(List<List<String>> heard, int lines)
+  {
+    for(List<String> client : heard)
+    {
+      if(client.size() < lines)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+}
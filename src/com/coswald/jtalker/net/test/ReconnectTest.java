@@ -0,0 +1,155 @@
+/*
+ * ReconnectTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPClient;
+import com.coswald.jtalker.net.TCPServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests a {@link com.coswald.jtalker.net.TCPClient#setReconnecting(boolean)
+ * reconnecting} client. A server is started, and a crowd of clients that
+ * reconnect connect to it, one of which talks. The server is then closed,
+ * the talker types a few lines while it is gone, and a new server is started
+ * on the same port. When every client has reconnected on its own, how
+ * spread out their attempts were, and whether the lines typed while away
+ * reached the new server in order, are printed.
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public final class ReconnectTest
+{
+  private static final String AWAY = "typed while away ";
+  private static final int PORT = ServerClientConstants.TCP_PORT + 70;
+  private static final long DOWN_MILLIS = 1000L;
+  
+  private ReconnectTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of clients (default 50), and the amount of lines
+   *  typed while the server is gone (default 10), both optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 50;
+    int lines = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+    TCPServer server = start(clients);
+    
+    PipedOutputStream typing = new PipedOutputStream();
+    PrintStream keyboard = new PrintStream(typing, true, "UTF-8");
+    TCPClient talker = new TCPClient(new PipedInputStream(typing),
+      TestSupport.quiet(), "talker", TestSupport.LOOPBACK, PORT);
+    List<TCPClient> crowd = new ArrayList<TCPClient>();
+    crowd.add(talker);
+    for(int c = 1; c < clients; c++)
+    {
+      crowd.add(new TCPClient(new ByteArrayInputStream(new byte[0]),
+        TestSupport.quiet(), "client" + c, TestSupport.LOOPBACK, PORT));
+    }
+    for(TCPClient client : crowd)
+    {
+      client.setReconnecting(true);
+      client.init();
+    }
+    Thread sending = new Thread(talker);
+    sending.setDaemon(true);
+    sending.start();
+    waitFor(crowd, true);
+    
+    server.close();
+    waitFor(crowd, false);
+    System.out.println("Server closed; " + clients + " clients cut off");
+    for(int i = 0; i < lines; i++)
+    {
+      keyboard.println(AWAY + i);
+    }
+    Thread.sleep(DOWN_MILLIS);
+    
+    server = start(clients);
+    long started = System.nanoTime();
+    long[] back = new long[clients];
+    int left = clients;
+    while(left > 0 &&
+      (System.nanoTime() - started) / 1000000L < TestSupport.WAIT_MILLIS)
+    {
+      for(int c = 0; c < clients; c++)
+      {
+        if(back[c] == 0L && crowd.get(c).isConnected())
+        {
+          back[c] = System.nanoTime() - started;
+          left--;
+        }
+      }
+      Thread.sleep(1L);
+    }
+    Arrays.sort(back);
+    System.out.println(String.format("%d of %d reconnected after the server " +
+      "came back: first %.0f ms, median %.0f ms, last %.0f ms",
+      clients - left, clients, back[0] / 1e6, back[clients / 2] / 1e6,
+      back[clients - 1] / 1e6));
+    
+    Thread.sleep(DOWN_MILLIS);
+    List<String> history = server.getHistory().read(0L, Integer.MAX_VALUE);
+    int next = 0;
+    for(String line : history)
+    {
+      if(line.contains("talker: " + AWAY + next))
+      {
+        next++;
+      }
+    }
+    System.out.println("Lines typed while away that reached the new " +
+      "server in order: " + next + " of " + lines);
+    System.exit(0);
+  }
+  
+  private static TCPServer start(int clients)
+  {
+    TCPServer server = new TCPServer(TestSupport.quiet(), PORT);
+    server.setMaxClients(clients + 1);
+    server.init();
+    (new Thread(server)).start();
+    return server;
+  }
+  
+  private static void waitFor(List<TCPClient> crowd, boolean connected)
+    throws InterruptedException
+  {
+    for(TCPClient client : crowd)
+    {
+      TestSupport.waitFor(() -> client.isConnected() == connected);
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * RelayTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.cluster.ClusterConstants;
+import com.coswald.jtalker.net.cluster.Federation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Tests how the nodes of a {@link com.coswald.jtalker.net.cluster.Federation
+ * Federation} relay broadcasts to each other. Three servers are started
+ * within this process, each told about both others, so every two nodes end up
+ * with two links between them. A client of each says a run of lines within
+ * the default room: every client should hear every line once, and all of
+ * them in the same order. Last, another process posing as a node relays one
+ * broadcast to a node twice, and one tagged as if that node had put it in
+ * order itself: the clients of that node should hear the first once, and the
+ * second never.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class RelayTest
+{
+  private static final int NODES = 3;
+  private static final int BASE_PORT = ServerClientConstants.TCP_PORT + 170;
+  private static final String ROOM = ServerClientConstants.DEFAULT_ROOM;
+  private static final long SETTLE_MILLIS = 500L;
+  
+  private RelayTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines each client says (default 200),
+   *  optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+    TCPServer[] servers = new TCPServer[NODES];
+    int[] ports = new int[NODES];
+    for(int i = 0; i < NODES; i++)
+    {
+      ports[i] = BASE_PORT + 2 * i;
+    }
+    for(int i = 0; i < NODES; i++)
+    {
+      servers[i] = TestSupport.federate("node" + i, ports[i], others(ports,
+        i));
+    }
+    System.out.println("Every node linked to every other: " +
+      TestSupport.waitFor(() -> linked(servers)));
+    
+    Socket[] sockets = new Socket[NODES];
+    DataOutputStream[] outs = new DataOutputStream[NODES];
+    List<List<String>> heard = new ArrayList<List<String>>();
+    for(int i = 0; i < NODES; i++)
+    {
+      sockets[i] = new Socket(TestSupport.LOOPBACK, ports[i]);
+      heard.add(TestSupport.listen(TestSupport.join(sockets[i],
+        "talker" + i)));
+      outs[i] = new DataOutputStream(sockets[i].getOutputStream());
+    }
+    Thread.sleep(SETTLE_MILLIS);
+    for(int line = 0; line < lines; line++)
+    {
+      for(int i = 0; i < NODES; i++)
+      {
+        outs[i].writeUTF(TestSupport.PREFIX + i + "." + line);
+      }
+    }
+    System.out.println("Every client heard " + NODES * lines + " lines: " +
+      TestSupport.waitFor(() -> heardAll(heard, NODES * lines)));
+    boolean once = true;
+    boolean ordered = true;
+    for(List<String> client : heard)
+    {
+      synchronized(client)
+      {
+        once &= (new HashSet<String>(client)).size() == client.size();
+        synchronized(heard.get(0))
+        {
+          ordered &= client.equals(heard.get(0));
+        }
+      }
+    }
+    System.out.println("Each line heard once: " + once);
+    System.out.println("All in the same order: " + ordered);
+    
+    Federation owner = servers[indexOf(servers[0].getFederation().getOwner(
+      ROOM))].getFederation();
+    int target = (indexOf(owner.getNodeId()) + 1) % NODES;
+    String targetId = servers[target].getFederation().getNodeId();
+    Socket outsider = new Socket(TestSupport.LOOPBACK, ports[target] + 1);
+    DataOutputStream link = new DataOutputStream(outsider.getOutputStream());
+    (new DataInputStream(outsider.getInputStream())).readUTF();
+    link.writeUTF((new ControlFrame(ClusterConstants.PEER_COMMAND,
+      "outsider")).toString());
+    String epoch = Long.toString(System.currentTimeMillis());
+    link.writeUTF(relay("outsider", epoch, "relayed"));
+    link.writeUTF(relay("outsider", epoch, "relayed"));
+    link.writeUTF(relay(targetId, epoch, "looped"));
+    outs[target].writeUTF(TestSupport.PREFIX + "done");
+    List<String> client = heard.get(target);
+    TestSupport.waitFor(() -> client.contains("done"));
+    Thread.sleep(SETTLE_MILLIS);
+    synchronized(client)
+    {
+      System.out.println("Relayed twice, heard " + count(client, "relayed") +
+        " times (1 expected)");
+      System.out.println("Tagged as its own, heard " + count(client,
+        "looped") + " times (0 expected)");
+    }
+    
+    outsider.close();
+    for(Socket socket : sockets)
+    {
+      TestSupport.leave(socket);
+    }
+    for(TCPServer server : servers)
+    {
+      server.close();
+    }
+    System.exit(0);
+  }
+  
+  private static int[] others(int[] ports, int i)
+  {
+    int[] others = new int[ports.length - 1];
+    for(int j = 0, k = 0; j < ports.length; j++)
+    {
+      if(j != i)
+      {
+        others[k++] = ports[j];
+      }
+    }
+    return others;
+  }
+  
+  private static int indexOf(String node)
+  {
+    return Integer.parseInt(node.substring("node".length()));
+  }
+  
+  /*
+   * Whether every node is linked to every other, and they all agree on the
+   * owner of the default room.
+   */
+  private static boolean linked(TCPServer[] servers)
+  {
+    String owner = servers[0].getFederation().getOwner(ROOM);
+    for(TCPServer server : servers)
+    {
+      Federation federation = server.getFederation();
+      if((new HashSet<String>(federation.getLinkedNodes())).size() <
+        NODES - 1 || !owner.equals(federation.getOwner(ROOM)))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  private static boolean heardAll(List<List<String>> heard, int lines)
+  {
+    for(List<String> client : heard)
+    {
+      if(client.size() < lines)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  private static int count(List<String> client, String line)
+  {
+    int count = 0;
+    for(String heard : client)
+    {
+      count += heard.equals(line) ? 1 : 0;
+    }
+    return count;
+  }
+  
+  /*
+   * A relayed broadcast within the default room, as if the given node had
+   * put it in order first, to be passed on to no one.
+   */
+  private static String relay(String origin, String epoch, String line)
+  {
+    return (new ControlFrame(ClusterConstants.RELAY_COMMAND, new String[] {
+      origin, epoch, "0", ROOM, "0", "1",
+      Long.toString(System.currentTimeMillis()), "-"},
+      TestSupport.PREFIX + line)).toString();
+  }
+}
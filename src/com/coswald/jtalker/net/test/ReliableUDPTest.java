@@ -0,0 +1,288 @@
+/*
+ * ReliableUDPTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.udp.LinkSimulator;
+import com.coswald.jtalker.net.udp.ReliableEndpoint;
+import com.coswald.jtalker.net.udp.ReliableSocket;
+import com.coswald.jtalker.net.udp.UDPConstants;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Tests {@link com.coswald.jtalker.net.udp.ReliableSocket ReliableSocket}
+ * against TCP over the same bad network. A server is started that listens
+ * over both; one client sends a run of lines, another receives them, and the
+ * time each line took and the time the whole run took are printed, first
+ * over reliable UDP and then over TCP. Both go through a
+ * {@link com.coswald.jtalker.net.udp.LinkSimulator LinkSimulator}; as TCP
+ * can not be made to lose its segments from here, the TCP connections instead
+ * go through a relay that holds back a lost chunk (and, as TCP delivers in
+ * order, everything after it) for one more round trip, which is what a loss
+ * costs TCP at best, when it is noticed by a fast retransmit. Last, a flood
+ * of SYNs without cookies is sent to the server, which should open no
+ * connections for them.
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ */
+public final class ReliableUDPTest
+{
+  private static final int RELAY_PORT = ServerClientConstants.TCP_PORT + 10;
+  private static final long SEND_MILLIS = 1L;
+  private static final int BUFFER_BYTES = 8192;
+  private static final int FLOOD_SYNS = 1000;
+  private static final long FLOOD_MILLIS = 500L;
+  
+  private ReliableUDPTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The share of datagrams lost (default 0.02), the latency in
+   *  milliseconds (default 20), the jitter in milliseconds (default 5), and
+   *  the amount of lines sent (default 2000), all optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    double loss = (args.length > 0) ? Double.parseDouble(args[0]) : 0.02;
+    long latency = (args.length > 1) ? Long.parseLong(args[1]) : 20L;
+    long jitter = (args.length > 2) ? Long.parseLong(args[2]) : 5L;
+    int lines = (args.length > 3) ? Integer.parseInt(args[3]) : 2000;
+    LinkSimulator simulator = new LinkSimulator(loss, latency, jitter);
+    System.out.println("Simulating " + simulator + ", " + lines + " lines");
+    
+    TCPServer server = new TCPServer(TestSupport.quiet(),
+      ServerClientConstants.TCP_PORT);
+    server.setUDPPort(ServerClientConstants.UDP_PORT);
+    server.init();
+    server.getUDPEndpoint().setSimulator(simulator);
+    (new Thread(server)).start();
+    
+    ReliableSocket receiver = ReliableEndpoint.open(TestSupport.LOOPBACK,
+      ServerClientConstants.UDP_PORT, simulator);
+    ReliableSocket sender = ReliableEndpoint.open(TestSupport.LOOPBACK,
+      ServerClientConstants.UDP_PORT, simulator);
+    run("UDP", receiver, sender, lines);
+    System.out.println("UDP segments sent " + sender.getSent() + ", again " +
+      sender.getRetransmitted() + ", round trip " +
+      String.format("%.1f", sender.getRoundTripMillis()) + " ms");
+    
+    relay(simulator);
+    run("TCP", new Socket(TestSupport.LOOPBACK, RELAY_PORT),
+      new Socket(TestSupport.LOOPBACK, RELAY_PORT), lines);
+    flood(server.getUDPEndpoint());
+    System.exit(0);
+  }
+  
+  /*
+   * Sends SYNs that never come back with their cookies, as they would from
+   * an address they were not really sent from.
+   */
+  private static void flood(ReliableEndpoint endpoint) throws Exception
+  {
+    endpoint.setSimulator(null);
+    int before = endpoint.getSockets().size();
+    try(DatagramSocket socket = new DatagramSocket())
+    {
+      InetAddress address = InetAddress.getByName(TestSupport.LOOPBACK);
+      for(int i = 0; i < FLOOD_SYNS; i++)
+      {
+        ByteBuffer syn = ByteBuffer.allocate(17);
+        syn.put(UDPConstants.SYN).putLong(i + 1L).putLong(0L);
+        socket.send(new DatagramPacket(syn.array(), syn.capacity(), address,
+          endpoint.getLocalPort()));
+      }
+    }
+    Thread.sleep(FLOOD_MILLIS);
+    System.out.println(FLOOD_SYNS + " SYNs without a cookie opened " +
+      (endpoint.getSockets().size() - before) + " connections (0 expected)");
+  }
+  
+  /*
+   * Sends the lines from one socket, and times their arrival at the other.
+   */
+  private static void run(String name, Socket receiver, Socket sender,
+    int lines) throws IOException, InterruptedException
+  {
+    DataInputStream in = TestSupport.join(receiver, "receiver" + name);
+    DataOutputStream out = new DataOutputStream(sender.getOutputStream());
+    TestSupport.join(sender, "sender" + name);
+    long[] latencies = new long[lines];
+    Thread reader = new Thread(() ->
+    {
+      try
+      {
+        int seen = 0;
+        while(seen < lines)
+        {
+          String line = in.readUTF();
+          int at = line.indexOf(TestSupport.PREFIX);
+          if(at >= 0)
+          {
+            String[] parts = line.substring(at +
+              TestSupport.PREFIX.length()).trim().split(" ");
+            latencies[Integer.parseInt(parts[0])] = System.nanoTime() -
+              Long.parseLong(parts[1]);
+            seen++;
+          }
+        }
+      }
+      catch(IOException i)
+      {
+        i.printStackTrace();
+      }
+    });
+    reader.start();
+    long started = System.nanoTime();
+    for(int i = 0; i < lines; i++)
+    {
+      out.writeUTF(TestSupport.PREFIX + i + " " + System.nanoTime());
+      Thread.sleep(SEND_MILLIS);
+    }
+    reader.join();
+    double seconds = (System.nanoTime() - started) / 1e9;
+    Arrays.sort(latencies);
+    System.out.println(String.format("%s: %d lines in %.2f s (%.0f/s), " +
+      "latency p50 %.1f ms, p99 %.1f ms, max %.1f ms", name, lines, seconds,
+      lines / seconds, latencies[lines / 2] / 1e6,
+      latencies[lines * 99 / 100] / 1e6, latencies[lines - 1] / 1e6));
+  }
+  
+  /*
+   * Accepts TCP connections on the relay port, and passes each through the
+   * simulator to the server.
+   */
+  private static void relay(LinkSimulator simulator) throws IOException
+  {
+    ServerSocket relay = new ServerSocket(RELAY_PORT);
+    Thread t = new Thread(() ->
+    {
+      while(true)
+      {
+        try
+        {
+          Socket client = relay.accept();
+          Socket server = new Socket(TestSupport.LOOPBACK,
+            ServerClientConstants.TCP_PORT);
+          client.setTcpNoDelay(true);
+          server.setTcpNoDelay(true);
+          pipe(simulator, client.getInputStream(), server.getOutputStream());
+          pipe(simulator, server.getInputStream(), client.getOutputStream());
+        }
+        catch(IOException i)
+        {
+          return;
+        }
+      }
+    });
+    t.setDaemon(true);
+    t.start();
+  }
+  
+  /*
+   * Copies one direction of a connection, delaying each chunk as the
+   * simulator says. A lost chunk is held back for another round trip, and
+   * nothing after it may overtake it.
+   */
+  private static void pipe(LinkSimulator simulator, InputStream in,
+    OutputStream out)
+  {
+    BlockingQueue<Chunk> chunks = new LinkedBlockingQueue<Chunk>();
+    Thread reader = new Thread(() ->
+    {
+      byte[] buffer = new byte[BUFFER_BYTES];
+      long due = 0L;
+      try
+      {
+        int read;
+        while((read = in.read(buffer)) >= 0)
+        {
+          long delay = simulator.delay();
+          if(simulator.drops())
+          {
+            delay += simulator.delay() * 2L;
+          }
+          due = Math.max(due, System.currentTimeMillis() + delay);
+          chunks.add(new Chunk(due, Arrays.copyOf(buffer, read)));
+        }
+      }
+      catch(IOException i)
+      {
+        //the other end is gone
+      }
+    });
+    Thread writer = new Thread(() ->
+    {
+      try
+      {
+        while(true)
+        {
+          Chunk chunk = chunks.take();
+          long left = chunk.due - System.currentTimeMillis();
+          if(left > 0L)
+          {
+            Thread.sleep(left);
+          }
+          out.write(chunk.data);
+        }
+      }
+      catch(IOException | InterruptedException e)
+      {
+        //the other end is gone
+      }
+    });
+    reader.setDaemon(true);
+    writer.setDaemon(true);
+    reader.start();
+    writer.start();
+  }
+  
+  private static final class Chunk
+  {
+    private final long due;
+    private final byte[] data;
+    
+    private Chunk(long due, byte[] data)
+    {
+      this.due = due;
+      this.data = data;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * RepairTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.MulticastSender;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPClient;
+import com.coswald.jtalker.net.TCPServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests how a {@link com.coswald.jtalker.net.TCPClient TCPClient} repairs the
+ * lines it misses from the {@link com.coswald.jtalker.net.MulticastSender
+ * MulticastSender} of its server. A server within this process sends the
+ * lines of the default room to a group on the loopback interface, dropping a
+ * share of the datagrams on purpose, and a client joins the group. Another
+ * client then says a run of lines: the first should print every one of them
+ * once, in order, having asked the server for those it missed.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class RepairTest
+{
+  private static final int PORT = ServerClientConstants.TCP_PORT + 140;
+  private static final int GROUP_PORT = PORT + 1;
+  private static final long SEND_MILLIS = 1L;
+  
+  private RepairTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines said (default 1000), and the share of
+   *  datagrams dropped (default 0.2), both optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+    double lossRate = (args.length > 1) ? Double.parseDouble(args[1]) : 0.2;
+    NetworkInterface loopback = NetworkInterface.getByInetAddress(
+      InetAddress.getByName(TestSupport.LOOPBACK));
+    TCPServer server = new TCPServer(TestSupport.quiet(), PORT);
+    MulticastSender sender = server.createMulticast(InetAddress.getByName(
+      ServerClientConstants.MULTICAST_GROUP), GROUP_PORT, loopback);
+    sender.setLossRate(lossRate);
+    server.init();
+    (new Thread(server)).start();
+    
+    ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    PipedOutputStream typing = new PipedOutputStream();
+    TCPClient client = new TCPClient(new PipedInputStream(typing),
+      new PrintStream(printed, true), "listener", TestSupport.LOOPBACK, PORT);
+    client.init();
+    System.out.println("The client joined the group: " +
+      TestSupport.waitFor(client::isUsingMulticast));
+    
+    Socket socket = new Socket(TestSupport.LOOPBACK, PORT);
+    TestSupport.join(socket, "talker");
+    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+    for(int i = 0; i < lines; i++)
+    {
+      out.writeUTF(TestSupport.PREFIX + i);
+      //so the group is not flooded faster than the loopback takes it
+      Thread.sleep(SEND_MILLIS);
+    }
+    boolean all = TestSupport.waitFor(() -> heard(printed).size() >= lines);
+    List<String> heard = heard(printed);
+    boolean ordered = heard.size() == lines;
+    for(int i = 0; ordered && i < lines; i++)
+    {
+      ordered = heard.get(i).equals(Integer.toString(i));
+    }
+    System.out.println("Dropping " + lossRate + " of the datagrams, the " +
+      "client printed " + heard.size() + " lines (" + lines + " expected): " +
+      all);
+    System.out.println("Each line printed once, in order: " + ordered);
+    
+    TestSupport.leave(socket);
+    client.close();
+    server.close();
+    System.exit(0);
+  }
+  
+  /*
+   * What follows the prefix in every line printed so far.
+   */
+  private static List<String> heard(ByteArrayOutputStream printed)
+  {
+    List<String> heard = new ArrayList<String>();
+    for(String line : printed.toString().split("\n"))
+    {
+      int at = line.indexOf(TestSupport.PREFIX);
+      if(at >= 0)
+      {
+        heard.add(line.substring(at + TestSupport.PREFIX.length()).trim());
+      }
+    }
+    return heard;
+  }
+}
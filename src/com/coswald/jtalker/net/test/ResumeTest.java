@@ -0,0 +1,252 @@
+/*
+ * ResumeTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPClient;
+import com.coswald.jtalker.net.TCPServer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tests resuming a {@link com.coswald.jtalker.net.TCPClient#setResumable(
+ * boolean) resumable} client. A server is started, and one client talks
+ * while another listens. The listener loses its connection part way through
+ * and reconnects, first giving the last line it has, then as a new client
+ * that has forgotten it (so the server resumes it from the last line it
+ * acknowledged), and last after missing more lines than the server keeps.
+ * How many lines were lost, how many arrived twice, and how many were sent
+ * again after each reconnect are printed.
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public final class ResumeTest
+{
+  private static final String PREFIX = "speaker: line ";
+  private static final Pattern LINE = Pattern.compile(
+    Pattern.quote(PREFIX) + "(\\d+)");
+  private static final int PORT = ServerClientConstants.TCP_PORT + 50;
+  
+  private ResumeTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines sent while the listener is connected, and
+   *  while it is away (default 1000 each), optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+    TCPServer server = new TCPServer(TestSupport.quiet(), PORT);
+    server.init();
+    (new Thread(server)).start();
+    
+    Socket speaker = new Socket(TestSupport.LOOPBACK, PORT);
+    TestSupport.join(speaker, "speaker");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+      speaker.getOutputStream()));
+    AtomicLong echoed = new AtomicLong(-1L);
+    drain(speaker, echoed);
+    
+    ByteArrayOutputStream heard = new ByteArrayOutputStream();
+    TCPClient listener = listen(heard);
+    int next = say(out, echoed, 0, lines);
+    TestSupport.waitFor(() -> count(heard)[next - 1] > 0);
+    
+    drop(listener, heard);
+    int away = say(out, echoed, next, lines);
+    int before = total(heard);
+    listener.init();
+    int back = say(out, echoed, away, lines);
+    TestSupport.waitFor(() -> count(heard)[back - 1] > 0);
+    report("Resumed from the last line it has", heard, back,
+      total(heard) - before - lines);
+    
+    drop(listener, heard);
+    int forgot = say(out, echoed, back, lines);
+    ByteArrayOutputStream fresh = new ByteArrayOutputStream();
+    listener = listen(fresh);
+    int again = say(out, echoed, forgot, lines);
+    TestSupport.waitFor(() -> count(fresh)[again - 1] > 0);
+    int[] seen = count(fresh);
+    int first = 0;
+    while(seen[first] == 0)
+    {
+      first++;
+    }
+    System.out.println("Resumed from the last line acknowledged: started " +
+      (back - first) + " lines back (at most " +
+      ServerClientConstants.ACK_LINES + " expected)");
+    
+    drop(listener, fresh);
+    int many = say(out, echoed, again,
+      ServerClientConstants.RESUME_LOG_LINES + lines);
+    before = total(fresh);
+    listener.init();
+    int last = say(out, echoed, many, lines);
+    TestSupport.waitFor(() -> count(fresh)[last - 1] > 0);
+    int replayed = total(fresh) - before - lines;
+    System.out.println("Missed more than is kept: told so " +
+      text(fresh).contains("no longer kept") + ", sent again " + replayed +
+      " lines (" + ServerClientConstants.RESUME_LOG_LINES + " expected)");
+    
+    listener.close();
+    System.exit(0);
+  }
+  
+  /*
+   * Connects a resumable listener that prints what it hears to the given
+   * output.
+   */
+  private static TCPClient listen(ByteArrayOutputStream heard)
+    throws InterruptedException
+  {
+    TCPClient listener = new TCPClient(new ByteArrayInputStream(new byte[0]),
+      new PrintStream(heard, true), "listener", TestSupport.LOOPBACK, PORT);
+    listener.setResumable(true);
+    listener.init();
+    TestSupport.waitFor(() -> listener.getSequencedRoom() != null);
+    return listener;
+  }
+  
+  /*
+   * Cuts off a listener without saying goodbye, and waits for its listening
+   * thread to notice.
+   */
+  private static void drop(TCPClient listener, ByteArrayOutputStream heard)
+    throws IOException, InterruptedException
+  {
+    int lost = text(heard).split("Connection has been lost", -1).length;
+    listener.close();
+    TestSupport.waitFor(() -> text(heard).split("Connection has been lost",
+      -1).length > lost);
+  }
+  
+  /*
+   * Says the given amount of lines, numbered from the given one, and waits
+   * until the server has sent them all back. Returns the number of the next
+   * line.
+   */
+  private static int say(DataOutputStream out, AtomicLong echoed, int from,
+    int lines) throws IOException, InterruptedException
+  {
+    for(int i = from; i < from + lines; i++)
+    {
+      out.writeUTF("line " + i);
+    }
+    out.flush();
+    TestSupport.waitFor(() -> echoed.get() == from + lines - 1);
+    return from + lines;
+  }
+  
+  private static void report(String name, ByteArrayOutputStream heard,
+    int lines, int replayed)
+  {
+    int[] seen = count(heard);
+    int lost = 0;
+    int twice = 0;
+    for(int i = 0; i < lines; i++)
+    {
+      lost += (seen[i] == 0) ? 1 : 0;
+      twice += (seen[i] > 1) ? 1 : 0;
+    }
+    System.out.println(name + ": " + lines + " lines, " + lost + " lost, " +
+      twice + " twice, " + replayed + " sent again after reconnecting");
+  }
+  
+  /*
+   * How many times each line was heard.
+   */
+  private static int[] count(ByteArrayOutputStream heard)
+  {
+    int[] seen = new int[1 << 16];
+    Matcher matcher = LINE.matcher(text(heard));
+    while(matcher.find())
+    {
+      seen[Integer.parseInt(matcher.group(1))]++;
+    }
+    return seen;
+  }
+  
+  private static int total(ByteArrayOutputStream heard)
+  {
+    int total = 0;
+    for(int seen : count(heard))
+    {
+      total += seen;
+    }
+    return total;
+  }
+  
+  private static String text(ByteArrayOutputStream heard)
+  {
+    synchronized(heard)
+    {
+      return new String(heard.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+  
+  /*
+   * Reads everything the server sends the speaker, noting the last of its
+   * own lines it got back.
+   */
+  private static void drain(Socket speaker, AtomicLong echoed)
+    throws IOException
+  {
+    DataInputStream in = new DataInputStream(speaker.getInputStream());
+    Thread t = new Thread(() ->
+    {
+      try
+      {
+        while(true)
+        {
+          Matcher matcher = LINE.matcher(in.readUTF());
+          if(matcher.find())
+          {
+            echoed.set(Long.parseLong(matcher.group(1)));
+          }
+        }
+      }
+      catch(IOException i)
+      {
+        //the server closed the speaker
+      }
+    });
+    t.setDaemon(true);
+    t.start();
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * RetentionTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.history.HistoryConstants;
+import com.coswald.jtalker.net.history.RetentionPolicy;
+import com.coswald.jtalker.net.history.TieredChatHistory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests how a {@link com.coswald.jtalker.net.history.TieredChatHistory
+ * TieredChatHistory} rolls its segments by time and applies its
+ * {@link com.coswald.jtalker.net.history.RetentionPolicy RetentionPolicy}.
+ * Lines are appended in bursts further apart than the segment age, so every
+ * burst should get a segment of its own. A policy keeping only the bytes of
+ * the newest three sealed segments is then set, with an archive directory:
+ * every older segment should be moved there, and only the lines of the
+ * newest three (and the hot ones) should still read back, at the same
+ * indices. A policy deleting every sealed segment is set next, and last the
+ * history is opened again, as a restarted server would, and should carry on
+ * from the same index. This takes a few maintenance periods of
+ * {@value com.coswald.jtalker.net.history.HistoryConstants#MAINTENANCE_MILLIS}
+ * milliseconds each.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class RetentionTest
+{
+  private static final int WARM_SEGMENTS = 2;
+  private static final long SEGMENT_MILLIS = 200L;
+  private static final int KEPT_SEGMENTS = 3;
+  
+  private RetentionTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of bursts (default 10), and the amount of lines
+   *  within each (default 100), both optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int bursts = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+    int perBurst = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+    int lines = bursts * perBurst;
+    File directory = Files.createTempDirectory("jtalker-history").toFile();
+    File archive = Files.createTempDirectory("jtalker-archive").toFile();
+    TieredChatHistory history = open(directory, SEGMENT_MILLIS);
+    for(int i = 0; i < lines; i++)
+    {
+      if(i > 0 && i % perBurst == 0)
+      {
+        Thread.sleep(SEGMENT_MILLIS + SEGMENT_MILLIS / 2);
+      }
+      history.append(line(i));
+    }
+    //the last burst stays hot
+    history.setSegmentMillis(0L);
+    System.out.println("Rolled by time " + history.getCounters()
+      .getRolledByTime() + " times (" + (bursts - 1) + " expected)");
+    int sealed = history.getWarmCount() + history.getColdCount();
+    System.out.println("Segments past the warm ones compressed: " +
+      TestSupport.waitFor(() -> history.getWarmCount() <= WARM_SEGMENTS));
+    
+    history.setRetentionPolicy(new RetentionPolicy(0,
+      newestBytes(directory, KEPT_SEGMENTS), archive));
+    int expired = sealed - KEPT_SEGMENTS;
+    System.out.println("Older segments archived: " + TestSupport.waitFor(
+      () -> history.getCounters().getArchived() >= expired) + " (" +
+      history.getCounters().getArchived() + " of " + expired + ")");
+    System.out.println("Archive holds " + archive.listFiles((dir, name) ->
+      !name.endsWith(HistoryConstants.CHECKSUM_EXTENSION)).length +
+      " segments (" + expired + " expected)");
+    int keptLines = lines - expired * perBurst;
+    System.out.println("Size kept at " + history.size() + " (" + lines +
+      " expected); " + keptLines + " lines still read back: " +
+      readsBack(history, lines - keptLines, lines));
+    
+    history.setRetentionPolicy(new RetentionPolicy(1L, 0, null));
+    System.out.println("Every sealed segment deleted: " + TestSupport
+      .waitFor(() -> history.getCounters().getDeleted() >= KEPT_SEGMENTS) +
+      " (" + history.getCounters().getDeleted() + " of " + KEPT_SEGMENTS +
+      ")");
+    System.out.println("Only the hot lines still read back: " + readsBack(
+      history, lines - history.getHotCount(), lines));
+    System.out.println("Counters: " + history.getCounters());
+    history.close();
+    
+    TieredChatHistory restarted = open(directory, 0L);
+    System.out.println("Restarted with size " + restarted.size() + " (" +
+      lines + " expected); the hot lines read back: " + readsBack(restarted,
+      lines - restarted.getHotCount(), lines));
+    restarted.close();
+    TestSupport.delete(directory);
+    TestSupport.delete(archive);
+    System.exit(0);
+  }
+  
+  private static TieredChatHistory open(File directory, long segmentMillis)
+  {
+    TieredChatHistory history = new TieredChatHistory(directory,
+      HistoryConstants.SEGMENT_BYTES, WARM_SEGMENTS);
+    history.setSegmentMillis(segmentMillis);
+    history.init();
+    return history;
+  }
+  
+  private static String line(int i)
+  {
+    return TestSupport.PREFIX + i + " of the lines kept on disk\n";
+  }
+  
+  /*
+   * The bytes taken up by the newest sealed segments, which are every
+   * segment but the last (the hot one).
+   */
+  private static long newestBytes(File directory, int segments)
+  {
+    File[] files = directory.listFiles((dir, name) ->
+      !name.endsWith(HistoryConstants.CHECKSUM_EXTENSION));
+    Arrays.sort(files);
+    long bytes = 0;
+    for(int i = files.length - 1 - segments; i < files.length - 1; i++)
+    {
+      bytes += files[i].length();
+    }
+    return bytes;
+  }
+  
+  /*
+   * Whether reading from the start gives exactly the lines from one index on.
+   */
+  private static boolean readsBack(TieredChatHistory history, int from,
+    int lines)
+  {
+    List<String> read = history.read(0, lines);
+    boolean same = read.size() == lines - from;
+    for(int i = 0; same && i < read.size(); i++)
+    {
+      same = read.get(i).equals(line(from + i));
+    }
+    return same;
+  }
+}
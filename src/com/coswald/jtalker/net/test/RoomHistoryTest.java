@@ -0,0 +1,165 @@
+/*
+ * RoomHistoryTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ControlFrame;
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Tests that a page of history only holds the lines of the room of whoever
+ * asked for it. A server is started, and three clients talk at once: one
+ * within the default room, one within {@code #a} and one within {@code #b},
+ * each saying a different amount of lines. Each then pages back through the
+ * whole history, and how many of its own lines and how many lines of the
+ * other rooms came back are printed. No lines of another room should ever
+ * come back.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class RoomHistoryTest
+{
+  private static final int PORT = ServerClientConstants.TCP_PORT + 100;
+  private static final String[] ROOMS = {null, "a", "b"};
+  private static final String[] NAMES = {"lobby", "a", "b"};
+  
+  private RoomHistoryTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines said within the default room (default
+   *  300), optional. The clients within {@code #a} and {@code #b} say two
+   *  thirds and one third as many.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 300;
+    TCPServer server = new TCPServer(TestSupport.quiet(), PORT);
+    server.init();
+    (new Thread(server)).start();
+    
+    int[] said = new int[ROOMS.length];
+    Socket[] sockets = new Socket[ROOMS.length];
+    DataInputStream[] in = new DataInputStream[ROOMS.length];
+    DataOutputStream[] out = new DataOutputStream[ROOMS.length];
+    for(int c = 0; c < ROOMS.length; c++)
+    {
+      said[c] = lines * (ROOMS.length - c) / ROOMS.length;
+      sockets[c] = new Socket(TestSupport.LOOPBACK, PORT);
+      in[c] = TestSupport.join(sockets[c], NAMES[c]);
+      out[c] = new DataOutputStream(new BufferedOutputStream(
+        sockets[c].getOutputStream()));
+      if(ROOMS[c] != null)
+      {
+        out[c].writeUTF(ServerClientConstants.JOIN_PREFIX + ROOMS[c]);
+        out[c].flush();
+        readUntil(in[c], "You are now in");
+      }
+    }
+    
+    for(int i = 0; i < lines; i++)
+    {
+      for(int c = 0; c < ROOMS.length; c++)
+      {
+        if(i < said[c])
+        {
+          out[c].writeUTF(NAMES[c] + " line " + i);
+        }
+      }
+    }
+    for(int c = 0; c < ROOMS.length; c++)
+    {
+      out[c].flush();
+      readUntil(in[c], NAMES[c] + ": " + NAMES[c] + " line " + (said[c] - 1));
+    }
+    
+    for(int c = 0; c < ROOMS.length; c++)
+    {
+      int own = 0;
+      int other = 0;
+      int pages = 0;
+      long end = Long.MAX_VALUE;
+      while(end > 0)
+      {
+        out[c].writeUTF((new ControlFrame(
+          ServerClientConstants.HISTORY_COMMAND, Long.toString(end),
+          Integer.toString(ServerClientConstants.HISTORY_PAGE_SIZE)))
+          .toString());
+        out[c].flush();
+        ControlFrame page = ControlFrame.parse(readUntil(in[c],
+          ServerClientConstants.CONTROL_CHARACTER +
+          ServerClientConstants.PAGE_COMMAND));
+        for(String line : page.getBody().split("\n\r"))
+        {
+          for(int o = 0; o < ROOMS.length; o++)
+          {
+            if(line.contains(NAMES[o] + " line "))
+            {
+              own += (o == c) ? 1 : 0;
+              other += (o == c) ? 0 : 1;
+            }
+          }
+        }
+        end = page.getLongArgument(0);
+        pages++;
+      }
+      System.out.println(((ROOMS[c] == null) ? "The default room" :
+        ServerClientConstants.ROOM_CHARACTER + ROOMS[c]) + ": " + pages +
+        " pages, " + own + " of " + said[c] + " of its own lines, " + other +
+        " lines of other rooms (0 expected)");
+    }
+    
+    for(int c = 0; c < ROOMS.length; c++)
+    {
+      out[c].writeUTF(ServerClientConstants.EXIT_MESSAGE);
+      out[c].flush();
+      sockets[c].close();
+    }
+    System.exit(0);
+  }
+  
+  /*
+   * Reads what the server sends until a line holding the given text, and
+   * returns that line.
+   */
+  private static String readUntil(DataInputStream in, String text)
+    throws IOException
+  {
+    String line;
+    do
+    {
+      line = in.readUTF();
+    }
+    while(!line.contains(text));
+    return line;
+  }
+}
@@ -23,6 +23,10 @@ package com.coswald.jtalker.net.test;
 
 import com.coswald.jtalker.net.ServerClientConstants;
 import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.history.TieredChatHistory;
+import com.coswald.jtalker.net.mailbox.MailboxStore;
+
+import java.io.File;
 
 /**
  * Tests {@link com.coswald.jtalker.net.TCPServer TCPServer}. This will test the
@@ -39,12 +43,26 @@ public final class ServerTest
   
   /**
    * Starts a server on port
-   * {@value com.coswald.jtalker.net.ServerClientConstants#TCP_PORT}.
-   * @param args Not used.
+   * {@value com.coswald.jtalker.net.ServerClientConstants#TCP_PORT}. If a
+   * directory is given, the chat history is stored within it (see
+   * {@link com.coswald.jtalker.net.history.TieredChatHistory}), and the
+   * mailboxes of offline clients are stored within a second directory, if one
+   * is given; otherwise, they are kept in memory. Snapshots of the server are
+   * written next to the history, so it restarts quickly.
+   * @param args The directory to store history in, and the directory to store
+   *  mailboxes in (both optional).
    */
   public static void main(String... args)
   {
-    TCPServer s = new TCPServer(ServerClientConstants.TCP_PORT);
+    TCPServer s = (args.length > 0) ?
+      new TCPServer(System.out, ServerClientConstants.TCP_PORT,
+        new TieredChatHistory(new File(args[0])), (args.length > 1) ?
+        new MailboxStore(new File(args[1])) : new MailboxStore()) :
+      new TCPServer(ServerClientConstants.TCP_PORT);
+    if(args.length > 0)
+    {
+      s.setSnapshotFile(new File(args[0], "server.snapshot"));
+    }
     s.init();
     (new Thread(s)).run();
   }
@@ -0,0 +1,165 @@
+/*
+ * SnapshotTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.history.TieredChatHistory;
+import com.coswald.jtalker.net.mailbox.MailboxStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Tests restarting a {@link com.coswald.jtalker.net.TCPServer TCPServer} from
+ * a {@link com.coswald.jtalker.net.ServerSnapshot snapshot}. A server keeps
+ * its history and mailboxes within a new directory; a client connects, lines
+ * are recorded (enough to seal a few segments) and messages are left for an
+ * offline client, and a snapshot is written and put aside. More lines and
+ * messages follow, the client leaves, and the server is closed. A new server
+ * started from the snapshot that was put aside should say it was restored
+ * from it, and hold every line and message: those written after the snapshot
+ * as well, and the client that was connected when it was taken should still
+ * be known. Last, the snapshot is damaged: a server started from it should
+ * refuse it, and initialize everything from the directory as usual, with the
+ * same result.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class SnapshotTest
+{
+  private static final int PORT = ServerClientConstants.TCP_PORT + 210;
+  private static final int SEGMENT_BYTES = 4096;
+  private static final int WARM_SEGMENTS = 2;
+  private static final int LINES = 1000;
+  private static final int LATER_LINES = 10;
+  private static final int MESSAGES = 5;
+  private static final int LATER_MESSAGES = 2;
+  
+  private SnapshotTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args Ignored.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    File directory = Files.createTempDirectory("jtalker-snapshot").toFile();
+    File snapshot = new File(directory, "server.snapshot");
+    File early = new File(directory, "early.snapshot");
+    
+    TCPServer server = start(directory, PORT, snapshot, TestSupport.quiet());
+    Socket alice = new Socket(TestSupport.LOOPBACK, PORT);
+    TestSupport.join(alice, "alice");
+    MailboxStore mailboxes = server.getMailboxes();
+    mailboxes.register("bob");
+    for(int i = 0; i < MESSAGES; i++)
+    {
+      mailboxes.deposit("bob", TestSupport.PREFIX + i);
+    }
+    for(int i = 0; i < LINES; i++)
+    {
+      server.getHistory().append(TestSupport.PREFIX + i);
+    }
+    server.writeSnapshot();
+    Files.copy(snapshot.toPath(), early.toPath());
+    for(int i = 0; i < LATER_LINES; i++)
+    {
+      server.getHistory().append(TestSupport.PREFIX + (LINES + i));
+    }
+    for(int i = 0; i < LATER_MESSAGES; i++)
+    {
+      mailboxes.deposit("bob", TestSupport.PREFIX + (MESSAGES + i));
+    }
+    //the client leaving is recorded as well
+    TestSupport.leave(alice);
+    TCPServer first = server;
+    TestSupport.waitFor(() ->
+      first.getHistory().size() > LINES + LATER_LINES);
+    long size = server.getHistory().size();
+    List<String> lines = server.getHistory().read(0, (int)size);
+    System.out.println("Recorded " + size + " lines (" +
+      (LINES + LATER_LINES + 1) + " expected)");
+    server.close();
+    
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    server = start(directory, PORT + 1, early, new PrintStream(output, true));
+    System.out.println("Restored from the snapshot: " +
+      output.toString().contains("Restored from the snapshot") + ", " +
+      !output.toString().contains("Could not"));
+    check(server, size, lines);
+    server.close();
+    
+    try(RandomAccessFile file = new RandomAccessFile(early, "rw"))
+    {
+      file.seek(file.length() / 2);
+      int b = file.read();
+      file.seek(file.length() / 2);
+      file.write(b ^ 1);
+    }
+    output.reset();
+    server = start(directory, PORT + 2, early, new PrintStream(output, true));
+    System.out.println("A damaged snapshot refused: " +
+      output.toString().contains("Could not read the snapshot") + ", " +
+      !output.toString().contains("Restored from the snapshot"));
+    check(server, size, lines);
+    server.close();
+    TestSupport.delete(directory);
+    System.exit(0);
+  }
+  
+  private static TCPServer start(File directory, int port, File snapshot,
+    PrintStream out)
+  {
+    TCPServer server = new TCPServer(out, port, new TieredChatHistory(
+      new File(directory, "history"), SEGMENT_BYTES, WARM_SEGMENTS),
+      new MailboxStore(new File(directory, "mailboxes")));
+    server.setSnapshotFile(snapshot);
+    server.init();
+    (new Thread(server)).start();
+    return server;
+  }
+  
+  private static void check(TCPServer server, long size, List<String> lines)
+    throws IOException
+  {
+    System.out.println("Holds " + server.getHistory().size() + " lines (" +
+      size + " expected)");
+    System.out.println("Every line read back: " +
+      server.getHistory().read(0, (int)size).equals(lines));
+    System.out.println("Bob holds " +
+      server.getMailboxes().getMessageCount("bob") + " messages (" +
+      (MESSAGES + LATER_MESSAGES) + " expected)");
+    System.out.println("Alice is still known: " +
+      server.getMailboxes().isKnown("alice"));
+  }
+}
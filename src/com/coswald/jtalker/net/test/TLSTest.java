@@ -0,0 +1,265 @@
+/*
+ * TLSTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.TLSClient;
+import com.coswald.jtalker.net.tls.BufferPool;
+import com.coswald.jtalker.net.tls.TLSContexts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Tests the {@link com.coswald.jtalker.net.tls.TLSListener TLSListener}
+ * against plain TCP. A key and certificate for {@code localhost} are made
+ * with {@code keytool}, and a server is started that listens over both.
+ * First the rate connections are made at is printed: over TCP, over TLS with
+ * a full handshake every time, and over TLS resuming the session of the
+ * connection before. A connection counts as made once the server has greeted
+ * it, which is also when a client first reads the ticket a TLS session is
+ * resumed with. Then one client sends a run of lines to another, as
+ * fast as it can, and the rate they arrive at is printed for both.
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ */
+public final class TLSTest
+{
+  private static final String HOST = "localhost";
+  private static final char[] PASSWORD = "jtalker".toCharArray();
+  private static final String ALIAS = "jtalker";
+  
+  private TLSTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of connections made for each kind of handshake
+   *  (default 500), the amount of lines sent (default 50000), and the
+   *  amount of characters in each (default 100), all optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int connections = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+    int lines = (args.length > 1) ? Integer.parseInt(args[1]) : 50000;
+    int characters = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+    
+    File directory = Files.createTempDirectory("jtalker-tls").toFile();
+    File keyStore = new File(directory, "server.p12");
+    File trustStore = new File(directory, "trust.p12");
+    File certificate = new File(directory, "server.cer");
+    keytool("-genkeypair", "-alias", ALIAS, "-keyalg", "EC", "-keysize",
+      "256", "-dname", "CN=" + HOST, "-ext", "SAN=dns:" + HOST +
+      ",ip:127.0.0.1", "-validity", "1", "-storetype", "PKCS12", "-keystore",
+      keyStore.getPath());
+    keytool("-exportcert", "-alias", ALIAS, "-keystore", keyStore.getPath(),
+      "-file", certificate.getPath());
+    keytool("-importcert", "-noprompt", "-alias", ALIAS, "-storetype",
+      "PKCS12", "-keystore", trustStore.getPath(), "-file",
+      certificate.getPath());
+    
+    TCPServer server = new TCPServer(TestSupport.quiet(),
+      ServerClientConstants.TCP_PORT);
+    server.setTLS(ServerClientConstants.TLS_PORT,
+      TLSContexts.server(keyStore, PASSWORD));
+    server.init();
+    (new Thread(server)).start();
+    SSLContext client = TLSContexts.client(trustStore, PASSWORD);
+    
+    //warm up both ends before anything is timed
+    handshakes("warm-up", client, connections, false, true);
+    handshakes("TCP", client, connections, false, false);
+    handshakes("TLS full", client, connections, true, true);
+    Socket first = TLSClient.open(client, HOST, ServerClientConstants.TLS_PORT);
+    TestSupport.join(first, "resume");
+    TestSupport.leave(first);
+    handshakes("TLS resumed", client, connections, false, true);
+    
+    String line = TestSupport.PREFIX + new String(
+      new char[characters]).replace('\0', 'x');
+    run("TCP", new Socket(HOST, ServerClientConstants.TCP_PORT),
+      new Socket(HOST, ServerClientConstants.TCP_PORT), lines, line);
+    run("TLS", TLSClient.open(client, HOST, ServerClientConstants.TLS_PORT),
+      TLSClient.open(client, HOST, ServerClientConstants.TLS_PORT), lines,
+      line);
+    BufferPool pool = server.getTLSListener().getBufferPool();
+    System.out.println("Network buffers allocated: " + pool.getAllocated() +
+      " of " + pool.getBufferBytes() + " bytes, " + pool.getIdle() +
+      " idle");
+    
+    for(File file : directory.listFiles())
+    {
+      file.delete();
+    }
+    directory.delete();
+    System.exit(0);
+  }
+  
+  /*
+   * Makes connections one after another and prints how fast they were made.
+   * A full handshake is forced by dropping every session once it is made, so
+   * there is none left to resume. Each connection then identifies and leaves
+   * like any other client, which is not counted.
+   */
+  private static void handshakes(String name, SSLContext context,
+    int connections, boolean full, boolean tls) throws IOException
+  {
+    long[] times = new long[connections];
+    long left = 0L;
+    long started = System.nanoTime();
+    for(int i = 0; i < connections; i++)
+    {
+      long began = System.nanoTime();
+      Socket socket;
+      if(tls)
+      {
+        socket = TLSClient.open(context, HOST, ServerClientConstants.TLS_PORT);
+      }
+      else
+      {
+        socket = new Socket(HOST, ServerClientConstants.TCP_PORT);
+      }
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      in.readBoolean();
+      long leaving = System.nanoTime();
+      times[i] = leaving - began;
+      if(full)
+      {
+        ((SSLSocket)socket).getSession().invalidate();
+      }
+      (new DataOutputStream(socket.getOutputStream())).writeUTF(
+        name.replace(' ', '-') + i);
+      String joined = ServerClientConstants.CONTROL_CHARACTER +
+        ServerClientConstants.JOINED_COMMAND;
+      while(!in.readUTF().startsWith(joined));
+      TestSupport.leave(socket);
+      left += System.nanoTime() - leaving;
+    }
+    double seconds = (System.nanoTime() - started - left) / 1e9;
+    Arrays.sort(times);
+    System.out.println(String.format("%s: %d connections in %.2f s " +
+      "(%.0f/s), p50 %.2f ms, p99 %.2f ms", name, connections, seconds,
+      connections / seconds, times[connections / 2] / 1e6,
+      times[connections * 99 / 100] / 1e6));
+  }
+  
+  /*
+   * Sends the lines from one socket as fast as it can, and times how long
+   * they take to arrive at the other. What the sender is sent back is read
+   * and thrown away, so it never holds up the server.
+   */
+  private static void run(String name, Socket receiver, Socket sender,
+    int lines, String line) throws IOException, InterruptedException
+  {
+    DataInputStream in = TestSupport.join(receiver, "receiver" + name);
+    DataInputStream echo = TestSupport.join(sender, "sender" + name);
+    DataOutputStream out = new DataOutputStream(sender.getOutputStream());
+    Thread drain = new Thread(() ->
+    {
+      try
+      {
+        while(true)
+        {
+          echo.readUTF();
+        }
+      }
+      catch(IOException i)
+      {
+        //the sender was closed
+      }
+    });
+    drain.setDaemon(true);
+    drain.start();
+    long started = System.nanoTime();
+    Thread writer = new Thread(() ->
+    {
+      try
+      {
+        for(int i = 0; i < lines; i++)
+        {
+          out.writeUTF(line);
+        }
+        out.flush();
+      }
+      catch(IOException i)
+      {
+        i.printStackTrace();
+      }
+    });
+    writer.start();
+    int seen = 0;
+    while(seen < lines)
+    {
+      if(in.readUTF().contains(TestSupport.PREFIX))
+      {
+        seen++;
+      }
+    }
+    double seconds = (System.nanoTime() - started) / 1e9;
+    writer.join();
+    TestSupport.leave(receiver);
+    TestSupport.leave(sender);
+    System.out.println(String.format("%s relay: %d lines of %d bytes in " +
+      "%.2f s (%.0f lines/s, %.1f MB/s)", name, lines, line.length(),
+      seconds, lines / seconds, lines * (double)line.length() / seconds /
+      1e6));
+  }
+  
+  private static void keytool(String... args)
+    throws IOException, InterruptedException
+  {
+    String[] command = new String[args.length + 5];
+    command[0] = System.getProperty("java.home") + File.separator + "bin" +
+      File.separator + "keytool";
+    System.arraycopy(args, 0, command, 1, args.length);
+    command[args.length + 1] = "-storepass";
+    command[args.length + 2] = new String(PASSWORD);
+    command[args.length + 3] = "-keypass";
+    command[args.length + 4] = new String(PASSWORD);
+    Process process = (new ProcessBuilder(command)).redirectErrorStream(true)
+      .start();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int read;
+    while((read = process.getInputStream().read(buffer)) >= 0)
+    {
+      output.write(buffer, 0, read);
+    }
+    if(process.waitFor() != 0)
+    {
+      throw new IOException("keytool failed: " + output);
+    }
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * TestSupport.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.cluster.Federation;
+import com.coswald.jtalker.net.transport.FrameCodec;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What the tests of this package share: where they connect to, what the lines
+ * they time start with, how they start federated servers, how they join and
+ * leave a server and wait for something to happen, and how they clean up
+ * after themselves.
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ */
+final class TestSupport
+{
+  /**
+   * The address every test connects to its server on.
+   */
+  static final String LOOPBACK = "127.0.0.1";
+  
+  /**
+   * What every line a test times starts with, so it can be told apart from
+   * everything else a server sends.
+   */
+  static final String PREFIX = "bench ";
+  
+  /**
+   * The longest a test waits for something to happen, in milliseconds.
+   */
+  static final long WAIT_MILLIS = 60000L;
+  
+  private static final long POLL_MILLIS = 10L;
+  
+  private TestSupport()
+  {
+  }
+  
+  /**
+   * Identifies with the server, and waits until it has taken the socket into
+   * the default room, so no line sent afterwards is missed.
+   * @param socket The socket, which has just connected.
+   * @param identifier The identifier to give.
+   * @return The input of the socket.
+   * @throws IOException If an I/O error occurs.
+   */
+  static DataInputStream join(Socket socket, String identifier)
+    throws IOException
+  {
+    DataInputStream in = new DataInputStream(socket.getInputStream());
+    in.readBoolean();
+    (new DataOutputStream(socket.getOutputStream())).writeUTF(identifier);
+    String joined = ServerClientConstants.CONTROL_CHARACTER +
+      ServerClientConstants.JOINED_COMMAND;
+    while(!in.readUTF().startsWith(joined));
+    return in;
+  }
+  
+  /**
+   * Identifies with the server over a socket whose frames are written with
+   * the given codec, and waits until it has taken the socket into the default
+   * room.
+   * @param codec The codec of the socket.
+   * @param socket The socket, which has just connected.
+   * @param identifier The identifier to give.
+   * @return The buffered output of the socket.
+   * @throws IOException If an I/O error occurs.
+   */
+  static DataOutputStream join(FrameCodec codec, Socket socket,
+    String identifier) throws IOException
+  {
+    DataInputStream in = new DataInputStream(socket.getInputStream());
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+      socket.getOutputStream()));
+    in.readBoolean();
+    codec.writeFrame(out, identifier);
+    out.flush();
+    String joined = ServerClientConstants.CONTROL_CHARACTER +
+      ServerClientConstants.JOINED_COMMAND;
+    while(!codec.readFrame(in).startsWith(joined));
+    return out;
+  }
+  
+  /**
+   * Keeps reading lines from a server, and collects those holding
+   * {@link #PREFIX}: what follows it, without the line break.
+   * @param in The input of a socket that has {@link #join(Socket, String)
+   *  joined}.
+   * @return The lines collected so far, which must only be read while
+   *  holding their lock.
+   */
+  static List<String> listen(DataInputStream in)
+  {
+    List<String> heard = Collections.synchronizedList(
+      new ArrayList<String>());
+    Thread reader = new Thread(() ->
+    {
+      try
+      {
+        while(true)
+        {
+          String line = in.readUTF();
+          int at = line.indexOf(PREFIX);
+          if(at >= 0)
+          {
+            heard.add(line.substring(at + PREFIX.length()).trim());
+          }
+        }
+      }
+      catch(IOException i)
+      {
+        //we left
+      }
+    });
+    reader.setDaemon(true);
+    reader.start();
+    return heard;
+  }
+  
+  /**
+   * Starts a server within this process that takes clients on a loopback
+   * port, and links to other nodes on the port after it.
+   * @param nodeId The identifier of the node.
+   * @param port The port to take clients on.
+   * @param seeds The ports the seeds of the node take clients on.
+   * @return The server, which is running.
+   */
+  static TCPServer federate(String nodeId, int port, int... seeds)
+  {
+    TCPServer server = new TCPServer(quiet(), port);
+    Federation federation = server.createFederation(nodeId, port + 1);
+    for(int seed : seeds)
+    {
+      federation.addPeer(LOOPBACK, seed + 1);
+    }
+    server.init();
+    (new Thread(server)).start();
+    return server;
+  }
+  
+  /**
+   * Says goodbye to the server before closing the socket, so it stops sending
+   * lines to it.
+   * @param socket The socket.
+   * @throws IOException If an I/O error occurs.
+   */
+  static void leave(Socket socket) throws IOException
+  {
+    (new DataOutputStream(socket.getOutputStream())).writeUTF(
+      ServerClientConstants.EXIT_MESSAGE);
+    socket.close();
+  }
+  
+  /**
+   * Says goodbye over a socket whose frames are written with the given codec,
+   * and waits for the server to close it, so that nothing the server still
+   * sends finds it closed.
+   * @param codec The codec of the socket.
+   * @param socket The socket.
+   * @param out The output of the socket.
+   * @param in The input of the socket.
+   * @throws IOException If an I/O error occurs.
+   */
+  static void leave(FrameCodec codec, Socket socket, DataOutputStream out,
+    InputStream in) throws IOException
+  {
+    codec.writeFrame(out, ServerClientConstants.EXIT_MESSAGE);
+    out.flush();
+    while(in.read() >= 0);
+    socket.close();
+  }
+  
+  /**
+   * Waits until the condition holds, for at most {@link #WAIT_MILLIS}
+   * milliseconds.
+   * @param condition The condition.
+   * @return {@code true} if it held before the time was up.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  static boolean waitFor(Condition condition) throws InterruptedException
+  {
+    long until = System.currentTimeMillis() + WAIT_MILLIS;
+    while(!condition.holds())
+    {
+      if(System.currentTimeMillis() > until)
+      {
+        return false;
+      }
+      Thread.sleep(POLL_MILLIS);
+    }
+    return true;
+  }
+  
+  /**
+   * Deletes a file, or a directory along with everything within it.
+   * @param file The file or directory.
+   * @throws IOException If anything could not be deleted.
+   */
+  static void delete(File file) throws IOException
+  {
+    File[] children = file.listFiles();
+    if(children != null)
+    {
+      for(File child : children)
+      {
+        delete(child);
+      }
+    }
+    Files.deleteIfExists(file.toPath());
+  }
+  
+  /**
+   * Returns somewhere to send output nobody reads, such as that of a server
+   * or client being timed.
+   * @return The output.
+   */
+  static PrintStream quiet()
+  {
+    return new PrintStream(new ByteArrayOutputStream(), true);
+  }
+  
+  /**
+   * Something a test waits for.
+   */
+  interface Condition
+  {
+    /**
+     * Returns whether it has happened yet.
+     * @return {@code true} if it has.
+     */
+    boolean holds();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * TieredHistoryTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.history.HistoryConstants;
+import com.coswald.jtalker.net.history.HistorySegment;
+import com.coswald.jtalker.net.history.TieredChatHistory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link com.coswald.jtalker.net.history.TieredChatHistory
+ * TieredChatHistory}. Enough lines are appended to a history within a new
+ * directory, with small segments, to fill all three tiers, and once the
+ * background thread has compressed every segment past the warm ones, every
+ * line is read back. The history is then closed and opened again, as a
+ * restarted server would, and every line should still read back, with new
+ * lines carrying on from the same index. Last, the checksum of the oldest
+ * cold segment is damaged: once opened again, the history should refuse to
+ * serve that segment (printing an error for it) and count the failed read.
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class TieredHistoryTest
+{
+  private static final int SEGMENT_BYTES = 4096;
+  private static final int WARM_SEGMENTS = 2;
+  private static final int PAGE_LINES = 500;
+  
+  private TieredHistoryTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines appended (default 5000), optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+    File directory = Files.createTempDirectory("jtalker-history").toFile();
+    TieredChatHistory history = open(directory);
+    boolean indexed = true;
+    for(int i = 0; i < lines; i++)
+    {
+      indexed &= history.append(line(i)) == i;
+    }
+    System.out.println("Each line given the next index: " + indexed);
+    TieredChatHistory appended = history;
+    boolean compressed = TestSupport.waitFor(() ->
+      appended.getWarmCount() <= WARM_SEGMENTS);
+    System.out.println("Segments past the warm ones compressed: " +
+      compressed + " (hot lines " + history.getHotCount() + ", warm " +
+      history.getWarmCount() + ", cold " + history.getColdCount() + ")");
+    System.out.println("Counters: " + history.getCounters());
+    System.out.println("Rolled by size " + history.getCounters()
+      .getRolledBySize() + " times, compressed " + history.getCounters()
+      .getCompressed() + " (" + (history.getWarmCount() +
+      history.getColdCount()) + " and " + history.getColdCount() +
+      " expected)");
+    System.out.println("Every line read back from its tier: " +
+      readsBack(history, lines));
+    history.close();
+    
+    history = open(directory);
+    System.out.println("Restarted with " + history.size() + " lines (" +
+      lines + " expected), " + history.getWarmCount() + " warm and " +
+      history.getColdCount() + " cold segments");
+    System.out.println("Every line read back after restarting: " +
+      readsBack(history, lines));
+    System.out.println("The next line was given index " + history.append(
+      line(lines)) + " (" + lines + " expected)");
+    history.close();
+    
+    File[] checksums = directory.listFiles((dir, name) ->
+      name.endsWith(HistoryConstants.CHECKSUM_EXTENSION));
+    Arrays.sort(checksums);
+    HistorySegment.writeChecksum(checksums[0],
+      HistorySegment.readChecksum(checksums[0]) ^ 1L);
+    history = open(directory);
+    List<String> read = history.read(0, lines);
+    System.out.println("Damaged segment refused: " + (read.isEmpty() ||
+      !read.get(0).equals(line(0))) + ", read failures " + history
+      .getCounters().getReadFailures() + " (1 expected)");
+    history.close();
+    TestSupport.delete(directory);
+    System.exit(0);
+  }
+  
+  private static TieredChatHistory open(File directory)
+  {
+    TieredChatHistory history = new TieredChatHistory(directory,
+      SEGMENT_BYTES, WARM_SEGMENTS);
+    history.init();
+    return history;
+  }
+  
+  private static String line(int i)
+  {
+    return TestSupport.PREFIX + i + " of the lines kept on disk\n";
+  }
+  
+  /*
+   * Whether every line reads back, a page at a time.
+   */
+  private static boolean readsBack(TieredChatHistory history, int lines)
+  {
+    List<String> read = new ArrayList<String>();
+    for(int from = 0; from < lines; from += PAGE_LINES)
+    {
+      read.addAll(history.read(from, Math.min(PAGE_LINES, lines - from)));
+    }
+    boolean same = read.size() == lines;
+    for(int i = 0; same && i < lines; i++)
+    {
+      same = read.get(i).equals(line(i));
+    }
+    return same;
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * TransportTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.memory.MemoryTransport;
+import com.coswald.jtalker.net.transport.FrameCodec;
+import com.coswald.jtalker.net.transport.SocketTransport;
+import com.coswald.jtalker.net.transport.Transport;
+import com.coswald.jtalker.net.udp.UDPTransport;
+import com.coswald.jtalker.net.unix.UnixTransport;
+import com.coswald.jtalker.net.websocket.WebSocketTransport;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests every {@link com.coswald.jtalker.net.transport.Transport Transport}
+ * a client can connect over the same way, through nothing but the transport
+ * itself. A server is started, and every transport is
+ * {@link com.coswald.jtalker.net.TCPServer#addTransport(Transport, int)
+ * added} to it on a free port. Then, for each, the time a connection takes to
+ * be made and greeted is printed. Then one client sends lines to another,
+ * first one at a time, waiting for each to arrive before sending the next,
+ * and then as fast as it can; the time each line took and the rate the run
+ * arrived at are printed. Transports that can not connect a client are
+ * skipped, and Unix domain sockets are only tried where they are
+ * {@link com.coswald.jtalker.net.unix.UnixTransport#isSupported() supported}.
+ * @author C. William Oswald
+ * @version 0.0.4
+ * @since JTalker 0.3.0
+ */
+public final class TransportTest
+{
+  private static final int PORT = ServerClientConstants.TCP_PORT + 30;
+  
+  private TransportTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of connections made over each transport (default
+   *  200), the amount of lines sent one at a time over each (default 2000),
+   *  and the amount sent as fast as can be (default 50000), all optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int connections = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+    int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+    int lines = (args.length > 2) ? Integer.parseInt(args[2]) : 50000;
+    List<Transport> transports = new ArrayList<Transport>();
+    transports.add(new SocketTransport());
+    if(UnixTransport.isSupported())
+    {
+      transports.add(new UnixTransport());
+    }
+    transports.add(new UDPTransport());
+    transports.add(new MemoryTransport());
+    transports.add(new WebSocketTransport());
+    
+    TCPServer server = new TCPServer(TestSupport.quiet(), PORT);
+    for(Transport transport : transports)
+    {
+      server.addTransport(transport, 0);
+    }
+    server.init();
+    (new Thread(server)).start();
+    
+    for(Transport transport : transports)
+    {
+      if(server.getListener(transport) == null)
+      {
+        System.out.println(transport.getName() + ": could not listen");
+        continue;
+      }
+      int port = server.getListener(transport).getLocalPort();
+      try
+      {
+        connect(transport, port, connections);
+        relay(transport, port, rounds, lines);
+      }
+      catch(UnsupportedOperationException u)
+      {
+        System.out.println(transport.getName() + ": skipped, " +
+          u.getMessage());
+      }
+    }
+    System.exit(0);
+  }
+  
+  /*
+   * Connects, is greeted and leaves, again and again.
+   */
+  private static void connect(Transport transport, int port,
+    int connections) throws IOException
+  {
+    FrameCodec codec = transport.getCodec();
+    long[] times = new long[connections];
+    long started = System.nanoTime();
+    for(int i = 0; i < connections; i++)
+    {
+      long t = System.nanoTime();
+      Socket socket = transport.connect(TestSupport.LOOPBACK, port);
+      DataOutputStream out = TestSupport.join(codec, socket, "connect" + i);
+      times[i] = System.nanoTime() - t;
+      TestSupport.leave(codec, socket, out, socket.getInputStream());
+    }
+    double seconds = (System.nanoTime() - started) / 1e9;
+    Arrays.sort(times);
+    System.out.println(String.format("%s connect: %d in %.2f s (%.0f/s), " +
+      "p50 %.2f ms, p99 %.2f ms", transport.getName(), connections, seconds,
+      connections / seconds, times[connections / 2] / 1e6,
+      times[connections * 99 / 100] / 1e6));
+  }
+  
+  /*
+   * Sends lines from one client to another: first one at a time, timing
+   * each, and then as fast as it can, timing them all.
+   */
+  private static void relay(Transport transport, int port, int rounds,
+    int lines) throws IOException, InterruptedException
+  {
+    FrameCodec codec = transport.getCodec();
+    Socket receiver = transport.connect(TestSupport.LOOPBACK, port);
+    Socket sender = transport.connect(TestSupport.LOOPBACK, port);
+    DataOutputStream receiverOut = TestSupport.join(codec, receiver,
+      "receiver");
+    DataOutputStream out = TestSupport.join(codec, sender, "sender");
+    DataInputStream in = new DataInputStream(new BufferedInputStream(
+      receiver.getInputStream()));
+    DataInputStream echo = new DataInputStream(new BufferedInputStream(
+      sender.getInputStream()));
+    Thread drain = new Thread(() ->
+    {
+      try
+      {
+        while(true)
+        {
+          codec.readFrame(echo);
+        }
+      }
+      catch(IOException i)
+      {
+        //the server closed the sender
+      }
+    });
+    drain.setDaemon(true);
+    drain.start();
+    
+    long[] trips = new long[rounds];
+    for(int i = 0; i < rounds; i++)
+    {
+      String line = TestSupport.PREFIX + i;
+      long started = System.nanoTime();
+      codec.writeFrame(out, line);
+      out.flush();
+      while(!codec.readFrame(in).endsWith(line + "\n\r"));
+      trips[i] = System.nanoTime() - started;
+    }
+    Arrays.sort(trips);
+    System.out.println(String.format("%s relay: one line at a time, p50 " +
+      "%.3f ms, p99 %.3f ms", transport.getName(), trips[rounds / 2] / 1e6,
+      trips[rounds * 99 / 100] / 1e6));
+    
+    Thread reader = new Thread(() ->
+    {
+      try
+      {
+        int seen = 0;
+        while(seen < lines)
+        {
+          if(codec.readFrame(in).contains(TestSupport.PREFIX))
+          {
+            seen++;
+          }
+        }
+      }
+      catch(IOException i)
+      {
+        i.printStackTrace();
+      }
+    });
+    reader.start();
+    long started = System.nanoTime();
+    for(int i = 0; i < lines; i++)
+    {
+      codec.writeFrame(out, TestSupport.PREFIX + i);
+    }
+    out.flush();
+    reader.join();
+    double seconds = (System.nanoTime() - started) / 1e9;
+    System.out.println(String.format("%s relay: %d lines in %.2f s " +
+      "(%.0f/s)", transport.getName(), lines, seconds, lines / seconds));
+    TestSupport.leave(codec, receiver, receiverOut, in);
+    codec.writeFrame(out, ServerClientConstants.EXIT_MESSAGE);
+    out.flush();
+    drain.join();
+    sender.close();
+  }
+}
@@ -0,0 +1,301 @@
+/*
+ * WebSocketTest.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.test;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.TCPServer;
+import com.coswald.jtalker.net.websocket.WebSocketConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tests the {@link com.coswald.jtalker.net.websocket.WebSocketListener
+ * WebSocketListener} of a {@link com.coswald.jtalker.net.TCPServer TCPServer}.
+ * A server is started that listens over TCP and for browsers. A browser,
+ * played by a plain socket that does the handshake and frames its lines
+ * itself, sends a line that a TCP client should see, and the other way
+ * around (both holding characters that UTF-8 and the modified UTF-8 of
+ * {@code writeUTF} write differently). Then a TCP client sends a run of
+ * lines, and the time each took to reach another TCP client and to reach the
+ * browser is printed.
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public final class WebSocketTest
+{
+  private static final String ODD_LINE = "nul \u0000 and face \uD83D\uDE00";
+  private static final long SEND_MILLIS = 1L;
+  
+  private WebSocketTest()
+  {
+  }
+  
+  /**
+   * Runs the test.
+   * @param args The amount of lines sent (default 2000), optional.
+   * @throws Exception If anything goes wrong.
+   */
+  public static void main(String... args) throws Exception
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+    TCPServer server = new TCPServer(TestSupport.quiet(),
+      ServerClientConstants.TCP_PORT);
+    server.setWebSocketPort(ServerClientConstants.WEBSOCKET_PORT);
+    server.init();
+    (new Thread(server)).start();
+    
+    Socket senderSocket = new Socket(TestSupport.LOOPBACK,
+      ServerClientConstants.TCP_PORT);
+    DataInputStream senderIn = TestSupport.join(senderSocket, "sender");
+    DataOutputStream out = new DataOutputStream(
+      senderSocket.getOutputStream());
+    DataInputStream in = TestSupport.join(new Socket(TestSupport.LOOPBACK,
+      ServerClientConstants.TCP_PORT), "receiver");
+    Browser browser = new Browser(TestSupport.LOOPBACK,
+      ServerClientConstants.WEBSOCKET_PORT, "browser");
+    
+    browser.send(TestSupport.PREFIX + ODD_LINE);
+    String line;
+    do
+    {
+      line = in.readUTF();
+    }
+    while(!line.contains(TestSupport.PREFIX));
+    System.out.println("TCP client got the browser's line intact: " +
+      line.contains(TestSupport.PREFIX + ODD_LINE));
+    out.writeUTF(TestSupport.PREFIX + ODD_LINE);
+    do
+    {
+      line = browser.receive();
+    }
+    while(!line.contains("sender") || !line.contains(TestSupport.PREFIX));
+    System.out.println("Browser got the TCP client's line intact: " +
+      line.contains(TestSupport.PREFIX + ODD_LINE));
+    
+    long[] tcp = new long[lines];
+    long[] webSocket = new long[lines];
+    Thread tcpReader = time(() -> in.readUTF(), tcp);
+    Thread webSocketReader = time(browser::receive, webSocket);
+    for(int i = 0; i < lines; i++)
+    {
+      out.writeUTF(TestSupport.PREFIX + i + " " + System.nanoTime());
+      Thread.sleep(SEND_MILLIS);
+    }
+    tcpReader.join();
+    webSocketReader.join();
+    print("TCP", tcp);
+    print("WebSocket", webSocket);
+    
+    browser.close();
+    System.out.println("Browser was sent a close frame back: " +
+      (browser.receive() == null));
+    senderIn.close();
+    server.close();
+    System.exit(0);
+  }
+  
+  /*
+   * Reads lines until every timed line has arrived, noting how long each
+   * took.
+   */
+  private static Thread time(LineSource source, long[] latencies)
+  {
+    Thread t = new Thread(() ->
+    {
+      try
+      {
+        int seen = 0;
+        while(seen < latencies.length)
+        {
+          String line = source.next();
+          int at = line.indexOf(TestSupport.PREFIX);
+          if(at >= 0 && !line.contains(ODD_LINE))
+          {
+            String[] parts = line.substring(at +
+              TestSupport.PREFIX.length()).trim().split(" ");
+            latencies[Integer.parseInt(parts[0])] = System.nanoTime() -
+              Long.parseLong(parts[1]);
+            seen++;
+          }
+        }
+      }
+      catch(IOException i)
+      {
+        i.printStackTrace();
+      }
+    });
+    t.start();
+    return t;
+  }
+  
+  private static void print(String name, long[] latencies)
+  {
+    Arrays.sort(latencies);
+    int lines = latencies.length;
+    System.out.println(String.format("%s: latency p50 %.2f ms, p99 %.2f ms, " +
+      "max %.2f ms", name, latencies[lines / 2] / 1e6,
+      latencies[lines * 99 / 100] / 1e6, latencies[lines - 1] / 1e6));
+  }
+  
+  private interface LineSource
+  {
+    String next() throws IOException;
+  }
+  
+  /*
+   * Just enough of a browser to talk to the listener.
+   */
+  private static final class Browser
+  {
+    private Socket socket;
+    private DataInputStream in;
+    private OutputStream out;
+    
+    private Browser(String host, int port, String identifier)
+      throws Exception
+    {
+      this.socket = new Socket(host, port);
+      this.socket.setTcpNoDelay(true);
+      this.in = new DataInputStream(this.socket.getInputStream());
+      this.out = this.socket.getOutputStream();
+      byte[] nonce = new byte[16];
+      ThreadLocalRandom.current().nextBytes(nonce);
+      String key = Base64.getEncoder().encodeToString(nonce);
+      this.out.write(("GET /chat HTTP/1.1\r\nHost: " + host + "\r\n" +
+        "Upgrade: websocket\r\nConnection: Upgrade\r\n" +
+        "Sec-WebSocket-Key: " + key + "\r\nSec-WebSocket-Version: " +
+        WebSocketConstants.VERSION + "\r\n\r\n").getBytes(
+        StandardCharsets.ISO_8859_1));
+      String expected = Base64.getEncoder().encodeToString(
+        MessageDigest.getInstance("SHA-1").digest((key +
+        WebSocketConstants.HANDSHAKE_GUID).getBytes(
+        StandardCharsets.ISO_8859_1)));
+      String response = readResponse(this.in);
+      if(!response.startsWith("HTTP/1.1 101") || !response.contains(expected))
+      {
+        throw new IOException("Bad handshake: " + response);
+      }
+      this.send(identifier);
+      String joined = ServerClientConstants.CONTROL_CHARACTER +
+        ServerClientConstants.JOINED_COMMAND;
+      while(!this.receive().startsWith(joined));
+    }
+    
+    private void send(String line) throws IOException
+    {
+      this.sendFrame(WebSocketConstants.TEXT,
+        line.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /*
+     * Returns the next text message, or null once the server closes.
+     */
+    private String receive() throws IOException
+    {
+      while(true)
+      {
+        int first = this.in.readUnsignedByte();
+        int length = this.in.readUnsignedByte() & 0x7F;
+        if(length == 126)
+        {
+          length = this.in.readUnsignedShort();
+        }
+        else if(length == 127)
+        {
+          length = (int)this.in.readLong();
+        }
+        byte[] payload = new byte[length];
+        this.in.readFully(payload);
+        int opcode = first & 0x0F;
+        if(opcode == WebSocketConstants.TEXT)
+        {
+          return new String(payload, StandardCharsets.UTF_8);
+        }
+        if(opcode == WebSocketConstants.CLOSE)
+        {
+          return null;
+        }
+      }
+    }
+    
+    private void close() throws IOException
+    {
+      this.sendFrame(WebSocketConstants.CLOSE, new byte[] {
+        (byte)(WebSocketConstants.NORMAL_CLOSURE >>> 8),
+        (byte)WebSocketConstants.NORMAL_CLOSURE});
+    }
+    
+    /*
+     * Frames from a browser are always masked.
+     */
+    private void sendFrame(int opcode, byte[] payload) throws IOException
+    {
+      ByteArrayOutputStream frame = new ByteArrayOutputStream();
+      frame.write(0x80 | opcode);
+      if(payload.length < 126)
+      {
+        frame.write(0x80 | payload.length);
+      }
+      else
+      {
+        frame.write(0x80 | 126);
+        frame.write(payload.length >>> 8);
+        frame.write(payload.length);
+      }
+      byte[] mask = new byte[4];
+      ThreadLocalRandom.current().nextBytes(mask);
+      frame.write(mask);
+      for(int i = 0; i < payload.length; i++)
+      {
+        frame.write(payload[i] ^ mask[i & 3]);
+      }
+      this.out.write(frame.toByteArray());
+    }
+    
+    private static String readResponse(InputStream in) throws IOException
+    {
+      StringBuilder response = new StringBuilder();
+      while(response.indexOf("\r\n\r\n") < 0)
+      {
+        int c = in.read();
+        if(c < 0)
+        {
+          throw new IOException("Closed during the handshake");
+        }
+        response.append((char)c);
+      }
+      return response.toString();
+    }
+  }
+}
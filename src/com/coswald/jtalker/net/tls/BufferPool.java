@@ -0,0 +1,112 @@
+/*
+ * BufferPool.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.tls;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * <p>A pool of the direct buffers records are read into and written from.
+ * Every buffer is big enough to hold
+ * {@value com.coswald.jtalker.net.tls.TLSConstants#NETWORK_BUFFER_RECORDS}
+ * records. A connection only holds one while it has bytes in it, so a server
+ * with many idle clients needs about as many buffers as it has busy ones,
+ * and the buffers it does need are not allocated anew for every
+ * connection.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class BufferPool
+{
+  private final int bufferBytes;
+  private final int kept;
+  private final ArrayDeque<ByteBuffer> idle;
+  private long allocated;
+  
+  /**
+   * Constructs an empty pool.
+   * @param bufferBytes The size of every buffer.
+   * @param kept The most buffers kept while no one needs them.
+   */
+  public BufferPool(int bufferBytes, int kept)
+  {
+    this.bufferBytes = bufferBytes;
+    this.kept = kept;
+    this.idle = new ArrayDeque<ByteBuffer>(kept);
+  }
+  
+  /**
+   * Takes a cleared buffer from the pool, allocating one if there are none.
+   * @return The buffer.
+   */
+  public synchronized ByteBuffer acquire()
+  {
+    ByteBuffer buffer = this.idle.pollFirst();
+    if(buffer == null)
+    {
+      buffer = ByteBuffer.allocateDirect(this.bufferBytes);
+      this.allocated++;
+    }
+    return buffer;
+  }
+  
+  /**
+   * Gives a buffer back to the pool. It must not be used afterwards.
+   * @param buffer The buffer.
+   */
+  public synchronized void release(ByteBuffer buffer)
+  {
+    if(this.idle.size() < this.kept)
+    {
+      buffer.clear();
+      this.idle.addFirst(buffer);
+    }
+  }
+  
+  /**
+   * Returns the size of every buffer.
+   * @return The size, in bytes.
+   */
+  public int getBufferBytes()
+  {
+    return this.bufferBytes;
+  }
+  
+  /**
+   * Returns how many buffers have been allocated so far.
+   * @return The amount of buffers.
+   */
+  public synchronized long getAllocated()
+  {
+    return this.allocated;
+  }
+  
+  /**
+   * Returns how many buffers are waiting in the pool.
+   * @return The amount of buffers.
+   */
+  public synchronized int getIdle()
+  {
+    return this.idle.size();
+  }
+}
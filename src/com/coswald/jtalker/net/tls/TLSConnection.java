@@ -0,0 +1,849 @@
+/*
+ * TLSConnection.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.tls;
+
+import com.coswald.jtalker.net.tls.BufferPool;
+import com.coswald.jtalker.net.tls.TLSConstants;
+import com.coswald.jtalker.net.tls.TLSListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+/**
+ * <p>A client connected through a
+ * {@link com.coswald.jtalker.net.tls.TLSListener TLSListener}. This is made
+ * to look like a {@link java.net.Socket Socket}, so a
+ * {@link com.coswald.jtalker.net.TCPClientInstance TCPClientInstance} can be
+ * handed one unchanged, and the client joins the same rooms as everyone
+ * else. Only its streams, its read timeout, its addresses and closing it act
+ * like those of a socket.</p>
+ * <p>Everything written to the output stream is sealed into records by an
+ * {@link javax.net.ssl.SSLEngine SSLEngine}, and every record received is
+ * opened into the input stream. Only the thread of the listener ever calls on
+ * the engine; the threads that read and write lines only copy them into and
+ * out of the buffers it works from. Records are read into and written from
+ * buffers taken from the {@link com.coswald.jtalker.net.tls.BufferPool pool}
+ * of the listener, which are given back as soon as they are empty.</p>
+ * <p>At most
+ * {@value com.coswald.jtalker.net.tls.TLSConstants#SEND_BUFFER_BYTES} bytes
+ * wait to be sealed. A line written while there is no room for it waits,
+ * just as it would when written to a socket whose send buffer is full, so a
+ * client that does not keep up is treated exactly like any other client that
+ * does not.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class TLSConnection extends Socket
+{
+  private static final long NANOS_PER_MILLI = 1000000L;
+  
+  private TLSListener listener;
+  private SocketChannel channel;
+  private SSLEngine engine;
+  private BufferPool pool;
+  private SocketAddress remote;
+  private SocketAddress local;
+  private long openedAt;
+  private boolean handshaken;
+  private boolean closed;
+  private long closedAt;
+  private boolean ended;
+  private boolean finished;
+  private IOException failure;
+  private int readTimeout;
+  private InputStream input;
+  private OutputStream output;
+  private int applicationBytes;
+  private int packetBytes;
+  
+  private ByteBuffer netIn;
+  private ByteBuffer incoming;
+  private int readFrom;
+  
+  private ByteBuffer outgoing;
+  private int sealFrom;
+  private ByteBuffer netOut;
+  
+  /*
+   * A connection starts out waiting for its handshake.
+   */
+  TLSConnection(TLSListener listener, SocketChannel channel, SSLEngine engine,
+    BufferPool pool) throws IOException
+  {
+    this.listener = listener;
+    this.channel = channel;
+    this.engine = engine;
+    this.pool = pool;
+    this.remote = channel.getRemoteAddress();
+    this.local = channel.getLocalAddress();
+    this.openedAt = System.nanoTime();
+    this.input = new TLSInputStream();
+    this.output = new TLSOutputStream();
+    SSLSession session = engine.getSession();
+    this.applicationBytes = session.getApplicationBufferSize();
+    this.packetBytes = session.getPacketBufferSize();
+    this.incoming = ByteBuffer.allocate(TLSConstants.RECEIVE_BUFFER_BYTES +
+      this.applicationBytes);
+    this.outgoing = ByteBuffer.allocate(TLSConstants.SEND_BUFFER_BYTES);
+    engine.beginHandshake();
+  }
+  
+  /**
+   * Returns the lines sent by the client.
+   * @return The input stream.
+   * @throws IOException If we are closed.
+   */
+  @Override
+  public InputStream getInputStream() throws IOException
+  {
+    if(this.isClosed())
+    {
+      throw new SocketException("Socket is closed");
+    }
+    return this.input;
+  }
+  
+  /**
+   * Returns the stream lines are written to the client through.
+   * @return The output stream.
+   * @throws IOException If we are closed.
+   */
+  @Override
+  public OutputStream getOutputStream() throws IOException
+  {
+    if(this.isClosed())
+    {
+      throw new SocketException("Socket is closed");
+    }
+    return this.output;
+  }
+  
+  /**
+   * Closes the connection. Anything already written is still sent, followed
+   * by a close notification; anything the client sends from now on is thrown
+   * away.
+   */
+  @Override
+  public synchronized void close()
+  {
+    if(this.closed)
+    {
+      return;
+    }
+    this.closed = true;
+    this.closedAt = System.nanoTime();
+    this.incoming.clear();
+    this.readFrom = 0;
+    this.notifyAll();
+    this.listener.wakeup();
+  }
+  
+  /**
+   * Returns whether the connection has been closed by us.
+   * @return {@code true} if it has.
+   */
+  @Override
+  public synchronized boolean isClosed()
+  {
+    return this.closed;
+  }
+  
+  /**
+   * Returns whether we are connected, which we always are once we have been
+   * handed out.
+   * @return {@code true}.
+   */
+  @Override
+  public boolean isConnected()
+  {
+    return true;
+  }
+  
+  /**
+   * Returns whether we are bound to a local address, which we always are.
+   * @return {@code true}.
+   */
+  @Override
+  public boolean isBound()
+  {
+    return true;
+  }
+  
+  /**
+   * Returns the address of the client.
+   * @return The remote address.
+   */
+  @Override
+  public InetAddress getInetAddress()
+  {
+    return ((InetSocketAddress)this.remote).getAddress();
+  }
+  
+  /**
+   * Returns the port of the client.
+   * @return The remote port.
+   */
+  @Override
+  public int getPort()
+  {
+    return ((InetSocketAddress)this.remote).getPort();
+  }
+  
+  /**
+   * Returns the address and port of the client.
+   * @return The remote socket address.
+   */
+  @Override
+  public SocketAddress getRemoteSocketAddress()
+  {
+    return this.remote;
+  }
+  
+  /**
+   * Returns the local address the client connected to.
+   * @return The local address.
+   */
+  @Override
+  public InetAddress getLocalAddress()
+  {
+    return ((InetSocketAddress)this.local).getAddress();
+  }
+  
+  /**
+   * Returns the local port the client connected to.
+   * @return The local port.
+   */
+  @Override
+  public int getLocalPort()
+  {
+    return ((InetSocketAddress)this.local).getPort();
+  }
+  
+  /**
+   * Returns the local address and port the client connected to.
+   * @return The local socket address.
+   */
+  @Override
+  public SocketAddress getLocalSocketAddress()
+  {
+    return this.local;
+  }
+  
+  /**
+   * Sets how long a read waits for a line before giving up.
+   * @param timeout The timeout, in milliseconds, or 0 to wait forever.
+   * @throws IllegalArgumentException If the timeout is negative.
+   */
+  @Override
+  public synchronized void setSoTimeout(int timeout)
+  {
+    if(timeout < 0)
+    {
+      throw new IllegalArgumentException("The timeout can not be negative!");
+    }
+    this.readTimeout = timeout;
+  }
+  
+  /**
+   * Returns how long a read waits for a line before giving up.
+   * @return The timeout, in milliseconds, or 0 if it waits forever.
+   */
+  @Override
+  public synchronized int getSoTimeout()
+  {
+    return this.readTimeout;
+  }
+  
+  /**
+   * Returns the session the handshake agreed on.
+   * @return The session.
+   */
+  public SSLSession getSession()
+  {
+    return this.engine.getSession();
+  }
+  
+  /**
+   * Returns how many bytes are waiting to be sealed and sent to the client.
+   * @return The amount of bytes waiting.
+   */
+  public synchronized int getPending()
+  {
+    return this.outgoing.position() - this.sealFrom;
+  }
+  
+  /**
+   * Returns a description of this connection.
+   * @return The address of the client.
+   */
+  @Override
+  public String toString()
+  {
+    return "TLSConnection[" + this.remote + "]";
+  }
+  
+  SocketChannel channel()
+  {
+    return this.channel;
+  }
+  
+  /*
+   * Returns what the selector should wait on for us: reading, unless we have
+   * more bytes waiting to be read than we hold, and writing, if there are
+   * records to send.
+   */
+  synchronized int interest()
+  {
+    int ops = 0;
+    if(!this.ended && !this.engine.isInboundDone() &&
+      this.incoming.position() - this.readFrom <
+      TLSConstants.RECEIVE_BUFFER_BYTES &&
+      (this.netIn == null || this.netIn.hasRemaining()))
+    {
+      ops |= SelectionKey.OP_READ;
+    }
+    if(this.netOut != null && this.netOut.position() > 0)
+    {
+      ops |= SelectionKey.OP_WRITE;
+    }
+    return ops;
+  }
+  
+  /*
+   * Called by the selector once there are bytes to read.
+   */
+  synchronized void receive()
+  {
+    if(this.netIn == null)
+    {
+      this.netIn = this.pool.acquire();
+    }
+    int count;
+    try
+    {
+      count = this.channel.read(this.netIn);
+    }
+    catch(IOException i)
+    {
+      this.fail(i);
+      return;
+    }
+    if(count < 0)
+    {
+      try
+      {
+        this.engine.closeInbound();
+      }
+      catch(SSLException s)
+      {
+        //the client went away without a close notification; what it sent
+        //before then is still read, and the reader sees the end as usual
+      }
+      this.engine.closeOutbound();
+      this.end();
+    }
+    this.process();
+  }
+  
+  /*
+   * Called by the selector once there is room to send.
+   */
+  synchronized void send()
+  {
+    this.netOut.flip();
+    try
+    {
+      this.channel.write(this.netOut);
+    }
+    catch(IOException i)
+    {
+      this.netOut.clear();
+      this.fail(i);
+      return;
+    }
+    if(this.netOut.hasRemaining())
+    {
+      this.netOut.compact();
+    }
+    else
+    {
+      this.pool.release(this.netOut);
+      this.netOut = null;
+    }
+    this.process();
+  }
+  
+  /*
+   * Drives the engine for as long as it gets anywhere: running what it hands
+   * us, opening the records we hold, and sealing what was written to us
+   * (followed by a close notification, once we are closed).
+   */
+  synchronized void process()
+  {
+    if(this.failure != null || this.finished)
+    {
+      return;
+    }
+    try
+    {
+      boolean progress = true;
+      while(progress)
+      {
+        switch(this.engine.getHandshakeStatus())
+        {
+          case NEED_TASK:
+            Runnable task;
+            while((task = this.engine.getDelegatedTask()) != null)
+            {
+              task.run();
+            }
+            progress = true;
+            break;
+          case NEED_WRAP:
+            progress = this.wrap();
+            break;
+          case NEED_UNWRAP:
+            progress = this.unwrap();
+            break;
+          default:
+            progress = this.unwrap();
+            progress |= this.wrap();
+            break;
+        }
+      }
+    }
+    catch(SSLException s)
+    {
+      this.fail(s);
+    }
+    if(this.netIn != null && this.netIn.position() == 0)
+    {
+      this.pool.release(this.netIn);
+      this.netIn = null;
+    }
+  }
+  
+  /*
+   * Whether the selector should close the channel: once the handshake took
+   * too long, once the client has gone away before being handed out, once
+   * everything is sent (our close notification last) after either end
+   * closed, or once a closed connection has lingered long enough.
+   */
+  synchronized boolean isFinished(long now)
+  {
+    if(this.failure != null)
+    {
+      return true;
+    }
+    if(!this.handshaken)
+    {
+      if(now - this.openedAt > TLSConstants.HANDSHAKE_MILLIS *
+        NANOS_PER_MILLI)
+      {
+        this.fail(new SocketTimeoutException("Handshake timed out"));
+        return true;
+      }
+      return this.ended;
+    }
+    boolean drained = this.netOut == null &&
+      this.outgoing.position() == this.sealFrom;
+    if(this.closed)
+    {
+      return (drained && this.engine.isOutboundDone()) ||
+        now - this.closedAt > TLSConstants.LINGER_MILLIS * NANOS_PER_MILLI;
+    }
+    return this.ended && drained && this.engine.isOutboundDone();
+  }
+  
+  /*
+   * Called by the selector once it has closed the channel.
+   */
+  synchronized void finish()
+  {
+    this.finished = true;
+    this.end();
+    if(this.netIn != null)
+    {
+      this.pool.release(this.netIn);
+      this.netIn = null;
+    }
+    if(this.netOut != null)
+    {
+      this.pool.release(this.netOut);
+      this.netOut = null;
+    }
+  }
+  
+  synchronized void fail(IOException failure)
+  {
+    if(this.failure == null)
+    {
+      this.failure = failure;
+    }
+    this.end();
+  }
+  
+  private void end()
+  {
+    this.ended = true;
+    this.notifyAll();
+  }
+  
+  /*
+   * Opens the records we hold into the bytes waiting to be read, as long as
+   * there is room for a whole record, and the engine does not need anything
+   * else done first. What was read is only moved once, after every record
+   * that could be opened was.
+   */
+  private boolean unwrap() throws SSLException
+  {
+    if(this.netIn == null || this.netIn.position() == 0)
+    {
+      return false;
+    }
+    boolean progress = false;
+    this.netIn.flip();
+    try
+    {
+      while(this.netIn.hasRemaining() && !this.engine.isInboundDone())
+      {
+        if(this.incoming.remaining() < this.applicationBytes &&
+          this.readFrom > 0)
+        {
+          this.incoming.flip();
+          this.incoming.position(this.readFrom);
+          this.incoming.compact();
+          this.readFrom = 0;
+        }
+        if(this.incoming.remaining() < this.applicationBytes)
+        {
+          break;
+        }
+        SSLEngineResult result = this.engine.unwrap(this.netIn,
+          this.incoming);
+        this.handshake(result);
+        if(result.getStatus() == SSLEngineResult.Status.CLOSED)
+        {
+          this.end();
+          progress = true;
+          break;
+        }
+        if(result.bytesConsumed() == 0 && result.bytesProduced() == 0)
+        {
+          break;
+        }
+        progress = true;
+        HandshakeStatus status = result.getHandshakeStatus();
+        if(status != HandshakeStatus.NOT_HANDSHAKING &&
+          status != HandshakeStatus.NEED_UNWRAP)
+        {
+          break;
+        }
+      }
+    }
+    finally
+    {
+      this.netIn.compact();
+    }
+    if(this.closed)
+    {
+      //nothing is read once we are closed
+      this.incoming.clear();
+      this.readFrom = 0;
+    }
+    else if(progress)
+    {
+      this.notifyAll();
+    }
+    return progress;
+  }
+  
+  /*
+   * Seals what was written to us into records, as long as there is room for
+   * a whole record. Once we are closed and everything written is sealed, the
+   * engine is told to send its close notification. What was written is
+   * sealed from where the last call stopped, so it is only ever moved when a
+   * writer runs out of room.
+   */
+  private boolean wrap() throws SSLException
+  {
+    if(this.engine.isOutboundDone())
+    {
+      return false;
+    }
+    int end = this.outgoing.position();
+    if(this.closed && end == this.sealFrom)
+    {
+      this.engine.closeOutbound();
+    }
+    boolean progress = false;
+    this.outgoing.flip();
+    this.outgoing.position(this.sealFrom);
+    try
+    {
+      while(this.outgoing.hasRemaining() ||
+        this.engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP)
+      {
+        if(this.netOut == null)
+        {
+          this.netOut = this.pool.acquire();
+        }
+        if(this.netOut.remaining() < this.packetBytes)
+        {
+          break;
+        }
+        SSLEngineResult result = this.engine.wrap(this.outgoing,
+          this.netOut);
+        this.handshake(result);
+        if(result.bytesConsumed() == 0 && result.bytesProduced() == 0)
+        {
+          break;
+        }
+        progress = true;
+        if(result.getStatus() == SSLEngineResult.Status.CLOSED)
+        {
+          break;
+        }
+      }
+    }
+    finally
+    {
+      this.sealFrom = this.outgoing.position();
+      this.outgoing.limit(this.outgoing.capacity());
+      this.outgoing.position(end);
+      if(this.sealFrom == end)
+      {
+        this.outgoing.clear();
+        this.sealFrom = 0;
+      }
+    }
+    if(this.netOut != null && this.netOut.position() == 0)
+    {
+      this.pool.release(this.netOut);
+      this.netOut = null;
+    }
+    if(progress)
+    {
+      this.notifyAll();
+    }
+    return progress;
+  }
+  
+  /*
+   * Hands us out once our handshake is done.
+   */
+  private void handshake(SSLEngineResult result)
+  {
+    if(!this.handshaken &&
+      result.getHandshakeStatus() == HandshakeStatus.FINISHED)
+    {
+      this.handshaken = true;
+      this.listener.handshaken(this);
+    }
+  }
+  
+  private synchronized int read(byte[] b, int off, int len) throws IOException
+  {
+    if(len == 0)
+    {
+      return 0;
+    }
+    long deadline = System.currentTimeMillis() + this.readTimeout;
+    while(this.incoming.position() == this.readFrom && !this.ended &&
+      !this.closed)
+    {
+      long left = deadline - System.currentTimeMillis();
+      if(this.readTimeout > 0 && left <= 0L)
+      {
+        throw new SocketTimeoutException("Read timed out");
+      }
+      try
+      {
+        this.wait((this.readTimeout > 0) ? left : 0L);
+      }
+      catch(InterruptedException ie)
+      {
+        throw new InterruptedIOException("Read interrupted");
+      }
+    }
+    if(this.closed)
+    {
+      throw new SocketException("Socket closed");
+    }
+    int waiting = this.incoming.position() - this.readFrom;
+    if(waiting == 0)
+    {
+      if(this.failure != null)
+      {
+        throw this.failure;
+      }
+      return -1;
+    }
+    boolean paused = waiting >= TLSConstants.RECEIVE_BUFFER_BYTES ||
+      this.incoming.remaining() < this.applicationBytes;
+    int count = Math.min(len, waiting);
+    System.arraycopy(this.incoming.array(), this.readFrom, b, off, count);
+    this.readFrom += count;
+    if(this.readFrom == this.incoming.position())
+    {
+      this.incoming.clear();
+      this.readFrom = 0;
+    }
+    if(paused)
+    {
+      this.listener.wakeup();
+    }
+    return count;
+  }
+  
+  private synchronized int available()
+  {
+    return this.incoming.position() - this.readFrom;
+  }
+  
+  private synchronized void write(byte[] b, int off, int len)
+    throws IOException
+  {
+    while(len > 0)
+    {
+      while(true)
+      {
+        if(!this.outgoing.hasRemaining() && this.sealFrom > 0)
+        {
+          this.outgoing.flip();
+          this.outgoing.position(this.sealFrom);
+          this.outgoing.compact();
+          this.sealFrom = 0;
+        }
+        if(this.closed || this.failure != null ||
+          this.engine.isOutboundDone() || this.outgoing.hasRemaining())
+        {
+          break;
+        }
+        try
+        {
+          this.wait();
+        }
+        catch(InterruptedException ie)
+        {
+          throw new InterruptedIOException("Write interrupted");
+        }
+      }
+      if(this.closed)
+      {
+        throw new SocketException("Socket closed");
+      }
+      if(this.failure != null)
+      {
+        throw this.failure;
+      }
+      if(this.engine.isOutboundDone())
+      {
+        throw new SocketException("Connection closed by the client");
+      }
+      boolean idle = this.outgoing.position() == this.sealFrom;
+      int count = Math.min(len, this.outgoing.remaining());
+      this.outgoing.put(b, off, count);
+      off += count;
+      len -= count;
+      if(idle)
+      {
+        this.listener.wakeup();
+      }
+    }
+  }
+  
+  private class TLSInputStream extends InputStream
+  {
+    @Override
+    public int read() throws IOException
+    {
+      byte[] b = new byte[1];
+      return (TLSConnection.this.read(b, 0, 1) < 0) ? -1 : (b[0] & 0xFF);
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      return TLSConnection.this.read(b, off, len);
+    }
+    
+    @Override
+    public int available()
+    {
+      return TLSConnection.this.available();
+    }
+    
+    @Override
+    public void close()
+    {
+      TLSConnection.this.close();
+    }
+  }
+  
+  private class TLSOutputStream extends OutputStream
+  {
+    @Override
+    public void write(int b) throws IOException
+    {
+      TLSConnection.this.write(new byte[] {(byte)b}, 0, 1);
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      TLSConnection.this.write(b, off, len);
+    }
+    
+    @Override
+    public void close()
+    {
+      TLSConnection.this.close();
+    }
+  }
+}
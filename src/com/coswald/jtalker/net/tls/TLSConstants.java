@@ -0,0 +1,115 @@
+/*
+ * TLSConstants.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.tls;
+
+/**
+ * <p>A set of descriptions for specific constants used when talking to
+ * clients over TLS. Just like the other constants classes, this class is a
+ * utility class and cannot be extended.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class TLSConstants
+{
+  /**
+   * The protocol every context is made for ({@value}), which lets the two
+   * ends agree on the newest version of TLS both speak.
+   */
+  public static final String PROTOCOL = "TLS";
+  
+  /**
+   * The type of the key and trust stores read ({@value}).
+   */
+  public static final String KEY_STORE_TYPE = "PKCS12";
+  
+  /**
+   * The algorithm a client checks the name of the server it connects to with
+   * ({@value}), which checks it against the names in the server's
+   * certificate.
+   */
+  public static final String ENDPOINT_IDENTIFICATION = "HTTPS";
+  
+  /**
+   * How many sessions a server keeps for clients to resume. This is
+   * currently set to {@value}.
+   */
+  public static final int SESSION_CACHE_SIZE = 4096;
+  
+  /**
+   * How long, in seconds, a session may be resumed for. This is currently set
+   * to {@value} (a day).
+   */
+  public static final int SESSION_TIMEOUT_SECONDS = 24 * 60 * 60;
+  
+  /**
+   * How many records one network buffer holds. This is currently set to
+   * {@value}.
+   */
+  public static final int NETWORK_BUFFER_RECORDS = 4;
+  
+  /**
+   * The most network buffers kept in a pool while no connection needs them.
+   * This is currently set to {@value}.
+   */
+  public static final int POOLED_BUFFERS = 64;
+  
+  /**
+   * The most bytes waiting to be sent to one connection. A line written to a
+   * connection that has no room waits for it, just as one written to a
+   * socket with a full send buffer does. This is currently set to {@value}.
+   */
+  public static final int SEND_BUFFER_BYTES = 256 * 1024;
+  
+  /**
+   * The most bytes received from one connection that wait to be read. Once
+   * there are more, we stop reading from the connection until they are. This
+   * is currently set to {@value}.
+   */
+  public static final int RECEIVE_BUFFER_BYTES = 256 * 1024;
+  
+  /**
+   * How long, in milliseconds, a connection may take to finish its
+   * handshake. This is currently set to {@value}.
+   */
+  public static final long HANDSHAKE_MILLIS = 10000L;
+  
+  /**
+   * How long, in milliseconds, a closed connection is given to send what it
+   * still holds. This is currently set to {@value}.
+   */
+  public static final long LINGER_MILLIS = 2000L;
+  
+  /**
+   * How long, in milliseconds, the selector waits at most before checking on
+   * closed connections again. This is currently set to {@value}.
+   */
+  public static final long SELECT_MILLIS = 250L;
+  
+  /**
+   * How long, in milliseconds, an accept waits before checking whether the
+   * listener was closed. This is currently set to {@value}.
+   */
+  public static final long ACCEPT_MILLIS = 1000L;
+  
+  private TLSConstants() {}
+}
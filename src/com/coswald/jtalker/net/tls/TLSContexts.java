@@ -0,0 +1,109 @@
+/*
+ * TLSContexts.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.tls;
+
+import com.coswald.jtalker.net.tls.TLSConstants;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * <p>Makes the {@link javax.net.ssl.SSLContext SSLContext}s a server and its
+ * clients talk over TLS with, from
+ * {@value com.coswald.jtalker.net.tls.TLSConstants#KEY_STORE_TYPE} files. A
+ * context keeps the sessions made through it, so every connection made
+ * through the same context may resume one of them instead of doing a full
+ * handshake. This class is a utility class and cannot be extended.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class TLSContexts
+{
+  /**
+   * Makes a context for a server, which presents the key and certificate in
+   * the given key store.
+   * @param keyStore The key store.
+   * @param password The password of the key store and of its key.
+   * @return The context.
+   * @throws IOException If the key store could not be read.
+   * @throws GeneralSecurityException If the key could not be used.
+   */
+  public static SSLContext server(File keyStore, char[] password)
+    throws IOException, GeneralSecurityException
+  {
+    KeyManagerFactory keys = KeyManagerFactory.getInstance(
+      KeyManagerFactory.getDefaultAlgorithm());
+    keys.init(load(keyStore, password), password);
+    SSLContext context = SSLContext.getInstance(TLSConstants.PROTOCOL);
+    context.init(keys.getKeyManagers(), null, null);
+    SSLSessionContext sessions = context.getServerSessionContext();
+    sessions.setSessionCacheSize(TLSConstants.SESSION_CACHE_SIZE);
+    sessions.setSessionTimeout(TLSConstants.SESSION_TIMEOUT_SECONDS);
+    return context;
+  }
+  
+  /**
+   * Makes a context for a client, which trusts the certificates in the given
+   * trust store.
+   * @param trustStore The trust store, or {@code null} to trust what the
+   *  system does.
+   * @param password The password of the trust store.
+   * @return The context.
+   * @throws IOException If the trust store could not be read.
+   * @throws GeneralSecurityException If the certificates could not be used.
+   */
+  public static SSLContext client(File trustStore, char[] password)
+    throws IOException, GeneralSecurityException
+  {
+    TrustManagerFactory trust = TrustManagerFactory.getInstance(
+      TrustManagerFactory.getDefaultAlgorithm());
+    trust.init((trustStore == null) ? null : load(trustStore, password));
+    SSLContext context = SSLContext.getInstance(TLSConstants.PROTOCOL);
+    context.init(null, trust.getTrustManagers(), null);
+    SSLSessionContext sessions = context.getClientSessionContext();
+    sessions.setSessionTimeout(TLSConstants.SESSION_TIMEOUT_SECONDS);
+    return context;
+  }
+  
+  private static KeyStore load(File file, char[] password)
+    throws IOException, GeneralSecurityException
+  {
+    KeyStore store = KeyStore.getInstance(TLSConstants.KEY_STORE_TYPE);
+    try(InputStream in = new FileInputStream(file))
+    {
+      store.load(in, password);
+    }
+    return store;
+  }
+  
+  private TLSContexts() {}
+}
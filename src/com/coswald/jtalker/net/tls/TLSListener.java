@@ -0,0 +1,297 @@
+/*
+ * TLSListener.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.tls;
+
+import com.coswald.jtalker.net.tls.BufferPool;
+import com.coswald.jtalker.net.tls.TLSConnection;
+import com.coswald.jtalker.net.tls.TLSConstants;
+import com.coswald.jtalker.net.transport.TransportListener;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+/**
+ * <p>A port clients connect to over TLS. Much like a
+ * {@link java.net.ServerSocket ServerSocket}, a listener
+ * {@link #accept() accepts} connections, each of which is handed out as a
+ * {@link com.coswald.jtalker.net.tls.TLSConnection TLSConnection} once its
+ * handshake is done.</p>
+ * <p>Every connection is read from, written to and run through its
+ * {@link javax.net.ssl.SSLEngine SSLEngine} by one thread, through a
+ * {@link java.nio.channels.Selector Selector}; only the threads that read and
+ * write lines wait on a connection, never the one that does its I/O. The work
+ * a handshake hands off is done by that thread too. The sessions of the
+ * context given are kept by it, so a client that connects again through the
+ * same context of its own resumes its session instead of doing a full
+ * handshake.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public class TLSListener implements TransportListener
+{
+  private SSLContext context;
+  private ServerSocketChannel server;
+  private Selector selector;
+  private BufferPool pool;
+  private BlockingQueue<TLSConnection> accepted;
+  private Set<TLSConnection> connections;
+  
+  /**
+   * Constructs a listener bound to the given port.
+   * @param port The port to bind to, or 0 for any free one.
+   * @param context The context that holds our key and certificate.
+   * @throws IOException If the port could not be bound.
+   */
+  public TLSListener(int port, SSLContext context) throws IOException
+  {
+    this.context = context;
+    this.accepted = new LinkedBlockingQueue<TLSConnection>();
+    this.connections = Collections.newSetFromMap(
+      new ConcurrentHashMap<TLSConnection, Boolean>());
+    SSLEngine engine = context.createSSLEngine();
+    this.pool = new BufferPool(engine.getSession().getPacketBufferSize() *
+      TLSConstants.NETWORK_BUFFER_RECORDS, TLSConstants.POOLED_BUFFERS);
+    this.selector = Selector.open();
+    this.server = ServerSocketChannel.open();
+    try
+    {
+      this.server.bind(new InetSocketAddress(port));
+      this.server.configureBlocking(false);
+      this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+    }
+    catch(IOException i)
+    {
+      this.server.close();
+      this.selector.close();
+      throw i;
+    }
+    Thread t = new Thread(this::select, "JTalker TLS Selector");
+    t.setDaemon(true);
+    t.start();
+  }
+  
+  /**
+   * Waits for a client to connect and finish its handshake.
+   * @return The connection.
+   * @throws SocketException If we have been closed.
+   * @throws IOException If we were interrupted.
+   */
+  @Override
+  public TLSConnection accept() throws IOException
+  {
+    while(this.server.isOpen())
+    {
+      try
+      {
+        TLSConnection connection = this.accepted.poll(
+          TLSConstants.ACCEPT_MILLIS, TimeUnit.MILLISECONDS);
+        if(connection != null)
+        {
+          return connection;
+        }
+      }
+      catch(InterruptedException ie)
+      {
+        throw new SocketException("Accept interrupted");
+      }
+    }
+    throw new SocketException("Listener closed");
+  }
+  
+  /**
+   * Returns every connection that is still open.
+   * @return The connections.
+   */
+  public Collection<TLSConnection> getConnections()
+  {
+    return Collections.unmodifiableCollection(this.connections);
+  }
+  
+  /**
+   * Returns the pool the buffers records are read into and written from are
+   * taken from.
+   * @return The pool.
+   */
+  public BufferPool getBufferPool()
+  {
+    return this.pool;
+  }
+  
+  /**
+   * Returns the port we are bound to.
+   * @return The local port, or -1 if we are closed.
+   */
+  @Override
+  public int getLocalPort()
+  {
+    try
+    {
+      return ((InetSocketAddress)this.server.getLocalAddress()).getPort();
+    }
+    catch(IOException i)
+    {
+      return -1;
+    }
+  }
+  
+  /**
+   * Closes the port, and with it every connection.
+   * @throws IOException If the port could not be closed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.server.close();
+    this.selector.close();
+    for(TLSConnection connection : this.connections)
+    {
+      connection.fail(new SocketException("Listener closed"));
+      connection.channel().close();
+    }
+    this.connections.clear();
+  }
+  
+  /*
+   * Called by a connection once its handshake is done.
+   */
+  void handshaken(TLSConnection connection)
+  {
+    this.accepted.add(connection);
+  }
+  
+  /*
+   * Called by a connection once it has something to send, or room to read
+   * into again.
+   */
+  void wakeup()
+  {
+    this.selector.wakeup();
+  }
+  
+  private void select()
+  {
+    try
+    {
+      while(this.selector.isOpen())
+      {
+        this.update();
+        this.selector.select(TLSConstants.SELECT_MILLIS);
+        Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+        while(keys.hasNext())
+        {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if(key.isValid() && key.isAcceptable())
+          {
+            this.acceptChannel();
+            continue;
+          }
+          TLSConnection connection = (TLSConnection)key.attachment();
+          if(key.isValid() && key.isReadable())
+          {
+            connection.receive();
+          }
+          if(key.isValid() && key.isWritable())
+          {
+            connection.send();
+          }
+        }
+      }
+    }
+    catch(IOException | ClosedSelectorException e)
+    {
+      //we have been closed
+    }
+  }
+  
+  /*
+   * Seals what was written to every connection, closes the channels of
+   * finished connections, and has the selector wait on what every other
+   * connection needs.
+   */
+  private void update() throws IOException
+  {
+    long now = System.nanoTime();
+    for(SelectionKey key : this.selector.keys())
+    {
+      TLSConnection connection = (TLSConnection)key.attachment();
+      if(connection == null || !key.isValid())
+      {
+        continue;
+      }
+      connection.process();
+      if(connection.isFinished(now))
+      {
+        key.cancel();
+        key.channel().close();
+        connection.finish();
+        this.connections.remove(connection);
+      }
+      else
+      {
+        key.interestOps(connection.interest());
+      }
+    }
+  }
+  
+  private void acceptChannel() throws IOException
+  {
+    SocketChannel channel = this.server.accept();
+    if(channel == null)
+    {
+      return;
+    }
+    try
+    {
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+      SSLEngine engine = this.context.createSSLEngine();
+      engine.setUseClientMode(false);
+      TLSConnection connection = new TLSConnection(this, channel, engine,
+        this.pool);
+      channel.register(this.selector, SelectionKey.OP_READ, connection);
+      this.connections.add(connection);
+    }
+    catch(IOException | RuntimeException e)
+    {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * TLSTransport.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.tls;
+
+import com.coswald.jtalker.net.TLSClient;
+import com.coswald.jtalker.net.tls.TLSListener;
+import com.coswald.jtalker.net.transport.FrameCodec;
+import com.coswald.jtalker.net.transport.Transport;
+import com.coswald.jtalker.net.transport.UTFFrameCodec;
+
+import java.io.IOException;
+import java.net.Socket;
+
+import javax.net.ssl.SSLContext;
+
+/**
+ * <p>TLS, as a {@link com.coswald.jtalker.net.transport.Transport Transport}.
+ * A listener is a {@link com.coswald.jtalker.net.tls.TLSListener
+ * TLSListener}, and a connection is an {@link javax.net.ssl.SSLSocket
+ * SSLSocket} whose handshake is already done. Both are made through the same
+ * context, so a server must be given one that holds its key, and a client one
+ * that holds the certificates it trusts.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.tls.TLSContexts
+ */
+public class TLSTransport implements Transport
+{
+  private SSLContext context;
+  private FrameCodec codec;
+  
+  /**
+   * Constructs a transport that listens and connects through the given
+   * context.
+   * @param context The context.
+   * @throws IllegalArgumentException If the context is {@code null}.
+   */
+  public TLSTransport(SSLContext context)
+  {
+    if(context == null)
+    {
+      throw new IllegalArgumentException("TLS needs a context!");
+    }
+    this.context = context;
+    this.codec = new UTFFrameCodec();
+  }
+  
+  /**
+   * Returns the name of this transport, which is {@code TLS}.
+   * @return The name.
+   */
+  @Override
+  public String getName()
+  {
+    return "TLS";
+  }
+  
+  /**
+   * Makes a listener bound to the given port.
+   * @param port The port to listen on, or 0 for any free one.
+   * @return The listener.
+   * @throws IOException If the port could not be bound.
+   */
+  @Override
+  public TLSListener listen(int port) throws IOException
+  {
+    return new TLSListener(port, this.context);
+  }
+  
+  /**
+   * Opens a TLS connection to the given host and port, and finishes its
+   * handshake.
+   * @param host The host we are connecting to.
+   * @param port The port the listener listens on.
+   * @return The connected socket.
+   * @throws IOException If the connection could not be made, or the server
+   *  could not be trusted.
+   * @see com.coswald.jtalker.net.TLSClient#open(SSLContext, String, int)
+   */
+  @Override
+  public Socket connect(String host, int port) throws IOException
+  {
+    return TLSClient.open(this.context, host, port);
+  }
+  
+  /**
+   * Returns the codec of this transport, which is a
+   * {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec}.
+   * @return The codec.
+   */
+  @Override
+  public FrameCodec getCodec()
+  {
+    return this.codec;
+  }
+  
+  /**
+   * Returns the context we listen and connect through.
+   * @return The context.
+   */
+  public SSLContext getContext()
+  {
+    return this.context;
+  }
+}
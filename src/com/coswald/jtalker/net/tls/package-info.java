@@ -0,0 +1,36 @@
+/*
+ * package-info.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/**
+ * <p>Lets clients talk to a JTalker server over TLS. A
+ * {@link com.coswald.jtalker.net.tls.TLSListener TLSListener} accepts
+ * connections on a port of its own, and runs every one of them through an
+ * {@link javax.net.ssl.SSLEngine SSLEngine}, using one thread and a
+ * {@link java.nio.channels.Selector Selector} for all of them. Each is handed
+ * out as a {@link com.coswald.jtalker.net.tls.TLSConnection TLSConnection}
+ * once its handshake is done, and carries the same protocol as a TCP socket
+ * does. The contexts both ends need are made by
+ * {@link com.coswald.jtalker.net.tls.TLSContexts TLSContexts}.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+package com.coswald.jtalker.net.tls;
@@ -0,0 +1,61 @@
+/*
+ * FrameCodec.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.transport;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <p>How the lines sent between a client and a server are put into the
+ * stream of a connection. Every line (a chat message, or a
+ * {@link com.coswald.jtalker.net.ControlFrame control frame}) is one
+ * frame.</p>
+ * <p>A server reads and broadcasts frames as the
+ * {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec} does,
+ * for every client in a room at once, so the sockets of a transport a server
+ * accepts clients over must carry those frames. A transport whose own
+ * messages are framed some other way (as WebSockets are) turns them into
+ * those frames within its socket.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public interface FrameCodec
+{
+  /**
+   * Writes one frame.
+   * @param out Where to write the frame.
+   * @param frame The line the frame carries.
+   * @throws IOException If the frame could not be written.
+   */
+  void writeFrame(DataOutput out, String frame) throws IOException;
+  
+  /**
+   * Reads one frame, waiting for it if need be.
+   * @param in Where to read the frame from.
+   * @return The line the frame carries.
+   * @throws java.io.EOFException If the stream ended.
+   * @throws IOException If the frame could not be read.
+   */
+  String readFrame(DataInput in) throws IOException;
+}
@@ -0,0 +1,105 @@
+/*
+ * SocketListener.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.transport;
+
+import com.coswald.jtalker.net.transport.TransportListener;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * <p>A listener of a
+ * {@link com.coswald.jtalker.net.transport.SocketTransport SocketTransport},
+ * which accepts through a {@link java.net.ServerSocket ServerSocket}.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class SocketListener implements TransportListener
+{
+  private ServerSocket server;
+  private boolean shared;
+  
+  /**
+   * Constructs a listener that accepts through the given server socket, which
+   * must already be bound.
+   * @param server The server socket.
+   * @param shared Whether the server socket was bound with SO_REUSEPORT.
+   */
+  public SocketListener(ServerSocket server, boolean shared)
+  {
+    this.server = server;
+    this.shared = shared;
+  }
+  
+  /**
+   * Waits for a client to connect.
+   * @return The connection.
+   * @throws java.net.SocketException If we have been closed.
+   * @throws IOException If no connection could be accepted.
+   */
+  @Override
+  public Socket accept() throws IOException
+  {
+    return this.server.accept();
+  }
+  
+  /**
+   * Returns the port we listen on.
+   * @return The local port, or -1 if we are not bound.
+   */
+  @Override
+  public int getLocalPort()
+  {
+    return this.server.getLocalPort();
+  }
+  
+  /**
+   * Returns whether our port may be shared with other listeners.
+   * @return {@code true} if we were bound with SO_REUSEPORT.
+   */
+  public boolean isPortShared()
+  {
+    return this.shared;
+  }
+  
+  /**
+   * Returns whether we have been closed.
+   * @return {@code true} if we have been closed.
+   */
+  public boolean isClosed()
+  {
+    return this.server.isClosed();
+  }
+  
+  /**
+   * Closes our server socket. Any thread waiting in {@link #accept() accept}
+   * is woken with a {@link java.net.SocketException SocketException}.
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.server.close();
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * SocketTransport.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.transport;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.transport.FrameCodec;
+import com.coswald.jtalker.net.transport.SocketListener;
+import com.coswald.jtalker.net.transport.Transport;
+import com.coswald.jtalker.net.transport.UTFFrameCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+
+/**
+ * <p>The transport JTalker has always used: the blocking TCP sockets of
+ * {@code java.net}. A listener is a {@link java.net.ServerSocket ServerSocket}
+ * bound with a backlog of
+ * {@value com.coswald.jtalker.net.ServerClientConstants#ACCEPT_BACKLOG}, and
+ * a connection is a plain {@link java.net.Socket Socket}; frames are those of
+ * the {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec}.
+ * </p>
+ * <p>A transport may be made to {@link #SocketTransport(boolean) share} its
+ * ports, in which case every listener it makes is bound with SO_REUSEPORT, so
+ * that several of them may listen on the same port, and the kernel spreads
+ * the clients connecting over them.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class SocketTransport implements Transport
+{
+  private boolean sharePorts;
+  private FrameCodec codec;
+  
+  /**
+   * Constructs a transport whose listeners share their ports if asked to.
+   * Where sockets can not share a port (before Java 9, or on a system without
+   * SO_REUSEPORT), they are bound without, and say so through
+   * {@link com.coswald.jtalker.net.transport.SocketListener#isPortShared()
+   * isPortShared}.
+   * @param sharePorts Whether listeners should share their ports.
+   */
+  public SocketTransport(boolean sharePorts)
+  {
+    this.sharePorts = sharePorts;
+    this.codec = new UTFFrameCodec();
+  }
+  
+  /**
+   * Constructs a transport whose listeners do not share their ports.
+   */
+  public SocketTransport()
+  {
+    this(false);
+  }
+  
+  /**
+   * Returns the name of this transport, which is {@code TCP}.
+   * @return The name.
+   */
+  @Override
+  public String getName()
+  {
+    return "TCP";
+  }
+  
+  /**
+   * Binds a server socket to the given port.
+   * @param port The port to listen on, or 0 for any free one.
+   * @return The listener.
+   * @throws IOException If the port could not be bound.
+   */
+  @Override
+  public SocketListener listen(int port) throws IOException
+  {
+    ServerSocket server = new ServerSocket();
+    try
+    {
+      boolean shared = this.sharePorts && reusePort(server);
+      server.bind(new InetSocketAddress(port),
+        ServerClientConstants.ACCEPT_BACKLOG);
+      return new SocketListener(server, shared);
+    }
+    catch(IOException i)
+    {
+      server.close();
+      throw i;
+    }
+  }
+  
+  /**
+   * Opens a TCP socket to the given host and port.
+   * @param host The host we are connecting to.
+   * @param port The port the server listens on.
+   * @return The connected socket.
+   * @throws java.net.UnknownHostException If the host could not be found.
+   * @throws IOException If the socket could not be connected.
+   */
+  @Override
+  public Socket connect(String host, int port) throws IOException
+  {
+    return new Socket(host, port);
+  }
+  
+  /**
+   * Returns the codec of this transport, which is a
+   * {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec}.
+   * @return The codec.
+   */
+  @Override
+  public FrameCodec getCodec()
+  {
+    return this.codec;
+  }
+  
+  /**
+   * Returns whether listeners made by this transport share their ports.
+   * @return {@code true} if they are asked to.
+   */
+  public boolean isSharingPorts()
+  {
+    return this.sharePorts;
+  }
+  
+  /*
+   * SO_REUSEPORT, and setting options on a ServerSocket, only exist from
+   * Java 9 on (and not on every system), so both are looked up when needed.
+   */
+  private static boolean reusePort(ServerSocket socket)
+  {
+    try
+    {
+      Object option = StandardSocketOptions.class.getField("SO_REUSEPORT")
+        .get(null);
+      ServerSocket.class.getMethod("setOption", SocketOption.class,
+        Object.class).invoke(socket, option, Boolean.TRUE);
+      return true;
+    }
+    catch(ReflectiveOperationException | RuntimeException e)
+    {
+      return false;
+    }
+  }
+}
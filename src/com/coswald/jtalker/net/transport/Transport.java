@@ -0,0 +1,84 @@
+/*
+ * Transport.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.transport;
+
+import com.coswald.jtalker.net.transport.FrameCodec;
+import com.coswald.jtalker.net.transport.TransportListener;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * <p>A way for a JTalker client to reach a server. A transport makes
+ * {@link #listen(int) listeners} for a server to accept connections through,
+ * and {@link #connect(String, int) connects} a client to one of them. Either
+ * way, a connection is handed out as a {@link java.net.Socket Socket}, whose
+ * streams carry frames as the {@link #getCodec() codec} of the transport
+ * writes them.</p>
+ * <p>Everything past the socket (joining a room, broadcasting a line, keeping
+ * the history) is done the same way for every transport, by a
+ * {@link com.coswald.jtalker.net.TCPClientInstance TCPClientInstance} on a
+ * server, and a {@link com.coswald.jtalker.net.TCPClient TCPClient} on a
+ * client.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.TCPServer#addTransport(Transport, int)
+ * @see com.coswald.jtalker.net.TCPClient#setTransport(Transport)
+ */
+public interface Transport
+{
+  /**
+   * Returns the name of this transport, as it is shown to the person running
+   * a server.
+   * @return The name.
+   */
+  String getName();
+  
+  /**
+   * Makes a listener that accepts connections over this transport on the
+   * given port.
+   * @param port The port to listen on, or 0 for any free one.
+   * @return The listener.
+   * @throws IOException If the port could not be listened on.
+   */
+  TransportListener listen(int port) throws IOException;
+  
+  /**
+   * Connects to a listener of this transport.
+   * @param host The host we are connecting to.
+   * @param port The port the listener listens on.
+   * @return The connected socket.
+   * @throws java.net.UnknownHostException If the host could not be found.
+   * @throws IOException If the connection could not be made.
+   * @throws UnsupportedOperationException If this transport only accepts
+   *  connections made by something other than a JTalker client.
+   */
+  Socket connect(String host, int port) throws IOException;
+  
+  /**
+   * Returns the codec that frames are written and read with on the sockets
+   * of this transport.
+   * @return The codec.
+   */
+  FrameCodec getCodec();
+}
@@ -0,0 +1,53 @@
+/*
+ * TransportListener.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * <p>Where a server accepts connections made over a
+ * {@link com.coswald.jtalker.net.transport.Transport Transport}. Much like a
+ * {@link java.net.ServerSocket ServerSocket}, a listener
+ * {@link #accept() accepts} connections one at a time, until it is
+ * {@link #close() closed}.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public interface TransportListener extends Closeable
+{
+  /**
+   * Waits for a client to connect.
+   * @return The connection.
+   * @throws java.net.SocketException If we have been closed.
+   * @throws IOException If no connection could be accepted.
+   */
+  Socket accept() throws IOException;
+  
+  /**
+   * Returns the port we listen on.
+   * @return The local port, or -1 if we are closed.
+   */
+  int getLocalPort();
+}
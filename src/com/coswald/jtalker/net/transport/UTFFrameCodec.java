@@ -0,0 +1,67 @@
+/*
+ * UTFFrameCodec.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.transport;
+
+import com.coswald.jtalker.net.transport.FrameCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <p>The frames JTalker has always sent: each line is written with
+ * {@link java.io.DataOutput#writeUTF(String) writeUTF}, as two bytes giving
+ * its length followed by the line in modified UTF-8. A frame may hold at most
+ * {@value com.coswald.jtalker.net.ServerClientConstants#MAX_FRAME_CHARACTERS}
+ * characters.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class UTFFrameCodec implements FrameCodec
+{
+  /**
+   * Writes one frame with {@code writeUTF}.
+   * @param out Where to write the frame.
+   * @param frame The line the frame carries.
+   * @throws java.io.UTFDataFormatException If the line is too long.
+   * @throws IOException If the frame could not be written.
+   */
+  @Override
+  public void writeFrame(DataOutput out, String frame) throws IOException
+  {
+    out.writeUTF(frame);
+  }
+  
+  /**
+   * Reads one frame with {@code readUTF}.
+   * @param in Where to read the frame from.
+   * @return The line the frame carries.
+   * @throws java.io.EOFException If the stream ended.
+   * @throws IOException If the frame could not be read.
+   */
+  @Override
+  public String readFrame(DataInput in) throws IOException
+  {
+    return in.readUTF();
+  }
+}
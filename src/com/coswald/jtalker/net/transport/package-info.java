@@ -0,0 +1,41 @@
+/*
+ * package-info.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/**
+ * <p>The ways a JTalker client and server may talk to each other. A
+ * {@link com.coswald.jtalker.net.transport.Transport Transport} opens
+ * connections to a server and makes
+ * {@link com.coswald.jtalker.net.transport.TransportListener listeners} that
+ * accept them, and every connection it makes is handed out as a
+ * {@link java.net.Socket Socket} carrying frames in the
+ * {@link com.coswald.jtalker.net.transport.FrameCodec codec} it names. A
+ * server hands every socket it accepts, over whichever transport, to the
+ * same {@link com.coswald.jtalker.net.TCPClientInstance TCPClientInstance},
+ * so a new transport only ever needs an implementation here (or within a
+ * package of its own) to take part in the rooms of a server. The blocking
+ * sockets of {@code java.net} are the
+ * {@link com.coswald.jtalker.net.transport.SocketTransport SocketTransport}.
+ * </p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+package com.coswald.jtalker.net.transport;
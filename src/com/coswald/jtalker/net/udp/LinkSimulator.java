@@ -0,0 +1,198 @@
+/*
+ * LinkSimulator.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.udp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Pretends to be a worse network than the one we are on, so the behaviour
+ * of a connection over a lossy, slow link can be seen locally. Every datagram
+ * sent through a {@link com.coswald.jtalker.net.udp.ReliableEndpoint
+ * ReliableEndpoint} that has a simulator is either dropped, with the given
+ * loss rate, or sent after the given latency plus a random share of the given
+ * jitter. As every datagram is delayed on its own, jitter may reorder
+ * them.</p>
+ * <p>The same simulator may be shared by several endpoints, and its
+ * {@link #drops() drops} and {@link #delay() delay} may be used to model
+ * other links the same way.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class LinkSimulator implements Closeable
+{
+  private double lossRate;
+  private long latency;
+  private long jitter;
+  private Random random;
+  private ScheduledExecutorService scheduler;
+  
+  /**
+   * Constructs a simulator with the given loss rate, latency and jitter.
+   * @param lossRate The share of datagrams to drop, between 0 and 1.
+   * @param latency How long, in milliseconds, every datagram is delayed.
+   * @param jitter The most time, in milliseconds, added to the latency of a
+   *  datagram at random.
+   * @throws IllegalArgumentException If the loss rate is not between 0 and 1,
+   *  or a time is negative.
+   */
+  public LinkSimulator(double lossRate, long latency, long jitter)
+  {
+    if(lossRate < 0.0 || lossRate > 1.0)
+    {
+      throw new IllegalArgumentException("The loss rate must be between 0 " +
+        "and 1!");
+    }
+    if(latency < 0L || jitter < 0L)
+    {
+      throw new IllegalArgumentException("Times can not be negative!");
+    }
+    this.lossRate = lossRate;
+    this.latency = latency;
+    this.jitter = jitter;
+    this.random = new Random();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r ->
+    {
+      Thread t = new Thread(r, "JTalker Link Simulator");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+  
+  /**
+   * Decides whether the next datagram is lost.
+   * @return {@code true} if it should be dropped.
+   */
+  public boolean drops()
+  {
+    return this.random.nextDouble() < this.lossRate;
+  }
+  
+  /**
+   * Decides how long the next datagram is delayed.
+   * @return The delay, in milliseconds.
+   */
+  public long delay()
+  {
+    return this.latency + ((this.jitter == 0L) ? 0L :
+      (long)(this.random.nextDouble() * (this.jitter + 1L)));
+  }
+  
+  /**
+   * Sends a datagram through the given channel, unless it is lost, once its
+   * delay has passed. The buffer is not used again by the caller.
+   * @param channel The channel to send through.
+   * @param datagram The datagram.
+   * @param target Where to send it.
+   */
+  public void send(DatagramChannel channel, ByteBuffer datagram,
+    SocketAddress target)
+  {
+    if(this.drops())
+    {
+      return;
+    }
+    long delay = this.delay();
+    Runnable send = () ->
+    {
+      try
+      {
+        channel.send(datagram, target);
+      }
+      catch(IOException i)
+      {
+        //a datagram that can not be sent is just another lost one
+      }
+    };
+    if(delay == 0L)
+    {
+      send.run();
+    }
+    else
+    {
+      try
+      {
+        this.scheduler.schedule(send, delay, TimeUnit.MILLISECONDS);
+      }
+      catch(RejectedExecutionException ree)
+      {
+        //we have been closed, so the datagram is lost
+      }
+    }
+  }
+  
+  /**
+   * Returns the share of datagrams dropped.
+   * @return The loss rate.
+   */
+  public double getLossRate()
+  {
+    return this.lossRate;
+  }
+  
+  /**
+   * Returns how long every datagram is delayed.
+   * @return The latency, in milliseconds.
+   */
+  public long getLatency()
+  {
+    return this.latency;
+  }
+  
+  /**
+   * Returns the most time added to the latency of a datagram at random.
+   * @return The jitter, in milliseconds.
+   */
+  public long getJitter()
+  {
+    return this.jitter;
+  }
+  
+  /**
+   * Drops every datagram still waiting to be sent.
+   */
+  @Override
+  public void close()
+  {
+    this.scheduler.shutdownNow();
+  }
+  
+  /**
+   * Returns a description of this simulator.
+   * @return The loss rate, latency and jitter.
+   */
+  @Override
+  public String toString()
+  {
+    return String.format("%.1f%% loss, %d+%d ms", this.lossRate * 100.0,
+      this.latency, this.jitter);
+  }
+}
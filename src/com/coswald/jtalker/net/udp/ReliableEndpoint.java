@@ -0,0 +1,499 @@
+/*
+ * ReliableEndpoint.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.udp;
+
+import com.coswald.jtalker.net.transport.TransportListener;
+import com.coswald.jtalker.net.udp.LinkSimulator;
+import com.coswald.jtalker.net.udp.ReliableSocket;
+import com.coswald.jtalker.net.udp.Segment;
+import com.coswald.jtalker.net.udp.UDPConstants;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * <p>A UDP port that reliable connections are made through. Much like a
+ * {@link java.net.ServerSocket ServerSocket}, an endpoint bound to a known
+ * port {@link #accept() accepts} connections from others, each of which is
+ * handed out as a {@link com.coswald.jtalker.net.udp.ReliableSocket
+ * ReliableSocket}; any endpoint may also {@link #connect(SocketAddress)
+ * connect} to another. Every connection is given a random identifier when it
+ * is opened, which every one of its datagrams carries, so any amount of
+ * connections share the one port.</p>
+ * <p>An endpoint that accepts connections keeps nothing for a SYN until it
+ * comes back with a cookie: a keyed hash of where it came from, its
+ * connection and the time, given out in answer to the first one. So a SYN
+ * sent from an address it never came from (whose cookie never reaches the
+ * sender), or sent again long after, opens nothing. At most
+ * {@value com.coswald.jtalker.net.udp.UDPConstants#ACCEPT_BACKLOG}
+ * connections wait to be accepted, and at most
+ * {@value com.coswald.jtalker.net.udp.UDPConstants#MAX_CONNECTIONS_PER_HOST}
+ * are open from any one host; a SYN beyond either is ignored, and so asked
+ * again later.</p>
+ * <p>Each endpoint has a thread that receives datagrams and hands them to
+ * their connections, and a timer that checks the retransmission timers of
+ * every connection every
+ * {@value com.coswald.jtalker.net.udp.UDPConstants#TIMER_MILLIS}
+ * milliseconds. A connection is forgotten once it is done, and an endpoint
+ * made just for one connection (see
+ * {@link #open(String, int, LinkSimulator) open}) is closed with it.</p>
+ * <p>If a {@link com.coswald.jtalker.net.udp.LinkSimulator LinkSimulator} is
+ * set, every datagram this endpoint sends goes through it.</p>
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ */
+public class ReliableEndpoint implements TransportListener
+{
+  private DatagramChannel channel;
+  private Map<Long, ReliableSocket> sockets;
+  private BlockingQueue<ReliableSocket> accepted;
+  private Mac cookies;
+  private ScheduledExecutorService timer;
+  private volatile LinkSimulator simulator;
+  private volatile boolean owned;
+  
+  /**
+   * Constructs an endpoint bound to the given port, which accepts
+   * connections.
+   * @param port The port to bind to.
+   * @throws IOException If the port could not be bound.
+   */
+  public ReliableEndpoint(int port) throws IOException
+  {
+    this(new InetSocketAddress(port), true);
+  }
+  
+  /**
+   * Constructs an endpoint bound to any free port, which only makes
+   * connections of its own.
+   * @throws IOException If no port could be bound.
+   */
+  public ReliableEndpoint() throws IOException
+  {
+    this(new InetSocketAddress(0), false);
+  }
+  
+  private ReliableEndpoint(InetSocketAddress local, boolean accepting)
+    throws IOException
+  {
+    this.sockets = new ConcurrentHashMap<Long, ReliableSocket>();
+    this.accepted = accepting ? new LinkedBlockingQueue<ReliableSocket>(
+      UDPConstants.ACCEPT_BACKLOG) : null;
+    if(accepting)
+    {
+      byte[] key = new byte[32];
+      new SecureRandom().nextBytes(key);
+      try
+      {
+        this.cookies = Mac.getInstance("HmacSHA256");
+        this.cookies.init(new SecretKeySpec(key, "HmacSHA256"));
+      }
+      catch(GeneralSecurityException gse)
+      {
+        //every Java platform is required to have HmacSHA256
+        throw new IllegalStateException(gse);
+      }
+    }
+    this.channel = DatagramChannel.open();
+    try
+    {
+      this.channel.bind(local);
+    }
+    catch(IOException i)
+    {
+      this.channel.close();
+      throw i;
+    }
+    this.timer = Executors.newSingleThreadScheduledExecutor(r ->
+    {
+      Thread t = new Thread(r, "JTalker UDP Timer");
+      t.setDaemon(true);
+      return t;
+    });
+    this.timer.scheduleAtFixedRate(this::tick, UDPConstants.TIMER_MILLIS,
+      UDPConstants.TIMER_MILLIS, TimeUnit.MILLISECONDS);
+    Thread t = new Thread(this::receive, "JTalker UDP Receiver");
+    t.setDaemon(true);
+    t.start();
+  }
+  
+  /**
+   * Opens a connection to the given host and port through an endpoint made
+   * just for it, which is closed once the connection is done.
+   * @param host The host to connect to.
+   * @param port The port it accepts connections on.
+   * @param simulator The simulator to send datagrams through (may be
+   *  {@code null}).
+   * @return The connection.
+   * @throws UnknownHostException If the host could not be found.
+   * @throws IOException If the connection could not be made.
+   */
+  public static ReliableSocket open(String host, int port,
+    LinkSimulator simulator) throws IOException
+  {
+    InetSocketAddress address = new InetSocketAddress(host, port);
+    if(address.isUnresolved())
+    {
+      throw new UnknownHostException(host);
+    }
+    ReliableEndpoint endpoint = new ReliableEndpoint();
+    endpoint.setSimulator(simulator);
+    try
+    {
+      ReliableSocket socket = endpoint.connect(address);
+      endpoint.owned = true;
+      return socket;
+    }
+    catch(IOException i)
+    {
+      endpoint.close();
+      throw i;
+    }
+  }
+  
+  /**
+   * Waits for a connection from another endpoint.
+   * @return The connection.
+   * @throws SocketException If we do not accept connections, or have been
+   *  closed.
+   * @throws IOException If we were interrupted.
+   */
+  @Override
+  public ReliableSocket accept() throws IOException
+  {
+    if(this.accepted == null)
+    {
+      throw new SocketException("This endpoint does not accept connections");
+    }
+    while(this.channel.isOpen())
+    {
+      try
+      {
+        ReliableSocket socket = this.accepted.poll(
+          UDPConstants.CONNECT_MILLIS, TimeUnit.MILLISECONDS);
+        if(socket != null)
+        {
+          return socket;
+        }
+      }
+      catch(InterruptedException ie)
+      {
+        throw new SocketException("Accept interrupted");
+      }
+    }
+    throw new SocketException("Endpoint closed");
+  }
+  
+  /**
+   * Opens a connection to another endpoint, waiting up to
+   * {@value com.coswald.jtalker.net.udp.UDPConstants#CONNECT_MILLIS}
+   * milliseconds for it to be accepted.
+   * @param address The address of the other endpoint.
+   * @return The connection.
+   * @throws IOException If the connection was not accepted in time.
+   */
+  public ReliableSocket connect(SocketAddress address) throws IOException
+  {
+    long connection;
+    do
+    {
+      connection = ThreadLocalRandom.current().nextLong();
+    } while(connection == 0L || this.sockets.containsKey(connection));
+    ReliableSocket socket = new ReliableSocket(this, address, connection,
+      false);
+    this.sockets.put(connection, socket);
+    try
+    {
+      socket.connect(System.currentTimeMillis() +
+        UDPConstants.CONNECT_MILLIS);
+    }
+    catch(IOException i)
+    {
+      this.sockets.remove(connection);
+      throw i;
+    }
+    return socket;
+  }
+  
+  /**
+   * Sets the simulator every datagram is sent through.
+   * @param simulator The simulator, or {@code null} to send datagrams
+   *  straight away.
+   */
+  public void setSimulator(LinkSimulator simulator)
+  {
+    this.simulator = simulator;
+  }
+  
+  /**
+   * Returns the simulator every datagram is sent through.
+   * @return The simulator, or {@code null} if there is none.
+   */
+  public LinkSimulator getSimulator()
+  {
+    return this.simulator;
+  }
+  
+  /**
+   * Returns the connections of this endpoint that are not done yet.
+   * @return The connections.
+   */
+  public Collection<ReliableSocket> getSockets()
+  {
+    return Collections.unmodifiableCollection(
+      new ArrayList<ReliableSocket>(this.sockets.values()));
+  }
+  
+  /**
+   * Returns the local address we are bound to.
+   * @return The local address.
+   */
+  public InetAddress getLocalAddress()
+  {
+    try
+    {
+      return ((InetSocketAddress)this.channel.getLocalAddress()).getAddress();
+    }
+    catch(IOException i)
+    {
+      return null;
+    }
+  }
+  
+  /**
+   * Returns the local port we are bound to.
+   * @return The local port, or -1 if we are closed.
+   */
+  @Override
+  public int getLocalPort()
+  {
+    try
+    {
+      return ((InetSocketAddress)this.channel.getLocalAddress()).getPort();
+    }
+    catch(IOException i)
+    {
+      return -1;
+    }
+  }
+  
+  /**
+   * Closes the port, and with it every connection that is not done yet.
+   * @throws IOException If the channel could not be closed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.timer.shutdownNow();
+    for(ReliableSocket socket : this.sockets.values())
+    {
+      socket.fail(new SocketException("Endpoint closed"));
+    }
+    this.sockets.clear();
+    this.channel.close();
+  }
+  
+  /*
+   * Sends a segment, through the simulator if there is one.
+   */
+  void send(Segment segment, SocketAddress target)
+  {
+    LinkSimulator current = this.simulator;
+    try
+    {
+      if(current != null)
+      {
+        current.send(this.channel, segment.toBuffer(), target);
+      }
+      else
+      {
+        this.channel.send(segment.toBuffer(), target);
+      }
+    }
+    catch(IOException i)
+    {
+      //a datagram that can not be sent is just another lost one
+    }
+  }
+  
+  private void receive()
+  {
+    ByteBuffer buffer = ByteBuffer.allocate(UDPConstants.MAX_DATAGRAM_BYTES);
+    while(this.channel.isOpen())
+    {
+      SocketAddress source;
+      try
+      {
+        buffer.clear();
+        source = this.channel.receive(buffer);
+      }
+      catch(IOException i)
+      {
+        continue;
+      }
+      buffer.flip();
+      Segment segment = Segment.parse(buffer);
+      if(segment != null)
+      {
+        this.received(segment, source);
+      }
+    }
+  }
+  
+  private void received(Segment segment, SocketAddress source)
+  {
+    ReliableSocket socket = this.sockets.get(segment.connection);
+    if(socket == null)
+    {
+      if(segment.type == UDPConstants.SYN && this.accepted != null &&
+        this.channel.isOpen())
+      {
+        this.accept(segment, source);
+      }
+      else if(segment.type != UDPConstants.RESET &&
+        segment.type != UDPConstants.SYN)
+      {
+        this.send(Segment.control(UDPConstants.RESET, segment.connection),
+          source);
+      }
+    }
+    else if(source.equals(socket.getRemoteSocketAddress()))
+    {
+      if(segment.type == UDPConstants.SYN)
+      {
+        this.send(Segment.control(UDPConstants.SYN_ACK, segment.connection),
+          source);
+      }
+      else
+      {
+        socket.received(segment);
+      }
+    }
+  }
+  
+  /*
+   * Only the receiving thread adds to the backlog, so there is still room in
+   * it once we have checked.
+   */
+  private void accept(Segment segment, SocketAddress source)
+  {
+    long cookie = this.cookie(source, segment.connection, 0L);
+    if(segment.sequence != cookie &&
+      segment.sequence != this.cookie(source, segment.connection, 1L))
+    {
+      this.send(Segment.handshake(UDPConstants.COOKIE, segment.connection,
+        cookie), source);
+    }
+    else if(this.accepted.remainingCapacity() > 0 &&
+      this.openFrom(source) < UDPConstants.MAX_CONNECTIONS_PER_HOST)
+    {
+      ReliableSocket socket = new ReliableSocket(this, source,
+        segment.connection, true);
+      this.sockets.put(segment.connection, socket);
+      this.send(Segment.control(UDPConstants.SYN_ACK, segment.connection),
+        source);
+      this.accepted.add(socket);
+    }
+  }
+  
+  /*
+   * The cookie for a SYN from the given address for the given connection,
+   * made the given amount of periods ago. No cookie is ever 0, since that
+   * is what a SYN without one holds.
+   */
+  private long cookie(SocketAddress source, long connection, long age)
+  {
+    InetSocketAddress from = (InetSocketAddress)source;
+    long period = System.currentTimeMillis() / UDPConstants.COOKIE_MILLIS -
+      age;
+    this.cookies.update(from.getAddress().getAddress());
+    ByteBuffer buffer = ByteBuffer.allocate(20);
+    buffer.putInt(from.getPort()).putLong(connection).putLong(period);
+    this.cookies.update(buffer.array());
+    long cookie = ByteBuffer.wrap(this.cookies.doFinal()).getLong();
+    return (cookie == 0L) ? 1L : cookie;
+  }
+  
+  private int openFrom(SocketAddress source)
+  {
+    InetAddress host = ((InetSocketAddress)source).getAddress();
+    int open = 0;
+    for(ReliableSocket socket : this.sockets.values())
+    {
+      if(!socket.isClosed() && host.equals(
+        ((InetSocketAddress)socket.getRemoteSocketAddress()).getAddress()))
+      {
+        open++;
+      }
+    }
+    return open;
+  }
+  
+  private void tick()
+  {
+    long now = System.nanoTime();
+    Iterator<ReliableSocket> iterator = this.sockets.values().iterator();
+    while(iterator.hasNext())
+    {
+      ReliableSocket socket = iterator.next();
+      socket.tick(now);
+      if(socket.isFinished(now))
+      {
+        iterator.remove();
+      }
+    }
+    if(this.owned && this.sockets.isEmpty())
+    {
+      try
+      {
+        this.close();
+      }
+      catch(IOException i)
+      {
+        //Do NOTHING
+      }
+    }
+  }
+}
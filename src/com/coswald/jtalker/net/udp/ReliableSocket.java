@@ -0,0 +1,917 @@
+/*
+ * ReliableSocket.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.udp;
+
+import com.coswald.jtalker.net.udp.ReliableEndpoint;
+import com.coswald.jtalker.net.udp.Segment;
+import com.coswald.jtalker.net.udp.UDPConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>One end of a connection made through a
+ * {@link com.coswald.jtalker.net.udp.ReliableEndpoint ReliableEndpoint}. This
+ * is made to look like a {@link java.net.Socket Socket}, so anything written
+ * for TCP (such as a
+ * {@link com.coswald.jtalker.net.TCPClientInstance TCPClientInstance}) can be
+ * handed one unchanged. Only its streams, its read timeout, its addresses and
+ * closing it act like those of a socket; options meant for TCP are not
+ * supported.</p>
+ * <p>Whatever is written is cut into segments of at most
+ * {@value com.coswald.jtalker.net.udp.UDPConstants#MAX_SEGMENT_BYTES} bytes,
+ * and each is given a sequence number. The receiver acknowledges every
+ * segment with the first sequence number it is still missing, along with the
+ * ranges it has received beyond it (selective acknowledgements), so a lost
+ * segment is sent again on its own, instead of along with everything after
+ * it. A segment is deemed lost once a segment sent a while after it (a
+ * quarter of the round trip time, so that segments merely reordered on the
+ * way are not sent twice) has been acknowledged, or once its timer runs out;
+ * the timer follows the measured round trip time just as the one of TCP
+ * does. How many
+ * segments are in flight is kept within a congestion window, which grows with
+ * every acknowledgement, is halved on a loss, and shrinks to one segment when
+ * a timer runs out, as well as within the room the receiver has left.</p>
+ * <p>The reader is handed the bytes in order, as the chat lines within them
+ * have to be. A lost segment therefore still holds back the ones after it
+ * from the reader, but not from the network: they keep being sent and
+ * acknowledged, so a loss costs a round trip rather than the window.</p>
+ * @author C. William Oswald
+ * @version 0.0.3
+ * @since JTalker 0.3.0
+ */
+public class ReliableSocket extends Socket
+{
+  private static final long NANOS_PER_MILLI = 1000000L;
+  
+  private ReliableEndpoint endpoint;
+  private SocketAddress remote;
+  private long connection;
+  private boolean connected;
+  private long cookie;
+  private boolean closed;
+  private long closedAt;
+  private IOException failure;
+  private int readTimeout;
+  private InputStream input;
+  private OutputStream output;
+  
+  private TreeMap<Long, Outgoing> unacked;
+  private ArrayDeque<byte[]> queued;
+  private long nextSequence;
+  private long acknowledged;
+  private long newestDelivered;
+  private int peerWindow;
+  private double window;
+  private double threshold;
+  private long recovery;
+  private double smoothed;
+  private double variance;
+  private long timeout;
+  private long sent;
+  private long retransmitted;
+  
+  private long expected;
+  private TreeMap<Long, byte[]> outOfOrder;
+  private ArrayDeque<byte[]> readable;
+  private int readOffset;
+  private boolean ended;
+  private boolean windowClosed;
+  
+  /*
+   * A socket we accepted is connected from the start; one we open is not
+   * until the other end answers.
+   */
+  ReliableSocket(ReliableEndpoint endpoint, SocketAddress remote,
+    long connection, boolean accepted)
+  {
+    this.endpoint = endpoint;
+    this.remote = remote;
+    this.connection = connection;
+    this.connected = accepted;
+    this.input = new ReliableInputStream();
+    this.output = new ReliableOutputStream();
+    
+    this.unacked = new TreeMap<Long, Outgoing>();
+    this.queued = new ArrayDeque<byte[]>();
+    this.peerWindow = UDPConstants.MAX_WINDOW;
+    this.window = UDPConstants.INITIAL_WINDOW;
+    this.threshold = UDPConstants.MAX_WINDOW;
+    this.smoothed = -1.0;
+    this.timeout = UDPConstants.INITIAL_TIMEOUT_MILLIS;
+    
+    this.outOfOrder = new TreeMap<Long, byte[]>();
+    this.readable = new ArrayDeque<byte[]>();
+  }
+  
+  /**
+   * Returns the stream of bytes sent by the other end.
+   * @return The input stream.
+   * @throws IOException If we are closed.
+   */
+  @Override
+  public InputStream getInputStream() throws IOException
+  {
+    if(this.isClosed())
+    {
+      throw new SocketException("Socket is closed");
+    }
+    return this.input;
+  }
+  
+  /**
+   * Returns the stream of bytes sent to the other end.
+   * @return The output stream.
+   * @throws IOException If we are closed.
+   */
+  @Override
+  public OutputStream getOutputStream() throws IOException
+  {
+    if(this.isClosed())
+    {
+      throw new SocketException("Socket is closed");
+    }
+    return this.output;
+  }
+  
+  /**
+   * Closes this end of the connection. Anything already written is still
+   * delivered, followed by the end of the stream; anything the other end
+   * sends from now on is thrown away.
+   */
+  @Override
+  public synchronized void close()
+  {
+    if(this.closed)
+    {
+      return;
+    }
+    this.closed = true;
+    this.closedAt = System.nanoTime();
+    this.readable.clear();
+    if(this.connected && this.failure == null)
+    {
+      this.queued.add(new byte[0]);
+      this.flush();
+    }
+    this.notifyAll();
+  }
+  
+  /**
+   * Returns whether this end of the connection has been closed.
+   * @return {@code true} if it has.
+   */
+  @Override
+  public synchronized boolean isClosed()
+  {
+    return this.closed;
+  }
+  
+  /**
+   * Returns whether we are connected, which we always are once we have been
+   * handed out.
+   * @return {@code true}.
+   */
+  @Override
+  public boolean isConnected()
+  {
+    return true;
+  }
+  
+  /**
+   * Returns whether we are bound to a local address, which we always are.
+   * @return {@code true}.
+   */
+  @Override
+  public boolean isBound()
+  {
+    return true;
+  }
+  
+  /**
+   * Returns the address of the other end.
+   * @return The remote address.
+   */
+  @Override
+  public InetAddress getInetAddress()
+  {
+    return ((InetSocketAddress)this.remote).getAddress();
+  }
+  
+  /**
+   * Returns the port of the other end.
+   * @return The remote port.
+   */
+  @Override
+  public int getPort()
+  {
+    return ((InetSocketAddress)this.remote).getPort();
+  }
+  
+  /**
+   * Returns the address and port of the other end.
+   * @return The remote socket address.
+   */
+  @Override
+  public SocketAddress getRemoteSocketAddress()
+  {
+    return this.remote;
+  }
+  
+  /**
+   * Returns the local address of our endpoint.
+   * @return The local address.
+   */
+  @Override
+  public InetAddress getLocalAddress()
+  {
+    return this.endpoint.getLocalAddress();
+  }
+  
+  /**
+   * Returns the local port of our endpoint.
+   * @return The local port.
+   */
+  @Override
+  public int getLocalPort()
+  {
+    return this.endpoint.getLocalPort();
+  }
+  
+  /**
+   * Returns the local address and port of our endpoint.
+   * @return The local socket address.
+   */
+  @Override
+  public SocketAddress getLocalSocketAddress()
+  {
+    return new InetSocketAddress(this.getLocalAddress(), this.getLocalPort());
+  }
+  
+  /**
+   * Sets how long a read waits for bytes before giving up.
+   * @param timeout The timeout, in milliseconds, or 0 to wait forever.
+   * @throws IllegalArgumentException If the timeout is negative.
+   */
+  @Override
+  public synchronized void setSoTimeout(int timeout)
+  {
+    if(timeout < 0)
+    {
+      throw new IllegalArgumentException("The timeout can not be negative!");
+    }
+    this.readTimeout = timeout;
+  }
+  
+  /**
+   * Returns how long a read waits for bytes before giving up.
+   * @return The timeout, in milliseconds, or 0 if it waits forever.
+   */
+  @Override
+  public synchronized int getSoTimeout()
+  {
+    return this.readTimeout;
+  }
+  
+  /**
+   * Does nothing, since segments are sent as soon as our window allows.
+   * @param on Ignored.
+   */
+  @Override
+  public void setTcpNoDelay(boolean on)
+  {
+  }
+  
+  /**
+   * Does nothing, since how much we send is bounded by our window instead.
+   * @param size Ignored.
+   */
+  @Override
+  public void setSendBufferSize(int size)
+  {
+  }
+  
+  /**
+   * Returns the smoothed round trip time of this connection.
+   * @return The round trip time, in milliseconds, or -1 if it has not been
+   *  measured yet.
+   */
+  public synchronized double getRoundTripMillis()
+  {
+    return this.smoothed;
+  }
+  
+  /**
+   * Returns how many segments may be in flight at once right now.
+   * @return The congestion window.
+   */
+  public synchronized double getWindow()
+  {
+    return this.window;
+  }
+  
+  /**
+   * Returns how many data segments have been sent, counting those sent
+   * again.
+   * @return The amount of segments sent.
+   */
+  public synchronized long getSent()
+  {
+    return this.sent;
+  }
+  
+  /**
+   * Returns how many data segments have been sent again.
+   * @return The amount of segments sent again.
+   */
+  public synchronized long getRetransmitted()
+  {
+    return this.retransmitted;
+  }
+  
+  /**
+   * Returns a description of this connection.
+   * @return The other end and the identifier of the connection.
+   */
+  @Override
+  public String toString()
+  {
+    return "ReliableSocket[" + this.remote + ", connection " +
+      Long.toHexString(this.connection) + "]";
+  }
+  
+  long getConnection()
+  {
+    return this.connection;
+  }
+  
+  /*
+   * Asks the other end to accept us until it does or the deadline passes.
+   */
+  synchronized void connect(long deadline) throws IOException
+  {
+    while(!this.connected && this.failure == null)
+    {
+      long left = deadline - System.currentTimeMillis();
+      if(left <= 0L)
+      {
+        this.fail(new SocketTimeoutException("Connect timed out"));
+        break;
+      }
+      this.endpoint.send(Segment.handshake(UDPConstants.SYN, this.connection,
+        this.cookie), this.remote);
+      try
+      {
+        this.wait(Math.min(left, this.timeout));
+      }
+      catch(InterruptedException ie)
+      {
+        this.fail(new InterruptedIOException("Connect interrupted"));
+      }
+      if(!this.connected)
+      {
+        this.timeout = Math.min(this.timeout * 2L,
+          UDPConstants.MAX_TIMEOUT_MILLIS);
+      }
+    }
+    if(this.failure != null)
+    {
+      throw this.failure;
+    }
+  }
+  
+  /*
+   * Anything from the other end but a cookie means it has accepted us. A
+   * cookie is sent straight back with our SYN.
+   */
+  synchronized void received(Segment segment)
+  {
+    if(segment.type == UDPConstants.COOKIE)
+    {
+      if(!this.connected && this.failure == null)
+      {
+        this.cookie = segment.sequence;
+        this.endpoint.send(Segment.handshake(UDPConstants.SYN,
+          this.connection, this.cookie), this.remote);
+      }
+      return;
+    }
+    if(!this.connected)
+    {
+      this.connected = true;
+      this.notifyAll();
+    }
+    switch(segment.type)
+    {
+      case UDPConstants.DATA:
+        this.receiveData(segment);
+        break;
+      case UDPConstants.ACK:
+        this.receiveAck(segment);
+        break;
+      case UDPConstants.RESET:
+        this.fail(new SocketException("Connection reset"));
+        break;
+      default:
+        break;
+    }
+  }
+  
+  /*
+   * Sends again whatever has waited too long to be acknowledged.
+   */
+  synchronized void tick(long now)
+  {
+    if(!this.connected || this.failure != null)
+    {
+      return;
+    }
+    for(Outgoing outgoing : this.unacked.values())
+    {
+      if(outgoing.sacked || outgoing.lost ||
+        now - outgoing.sentAt < this.timeout * NANOS_PER_MILLI)
+      {
+        continue;
+      }
+      if(outgoing.transmissions >= UDPConstants.MAX_TRANSMISSIONS &&
+        this.peerWindow > 0)
+      {
+        this.fail(new SocketException("Connection timed out"));
+        return;
+      }
+      this.threshold = Math.max(this.pipe() / 2.0, 2.0);
+      this.window = 1.0;
+      this.recovery = this.nextSequence;
+      this.timeout = Math.min(this.timeout * 2L,
+        UDPConstants.MAX_TIMEOUT_MILLIS);
+      for(Outgoing other : this.unacked.values())
+      {
+        other.lost = !other.sacked;
+      }
+      break;
+    }
+    this.flush();
+  }
+  
+  /*
+   * We are done once everything we sent (including the end of our stream)
+   * has been acknowledged and the other end is done as well, or has had long
+   * enough to be.
+   */
+  synchronized boolean isFinished(long now)
+  {
+    return this.failure != null || (this.closed && this.queued.isEmpty() &&
+      this.unacked.isEmpty() && (this.ended || now - this.closedAt >
+      UDPConstants.LINGER_MILLIS * NANOS_PER_MILLI));
+  }
+  
+  synchronized void fail(IOException failure)
+  {
+    if(this.failure == null)
+    {
+      this.failure = failure;
+    }
+    this.queued.clear();
+    this.unacked.clear();
+    this.notifyAll();
+  }
+  
+  private synchronized int read(byte[] b, int off, int len) throws IOException
+  {
+    if(len == 0)
+    {
+      return 0;
+    }
+    long deadline = System.currentTimeMillis() + this.readTimeout;
+    while(this.readable.isEmpty() && !this.ended && this.failure == null &&
+      !this.closed)
+    {
+      long left = deadline - System.currentTimeMillis();
+      if(this.readTimeout > 0 && left <= 0L)
+      {
+        throw new SocketTimeoutException("Read timed out");
+      }
+      try
+      {
+        this.wait((this.readTimeout > 0) ? left : 0L);
+      }
+      catch(InterruptedException ie)
+      {
+        throw new InterruptedIOException("Read interrupted");
+      }
+    }
+    if(this.closed)
+    {
+      throw new SocketException("Socket closed");
+    }
+    if(this.readable.isEmpty())
+    {
+      if(this.failure != null)
+      {
+        throw this.failure;
+      }
+      return -1;
+    }
+    int read = 0;
+    while(read < len && !this.readable.isEmpty())
+    {
+      byte[] first = this.readable.peekFirst();
+      int count = Math.min(len - read, first.length - this.readOffset);
+      System.arraycopy(first, this.readOffset, b, off + read, count);
+      read += count;
+      this.readOffset += count;
+      if(this.readOffset == first.length)
+      {
+        this.readable.pollFirst();
+        this.readOffset = 0;
+      }
+    }
+    if(this.windowClosed)
+    {
+      this.acknowledge(0L);
+    }
+    return read;
+  }
+  
+  private synchronized int available()
+  {
+    int available = -this.readOffset;
+    for(byte[] segment : this.readable)
+    {
+      available += segment.length;
+    }
+    return Math.max(available, 0);
+  }
+  
+  /*
+   * Small writes are put together into one segment while they wait for room
+   * within the window.
+   */
+  private synchronized void write(byte[] b, int off, int len)
+    throws IOException
+  {
+    int written = 0;
+    while(written < len)
+    {
+      while(this.failure == null && !this.closed && this.queued.size() +
+        this.unacked.size() >= UDPConstants.SEND_BUFFER_SEGMENTS)
+      {
+        try
+        {
+          this.wait();
+        }
+        catch(InterruptedException ie)
+        {
+          throw new InterruptedIOException("Write interrupted");
+        }
+      }
+      if(this.closed)
+      {
+        throw new SocketException("Socket closed");
+      }
+      if(this.failure != null)
+      {
+        throw this.failure;
+      }
+      byte[] last = this.queued.peekLast();
+      if(last != null && last.length < UDPConstants.MAX_SEGMENT_BYTES)
+      {
+        int count = Math.min(len - written,
+          UDPConstants.MAX_SEGMENT_BYTES - last.length);
+        byte[] joined = Arrays.copyOf(last, last.length + count);
+        System.arraycopy(b, off + written, joined, last.length, count);
+        this.queued.pollLast();
+        this.queued.add(joined);
+        written += count;
+      }
+      else
+      {
+        int count = Math.min(len - written, UDPConstants.MAX_SEGMENT_BYTES);
+        this.queued.add(Arrays.copyOfRange(b, off + written,
+          off + written + count));
+        written += count;
+      }
+      this.flush();
+    }
+  }
+  
+  /*
+   * Sends segments deemed lost first, then new ones, for as long as the
+   * window has room.
+   */
+  private void flush()
+  {
+    if(!this.connected || this.failure != null)
+    {
+      return;
+    }
+    long now = System.nanoTime();
+    int pipe = this.pipe();
+    for(Map.Entry<Long, Outgoing> entry : this.unacked.entrySet())
+    {
+      if(pipe >= (int)this.window)
+      {
+        return;
+      }
+      Outgoing outgoing = entry.getValue();
+      if(outgoing.lost)
+      {
+        outgoing.lost = false;
+        this.retransmitted++;
+        this.send(entry.getKey(), outgoing, now);
+        pipe++;
+      }
+    }
+    long limit = this.acknowledged + Math.max(1, this.peerWindow);
+    while(!this.queued.isEmpty() && pipe < (int)this.window &&
+      this.nextSequence < limit)
+    {
+      Outgoing outgoing = new Outgoing(this.queued.poll());
+      this.unacked.put(this.nextSequence, outgoing);
+      this.send(this.nextSequence++, outgoing, now);
+      pipe++;
+    }
+  }
+  
+  private void send(long sequence, Outgoing outgoing, long now)
+  {
+    outgoing.sentAt = now;
+    outgoing.transmissions++;
+    this.sent++;
+    this.endpoint.send(Segment.data(this.connection, sequence, now,
+      outgoing.data), this.remote);
+  }
+  
+  /*
+   * The segments in flight: neither acknowledged nor deemed lost.
+   */
+  private int pipe()
+  {
+    int pipe = 0;
+    for(Outgoing outgoing : this.unacked.values())
+    {
+      if(!outgoing.sacked && !outgoing.lost)
+      {
+        pipe++;
+      }
+    }
+    return pipe;
+  }
+  
+  private void receiveData(Segment segment)
+  {
+    long limit = this.expected + UDPConstants.MAX_WINDOW -
+      this.readable.size();
+    if(segment.sequence >= this.expected && segment.sequence < limit)
+    {
+      this.outOfOrder.putIfAbsent(segment.sequence, segment.data);
+      byte[] next;
+      while((next = this.outOfOrder.remove(this.expected)) != null)
+      {
+        this.expected++;
+        if(next.length == 0)
+        {
+          this.ended = true;
+        }
+        else if(!this.closed)
+        {
+          this.readable.add(next);
+        }
+      }
+      this.notifyAll();
+    }
+    this.acknowledge(segment.time);
+  }
+  
+  /*
+   * Acknowledges everything we have, echoing the time of the segment that
+   * made us (or 0, for an update of our window).
+   */
+  private void acknowledge(long echo)
+  {
+    int room = UDPConstants.MAX_WINDOW - this.readable.size();
+    this.windowClosed = room <= 0;
+    long[] blocks = Segment.NO_BLOCKS;
+    if(!this.outOfOrder.isEmpty())
+    {
+      blocks = new long[UDPConstants.MAX_SACK_BLOCKS * 2];
+      int count = 0;
+      for(long sequence : this.outOfOrder.keySet())
+      {
+        if(count > 0 && blocks[count - 1] == sequence)
+        {
+          blocks[count - 1] = sequence + 1L;
+        }
+        else if(count < blocks.length)
+        {
+          blocks[count++] = sequence;
+          blocks[count++] = sequence + 1L;
+        }
+        else
+        {
+          break;
+        }
+      }
+      blocks = Arrays.copyOf(blocks, count);
+    }
+    this.endpoint.send(Segment.ack(this.connection, this.expected,
+      Math.max(room, 0), echo, blocks), this.remote);
+  }
+  
+  private void receiveAck(Segment segment)
+  {
+    if(segment.sequence > this.nextSequence)
+    {
+      return;
+    }
+    long now = System.nanoTime();
+    this.peerWindow = segment.window;
+    if(segment.time != 0L)
+    {
+      this.measure((now - segment.time) / (double)NANOS_PER_MILLI);
+    }
+    int delivered = 0;
+    if(segment.sequence > this.acknowledged)
+    {
+      this.acknowledged = segment.sequence;
+      Map<Long, Outgoing> head = this.unacked.headMap(segment.sequence);
+      for(Outgoing outgoing : head.values())
+      {
+        delivered += this.deliver(outgoing);
+      }
+      head.clear();
+    }
+    for(int i = 0; i + 1 < segment.blocks.length; i += 2)
+    {
+      for(Outgoing outgoing : this.unacked.subMap(segment.blocks[i],
+        segment.blocks[i + 1]).values())
+      {
+        delivered += this.deliver(outgoing);
+      }
+    }
+    for(int i = 0; i < delivered; i++)
+    {
+      this.window += (this.window < this.threshold) ? 1.0 : 1.0 / this.window;
+    }
+    this.window = Math.min(this.window, UDPConstants.MAX_WINDOW);
+    long reorder = (long)(Math.max(this.smoothed, 0.0) *
+      UDPConstants.REORDER_WINDOW * NANOS_PER_MILLI);
+    boolean reduce = false;
+    for(Map.Entry<Long, Outgoing> entry : this.unacked.entrySet())
+    {
+      Outgoing outgoing = entry.getValue();
+      if(!outgoing.sacked && !outgoing.lost &&
+        outgoing.sentAt + reorder < this.newestDelivered)
+      {
+        outgoing.lost = true;
+        reduce |= entry.getKey() >= this.recovery;
+      }
+    }
+    if(reduce)
+    {
+      this.threshold = Math.max(this.window / 2.0, 2.0);
+      this.window = this.threshold;
+      this.recovery = this.nextSequence;
+    }
+    this.flush();
+    this.notifyAll();
+  }
+  
+  /*
+   * Marks a segment as having arrived, returning 1 if we did not know yet.
+   */
+  private int deliver(Outgoing outgoing)
+  {
+    if(outgoing.sacked)
+    {
+      return 0;
+    }
+    outgoing.sacked = true;
+    outgoing.lost = false;
+    this.newestDelivered = Math.max(this.newestDelivered, outgoing.sentAt);
+    return 1;
+  }
+  
+  /*
+   * Follows the round trip time the way TCP does (RFC 6298).
+   */
+  private void measure(double rtt)
+  {
+    if(this.smoothed < 0.0)
+    {
+      this.smoothed = rtt;
+      this.variance = rtt / 2.0;
+    }
+    else
+    {
+      this.variance = 0.75 * this.variance +
+        0.25 * Math.abs(this.smoothed - rtt);
+      this.smoothed = 0.875 * this.smoothed + 0.125 * rtt;
+    }
+    this.timeout = Math.max(UDPConstants.MIN_TIMEOUT_MILLIS,
+      Math.min(UDPConstants.MAX_TIMEOUT_MILLIS,
+      (long)Math.ceil(this.smoothed + 4.0 * this.variance)));
+  }
+  
+  private static final class Outgoing
+  {
+    private final byte[] data;
+    private long sentAt;
+    private int transmissions;
+    private boolean sacked;
+    private boolean lost;
+    
+    private Outgoing(byte[] data)
+    {
+      this.data = data;
+    }
+  }
+  
+  private class ReliableInputStream extends InputStream
+  {
+    @Override
+    public int read() throws IOException
+    {
+      byte[] b = new byte[1];
+      return (ReliableSocket.this.read(b, 0, 1) < 0) ? -1 : (b[0] & 0xFF);
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      return ReliableSocket.this.read(b, off, len);
+    }
+    
+    @Override
+    public int available()
+    {
+      return ReliableSocket.this.available();
+    }
+    
+    @Override
+    public void close()
+    {
+      ReliableSocket.this.close();
+    }
+  }
+  
+  private class ReliableOutputStream extends OutputStream
+  {
+    @Override
+    public void write(int b) throws IOException
+    {
+      ReliableSocket.this.write(new byte[] {(byte)b}, 0, 1);
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      ReliableSocket.this.write(b, off, len);
+    }
+    
+    @Override
+    public void close()
+    {
+      ReliableSocket.this.close();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Segment.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.udp;
+
+import com.coswald.jtalker.net.udp.UDPConstants;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/*
+ * One datagram of a reliable connection. Every segment starts with its type
+ * (one byte) and the identifier of its connection (eight bytes). A data
+ * segment then holds its sequence number, the time it was sent (which the
+ * acknowledgement echoes back, so the round trip can be measured even for a
+ * segment sent twice), and its bytes. An acknowledgement holds the sequence
+ * number of the first segment not yet received, how many more segments the
+ * receiver has room for, the echoed time, and the ranges of segments received
+ * beyond the first missing one. A SYN, and the COOKIE that answers one,
+ * hold a cookie (a SYN with none holds 0).
+ */
+final class Segment
+{
+  static final long[] NO_BLOCKS = new long[0];
+  private static final byte[] NO_BYTES = new byte[0];
+  
+  final byte type;
+  final long connection;
+  final long sequence;
+  final long time;
+  final byte[] data;
+  final int window;
+  final long[] blocks;
+  
+  private Segment(byte type, long connection, long sequence, long time,
+    byte[] data, int window, long[] blocks)
+  {
+    this.type = type;
+    this.connection = connection;
+    this.sequence = sequence;
+    this.time = time;
+    this.data = data;
+    this.window = window;
+    this.blocks = blocks;
+  }
+  
+  static Segment control(byte type, long connection)
+  {
+    return new Segment(type, connection, 0L, 0L, NO_BYTES, 0, NO_BLOCKS);
+  }
+  
+  /*
+   * The cookie is kept in place of a sequence number.
+   */
+  static Segment handshake(byte type, long connection, long cookie)
+  {
+    return new Segment(type, connection, cookie, 0L, NO_BYTES, 0, NO_BLOCKS);
+  }
+  
+  static Segment data(long connection, long sequence, long time, byte[] data)
+  {
+    return new Segment(UDPConstants.DATA, connection, sequence, time, data, 0,
+      NO_BLOCKS);
+  }
+  
+  /*
+   * The blocks are pairs of sequence numbers: the first of a range, and the
+   * one after its last.
+   */
+  static Segment ack(long connection, long cumulative, int window, long time,
+    long[] blocks)
+  {
+    return new Segment(UDPConstants.ACK, connection, cumulative, time,
+      NO_BYTES, window, blocks);
+  }
+  
+  static Segment parse(ByteBuffer buffer)
+  {
+    try
+    {
+      byte type = buffer.get();
+      long connection = buffer.getLong();
+      switch(type)
+      {
+        case UDPConstants.DATA:
+          long sequence = buffer.getLong();
+          long time = buffer.getLong();
+          byte[] data = new byte[buffer.remaining()];
+          buffer.get(data);
+          return data(connection, sequence, time, data);
+        case UDPConstants.ACK:
+          long cumulative = buffer.getLong();
+          int window = buffer.getInt();
+          long echo = buffer.getLong();
+          int count = buffer.get() & 0xFF;
+          if(count > UDPConstants.MAX_SACK_BLOCKS)
+          {
+            return null;
+          }
+          long[] blocks = new long[count * 2];
+          for(int i = 0; i < blocks.length; i++)
+          {
+            blocks[i] = buffer.getLong();
+          }
+          return ack(connection, cumulative, window, echo, blocks);
+        case UDPConstants.SYN:
+        case UDPConstants.COOKIE:
+          return handshake(type, connection, buffer.getLong());
+        case UDPConstants.SYN_ACK:
+        case UDPConstants.RESET:
+          return control(type, connection);
+        default:
+          return null;
+      }
+    }
+    catch(BufferUnderflowException bue)
+    {
+      return null;
+    }
+  }
+  
+  ByteBuffer toBuffer()
+  {
+    ByteBuffer buffer = ByteBuffer.allocate(
+      UDPConstants.MAX_DATAGRAM_BYTES);
+    buffer.put(this.type);
+    buffer.putLong(this.connection);
+    if(this.type == UDPConstants.SYN || this.type == UDPConstants.COOKIE)
+    {
+      buffer.putLong(this.sequence);
+    }
+    else if(this.type == UDPConstants.DATA)
+    {
+      buffer.putLong(this.sequence);
+      buffer.putLong(this.time);
+      buffer.put(this.data);
+    }
+    else if(this.type == UDPConstants.ACK)
+    {
+      buffer.putLong(this.sequence);
+      buffer.putInt(this.window);
+      buffer.putLong(this.time);
+      buffer.put((byte)(this.blocks.length / 2));
+      for(long block : this.blocks)
+      {
+        buffer.putLong(block);
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+}
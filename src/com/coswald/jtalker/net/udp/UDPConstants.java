@@ -0,0 +1,179 @@
+/*
+ * UDPConstants.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.udp;
+
+/**
+ * <p>A set of descriptions for specific constants used when carrying JTalker
+ * over UDP. Just like the other constants classes, this class is a utility
+ * class and cannot be extended.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public final class UDPConstants
+{
+  /**
+   * The type of segment that asks to open a connection.
+   */
+  public static final byte SYN = 1;
+  
+  /**
+   * The type of segment that answers a {@link #SYN SYN}, once the connection
+   * has been accepted.
+   */
+  public static final byte SYN_ACK = 2;
+  
+  /**
+   * The type of segment that answers a {@link #SYN SYN} without a cookie (or
+   * with one that is wrong or too old) with a cookie the SYN must be sent
+   * again with before the connection is accepted.
+   */
+  public static final byte COOKIE = 6;
+  
+  /**
+   * The type of segment that carries bytes of the stream. A data segment with
+   * no bytes marks the end of the stream.
+   */
+  public static final byte DATA = 3;
+  
+  /**
+   * The type of segment that acknowledges data segments.
+   */
+  public static final byte ACK = 4;
+  
+  /**
+   * The type of segment sent in answer to anything for a connection that does
+   * not exist (anymore).
+   */
+  public static final byte RESET = 5;
+  
+  /**
+   * The most bytes of the stream one data segment carries. This is kept small
+   * enough that a segment is never fragmented on an ordinary network, and is
+   * currently set to {@value}.
+   */
+  public static final int MAX_SEGMENT_BYTES = 1200;
+  
+  /**
+   * The most bytes a datagram of any type may hold. This is currently set to
+   * {@value}.
+   */
+  public static final int MAX_DATAGRAM_BYTES = 1500;
+  
+  /**
+   * How many segments the congestion window of a connection starts out at.
+   * This is currently set to {@value}.
+   */
+  public static final int INITIAL_WINDOW = 4;
+  
+  /**
+   * The most segments a connection keeps that its reader has not read yet,
+   * which is also the most a sender has in flight. This is currently set to
+   * {@value}.
+   */
+  public static final int MAX_WINDOW = 256;
+  
+  /**
+   * The most segments a writer may have waiting to be acknowledged before a
+   * write blocks. This is currently set to {@value}.
+   */
+  public static final int SEND_BUFFER_SEGMENTS = 1024;
+  
+  /**
+   * The share of the round trip time a segment may arrive after one sent
+   * later than it before it is deemed lost, and sent again without waiting
+   * for its timer. This is currently set to {@value}.
+   */
+  public static final double REORDER_WINDOW = 0.25;
+  
+  /**
+   * The most ranges of segments received out of order one acknowledgement
+   * carries. This is currently set to {@value}.
+   */
+  public static final int MAX_SACK_BLOCKS = 16;
+  
+  /**
+   * How long, in milliseconds, a segment waits to be acknowledged before it
+   * is sent again, until the round trip time has been measured. This is
+   * currently set to {@value}.
+   */
+  public static final long INITIAL_TIMEOUT_MILLIS = 1000L;
+  
+  /**
+   * The least time, in milliseconds, a segment waits to be acknowledged
+   * before it is sent again. This is currently set to {@value}.
+   */
+  public static final long MIN_TIMEOUT_MILLIS = 20L;
+  
+  /**
+   * The most time, in milliseconds, a segment waits to be acknowledged before
+   * it is sent again. This is currently set to {@value}.
+   */
+  public static final long MAX_TIMEOUT_MILLIS = 8000L;
+  
+  /**
+   * How many times a segment is sent before the connection is given up on.
+   * This is currently set to {@value}.
+   */
+  public static final int MAX_TRANSMISSIONS = 12;
+  
+  /**
+   * How often, in milliseconds, the timers of every connection are checked.
+   * This is currently set to {@value}.
+   */
+  public static final long TIMER_MILLIS = 5L;
+  
+  /**
+   * How long, in milliseconds, a client waits for a connection to be
+   * accepted. This is currently set to {@value}.
+   */
+  public static final long CONNECT_MILLIS = 10000L;
+  
+  /**
+   * How long, in milliseconds, a cookie given out in answer to a
+   * {@link #SYN SYN} is good for at least; it is good for at most twice
+   * this. This is currently set to {@value}.
+   */
+  public static final long COOKIE_MILLIS = CONNECT_MILLIS;
+  
+  /**
+   * The most connections an endpoint keeps that have been accepted but not
+   * yet handed out. A SYN that comes while this many are waiting is ignored,
+   * and sent again later. This is currently set to {@value}.
+   */
+  public static final int ACCEPT_BACKLOG = 64;
+  
+  /**
+   * The most open connections an endpoint accepts from one host. This is
+   * currently set to {@value}.
+   */
+  public static final int MAX_CONNECTIONS_PER_HOST = 256;
+  
+  /**
+   * How long, in milliseconds, a closed connection waits for the other end
+   * to close as well before it is forgotten. This is currently set to
+   * {@value}.
+   */
+  public static final long LINGER_MILLIS = 2000L;
+  
+  private UDPConstants() {}
+}
@@ -0,0 +1,128 @@
+/*
+ * UDPTransport.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.udp;
+
+import com.coswald.jtalker.net.transport.FrameCodec;
+import com.coswald.jtalker.net.transport.Transport;
+import com.coswald.jtalker.net.transport.UTFFrameCodec;
+import com.coswald.jtalker.net.udp.LinkSimulator;
+import com.coswald.jtalker.net.udp.ReliableEndpoint;
+import com.coswald.jtalker.net.udp.ReliableSocket;
+
+import java.io.IOException;
+
+/**
+ * <p>The reliable UDP of this package, as a
+ * {@link com.coswald.jtalker.net.transport.Transport Transport}. A listener
+ * is a {@link com.coswald.jtalker.net.udp.ReliableEndpoint ReliableEndpoint}
+ * that accepts connections, and every connection is a
+ * {@link com.coswald.jtalker.net.udp.ReliableSocket ReliableSocket} made
+ * through an endpoint of its own. Both send every datagram through the
+ * {@link com.coswald.jtalker.net.udp.LinkSimulator simulator} given, if there
+ * is one.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class UDPTransport implements Transport
+{
+  private LinkSimulator simulator;
+  private FrameCodec codec;
+  
+  /**
+   * Constructs a transport whose datagrams go through the given simulator.
+   * @param simulator The simulator, or {@code null} for none.
+   */
+  public UDPTransport(LinkSimulator simulator)
+  {
+    this.simulator = simulator;
+    this.codec = new UTFFrameCodec();
+  }
+  
+  /**
+   * Constructs a transport that sends its datagrams straight to the network.
+   */
+  public UDPTransport()
+  {
+    this(null);
+  }
+  
+  /**
+   * Returns the name of this transport, which is {@code UDP}.
+   * @return The name.
+   */
+  @Override
+  public String getName()
+  {
+    return "UDP";
+  }
+  
+  /**
+   * Binds an endpoint that accepts connections to the given port.
+   * @param port The port to listen on, or 0 for any free one.
+   * @return The endpoint.
+   * @throws IOException If the port could not be bound.
+   */
+  @Override
+  public ReliableEndpoint listen(int port) throws IOException
+  {
+    ReliableEndpoint endpoint = new ReliableEndpoint(port);
+    endpoint.setSimulator(this.simulator);
+    return endpoint;
+  }
+  
+  /**
+   * Opens a reliable connection over UDP to the given host and port.
+   * @param host The host we are connecting to.
+   * @param port The port the endpoint listens on.
+   * @return The connected socket.
+   * @throws java.net.UnknownHostException If the host could not be found.
+   * @throws IOException If the connection could not be made.
+   * @see com.coswald.jtalker.net.udp.ReliableEndpoint#open(String, int,
+   *  LinkSimulator)
+   */
+  @Override
+  public ReliableSocket connect(String host, int port) throws IOException
+  {
+    return ReliableEndpoint.open(host, port, this.simulator);
+  }
+  
+  /**
+   * Returns the codec of this transport, which is a
+   * {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec}.
+   * @return The codec.
+   */
+  @Override
+  public FrameCodec getCodec()
+  {
+    return this.codec;
+  }
+  
+  /**
+   * Returns the simulator our datagrams go through.
+   * @return The simulator, or {@code null} if there is none.
+   */
+  public LinkSimulator getSimulator()
+  {
+    return this.simulator;
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * UnixConstants.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.unix;
+
+/**
+ * <p>A set of descriptions for specific constants used when talking to
+ * clients over Unix domain sockets. Just like the other constants classes,
+ * this class is a utility class and cannot be extended.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class UnixConstants
+{
+  /**
+   * What the name of every socket file starts with ({@value}). It is
+   * followed by the port the file stands in for.
+   */
+  public static final String SOCKET_PREFIX = "jtalker-";
+  
+  /**
+   * What the name of every socket file ends with ({@value}).
+   */
+  public static final String SOCKET_SUFFIX = ".sock";
+  
+  /**
+   * The first port tried when a listener is asked for any free one, which is
+   * where the ports the system hands out on its own start. This is currently
+   * set to {@value}.
+   */
+  public static final int FIRST_FREE_PORT = 49152;
+  
+  /**
+   * The name of the class of the address of a Unix domain socket ({@value}),
+   * which only exists from Java 16 on.
+   */
+  public static final String ADDRESS_CLASS =
+    "java.net.UnixDomainSocketAddress";
+  
+  /**
+   * The name of the protocol family of Unix domain sockets ({@value}).
+   * @see java.net.StandardProtocolFamily
+   */
+  public static final String PROTOCOL_FAMILY = "UNIX";
+  
+  private UnixConstants() {}
+}
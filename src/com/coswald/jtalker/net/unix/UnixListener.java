@@ -0,0 +1,116 @@
+/*
+ * UnixListener.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.unix;
+
+import com.coswald.jtalker.net.transport.TransportListener;
+import com.coswald.jtalker.net.unix.UnixSocket;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * <p>A socket file clients on the same machine connect to. Much like a
+ * {@link java.net.ServerSocket ServerSocket}, a listener
+ * {@link #accept() accepts} connections, each of which is handed out as a
+ * {@link com.coswald.jtalker.net.unix.UnixSocket UnixSocket}. The file is
+ * removed once the listener is closed.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ * @see com.coswald.jtalker.net.unix.UnixTransport#listen(int)
+ */
+public class UnixListener implements TransportListener
+{
+  private ServerSocketChannel server;
+  private File file;
+  private int port;
+  
+  /*
+   * The channel must already be bound to the file.
+   */
+  UnixListener(ServerSocketChannel server, File file, int port)
+  {
+    this.server = server;
+    this.file = file;
+    this.port = port;
+  }
+  
+  /**
+   * Waits for a client to connect.
+   * @return The connection.
+   * @throws SocketException If we have been closed.
+   * @throws IOException If no connection could be accepted.
+   */
+  @Override
+  public UnixSocket accept() throws IOException
+  {
+    try
+    {
+      return new UnixSocket(this.server.accept());
+    }
+    catch(ClosedChannelException c)
+    {
+      throw new SocketException("Listener closed");
+    }
+  }
+  
+  /**
+   * Returns the port our socket file stands in for.
+   * @return The port, or -1 if we are closed.
+   */
+  @Override
+  public int getLocalPort()
+  {
+    return this.server.isOpen() ? this.port : -1;
+  }
+  
+  /**
+   * Returns the socket file clients connect to.
+   * @return The file.
+   */
+  public File getFile()
+  {
+    return this.file;
+  }
+  
+  /**
+   * Stops accepting clients, and removes our socket file. Any thread waiting
+   * in {@link #accept() accept} is woken with a
+   * {@link java.net.SocketException SocketException}.
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      this.server.close();
+    }
+    finally
+    {
+      this.file.delete();
+    }
+  }
+}
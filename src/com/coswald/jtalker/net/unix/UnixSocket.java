@@ -0,0 +1,263 @@
+/*
+ * UnixSocket.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.unix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+
+/**
+ * <p>One connection over a Unix domain socket, on either end. The channel of
+ * a Unix domain socket has no {@link java.net.Socket Socket} of its own, so
+ * this class stands in for one, giving streams that read from and write to
+ * the channel and nothing more. It has no internet address or port; those of
+ * its {@link #getRemoteSocketAddress() ends} are the paths of socket
+ * files.</p>
+ * <p>The streams go to the channel directly, rather than through
+ * {@link java.nio.channels.Channels Channels}, whose streams hold a lock
+ * shared by both directions while they wait: a thread waiting for a line
+ * would otherwise keep every broadcast from being written.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public class UnixSocket extends Socket
+{
+  private SocketChannel channel;
+  private SocketAddress remote;
+  private SocketAddress local;
+  private InputStream input;
+  private OutputStream output;
+  
+  /*
+   * The channel must be connected and blocking.
+   */
+  UnixSocket(SocketChannel channel) throws IOException
+  {
+    this.channel = channel;
+    this.remote = channel.getRemoteAddress();
+    this.local = channel.getLocalAddress();
+    this.input = new UnixInputStream();
+    this.output = new UnixOutputStream();
+  }
+  
+  /**
+   * Returns the stream of what the other end sends.
+   * @return The input stream.
+   * @throws IOException If we are closed.
+   */
+  @Override
+  public InputStream getInputStream() throws IOException
+  {
+    if(this.isClosed())
+    {
+      throw new SocketException("Socket is closed");
+    }
+    return this.input;
+  }
+  
+  /**
+   * Returns the stream of what is sent to the other end.
+   * @return The output stream.
+   * @throws IOException If we are closed.
+   */
+  @Override
+  public OutputStream getOutputStream() throws IOException
+  {
+    if(this.isClosed())
+    {
+      throw new SocketException("Socket is closed");
+    }
+    return this.output;
+  }
+  
+  /**
+   * Closes the connection. Any thread waiting to read from it is woken with
+   * a {@link java.net.SocketException SocketException}.
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.channel.close();
+  }
+  
+  /**
+   * Returns whether the connection has been closed.
+   * @return {@code true} if it has.
+   */
+  @Override
+  public boolean isClosed()
+  {
+    return !this.channel.isOpen();
+  }
+  
+  /**
+   * Returns whether we are connected, which we always are once we have been
+   * made.
+   * @return {@code true}.
+   */
+  @Override
+  public boolean isConnected()
+  {
+    return true;
+  }
+  
+  /**
+   * Returns whether we are bound to a local address, which we always are.
+   * @return {@code true}.
+   */
+  @Override
+  public boolean isBound()
+  {
+    return true;
+  }
+  
+  /**
+   * Returns the address of the other end.
+   * @return The path of its socket file, as a
+   *  {@code UnixDomainSocketAddress}.
+   */
+  @Override
+  public SocketAddress getRemoteSocketAddress()
+  {
+    return this.remote;
+  }
+  
+  /**
+   * Returns the address of this end.
+   * @return The path of our socket file, as a
+   *  {@code UnixDomainSocketAddress}.
+   */
+  @Override
+  public SocketAddress getLocalSocketAddress()
+  {
+    return this.local;
+  }
+  
+  /**
+   * Does nothing, since a Unix domain socket has no Nagle's algorithm.
+   * @param on Ignored.
+   */
+  @Override
+  public void setTcpNoDelay(boolean on)
+  {
+  }
+  
+  /**
+   * Does nothing; the system's own send buffer is kept.
+   * @param size Ignored.
+   */
+  @Override
+  public void setSendBufferSize(int size)
+  {
+  }
+  
+  /**
+   * Returns a description of this connection.
+   * @return The addresses of both ends.
+   */
+  @Override
+  public String toString()
+  {
+    return "UnixSocket[local=" + this.local + ",remote=" + this.remote + "]";
+  }
+  
+  private class UnixInputStream extends InputStream
+  {
+    @Override
+    public int read() throws IOException
+    {
+      byte[] b = new byte[1];
+      return (this.read(b, 0, 1) < 0) ? -1 : (b[0] & 0xFF);
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      if(len == 0)
+      {
+        return 0;
+      }
+      try
+      {
+        return UnixSocket.this.channel.read(ByteBuffer.wrap(b, off, len));
+      }
+      catch(ClosedChannelException c)
+      {
+        throw new SocketException("Socket closed");
+      }
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+      UnixSocket.this.close();
+    }
+  }
+  
+  private class UnixOutputStream extends OutputStream
+  {
+    @Override
+    public void write(int b) throws IOException
+    {
+      this.write(new byte[] {(byte)b}, 0, 1);
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+      try
+      {
+        while(buffer.hasRemaining())
+        {
+          UnixSocket.this.channel.write(buffer);
+        }
+      }
+      catch(ClosedChannelException c)
+      {
+        throw new SocketException("Socket closed");
+      }
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+      UnixSocket.this.close();
+    }
+  }
+}
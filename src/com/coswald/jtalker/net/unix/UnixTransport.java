@@ -0,0 +1,291 @@
+/*
+ * UnixTransport.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.unix;
+
+import com.coswald.jtalker.net.ServerClientConstants;
+import com.coswald.jtalker.net.transport.FrameCodec;
+import com.coswald.jtalker.net.transport.Transport;
+import com.coswald.jtalker.net.transport.UTFFrameCodec;
+import com.coswald.jtalker.net.unix.UnixConstants;
+import com.coswald.jtalker.net.unix.UnixListener;
+import com.coswald.jtalker.net.unix.UnixSocket;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.BindException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * <p>Unix domain sockets, as a
+ * {@link com.coswald.jtalker.net.transport.Transport Transport}, for clients
+ * on the same machine as the server (bots, or the GUI). Their lines never go
+ * through the TCP stack, so they arrive sooner, and more of them can be sent
+ * for the same work.</p>
+ * <p>Instead of a port, a listener is bound to a socket file within the
+ * directory of the transport, named after the port it stands in for (port
+ * 5000 is {@code jtalker-5000.sock}), so a client finds it the same way it
+ * would find a TCP port. The host a client is asked to connect to is not
+ * used, as only the machine the directory is on can be reached. A socket
+ * file left behind by a server that did not close is removed when another
+ * listener is bound to it, as long as nothing answers on it.</p>
+ * <p>Unix domain sockets are reached through
+ * {@code UnixDomainSocketAddress}, and the channels that take it, which only
+ * exist from Java 16 on (and not on every system). They are looked up when
+ * needed; where they can not be found, the transport is not
+ * {@link #isSupported() supported}, and every listener or connection asked
+ * of it fails.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class UnixTransport implements Transport
+{
+  private File directory;
+  private FrameCodec codec;
+  
+  /**
+   * Constructs a transport whose socket files are kept within the given
+   * directory.
+   * @param directory The directory.
+   * @throws IllegalArgumentException If the directory is {@code null}.
+   */
+  public UnixTransport(File directory)
+  {
+    if(directory == null)
+    {
+      throw new IllegalArgumentException("The directory can not be null!");
+    }
+    this.directory = directory;
+    this.codec = new UTFFrameCodec();
+  }
+  
+  /**
+   * Constructs a transport whose socket files are kept within the directory
+   * for temporary files.
+   */
+  public UnixTransport()
+  {
+    this(new File(System.getProperty("java.io.tmpdir")));
+  }
+  
+  /**
+   * Returns the name of this transport, which is {@code Unix}.
+   * @return The name.
+   */
+  @Override
+  public String getName()
+  {
+    return "Unix";
+  }
+  
+  /**
+   * Binds a listener to the socket file of the given port. If the port is 0,
+   * the first port from
+   * {@value com.coswald.jtalker.net.unix.UnixConstants#FIRST_FREE_PORT} on
+   * whose socket file does not exist is used.
+   * @param port The port, or 0 for any free one.
+   * @return The listener.
+   * @throws BindException If another listener is bound to the socket file,
+   *  or no port is free.
+   * @throws IOException If the socket file could not be bound, or Unix
+   *  domain sockets are not supported.
+   */
+  @Override
+  public UnixListener listen(int port) throws IOException
+  {
+    if(port == 0)
+    {
+      port = UnixConstants.FIRST_FREE_PORT;
+      while(this.getFile(port).exists())
+      {
+        if(++port > ServerClientConstants.MAX_PORT_NUMBER)
+        {
+          throw new BindException("No port is free in " + this.directory);
+        }
+      }
+    }
+    File file = this.getFile(port);
+    if(file.exists())
+    {
+      if(this.isAnswered(port))
+      {
+        throw new BindException("Address already in use: " + file);
+      }
+      file.delete();
+    }
+    ServerSocketChannel server = (ServerSocketChannel)open(
+      ServerSocketChannel.class);
+    try
+    {
+      server.bind(address(file), ServerClientConstants.ACCEPT_BACKLOG);
+    }
+    catch(IOException i)
+    {
+      server.close();
+      throw i;
+    }
+    return new UnixListener(server, file, port);
+  }
+  
+  /**
+   * Connects to the listener bound to the socket file of the given port.
+   * @param host Not used; the listener must be on this machine.
+   * @param port The port the listener stands in for.
+   * @return The connected socket.
+   * @throws IOException If the connection could not be made, or Unix domain
+   *  sockets are not supported.
+   */
+  @Override
+  public UnixSocket connect(String host, int port) throws IOException
+  {
+    SocketChannel channel = (SocketChannel)open(SocketChannel.class);
+    try
+    {
+      channel.connect(address(this.getFile(port)));
+      return new UnixSocket(channel);
+    }
+    catch(IOException i)
+    {
+      channel.close();
+      throw i;
+    }
+  }
+  
+  /**
+   * Returns the codec of this transport, which is a
+   * {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec}.
+   * @return The codec.
+   */
+  @Override
+  public FrameCodec getCodec()
+  {
+    return this.codec;
+  }
+  
+  /**
+   * Returns the directory our socket files are kept within.
+   * @return The directory.
+   */
+  public File getDirectory()
+  {
+    return this.directory;
+  }
+  
+  /**
+   * Returns the socket file that stands in for the given port.
+   * @param port The port.
+   * @return The socket file.
+   */
+  public File getFile(int port)
+  {
+    return new File(this.directory, UnixConstants.SOCKET_PREFIX + port +
+      UnixConstants.SOCKET_SUFFIX);
+  }
+  
+  /**
+   * Returns whether Unix domain sockets can be used here.
+   * @return {@code true} if they can.
+   */
+  public static boolean isSupported()
+  {
+    try
+    {
+      Class.forName(UnixConstants.ADDRESS_CLASS);
+      SocketChannel.class.getMethod("open", ProtocolFamily.class);
+      StandardProtocolFamily.valueOf(UnixConstants.PROTOCOL_FAMILY);
+      return true;
+    }
+    catch(ReflectiveOperationException | RuntimeException e)
+    {
+      return false;
+    }
+  }
+  
+  /*
+   * Whether a listener is bound to the socket file of the port.
+   */
+  private boolean isAnswered(int port)
+  {
+    try
+    {
+      this.connect(null, port).close();
+      return true;
+    }
+    catch(IOException i)
+    {
+      return false;
+    }
+  }
+  
+  /*
+   * UnixDomainSocketAddress.of(path)
+   */
+  private static SocketAddress address(File file) throws IOException
+  {
+    try
+    {
+      Method of = Class.forName(UnixConstants.ADDRESS_CLASS).getMethod("of",
+        Path.class);
+      return (SocketAddress)of.invoke(null, file.toPath());
+    }
+    catch(InvocationTargetException e)
+    {
+      throw new IOException("Bad socket file " + file, e.getCause());
+    }
+    catch(ReflectiveOperationException | RuntimeException e)
+    {
+      throw new IOException("Unix domain sockets are not supported here", e);
+    }
+  }
+  
+  /*
+   * ServerSocketChannel.open(UNIX) or SocketChannel.open(UNIX)
+   */
+  private static Object open(Class<?> type) throws IOException
+  {
+    try
+    {
+      return type.getMethod("open", ProtocolFamily.class).invoke(null,
+        StandardProtocolFamily.valueOf(UnixConstants.PROTOCOL_FAMILY));
+    }
+    catch(InvocationTargetException e)
+    {
+      if(e.getCause() instanceof IOException)
+      {
+        throw (IOException)e.getCause();
+      }
+      throw new IOException("Unix domain sockets are not supported here",
+        e.getCause());
+    }
+    catch(ReflectiveOperationException | RuntimeException e)
+    {
+      throw new IOException("Unix domain sockets are not supported here", e);
+    }
+  }
+}
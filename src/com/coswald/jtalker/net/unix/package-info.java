@@ -0,0 +1,37 @@
+/*
+ * package-info.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/**
+ * <p>Lets clients on the same machine as a JTalker server talk to it over
+ * Unix domain sockets, skipping the TCP stack of the loopback interface. A
+ * {@link com.coswald.jtalker.net.unix.UnixTransport UnixTransport} stands a
+ * socket file in for each port, and its connections carry the same protocol
+ * as a TCP socket does. Unix domain sockets are only reachable through
+ * {@link java.nio.channels.SocketChannel SocketChannel} from Java 16 on, so
+ * they are looked up when needed, and this package can still be built for
+ * (and run on) older versions, where it simply is not
+ * {@link com.coswald.jtalker.net.unix.UnixTransport#isSupported()
+ * supported}.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+package com.coswald.jtalker.net.unix;
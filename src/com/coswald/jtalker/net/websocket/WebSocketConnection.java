@@ -0,0 +1,1070 @@
+/*
+ * WebSocketConnection.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.websocket;
+
+import com.coswald.jtalker.net.websocket.WebSocketConstants;
+import com.coswald.jtalker.net.websocket.WebSocketListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>A browser connected through a
+ * {@link com.coswald.jtalker.net.websocket.WebSocketListener
+ * WebSocketListener}. This is made to look like a
+ * {@link java.net.Socket Socket} that speaks the same protocol as a
+ * {@link com.coswald.jtalker.net.TCPClient TCPClient}, so a
+ * {@link com.coswald.jtalker.net.TCPClientInstance TCPClientInstance} can be
+ * handed one unchanged, and the browser joins the same rooms as everyone
+ * else. Only its streams, its read timeout, its addresses and closing it act
+ * like those of a socket.</p>
+ * <p>Each text message the browser sends is read from the input stream as if
+ * it had been written with
+ * {@link java.io.DataOutput#writeUTF(String) writeUTF}, and each string
+ * written to the output stream with {@code writeUTF} is sent to the browser
+ * as one text message; the boolean a client is greeted with is not sent on,
+ * unless it turns the browser away, in which case the connection is closed.
+ * Lines are not decoded into strings on the way: a frame is unmasked where it
+ * was read into, and its bytes are copied once, into a line for the reader,
+ * as UTF-8 and the modified UTF-8 of {@code writeUTF} are the same for
+ * everything but the null character and characters outside of the Basic
+ * Multilingual Plane (only lines holding those are converted). Likewise, a
+ * line written to us is copied once, into the buffer the selector sends
+ * from.</p>
+ * <p>At most
+ * {@value com.coswald.jtalker.net.websocket.WebSocketConstants#SEND_BUFFER_BYTES}
+ * bytes wait to be sent. A line written while there is no room for it waits,
+ * just as it would when written to a socket whose send buffer is full, so a
+ * browser that does not keep up is treated exactly like any other client
+ * that does not.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class WebSocketConnection extends Socket
+{
+  private static final long NANOS_PER_MILLI = 1000000L;
+  private static final int CLOSE_FRAME_BYTES = 4;
+  private static final String HEADER_END = "\r\n\r\n";
+  
+  private WebSocketListener listener;
+  private SocketChannel channel;
+  private SocketAddress remote;
+  private SocketAddress local;
+  private boolean upgraded;
+  private boolean closed;
+  private long closedAt;
+  private boolean ended;
+  private boolean closeSent;
+  private boolean finished;
+  private IOException failure;
+  private int readTimeout;
+  private InputStream input;
+  private OutputStream output;
+  
+  private ByteBuffer incoming;
+  private ByteArrayOutputStream fragments;
+  private ArrayDeque<byte[]> readable;
+  private int readableBytes;
+  private int readOffset;
+  
+  private ByteBuffer outgoing;
+  private boolean greeted;
+  private int lengthRead;
+  private int lineLength;
+  private byte[] partial;
+  private int partialFilled;
+  
+  /*
+   * A connection starts out waiting for its handshake.
+   */
+  WebSocketConnection(WebSocketListener listener, SocketChannel channel)
+    throws IOException
+  {
+    this.listener = listener;
+    this.channel = channel;
+    this.remote = channel.getRemoteAddress();
+    this.local = channel.getLocalAddress();
+    this.input = new WebSocketInputStream();
+    this.output = new WebSocketOutputStream();
+    this.incoming = ByteBuffer.allocate(WebSocketConstants.MAX_MESSAGE_BYTES +
+      WebSocketConstants.MAX_HEADER_BYTES);
+    this.readable = new ArrayDeque<byte[]>();
+    this.outgoing = ByteBuffer.allocate(WebSocketConstants.SEND_BUFFER_BYTES);
+  }
+  
+  /**
+   * Returns the lines sent by the browser.
+   * @return The input stream.
+   * @throws IOException If we are closed.
+   */
+  @Override
+  public InputStream getInputStream() throws IOException
+  {
+    if(this.isClosed())
+    {
+      throw new SocketException("Socket is closed");
+    }
+    return this.input;
+  }
+  
+  /**
+   * Returns the stream lines are written to the browser through.
+   * @return The output stream.
+   * @throws IOException If we are closed.
+   */
+  @Override
+  public OutputStream getOutputStream() throws IOException
+  {
+    if(this.isClosed())
+    {
+      throw new SocketException("Socket is closed");
+    }
+    return this.output;
+  }
+  
+  /**
+   * Closes the connection. Anything already written is still sent, followed
+   * by a close frame; anything the browser sends from now on is thrown away.
+   */
+  @Override
+  public synchronized void close()
+  {
+    if(this.closed)
+    {
+      return;
+    }
+    this.closed = true;
+    this.closedAt = System.nanoTime();
+    this.readable.clear();
+    this.readableBytes = 0;
+    if(!this.closeSent && this.failure == null && !this.finished)
+    {
+      this.queueClose(WebSocketConstants.NORMAL_CLOSURE);
+    }
+    this.notifyAll();
+    this.listener.wakeup();
+  }
+  
+  /**
+   * Returns whether the connection has been closed by us.
+   * @return {@code true} if it has.
+   */
+  @Override
+  public synchronized boolean isClosed()
+  {
+    return this.closed;
+  }
+  
+  /**
+   * Returns whether we are connected, which we always are once we have been
+   * handed out.
+   * @return {@code true}.
+   */
+  @Override
+  public boolean isConnected()
+  {
+    return true;
+  }
+  
+  /**
+   * Returns whether we are bound to a local address, which we always are.
+   * @return {@code true}.
+   */
+  @Override
+  public boolean isBound()
+  {
+    return true;
+  }
+  
+  /**
+   * Returns the address of the browser.
+   * @return The remote address.
+   */
+  @Override
+  public InetAddress getInetAddress()
+  {
+    return ((InetSocketAddress)this.remote).getAddress();
+  }
+  
+  /**
+   * Returns the port of the browser.
+   * @return The remote port.
+   */
+  @Override
+  public int getPort()
+  {
+    return ((InetSocketAddress)this.remote).getPort();
+  }
+  
+  /**
+   * Returns the address and port of the browser.
+   * @return The remote socket address.
+   */
+  @Override
+  public SocketAddress getRemoteSocketAddress()
+  {
+    return this.remote;
+  }
+  
+  /**
+   * Returns the local address the browser connected to.
+   * @return The local address.
+   */
+  @Override
+  public InetAddress getLocalAddress()
+  {
+    return ((InetSocketAddress)this.local).getAddress();
+  }
+  
+  /**
+   * Returns the local port the browser connected to.
+   * @return The local port.
+   */
+  @Override
+  public int getLocalPort()
+  {
+    return ((InetSocketAddress)this.local).getPort();
+  }
+  
+  /**
+   * Returns the local address and port the browser connected to.
+   * @return The local socket address.
+   */
+  @Override
+  public SocketAddress getLocalSocketAddress()
+  {
+    return this.local;
+  }
+  
+  /**
+   * Sets how long a read waits for a line before giving up.
+   * @param timeout The timeout, in milliseconds, or 0 to wait forever.
+   * @throws IllegalArgumentException If the timeout is negative.
+   */
+  @Override
+  public synchronized void setSoTimeout(int timeout)
+  {
+    if(timeout < 0)
+    {
+      throw new IllegalArgumentException("The timeout can not be negative!");
+    }
+    this.readTimeout = timeout;
+  }
+  
+  /**
+   * Returns how long a read waits for a line before giving up.
+   * @return The timeout, in milliseconds, or 0 if it waits forever.
+   */
+  @Override
+  public synchronized int getSoTimeout()
+  {
+    return this.readTimeout;
+  }
+  
+  /**
+   * Returns how many bytes are waiting to be sent to the browser.
+   * @return The amount of bytes waiting.
+   */
+  public synchronized int getPending()
+  {
+    return this.outgoing.position();
+  }
+  
+  /**
+   * Returns a description of this connection.
+   * @return The address of the browser.
+   */
+  @Override
+  public String toString()
+  {
+    return "WebSocketConnection[" + this.remote + "]";
+  }
+  
+  SocketChannel channel()
+  {
+    return this.channel;
+  }
+  
+  /*
+   * Returns what the selector should wait on for us: reading, unless we have
+   * more lines waiting than we hold, and writing, if there is anything to.
+   */
+  synchronized int interest()
+  {
+    int ops = 0;
+    if(!this.ended && !this.closed && this.readableBytes <
+      WebSocketConstants.RECEIVE_BUFFER_BYTES)
+    {
+      ops |= SelectionKey.OP_READ;
+    }
+    if(this.outgoing.position() > 0)
+    {
+      ops |= SelectionKey.OP_WRITE;
+    }
+    return ops;
+  }
+  
+  /*
+   * Called by the selector once there are bytes to read.
+   */
+  synchronized void receive()
+  {
+    int count;
+    try
+    {
+      count = this.channel.read(this.incoming);
+    }
+    catch(IOException i)
+    {
+      this.fail(i);
+      return;
+    }
+    if(count < 0)
+    {
+      this.ended = true;
+      this.notifyAll();
+      return;
+    }
+    if(!this.upgraded)
+    {
+      this.handshake();
+    }
+    if(this.upgraded)
+    {
+      this.frames();
+    }
+  }
+  
+  /*
+   * Called by the selector once there is room to send.
+   */
+  synchronized void send()
+  {
+    this.outgoing.flip();
+    try
+    {
+      this.channel.write(this.outgoing);
+    }
+    catch(IOException i)
+    {
+      this.outgoing.clear();
+      this.fail(i);
+      return;
+    }
+    if(this.outgoing.hasRemaining())
+    {
+      this.outgoing.compact();
+    }
+    else
+    {
+      this.outgoing.clear();
+    }
+    this.notifyAll();
+  }
+  
+  /*
+   * Whether the selector should close the channel: once everything is sent
+   * after either end closed, or once a closed connection has lingered long
+   * enough.
+   */
+  synchronized boolean isFinished(long now)
+  {
+    if(this.failure != null)
+    {
+      return true;
+    }
+    boolean drained = this.outgoing.position() == 0;
+    if(this.closed)
+    {
+      return drained || now - this.closedAt >
+        WebSocketConstants.LINGER_MILLIS * NANOS_PER_MILLI;
+    }
+    return drained && this.ended && (this.closeSent || !this.upgraded);
+  }
+  
+  /*
+   * Called by the selector once it has closed the channel.
+   */
+  synchronized void finish()
+  {
+    this.finished = true;
+    this.ended = true;
+    this.notifyAll();
+  }
+  
+  synchronized void fail(IOException failure)
+  {
+    if(this.failure == null)
+    {
+      this.failure = failure;
+    }
+    this.ended = true;
+    this.notifyAll();
+  }
+  
+  /*
+   * Answers the handshake once all of it has been read. Whatever follows it
+   * is left to be read as frames.
+   */
+  private void handshake()
+  {
+    byte[] bytes = this.incoming.array();
+    String read = new String(bytes, 0, this.incoming.position(),
+      StandardCharsets.ISO_8859_1);
+    int end = read.indexOf(HEADER_END);
+    if(end < 0)
+    {
+      if(this.incoming.position() > WebSocketConstants.MAX_HANDSHAKE_BYTES)
+      {
+        this.reject("431 Request Header Fields Too Large");
+      }
+      return;
+    }
+    String[] lines = read.substring(0, end).split("\r\n");
+    Map<String, String> headers = new HashMap<String, String>();
+    for(int i = 1; i < lines.length; i++)
+    {
+      int colon = lines[i].indexOf(':');
+      if(colon > 0)
+      {
+        headers.put(lines[i].substring(0, colon).trim().toLowerCase(
+          Locale.ROOT), lines[i].substring(colon + 1).trim());
+      }
+    }
+    String key = headers.get("sec-websocket-key");
+    if(!lines[0].startsWith("GET ") || key == null ||
+      !contains(headers.get("upgrade"), "websocket") ||
+      !contains(headers.get("connection"), "upgrade"))
+    {
+      this.reject("400 Bad Request");
+      return;
+    }
+    if(!WebSocketConstants.VERSION.equals(headers.get(
+      "sec-websocket-version")))
+    {
+      this.reject("426 Upgrade Required\r\nSec-WebSocket-Version: " +
+        WebSocketConstants.VERSION);
+      return;
+    }
+    this.respond("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\n" +
+      "Connection: Upgrade\r\nSec-WebSocket-Accept: " + acceptKey(key) +
+      HEADER_END);
+    this.incoming.flip();
+    this.incoming.position(end + HEADER_END.length());
+    this.incoming.compact();
+    this.upgraded = true;
+    this.listener.upgraded(this);
+  }
+  
+  private void reject(String status)
+  {
+    this.respond("HTTP/1.1 " + status + "\r\nContent-Length: 0\r\n" +
+      "Connection: close" + HEADER_END);
+    this.ended = true;
+  }
+  
+  private void respond(String response)
+  {
+    this.outgoing.put(response.getBytes(StandardCharsets.ISO_8859_1));
+  }
+  
+  /*
+   * Reads every whole frame we hold. A frame is only unmasked once all of it
+   * is here, and in place.
+   */
+  private void frames()
+  {
+    ByteBuffer in = this.incoming;
+    byte[] bytes = in.array();
+    in.flip();
+    while(!this.ended && in.remaining() >= 2)
+    {
+      int start = in.position();
+      int first = bytes[start] & 0xFF;
+      int second = bytes[start + 1] & 0xFF;
+      int opcode = first & 0x0F;
+      boolean fin = (first & 0x80) != 0;
+      if((first & 0x70) != 0 || (second & 0x80) == 0)
+      {
+        this.closeWith(WebSocketConstants.PROTOCOL_ERROR);
+        break;
+      }
+      long length = second & 0x7F;
+      int header = 2;
+      if(length == 126)
+      {
+        header = 4;
+        length = (in.remaining() < header) ? 0L : in.getShort(start + 2) &
+          0xFFFF;
+      }
+      else if(length == 127)
+      {
+        header = 10;
+        length = (in.remaining() < header) ? 0L : in.getLong(start + 2);
+      }
+      header += 4;
+      if(in.remaining() < header)
+      {
+        break;
+      }
+      if(opcode >= WebSocketConstants.CLOSE && (!fin || length > 125))
+      {
+        this.closeWith(WebSocketConstants.PROTOCOL_ERROR);
+        break;
+      }
+      if(length < 0 || length > WebSocketConstants.MAX_MESSAGE_BYTES)
+      {
+        this.closeWith(WebSocketConstants.MESSAGE_TOO_BIG);
+        break;
+      }
+      if(in.remaining() < header + length)
+      {
+        break;
+      }
+      int payload = start + header;
+      for(int i = 0; i < length; i++)
+      {
+        bytes[payload + i] ^= bytes[payload - 4 + (i & 3)];
+      }
+      in.position(payload + (int)length);
+      this.frame(opcode, fin, bytes, payload, (int)length);
+    }
+    in.compact();
+  }
+  
+  private void frame(int opcode, boolean fin, byte[] b, int off, int len)
+  {
+    switch(opcode)
+    {
+      case WebSocketConstants.TEXT:
+        if(this.fragments != null)
+        {
+          this.closeWith(WebSocketConstants.PROTOCOL_ERROR);
+        }
+        else if(fin)
+        {
+          this.line(b, off, len);
+        }
+        else
+        {
+          this.fragments = new ByteArrayOutputStream();
+          this.fragments.write(b, off, len);
+        }
+        break;
+      case WebSocketConstants.CONTINUATION:
+        if(this.fragments == null)
+        {
+          this.closeWith(WebSocketConstants.PROTOCOL_ERROR);
+          break;
+        }
+        if(this.fragments.size() + len > WebSocketConstants.MAX_MESSAGE_BYTES)
+        {
+          this.closeWith(WebSocketConstants.MESSAGE_TOO_BIG);
+          break;
+        }
+        this.fragments.write(b, off, len);
+        if(fin)
+        {
+          byte[] message = this.fragments.toByteArray();
+          this.fragments = null;
+          this.line(message, 0, message.length);
+        }
+        break;
+      case WebSocketConstants.CLOSE:
+        this.closeWith((len >= 2) ? ((b[off] & 0xFF) << 8) |
+          (b[off + 1] & 0xFF) : WebSocketConstants.NORMAL_CLOSURE);
+        break;
+      case WebSocketConstants.PING:
+        if(!this.closeSent && this.outgoing.remaining() - CLOSE_FRAME_BYTES >=
+          2 + len)
+        {
+          this.frameHeader(WebSocketConstants.PONG, len);
+          this.outgoing.put(b, off, len);
+        }
+        break;
+      case WebSocketConstants.PONG:
+        break;
+      case WebSocketConstants.BINARY:
+        this.closeWith(WebSocketConstants.UNSUPPORTED_DATA);
+        break;
+      default:
+        this.closeWith(WebSocketConstants.PROTOCOL_ERROR);
+        break;
+    }
+  }
+  
+  /*
+   * Hands a text message to the reader, framed as writeUTF would have.
+   */
+  private void line(byte[] b, int off, int len)
+  {
+    if(this.closed)
+    {
+      return;
+    }
+    byte[] line;
+    int kind = scanUTF8(b, off, len);
+    if(kind < 0)
+    {
+      this.closeWith(WebSocketConstants.INVALID_DATA);
+      return;
+    }
+    if(kind == 0)
+    {
+      line = new byte[len + 2];
+      line[0] = (byte)(len >>> 8);
+      line[1] = (byte)len;
+      System.arraycopy(b, off, line, 2, len);
+    }
+    else
+    {
+      ByteArrayOutputStream converted = new ByteArrayOutputStream(len + 8);
+      try
+      {
+        (new DataOutputStream(converted)).writeUTF(new String(b, off, len,
+          StandardCharsets.UTF_8));
+      }
+      catch(UTFDataFormatException u)
+      {
+        this.closeWith(WebSocketConstants.MESSAGE_TOO_BIG);
+        return;
+      }
+      catch(IOException i)
+      {
+        throw new IllegalStateException(i);
+      }
+      line = converted.toByteArray();
+    }
+    this.readable.add(line);
+    this.readableBytes += line.length;
+    this.notifyAll();
+  }
+  
+  /*
+   * Sends a close frame, if we have not yet, and ends the stream for the
+   * reader.
+   */
+  private void closeWith(int status)
+  {
+    if(!this.closeSent)
+    {
+      this.queueClose(status);
+    }
+    this.ended = true;
+    this.notifyAll();
+  }
+  
+  private void queueClose(int status)
+  {
+    this.frameHeader(WebSocketConstants.CLOSE, 2);
+    this.outgoing.putShort((short)status);
+    this.closeSent = true;
+  }
+  
+  /*
+   * Frames we send are never masked.
+   */
+  private void frameHeader(int opcode, int len)
+  {
+    this.outgoing.put((byte)(0x80 | opcode));
+    if(len < 126)
+    {
+      this.outgoing.put((byte)len);
+    }
+    else
+    {
+      this.outgoing.put((byte)126);
+      this.outgoing.putShort((short)len);
+    }
+  }
+  
+  private synchronized int read(byte[] b, int off, int len) throws IOException
+  {
+    if(len == 0)
+    {
+      return 0;
+    }
+    long deadline = System.currentTimeMillis() + this.readTimeout;
+    while(this.readable.isEmpty() && !this.ended && !this.closed)
+    {
+      long left = deadline - System.currentTimeMillis();
+      if(this.readTimeout > 0 && left <= 0L)
+      {
+        throw new SocketTimeoutException("Read timed out");
+      }
+      try
+      {
+        this.wait((this.readTimeout > 0) ? left : 0L);
+      }
+      catch(InterruptedException ie)
+      {
+        throw new InterruptedIOException("Read interrupted");
+      }
+    }
+    if(this.closed)
+    {
+      throw new SocketException("Socket closed");
+    }
+    if(this.readable.isEmpty())
+    {
+      if(this.failure != null)
+      {
+        throw this.failure;
+      }
+      return -1;
+    }
+    boolean paused = this.readableBytes >=
+      WebSocketConstants.RECEIVE_BUFFER_BYTES;
+    int read = 0;
+    while(read < len && !this.readable.isEmpty())
+    {
+      byte[] first = this.readable.peekFirst();
+      int count = Math.min(len - read, first.length - this.readOffset);
+      System.arraycopy(first, this.readOffset, b, off + read, count);
+      read += count;
+      this.readOffset += count;
+      if(this.readOffset == first.length)
+      {
+        this.readable.pollFirst();
+        this.readableBytes -= first.length;
+        this.readOffset = 0;
+      }
+    }
+    if(paused && this.readableBytes <
+      WebSocketConstants.RECEIVE_BUFFER_BYTES)
+    {
+      this.listener.wakeup();
+    }
+    return read;
+  }
+  
+  private synchronized int available()
+  {
+    return Math.max(this.readableBytes - this.readOffset, 0);
+  }
+  
+  /*
+   * Takes apart what a DataOutputStream writes: the boolean a client is
+   * greeted with, then the length and bytes of each string. A string written
+   * in one piece, as writeUTF does, is framed straight from the array it was
+   * written from.
+   */
+  private synchronized void write(byte[] b, int off, int len)
+    throws IOException
+  {
+    while(len > 0)
+    {
+      if(!this.greeted)
+      {
+        this.greeted = true;
+        if(b[off] == 0)
+        {
+          this.closeWith(WebSocketConstants.POLICY_VIOLATION);
+          this.listener.wakeup();
+        }
+        off++;
+        len--;
+        continue;
+      }
+      if(this.lengthRead == 0 && len >= 2)
+      {
+        int length = ((b[off] & 0xFF) << 8) | (b[off + 1] & 0xFF);
+        if(len - 2 >= length)
+        {
+          this.sendLine(b, off + 2, length);
+          off += length + 2;
+          len -= length + 2;
+          continue;
+        }
+      }
+      if(this.lengthRead < 2)
+      {
+        this.lineLength = (this.lineLength << 8) | (b[off] & 0xFF);
+        this.lengthRead++;
+        off++;
+        len--;
+        if(this.lengthRead < 2)
+        {
+          continue;
+        }
+        this.partial = new byte[this.lineLength];
+        this.partialFilled = 0;
+      }
+      int count = Math.min(len, this.partial.length - this.partialFilled);
+      System.arraycopy(b, off, this.partial, this.partialFilled, count);
+      this.partialFilled += count;
+      off += count;
+      len -= count;
+      if(this.partialFilled == this.partial.length)
+      {
+        byte[] line = this.partial;
+        this.partial = null;
+        this.lengthRead = 0;
+        this.lineLength = 0;
+        this.sendLine(line, 0, line.length);
+      }
+    }
+  }
+  
+  /*
+   * Frames a string written in modified UTF-8 as a text message, waiting for
+   * room if there is none.
+   */
+  private void sendLine(byte[] b, int off, int len) throws IOException
+  {
+    if(needsConversion(b, off, len))
+    {
+      byte[] prefixed = new byte[len + 2];
+      prefixed[0] = (byte)(len >>> 8);
+      prefixed[1] = (byte)len;
+      System.arraycopy(b, off, prefixed, 2, len);
+      b = (new DataInputStream(new ByteArrayInputStream(prefixed))).readUTF()
+        .getBytes(StandardCharsets.UTF_8);
+      off = 0;
+      len = b.length;
+    }
+    int needed = ((len < 126) ? 2 : 4) + len;
+    while(!this.closed && !this.closeSent && this.failure == null &&
+      this.outgoing.remaining() - CLOSE_FRAME_BYTES < needed)
+    {
+      try
+      {
+        this.wait();
+      }
+      catch(InterruptedException ie)
+      {
+        throw new InterruptedIOException("Write interrupted");
+      }
+    }
+    if(this.closed)
+    {
+      throw new SocketException("Socket closed");
+    }
+    if(this.failure != null)
+    {
+      throw this.failure;
+    }
+    if(this.closeSent)
+    {
+      //the browser is going away; what it would have been sent is dropped
+      return;
+    }
+    boolean idle = this.outgoing.position() == 0;
+    this.frameHeader(WebSocketConstants.TEXT, len);
+    this.outgoing.put(b, off, len);
+    if(idle)
+    {
+      this.listener.wakeup();
+    }
+  }
+  
+  /*
+   * Returns -1 if the bytes are not UTF-8, 1 if they are but differ from the
+   * modified UTF-8 of the same string, and 0 if they are the same.
+   */
+  private static int scanUTF8(byte[] b, int off, int len)
+  {
+    int kind = 0;
+    int end = off + len;
+    int i = off;
+    while(i < end)
+    {
+      int c = b[i] & 0xFF;
+      int following;
+      if(c < 0x80)
+      {
+        kind |= (c == 0) ? 1 : 0;
+        i++;
+        continue;
+      }
+      else if(c < 0xC2)
+      {
+        return -1;
+      }
+      else if(c < 0xE0)
+      {
+        following = 1;
+      }
+      else if(c < 0xF0)
+      {
+        following = 2;
+        if(c == 0xED && i + 1 < end && (b[i + 1] & 0xFF) >= 0xA0)
+        {
+          return -1;
+        }
+      }
+      else if(c < 0xF5)
+      {
+        following = 3;
+        kind = 1;
+      }
+      else
+      {
+        return -1;
+      }
+      if(i + following >= end)
+      {
+        return -1;
+      }
+      for(int j = 1; j <= following; j++)
+      {
+        if((b[i + j] & 0xC0) != 0x80)
+        {
+          return -1;
+        }
+      }
+      i += following + 1;
+    }
+    return kind;
+  }
+  
+  /*
+   * Modified UTF-8 only differs from UTF-8 in writing the null character as
+   * two bytes (the first of which is 0xC0), and surrogates one by one (each
+   * starting with 0xED).
+   */
+  private static boolean needsConversion(byte[] b, int off, int len)
+  {
+    for(int i = off; i < off + len; i++)
+    {
+      if(b[i] == (byte)0xC0 || b[i] == (byte)0xED)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  private static boolean contains(String header, String token)
+  {
+    if(header == null)
+    {
+      return false;
+    }
+    for(String part : header.split(","))
+    {
+      if(part.trim().equalsIgnoreCase(token))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  private static String acceptKey(String key)
+  {
+    try
+    {
+      MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+      return Base64.getEncoder().encodeToString(sha1.digest((key +
+        WebSocketConstants.HANDSHAKE_GUID).getBytes(
+        StandardCharsets.ISO_8859_1)));
+    }
+    catch(NoSuchAlgorithmException n)
+    {
+      throw new IllegalStateException("SHA-1 is always available", n);
+    }
+  }
+  
+  private class WebSocketInputStream extends InputStream
+  {
+    @Override
+    public int read() throws IOException
+    {
+      byte[] b = new byte[1];
+      return (WebSocketConnection.this.read(b, 0, 1) < 0) ? -1 :
+        (b[0] & 0xFF);
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      return WebSocketConnection.this.read(b, off, len);
+    }
+    
+    @Override
+    public int available()
+    {
+      return WebSocketConnection.this.available();
+    }
+    
+    @Override
+    public void close()
+    {
+      WebSocketConnection.this.close();
+    }
+  }
+  
+  private class WebSocketOutputStream extends OutputStream
+  {
+    @Override
+    public void write(int b) throws IOException
+    {
+      WebSocketConnection.this.write(new byte[] {(byte)b}, 0, 1);
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      if(off < 0 || len < 0 || len > b.length - off)
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      WebSocketConnection.this.write(b, off, len);
+    }
+    
+    @Override
+    public void close()
+    {
+      WebSocketConnection.this.close();
+    }
+  }
+}
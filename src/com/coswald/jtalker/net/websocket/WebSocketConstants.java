@@ -0,0 +1,158 @@
+/*
+ * WebSocketConstants.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.websocket;
+
+/**
+ * <p>A set of descriptions for specific constants used when talking to
+ * browsers over WebSockets. Just like the other constants classes, this class
+ * is a utility class and cannot be extended.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public final class WebSocketConstants
+{
+  /**
+   * The string appended to the key of a handshake before it is hashed into
+   * the accept key, as given by RFC 6455.
+   */
+  public static final String HANDSHAKE_GUID =
+    "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+  
+  /**
+   * The only version of the protocol we speak ({@value}).
+   */
+  public static final String VERSION = "13";
+  
+  /**
+   * The opcode of a frame that continues a fragmented message.
+   */
+  public static final int CONTINUATION = 0x0;
+  
+  /**
+   * The opcode of a frame that holds (the start of) a text message.
+   */
+  public static final int TEXT = 0x1;
+  
+  /**
+   * The opcode of a frame that holds (the start of) a binary message, which
+   * we do not take.
+   */
+  public static final int BINARY = 0x2;
+  
+  /**
+   * The opcode of a frame that closes the connection.
+   */
+  public static final int CLOSE = 0x8;
+  
+  /**
+   * The opcode of a frame that asks for a {@link #PONG pong}.
+   */
+  public static final int PING = 0x9;
+  
+  /**
+   * The opcode of a frame that answers a {@link #PING ping}.
+   */
+  public static final int PONG = 0xA;
+  
+  /**
+   * The status of a close frame for a connection closed normally.
+   */
+  public static final int NORMAL_CLOSURE = 1000;
+  
+  /**
+   * The status of a close frame for a frame that breaks the protocol.
+   */
+  public static final int PROTOCOL_ERROR = 1002;
+  
+  /**
+   * The status of a close frame for a message of a type we do not take.
+   */
+  public static final int UNSUPPORTED_DATA = 1003;
+  
+  /**
+   * The status of a close frame for a text message that is not UTF-8.
+   */
+  public static final int INVALID_DATA = 1007;
+  
+  /**
+   * The status of a close frame for a connection the server turned away.
+   */
+  public static final int POLICY_VIOLATION = 1008;
+  
+  /**
+   * The status of a close frame for a message too big to be a line.
+   */
+  public static final int MESSAGE_TOO_BIG = 1009;
+  
+  /**
+   * The most bytes a message may hold. A line is read and written using
+   * {@link java.io.DataOutput#writeUTF(String) writeUTF}, which can hold at
+   * most this many bytes. This is currently set to {@value}.
+   */
+  public static final int MAX_MESSAGE_BYTES = 65535;
+  
+  /**
+   * The most bytes the header of a frame may take up ({@value}).
+   */
+  public static final int MAX_HEADER_BYTES = 14;
+  
+  /**
+   * The most bytes the handshake of a connection may take up. This is
+   * currently set to {@value}.
+   */
+  public static final int MAX_HANDSHAKE_BYTES = 8192;
+  
+  /**
+   * The most bytes waiting to be sent to one connection. A line written to a
+   * connection that has no room waits for it, just as one written to a
+   * socket with a full send buffer does. This is currently set to {@value}.
+   */
+  public static final int SEND_BUFFER_BYTES = 256 * 1024;
+  
+  /**
+   * The most bytes of lines received from one connection that wait to be
+   * read. Once there are more, we stop reading from the connection until
+   * they are. This is currently set to {@value}.
+   */
+  public static final int RECEIVE_BUFFER_BYTES = 256 * 1024;
+  
+  /**
+   * How long, in milliseconds, a closed connection is given to send what it
+   * still holds. This is currently set to {@value}.
+   */
+  public static final long LINGER_MILLIS = 2000L;
+  
+  /**
+   * How long, in milliseconds, the selector waits at most before checking on
+   * closed connections again. This is currently set to {@value}.
+   */
+  public static final long SELECT_MILLIS = 250L;
+  
+  /**
+   * How long, in milliseconds, an accept waits before checking whether the
+   * listener was closed. This is currently set to {@value}.
+   */
+  public static final long ACCEPT_MILLIS = 1000L;
+  
+  private WebSocketConstants() {}
+}
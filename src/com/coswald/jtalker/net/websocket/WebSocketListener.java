@@ -0,0 +1,269 @@
+/*
+ * WebSocketListener.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.websocket;
+
+import com.coswald.jtalker.net.transport.TransportListener;
+import com.coswald.jtalker.net.websocket.WebSocketConnection;
+import com.coswald.jtalker.net.websocket.WebSocketConstants;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A port browsers connect to over WebSockets. Much like a
+ * {@link java.net.ServerSocket ServerSocket}, a listener
+ * {@link #accept() accepts} connections, each of which is handed out as a
+ * {@link com.coswald.jtalker.net.websocket.WebSocketConnection
+ * WebSocketConnection} once its handshake is done.</p>
+ * <p>Every connection is read from and written to by one thread, through a
+ * {@link java.nio.channels.Selector Selector}; only the threads that read and
+ * write lines wait on a connection, never the one that does its I/O. A
+ * connection is forgotten once it is closed and everything it was sent has
+ * gone out.</p>
+ * @author C. William Oswald
+ * @version 0.0.2
+ * @since JTalker 0.3.0
+ */
+public class WebSocketListener implements TransportListener
+{
+  private ServerSocketChannel server;
+  private Selector selector;
+  private BlockingQueue<WebSocketConnection> accepted;
+  private Set<WebSocketConnection> connections;
+  
+  /**
+   * Constructs a listener bound to the given port.
+   * @param port The port to bind to, or 0 for any free one.
+   * @throws IOException If the port could not be bound.
+   */
+  public WebSocketListener(int port) throws IOException
+  {
+    this.accepted = new LinkedBlockingQueue<WebSocketConnection>();
+    this.connections = Collections.newSetFromMap(
+      new ConcurrentHashMap<WebSocketConnection, Boolean>());
+    this.selector = Selector.open();
+    this.server = ServerSocketChannel.open();
+    try
+    {
+      this.server.bind(new InetSocketAddress(port));
+      this.server.configureBlocking(false);
+      this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+    }
+    catch(IOException i)
+    {
+      this.server.close();
+      this.selector.close();
+      throw i;
+    }
+    Thread t = new Thread(this::select, "JTalker WebSocket Selector");
+    t.setDaemon(true);
+    t.start();
+  }
+  
+  /**
+   * Waits for a browser to connect and finish its handshake.
+   * @return The connection.
+   * @throws SocketException If we have been closed.
+   * @throws IOException If we were interrupted.
+   */
+  @Override
+  public WebSocketConnection accept() throws IOException
+  {
+    while(this.server.isOpen())
+    {
+      try
+      {
+        WebSocketConnection connection = this.accepted.poll(
+          WebSocketConstants.ACCEPT_MILLIS, TimeUnit.MILLISECONDS);
+        if(connection != null)
+        {
+          return connection;
+        }
+      }
+      catch(InterruptedException ie)
+      {
+        throw new SocketException("Accept interrupted");
+      }
+    }
+    throw new SocketException("Listener closed");
+  }
+  
+  /**
+   * Returns every connection that is still open.
+   * @return The connections.
+   */
+  public Collection<WebSocketConnection> getConnections()
+  {
+    return Collections.unmodifiableCollection(this.connections);
+  }
+  
+  /**
+   * Returns the port we are bound to.
+   * @return The local port, or -1 if we are closed.
+   */
+  @Override
+  public int getLocalPort()
+  {
+    try
+    {
+      return ((InetSocketAddress)this.server.getLocalAddress()).getPort();
+    }
+    catch(IOException i)
+    {
+      return -1;
+    }
+  }
+  
+  /**
+   * Closes the port, and with it every connection.
+   * @throws IOException If the port could not be closed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.server.close();
+    this.selector.close();
+    for(WebSocketConnection connection : this.connections)
+    {
+      connection.fail(new SocketException("Listener closed"));
+      connection.channel().close();
+    }
+    this.connections.clear();
+  }
+  
+  /*
+   * Called by a connection once its handshake is done.
+   */
+  void upgraded(WebSocketConnection connection)
+  {
+    this.accepted.add(connection);
+  }
+  
+  /*
+   * Called by a connection once it has something to send, or room to read
+   * into again.
+   */
+  void wakeup()
+  {
+    this.selector.wakeup();
+  }
+  
+  private void select()
+  {
+    try
+    {
+      while(this.selector.isOpen())
+      {
+        this.update();
+        this.selector.select(WebSocketConstants.SELECT_MILLIS);
+        Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+        while(keys.hasNext())
+        {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if(key.isValid() && key.isAcceptable())
+          {
+            this.acceptChannel();
+            continue;
+          }
+          WebSocketConnection connection =
+            (WebSocketConnection)key.attachment();
+          if(key.isValid() && key.isReadable())
+          {
+            connection.receive();
+          }
+          if(key.isValid() && key.isWritable())
+          {
+            connection.send();
+          }
+        }
+      }
+    }
+    catch(IOException | ClosedSelectorException e)
+    {
+      //we have been closed
+    }
+  }
+  
+  /*
+   * Closes the channels of finished connections, and has the selector wait
+   * on what every other connection needs.
+   */
+  private void update() throws IOException
+  {
+    long now = System.nanoTime();
+    for(SelectionKey key : this.selector.keys())
+    {
+      WebSocketConnection connection = (WebSocketConnection)key.attachment();
+      if(connection == null || !key.isValid())
+      {
+        continue;
+      }
+      if(connection.isFinished(now))
+      {
+        key.cancel();
+        key.channel().close();
+        connection.finish();
+        this.connections.remove(connection);
+      }
+      else
+      {
+        key.interestOps(connection.interest());
+      }
+    }
+  }
+  
+  private void acceptChannel() throws IOException
+  {
+    SocketChannel channel = this.server.accept();
+    if(channel == null)
+    {
+      return;
+    }
+    try
+    {
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+      WebSocketConnection connection = new WebSocketConnection(this, channel);
+      channel.register(this.selector, SelectionKey.OP_READ, connection);
+      this.connections.add(connection);
+    }
+    catch(IOException i)
+    {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * WebSocketTransport.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.coswald.jtalker.net.websocket;
+
+import com.coswald.jtalker.net.transport.FrameCodec;
+import com.coswald.jtalker.net.transport.Transport;
+import com.coswald.jtalker.net.transport.UTFFrameCodec;
+import com.coswald.jtalker.net.websocket.WebSocketListener;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * <p>WebSockets, as a
+ * {@link com.coswald.jtalker.net.transport.Transport Transport}. A listener
+ * is a {@link com.coswald.jtalker.net.websocket.WebSocketListener
+ * WebSocketListener}, and each of its connections turns the text messages of
+ * a browser into the frames of a
+ * {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec} and
+ * back. Only browsers connect this way, so this transport can not
+ * {@link #connect(String, int) connect} a JTalker client.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+public class WebSocketTransport implements Transport
+{
+  private FrameCodec codec;
+  
+  /**
+   * Constructs a WebSocket transport.
+   */
+  public WebSocketTransport()
+  {
+    this.codec = new UTFFrameCodec();
+  }
+  
+  /**
+   * Returns the name of this transport, which is {@code WebSocket}.
+   * @return The name.
+   */
+  @Override
+  public String getName()
+  {
+    return "WebSocket";
+  }
+  
+  /**
+   * Makes a listener for browsers bound to the given port.
+   * @param port The port to listen on, or 0 for any free one.
+   * @return The listener.
+   * @throws IOException If the port could not be bound.
+   */
+  @Override
+  public WebSocketListener listen(int port) throws IOException
+  {
+    return new WebSocketListener(port);
+  }
+  
+  /**
+   * Always throws, as only browsers connect over WebSockets.
+   * @param host Not used.
+   * @param port Not used.
+   * @return Never.
+   * @throws UnsupportedOperationException Always.
+   */
+  @Override
+  public Socket connect(String host, int port)
+  {
+    throw new UnsupportedOperationException("Only browsers connect over " +
+      "WebSockets!");
+  }
+  
+  /**
+   * Returns the codec the connections of our listeners carry, which is a
+   * {@link com.coswald.jtalker.net.transport.UTFFrameCodec UTFFrameCodec}.
+   * @return The codec.
+   */
+  @Override
+  public FrameCodec getCodec()
+  {
+    return this.codec;
+  }
+}
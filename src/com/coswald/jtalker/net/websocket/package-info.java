@@ -0,0 +1,35 @@
+/*
+ * package-info.java
+ * 
+ * Copyright 2020 Coved W. Oswald <coswald@uni.edu>
+ * 
+ * This file is part of JTalker.
+ *
+ * JTalker is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * JTalker is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * JTalker. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/**
+ * <p>Lets browsers talk to a JTalker server. A
+ * {@link com.coswald.jtalker.net.websocket.WebSocketListener WebSocketListener}
+ * accepts WebSocket connections (RFC 6455) on a port of its own, using one
+ * thread and a {@link java.nio.channels.Selector Selector} for all of them,
+ * and hands each out as a
+ * {@link com.coswald.jtalker.net.websocket.WebSocketConnection
+ * WebSocketConnection}. Each text message a browser sends is read as one
+ * line, and each line written to it is sent as one text message.</p>
+ * @author C. William Oswald
+ * @version 0.0.1
+ * @since JTalker 0.3.0
+ */
+package com.coswald.jtalker.net.websocket;